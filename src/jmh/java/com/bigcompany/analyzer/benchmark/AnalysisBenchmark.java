@@ -0,0 +1,72 @@
+package com.bigcompany.analyzer.benchmark;
+
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.EmployeeRepository;
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Salary and reporting-line analysis over an organization that is loaded once
+ * per trial, for both the repository and the columnar store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AnalysisBenchmark {
+
+    @Param({"FLAT", "DEEP", "KARY", "POWER_LAW"})
+    public OrgShape shape;
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private EmployeeRepository repository;
+    private ColumnarEmployeeStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String file = shape.csv(size).toString();
+        repository = new EmployeeRepository();
+        repository.loadFromFile(file);
+        store = ColumnarEmployeeStore.from(repository);
+    }
+
+    @Benchmark
+    public List<SalaryAnalyzer.SalaryIssue> salaryRepository() {
+        return new SalaryAnalyzer(repository).analyzeManagerSalaries();
+    }
+
+    @Benchmark
+    public List<SalaryAnalyzer.SalaryIssue> salaryStore() {
+        return new SalaryAnalyzer(store).analyzeManagerSalaries();
+    }
+
+    @Benchmark
+    public List<ReportingLineAnalyzer.ReportingLineIssue> reportingLinesRepository() {
+        return new ReportingLineAnalyzer(repository).analyzeLongReportingLines();
+    }
+
+    @Benchmark
+    public List<ReportingLineAnalyzer.ReportingLineIssue> reportingLinesStore() {
+        return new ReportingLineAnalyzer(store).analyzeLongReportingLines();
+    }
+}
@@ -0,0 +1,68 @@
+package com.bigcompany.analyzer.benchmark;
+
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.EmployeeRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a CSV into the repository and into the columnar store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LoadBenchmark {
+
+    @Param({"FLAT", "DEEP", "KARY", "POWER_LAW"})
+    public OrgShape shape;
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private String file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = shape.csv(size).toString();
+    }
+
+    @Benchmark
+    public EmployeeRepository repositorySequential() throws IOException {
+        EmployeeRepository repository = new EmployeeRepository();
+        repository.loadFromFile(file, EmployeeRepository.LoadMode.SEQUENTIAL);
+        return repository;
+    }
+
+    @Benchmark
+    public EmployeeRepository repositoryParallel() throws IOException {
+        EmployeeRepository repository = new EmployeeRepository();
+        repository.loadFromFile(file, EmployeeRepository.LoadMode.PARALLEL);
+        return repository;
+    }
+
+    @Benchmark
+    public ColumnarEmployeeStore storeSequential() throws IOException {
+        return ColumnarEmployeeStore.load(file, EmployeeRepository.LoadMode.SEQUENTIAL);
+    }
+
+    @Benchmark
+    public ColumnarEmployeeStore storeParallel() throws IOException {
+        return ColumnarEmployeeStore.load(file, EmployeeRepository.LoadMode.PARALLEL);
+    }
+}
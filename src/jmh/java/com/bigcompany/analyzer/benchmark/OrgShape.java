@@ -0,0 +1,126 @@
+package com.bigcompany.analyzer.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/**
+ * Organization shapes used by the benchmarks. Each shape writes a CSV in the
+ * application's input format; employee 1 is the CEO and every other employee
+ * reports to an employee with a lower ID.
+ */
+public enum OrgShape {
+    /** Everyone reports directly to the CEO. */
+    FLAT {
+        @Override
+        long managerOf(long id, long[] state, SplittableRandom random) {
+            return 1;
+        }
+    },
+
+    /**
+     * Chains of {@link #CHAIN_LENGTH} employees below the CEO. A single chain
+     * of millions of employees would make the reporting-line issues alone
+     * quadratic in size, so long chains are repeated instead.
+     */
+    DEEP {
+        @Override
+        long managerOf(long id, long[] state, SplittableRandom random) {
+            return (id - 2) % CHAIN_LENGTH == 0 ? 1 : id - 1;
+        }
+    },
+
+    /** Balanced tree in which every manager has {@link #FANOUT} subordinates. */
+    KARY {
+        @Override
+        long managerOf(long id, long[] state, SplittableRandom random) {
+            return (id - 2) / FANOUT + 1;
+        }
+    },
+
+    /**
+     * Preferential attachment: a new employee joins a manager with probability
+     * proportional to that manager's current team size plus one, giving a few
+     * very large teams and a long tail of small ones.
+     */
+    POWER_LAW {
+        @Override
+        long[] newState(int size) {
+            // Every employee is listed once, plus once more for each subordinate
+            long[] attachments = new long[2 * size];
+            attachments[0] = 1;
+            return attachments;
+        }
+
+        @Override
+        long managerOf(long id, long[] state, SplittableRandom random) {
+            int filled = (int) (2 * (id - 2) + 1);
+            long manager = state[random.nextInt(filled)];
+            state[filled] = manager;
+            state[filled + 1] = id;
+            return manager;
+        }
+    };
+
+    static final int CHAIN_LENGTH = 32;
+    static final int FANOUT = 8;
+
+    private static final long SEED = 42;
+
+    long[] newState(int size) {
+        return null;
+    }
+
+    abstract long managerOf(long id, long[] state, SplittableRandom random);
+
+    /**
+     * Returns a CSV with the given number of employees in this shape. Files are
+     * cached in the temporary directory, so every fork of a benchmark reads the
+     * same data and generation cost is paid once.
+     */
+    public Path csv(int size) throws IOException {
+        Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "bigcompany-benchmarks");
+        Path file = directory.resolve(name().toLowerCase() + "-" + size + ".csv");
+        if (Files.isRegularFile(file)) {
+            return file;
+        }
+
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            write(size, temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return file;
+    }
+
+    private void write(int size, Path file) throws IOException {
+        SplittableRandom random = new SplittableRandom(SEED);
+        long[] state = newState(size);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Id,firstName,lastName,salary,managerId\n");
+            writer.write("1,Chief,Executive,250000,\n");
+            for (long id = 2; id <= size; id++) {
+                long manager = managerOf(id, state, random);
+                writer.write(Long.toString(id));
+                writer.write(",First");
+                writer.write(Long.toString(id % 1000));
+                writer.write(",Last");
+                writer.write(Long.toString(id % 5000));
+                writer.write(',');
+                writer.write(Integer.toString(30000 + random.nextInt(120000)));
+                writer.write(',');
+                writer.write(Long.toString(manager));
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.model.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing one CSV row with the previous split/trim/parseDouble parser and
+ * with {@link CsvRowTokenizer}. Scores are per row; run with {@code -prof gc}
+ * to compare {@code gc.alloc.rate.norm}, the bytes allocated per row.
+ *
+ * In the repository package because the tokenizer is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParseBenchmark {
+    private static final int ROWS = 100_000;
+
+    private final byte[][] rows = new byte[ROWS][];
+    private final CsvRowTokenizer tokenizer = new CsvRowTokenizer();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = (i + ",First" + (i % 5000) + ",Last" + (i % 20000) + ","
+                + (30000 + i % 70000) + "," + (i / 8)).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Includes decoding the row to a String, as BufferedReader.readLine() did.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void splitTrim(Blackhole blackhole) {
+        for (byte[] row : rows) {
+            blackhole.consume(legacyParse(new String(row, StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void tokenizer(Blackhole blackhole) {
+        for (byte[] row : rows) {
+            blackhole.consume(tokenizer.parse(row, row.length));
+        }
+    }
+
+    /**
+     * The row parser used by EmployeeRepository before CsvRowTokenizer.
+     */
+    private static Employee legacyParse(String line) {
+        String[] parts = line.split(",", -1);
+
+        if (parts.length != 5) {
+            throw new IllegalArgumentException("Invalid CSV line: " + line);
+        }
+
+        String id = parts[0].trim();
+        String firstName = parts[1].trim();
+        String lastName = parts[2].trim();
+        double salary = Double.parseDouble(parts[3].trim());
+        String managerId = parts[4].trim();
+        if (managerId.isEmpty()) {
+            managerId = null;
+        }
+
+        return new Employee(id, firstName, lastName, salary, managerId);
+    }
+}
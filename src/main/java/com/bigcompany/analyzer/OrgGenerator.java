@@ -0,0 +1,604 @@
+package com.bigcompany.analyzer;
+
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic organizations in the analyzer's CSV format, for load
+ * and scale testing.
+ *
+ * Usage: java -cp organizational-analyzer.jar com.bigcompany.analyzer.OrgGenerator [options] <output-csv>
+ *
+ * Employees are written in depth-first order. The generator only keeps one
+ * frame per level of the current reporting line, so memory use depends on the
+ * maximum depth and the number of planted depth violations, not on the number
+ * of rows. Each subtree is given an exact row budget when it is started, which
+ * makes the file contain exactly the requested number of employees.
+ *
+ * Salaries are chosen top-down: every manager's subordinates average to a
+ * target derived from the manager's salary, so managers are within the allowed
+ * range unless a violation is planted. The optional ground-truth file is
+ * computed with the analyzers' own rules while the rows are written.
+ */
+public class OrgGenerator {
+    private static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: java -cp organizational-analyzer.jar com.bigcompany.analyzer.OrgGenerator [options] <output-csv>",
+        "Options:",
+        "  --rows N                      number of employees (default 1000)",
+        "  --max-depth N                 deepest level below the CEO (default 5)",
+        "  --fanout N                    average number of direct subordinates (default 8)",
+        "  --fanout-distribution D       fixed, uniform, geometric or power-law (default uniform)",
+        "  --base-salary N               typical salary at the deepest level (default 50000)",
+        "  --salary-spread X             relative spread of salaries within a team (default 0.2)",
+        "  --salary-distribution D       uniform, normal or lognormal (default normal)",
+        "  --salary-violations RATE      share of managers paid outside the allowed range (default 0)",
+        "  --depth-violations N          number of planted reporting lines that are too long (default 0)",
+        "  --seed N                      random seed (default 1)",
+        "  --truth FILE                  also write the expected issues to FILE");
+
+    /**
+     * Distribution of the number of direct subordinates per manager. Each has
+     * the configured fan-out as its mean.
+     */
+    public enum FanoutDistribution {
+        FIXED, UNIFORM, GEOMETRIC, POWER_LAW
+    }
+
+    /**
+     * Distribution of salaries within a team around the team's target average.
+     */
+    public enum SalaryDistribution {
+        UNIFORM, NORMAL, LOGNORMAL
+    }
+
+    /**
+     * Command line options.
+     */
+    public static class Options {
+        private long rows = 1000;
+        private int maxDepth = 5;
+        private int fanout = 8;
+        private FanoutDistribution fanoutDistribution = FanoutDistribution.UNIFORM;
+        private long baseSalary = 50000;
+        private double salarySpread = 0.2;
+        private SalaryDistribution salaryDistribution = SalaryDistribution.NORMAL;
+        private double salaryViolationRate;
+        private int depthViolations;
+        private long seed = 1;
+        private Path truthPath;
+        private Path outputPath;
+
+        /**
+         * Parses command line arguments.
+         *
+         * @throws IllegalArgumentException if the arguments are not valid
+         */
+        public static Options parse(String[] args) {
+            Options options = new Options();
+
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--rows" -> options.rows = parseLong(arg, value(args, ++i, arg));
+                    case "--max-depth" -> options.maxDepth = (int) parseLong(arg, value(args, ++i, arg));
+                    case "--fanout" -> options.fanout = (int) parseLong(arg, value(args, ++i, arg));
+                    case "--fanout-distribution" ->
+                        options.fanoutDistribution = parseEnum(FanoutDistribution.class, arg, value(args, ++i, arg));
+                    case "--base-salary" -> options.baseSalary = parseLong(arg, value(args, ++i, arg));
+                    case "--salary-spread" -> options.salarySpread = parseDouble(arg, value(args, ++i, arg));
+                    case "--salary-distribution" ->
+                        options.salaryDistribution = parseEnum(SalaryDistribution.class, arg, value(args, ++i, arg));
+                    case "--salary-violations" -> options.salaryViolationRate = parseDouble(arg, value(args, ++i, arg));
+                    case "--depth-violations" -> options.depthViolations = (int) parseLong(arg, value(args, ++i, arg));
+                    case "--seed" -> options.seed = parseLong(arg, value(args, ++i, arg));
+                    case "--truth" -> options.truthPath = Path.of(value(args, ++i, arg));
+                    default -> {
+                        if (arg.startsWith("--") || options.outputPath != null) {
+                            throw new IllegalArgumentException("Unexpected argument: " + arg);
+                        }
+                        options.outputPath = Path.of(arg);
+                    }
+                }
+            }
+
+            options.validate();
+            return options;
+        }
+
+        private void validate() {
+            if (outputPath == null) {
+                throw new IllegalArgumentException("Missing output file");
+            }
+            if (rows < 1) {
+                throw new IllegalArgumentException("--rows must be at least 1");
+            }
+            if (maxDepth < 0 || fanout < 1 || baseSalary < 1 || salarySpread < 0 || depthViolations < 0) {
+                throw new IllegalArgumentException("Depth, spread and violation counts must not be negative; "
+                    + "fan-out and base salary must be at least 1");
+            }
+            if (salaryViolationRate < 0 || salaryViolationRate > 1) {
+                throw new IllegalArgumentException("--salary-violations must be between 0 and 1");
+            }
+            long treeRows = rows - (long) depthViolations * CHAIN_LENGTH;
+            if (depthViolations > 0 && treeRows < 2) {
+                throw new IllegalArgumentException("--rows must be at least " + (2 + (long) depthViolations * CHAIN_LENGTH)
+                    + " to plant " + depthViolations + " depth violation(s)");
+            }
+            if (treeRows > 1 && maxDepth == 0) {
+                throw new IllegalArgumentException("--max-depth must be at least 1 for more than one employee");
+            }
+        }
+
+        private static String value(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            return args[index];
+        }
+
+        private static long parseLong(String option, String value) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+            }
+        }
+
+        private static double parseDouble(String option, String value) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+            }
+        }
+
+        private static <E extends Enum<E>> E parseEnum(Class<E> type, String option, String value) {
+            try {
+                return Enum.valueOf(type, value.toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+            }
+        }
+    }
+
+    // Ratios of a manager's salary to their team's average. The analyzers
+    // accept 1.20 to 1.50; the margins keep rounding from crossing the limits.
+    private static final double COMPLIANT_MIN_RATIO = 1.25;
+    private static final double COMPLIANT_MAX_RATIO = 1.45;
+    private static final double TYPICAL_RATIO = 1.35;
+    private static final double UNDERPAID_MIN_RATIO = 1.00;
+    private static final double UNDERPAID_MAX_RATIO = 1.15;
+    private static final double OVERPAID_MIN_RATIO = 1.60;
+    private static final double OVERPAID_MAX_RATIO = 2.00;
+
+    // The CEO's salary grows with the depth so that salaries do not reach the
+    // minimum at the bottom of the tree; capped to keep payroll sums in range
+    private static final int MAX_SALARY_LEVELS = 40;
+
+    // A planted chain of this length under any employee but the CEO is too long
+    private static final int CHAIN_LENGTH = ReportingLineAnalyzer.MAX_MANAGERS_BETWEEN + 1;
+
+    private static final byte[] HEADER = ascii("Id,firstName,lastName,salary,managerId\n");
+    private static final byte[] TRUTH_HEADER = ascii("issue,employeeId,detail,value\n");
+    private static final byte[][] FIRST_NAMES = asciiAll("James", "Mary", "Robert", "Patricia", "John",
+        "Jennifer", "Michael", "Linda", "David", "Elizabeth", "William", "Barbara", "Richard", "Susan",
+        "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen", "Priya", "Wei", "Ahmed", "Olga");
+    private static final byte[][] LAST_NAMES = asciiAll("Smith", "Johnson", "Williams", "Brown", "Jones",
+        "Garcia", "Miller", "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson",
+        "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Patel", "Chen", "Khan", "Ivanova");
+
+    /**
+     * Generator state for one employee on the current reporting line.
+     */
+    private static final class Frame {
+        long id;
+        int depth;
+        long salary;
+        long childCount;
+        long childrenLeft;
+        long rowBudget;       // employees still to place below the remaining children
+        long salaryTarget;    // average salary of the children
+        long salaryLeft;      // total salary still to hand out to the remaining children
+        long salaryLow;
+        long salaryHigh;
+        double childSalaryTotal;
+    }
+
+    private final Options options;
+    private final SplittableRandom random;
+
+    private AsciiWriter csv;
+    private AsciiWriter truth;
+    private long nextId;
+
+    // Reservoir sample of employees without subordinates, for planting depth violations
+    private long[] leafIds;
+    private int[] leafDepths;
+    private long[] leafSalaries;
+    private long leavesSeen;
+
+    public OrgGenerator(Options options) {
+        this.options = options;
+        this.random = new SplittableRandom(options.seed);
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        try {
+            new OrgGenerator(options).generate();
+            System.out.println("Wrote " + options.rows + " employees to " + options.outputPath);
+        } catch (IOException e) {
+            System.err.println("Error writing file: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Writes the organization, and the expected issues if a truth file was
+     * requested.
+     */
+    public void generate() throws IOException {
+        nextId = 1;
+        leavesSeen = 0;
+        leafIds = new long[options.depthViolations];
+        leafDepths = new int[options.depthViolations];
+        leafSalaries = new long[options.depthViolations];
+
+        try (AsciiWriter csvOut = new AsciiWriter(Files.newOutputStream(options.outputPath));
+             AsciiWriter truthOut = options.truthPath == null ? null
+                 : new AsciiWriter(Files.newOutputStream(options.truthPath))) {
+            csv = csvOut;
+            truth = truthOut;
+            csv.write(HEADER);
+            if (truth != null) {
+                truth.write(TRUTH_HEADER);
+            }
+
+            writeTree(options.rows - (long) options.depthViolations * CHAIN_LENGTH);
+            plantDepthViolations();
+        } finally {
+            csv = null;
+            truth = null;
+        }
+    }
+
+    private void writeTree(long treeRows) throws IOException {
+        Frame[] stack = new Frame[options.maxDepth + 1];
+        for (int i = 0; i < stack.length; i++) {
+            stack[i] = new Frame();
+        }
+
+        Frame ceo = stack[0];
+        ceo.id = nextId++;
+        ceo.depth = 0;
+        ceo.salary = Math.round(options.baseSalary * Math.pow(TYPICAL_RATIO, Math.min(options.maxDepth, MAX_SALARY_LEVELS)));
+        writeRow(ceo.id, ceo.salary, 0);
+        plan(ceo, treeRows - 1);
+
+        int top = 0;
+        while (top >= 0) {
+            Frame manager = stack[top];
+            if (manager.childrenLeft == 0) {
+                finish(manager);
+                top--;
+                continue;
+            }
+
+            // A frame at the deepest level never has children, so the stack cannot overflow
+            Frame employee = stack[top + 1];
+            long rowBudget = nextRowBudget(manager);
+            employee.id = nextId++;
+            employee.depth = manager.depth + 1;
+            employee.salary = nextSalary(manager);
+            manager.childrenLeft--;
+            manager.childSalaryTotal += employee.salary;
+
+            writeRow(employee.id, employee.salary, manager.id);
+            checkReportingLine(employee.id, employee.depth);
+            plan(employee, rowBudget);
+            top++;
+        }
+    }
+
+    /**
+     * Decides how many direct subordinates the employee gets and what they
+     * earn on average, given the number of rows to place below them.
+     */
+    private void plan(Frame frame, long rowBudget) {
+        frame.childSalaryTotal = 0;
+        if (rowBudget == 0) {
+            frame.childCount = 0;
+            frame.childrenLeft = 0;
+            return;
+        }
+
+        // The level above the deepest one takes all remaining rows as direct subordinates
+        long children = frame.depth == options.maxDepth - 1 ? rowBudget : Math.min(rowBudget, sampleFanout());
+        frame.childCount = children;
+        frame.childrenLeft = children;
+        frame.rowBudget = rowBudget - children;
+
+        long target = Math.max(1, Math.round(frame.salary / sampleRatio()));
+        double spread = 1 + 3 * options.salarySpread;
+        frame.salaryTarget = target;
+        frame.salaryLeft = target * children;
+        frame.salaryLow = Math.max(1, (long) Math.floor(target / spread));
+        frame.salaryHigh = Math.max(target, (long) Math.ceil(target * spread));
+    }
+
+    private long nextRowBudget(Frame manager) {
+        long share;
+        if (manager.childrenLeft == 1) {
+            share = manager.rowBudget;
+        } else if (options.fanoutDistribution == FanoutDistribution.FIXED) {
+            share = (manager.rowBudget + manager.childrenLeft - 1) / manager.childrenLeft; // Balanced tree
+        } else {
+            share = Math.min(manager.rowBudget,
+                (long) (manager.rowBudget * 2.0 / manager.childrenLeft * random.nextDouble()));
+        }
+        manager.rowBudget -= share;
+        return share;
+    }
+
+    /**
+     * Draws a subordinate's salary, keeping the rest of the team able to reach
+     * the team's target average exactly.
+     */
+    private long nextSalary(Frame manager) {
+        long others = manager.childrenLeft - 1;
+        long min = Math.max(manager.salaryLow, manager.salaryLeft - others * manager.salaryHigh);
+        long max = Math.min(manager.salaryHigh, manager.salaryLeft - others * manager.salaryLow);
+
+        long salary = Math.round(sampleSalary(manager.salaryTarget));
+        salary = Math.max(min, Math.min(max, salary));
+        manager.salaryLeft -= salary;
+        return salary;
+    }
+
+    private void finish(Frame frame) throws IOException {
+        if (frame.childCount > 0) {
+            checkSalary(frame.id, frame.salary, frame.childSalaryTotal / frame.childCount);
+            return;
+        }
+
+        int samples = leafIds.length;
+        long slot = leavesSeen < samples ? leavesSeen : random.nextLong(leavesSeen + 1);
+        if (slot < samples) {
+            leafIds[(int) slot] = frame.id;
+            leafDepths[(int) slot] = frame.depth;
+            leafSalaries[(int) slot] = frame.salary;
+        }
+        leavesSeen++;
+    }
+
+    /**
+     * Appends a reporting chain of {@link #CHAIN_LENGTH} employees below each
+     * sampled employee. An employee gets several chains if the tree has fewer
+     * employees without subordinates than requested violations.
+     */
+    private void plantDepthViolations() throws IOException {
+        int samples = leafIds.length;
+        if (samples == 0) {
+            return;
+        }
+        for (int i = (int) Math.min(leavesSeen, samples); i < samples; i++) {
+            int source = (int) (i % leavesSeen);
+            leafIds[i] = leafIds[source];
+            leafDepths[i] = leafDepths[source];
+            leafSalaries[i] = leafSalaries[source];
+        }
+
+        Integer[] order = new Integer[samples];
+        for (int i = 0; i < samples; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> leafIds[i]));
+
+        int i = 0;
+        while (i < samples) {
+            long leafId = leafIds[order[i]];
+            long leafSalary = leafSalaries[order[i]];
+            double chainHeadTotal = 0;
+            int chains = 0;
+
+            for (; i < samples && leafIds[order[i]] == leafId; i++, chains++) {
+                long managerId = leafId;
+                long managerSalary = leafSalary;
+                int depth = leafDepths[order[i]];
+
+                for (int link = 0; link < CHAIN_LENGTH; link++) {
+                    long id = nextId++;
+                    long salary = Math.max(1, Math.round(managerSalary / uniform(COMPLIANT_MIN_RATIO, COMPLIANT_MAX_RATIO)));
+                    depth++;
+                    writeRow(id, salary, managerId);
+                    checkReportingLine(id, depth);
+
+                    if (link == 0) {
+                        chainHeadTotal += salary;
+                    } else {
+                        checkSalary(managerId, managerSalary, salary); // Only subordinate
+                    }
+                    managerId = id;
+                    managerSalary = salary;
+                }
+            }
+
+            checkSalary(leafId, leafSalary, chainHeadTotal / chains);
+        }
+    }
+
+    private void checkSalary(long id, long salary, double averageSubordinateSalary) throws IOException {
+        if (truth == null) {
+            return;
+        }
+        Employee manager = new Employee(Long.toString(id), "", "", salary, null);
+        SalaryAnalyzer.SalaryIssue issue = SalaryAnalyzer.evaluate(manager, averageSubordinateSalary);
+        if (issue != null) {
+            truth.write("salary,");
+            truth.writeLong(id);
+            truth.write(issue.isEarningTooLittle() ? ",underpaid," : ",overpaid,");
+            truth.write(String.format(Locale.ROOT, "%.2f", issue.getDeviation()));
+            truth.write((byte) '\n');
+        }
+    }
+
+    private void checkReportingLine(long id, int depth) throws IOException {
+        int managersBetween = depth - 1;
+        if (truth != null && managersBetween > ReportingLineAnalyzer.MAX_MANAGERS_BETWEEN) {
+            truth.write("reporting_line,");
+            truth.writeLong(id);
+            truth.write(",managers_between,");
+            truth.writeLong(managersBetween);
+            truth.write((byte) '\n');
+        }
+    }
+
+    private void writeRow(long id, long salary, long managerId) throws IOException {
+        csv.writeLong(id);
+        csv.write((byte) ',');
+        csv.write(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+        csv.write((byte) ',');
+        csv.write(LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+        csv.write((byte) ',');
+        csv.writeLong(salary);
+        csv.write((byte) ',');
+        if (managerId != 0) {
+            csv.writeLong(managerId);
+        }
+        csv.write((byte) '\n');
+    }
+
+    private long sampleFanout() {
+        int fanout = options.fanout;
+        long children = switch (options.fanoutDistribution) {
+            case FIXED -> fanout;
+            case UNIFORM -> 1 + random.nextLong(2L * fanout - 1);
+            case GEOMETRIC -> fanout == 1 ? 1
+                : 1 + (long) (Math.log(1 - random.nextDouble()) / Math.log(1 - 1.0 / fanout));
+            // Pareto with shape 2 and mean equal to the fan-out
+            case POWER_LAW -> (long) Math.ceil(fanout / 2.0 / Math.sqrt(1 - random.nextDouble()));
+        };
+        return Math.max(1, children);
+    }
+
+    private double sampleRatio() {
+        if (options.salaryViolationRate > 0 && random.nextDouble() < options.salaryViolationRate) {
+            return random.nextBoolean()
+                ? uniform(UNDERPAID_MIN_RATIO, UNDERPAID_MAX_RATIO)
+                : uniform(OVERPAID_MIN_RATIO, OVERPAID_MAX_RATIO);
+        }
+        return uniform(COMPLIANT_MIN_RATIO, COMPLIANT_MAX_RATIO);
+    }
+
+    private double sampleSalary(long target) {
+        double spread = options.salarySpread;
+        return switch (options.salaryDistribution) {
+            case UNIFORM -> target * (1 + spread * (2 * random.nextDouble() - 1));
+            case NORMAL -> target * (1 + spread * random.nextGaussian());
+            case LOGNORMAL -> target * Math.exp(spread * random.nextGaussian() - spread * spread / 2);
+        };
+    }
+
+    private double uniform(double min, double max) {
+        return min + (max - min) * random.nextDouble();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[][] asciiAll(String... values) {
+        byte[][] result = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = ascii(values[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Buffered ASCII output that formats numbers without creating strings.
+     */
+    private static final class AsciiWriter implements Closeable {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[1 << 16];
+        private final byte[] digits = new byte[20];
+        private int position;
+
+        AsciiWriter(OutputStream out) {
+            this.out = new BufferedOutputStream(out, 1 << 20);
+        }
+
+        void write(byte value) throws IOException {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            buffer[position++] = value;
+        }
+
+        void write(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.length - position) {
+                flushBuffer();
+            }
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void write(String value) throws IOException {
+            write(ascii(value));
+        }
+
+        /**
+         * Writes a non-negative number.
+         */
+        void writeLong(long value) throws IOException {
+            int length = 0;
+            do {
+                digits[length++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+
+            if (length > buffer.length - position) {
+                flushBuffer();
+            }
+            while (length > 0) {
+                buffer[position++] = digits[--length];
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBuffer();
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -1,30 +1,390 @@
 package com.bigcompany.analyzer;
 
+import com.bigcompany.analyzer.metrics.Metrics;
+import com.bigcompany.analyzer.report.ReportFormat;
+import com.bigcompany.analyzer.report.ReportSink;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.ContentHash;
 import com.bigcompany.analyzer.repository.EmployeeRepository;
+import com.bigcompany.analyzer.repository.EmployeeSnapshot;
+import com.bigcompany.analyzer.repository.ExternalEmployeeStore;
+import com.bigcompany.analyzer.server.QueryServer;
+import com.bigcompany.analyzer.service.ExternalAnalyzer;
 import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.ReportingLineRule;
+import com.bigcompany.analyzer.service.ResultCache;
+import com.bigcompany.analyzer.service.RuleEngine;
 import com.bigcompany.analyzer.service.SalaryAnalyzer;
+import com.bigcompany.analyzer.service.SalaryRangeRule;
+import com.bigcompany.analyzer.service.TopK;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
 
 /**
  * Main application to analyze organizational structure.
  * 
- * Usage: java -jar organizational-analyzer.jar <path-to-csv-file>
+ * Usage: java -jar organizational-analyzer.jar [options] <path-to-csv-file>
  */
 public class OrganizationalAnalyzer {
+    private static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: java -jar organizational-analyzer.jar [options] <path-to-csv-file>",
+        "Options:",
+        "  --parallel      parse the CSV on all cores",
+        "  --concurrent    check ranges of employees on all cores",
+        "  --no-snapshot   always parse the CSV; do not read or write <file>.snapshot",
+        "  --off-heap      keep the organization outside the Java heap; ignores",
+        "                  --parallel and snapshots",
+        "  --format F      report format: text (default), ndjson, json or csv",
+        "  --output FILE   write the report to FILE instead of the console",
+        "  --top K         report only the K largest salary deviations and the K",
+        "                  longest reporting lines, worst first",
+        "  --min-salary-ratio R      lowest manager salary as a multiple of the",
+        "                            subordinates' average (default 1.2)",
+        "  --max-salary-ratio R      highest manager salary as a multiple (default 1.5)",
+        "  --max-managers-between N  longest acceptable reporting line (default 4)",
+        "  --metrics       print phase timings and counters to stderr when done",
+        "  --memory-budget SIZE      keep employees on disk, using about SIZE bytes",
+        "                            of memory (e.g. 512m or 2g), for files too large",
+        "                            to load; ignores --parallel, --concurrent,",
+        "                            snapshots and --cache-dir",
+        "  --spill-dir DIR           where --memory-budget writes its files",
+        "                            (default: the temporary directory)",
+        "  --serve PORT    keep the organization in memory and answer queries over",
+        "                  HTTP on localhost:PORT instead of printing a report",
+        "  --watch         with --serve, reload whenever the CSV file changes",
+        "  --cache-dir DIR           keep results in DIR and reuse them while the",
+        "                            CSV contents and thresholds are unchanged",
+        "  --cache-size SIZE         largest total size of the cached results",
+        "                            (default 256m)");
+
+    private static final int OUTPUT_BUFFER_CHARS = 64 * 1024;
+
+    private static final Comparator<SalaryAnalyzer.SalaryIssue> LARGEST_DEVIATION =
+        Comparator.comparingDouble(SalaryAnalyzer.SalaryIssue::getDeviation);
+    private static final Comparator<ReportingLineAnalyzer.ReportingLineIssue> LONGEST_REPORTING_LINE =
+        Comparator.comparingInt(ReportingLineAnalyzer.ReportingLineIssue::getManagersCount);
+
+    /**
+     * Command line options.
+     */
+    public static class Options {
+        private String filePath;
+        private EmployeeRepository.LoadMode loadMode = EmployeeRepository.LoadMode.SEQUENTIAL;
+        private boolean useSnapshot = true;
+        private boolean offHeap;
+        private boolean concurrent;
+        private ReportFormat format = ReportFormat.TEXT;
+        private Path outputPath;
+        private double minSalaryRatio = SalaryRangeRule.DEFAULT_MIN_RATIO;
+        private double maxSalaryRatio = SalaryRangeRule.DEFAULT_MAX_RATIO;
+        private int maxManagersBetween = ReportingLineAnalyzer.MAX_MANAGERS_BETWEEN;
+        private int top;
+        private boolean metrics;
+        private long memoryBudget;
+        private Path spillDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+        private int servePort = -1;
+        private boolean watch;
+        private Path cacheDirectory;
+        private long cacheSize = 256L << 20;
+
+        /**
+         * Parses command line arguments.
+         *
+         * @throws IllegalArgumentException if the arguments are not valid
+         */
+        public static Options parse(String[] args) {
+            Options options = new Options();
+
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--format") || arg.equals("--output") || arg.equals("--min-salary-ratio")
+                    || arg.equals("--max-salary-ratio") || arg.equals("--max-managers-between")
+                    || arg.equals("--top") || arg.equals("--memory-budget") || arg.equals("--spill-dir")
+                    || arg.equals("--serve") || arg.equals("--cache-dir") || arg.equals("--cache-size")) {
+                    if (++i == args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    switch (arg) {
+                        case "--format" -> options.format = ReportFormat.parse(args[i]);
+                        case "--output" -> options.outputPath = Path.of(args[i]);
+                        case "--min-salary-ratio" -> options.minSalaryRatio = Double.parseDouble(args[i]);
+                        case "--max-salary-ratio" -> options.maxSalaryRatio = Double.parseDouble(args[i]);
+                        case "--max-managers-between" -> options.maxManagersBetween = Integer.parseInt(args[i]);
+                        case "--memory-budget" -> options.memoryBudget = parseSize(arg, args[i]);
+                        case "--cache-size" -> options.cacheSize = parseSize(arg, args[i]);
+                        case "--cache-dir" -> options.cacheDirectory = Path.of(args[i]);
+                        case "--spill-dir" -> options.spillDirectory = Path.of(args[i]);
+                        case "--serve" -> options.servePort = parsePort(args[i]);
+                        default -> options.top = parseTop(args[i]);
+                    }
+                } else if (arg.equals("--parallel")) {
+                    options.loadMode = EmployeeRepository.LoadMode.PARALLEL;
+                } else if (arg.equals("--no-snapshot")) {
+                    options.useSnapshot = false;
+                } else if (arg.equals("--off-heap")) {
+                    options.offHeap = true;
+                } else if (arg.equals("--concurrent")) {
+                    options.concurrent = true;
+                } else if (arg.equals("--metrics")) {
+                    options.metrics = true;
+                } else if (arg.equals("--watch")) {
+                    options.watch = true;
+                } else if (arg.startsWith("--") || options.filePath != null) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                } else {
+                    options.filePath = arg;
+                }
+            }
+
+            if (options.filePath == null) {
+                throw new IllegalArgumentException("Missing CSV file");
+            }
+            if (options.watch && options.servePort < 0) {
+                throw new IllegalArgumentException("--watch requires --serve");
+            }
+            // Rejects invalid thresholds before any file is read
+            options.getSalaryRule();
+            options.getReportingLineRule();
+            return options;
+        }
+
+        private static int parseTop(String value) {
+            int top = Integer.parseInt(value);
+            if (top <= 0) {
+                throw new IllegalArgumentException("--top must be positive: " + value);
+            }
+            return top;
+        }
+
+        private static int parsePort(String value) {
+            int port = Integer.parseInt(value);
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("--serve must be a port number: " + value);
+            }
+            return port;
+        }
+
+        /**
+         * Parses a number of bytes with an optional k, m or g suffix.
+         */
+        private static long parseSize(String option, String value) {
+            String digits = value.toLowerCase(Locale.ROOT);
+            long unit = 1;
+            if (digits.endsWith("k") || digits.endsWith("m") || digits.endsWith("g")) {
+                unit = switch (digits.charAt(digits.length() - 1)) {
+                    case 'k' -> 1L << 10;
+                    case 'm' -> 1L << 20;
+                    default -> 1L << 30;
+                };
+                digits = digits.substring(0, digits.length() - 1);
+            }
+            long size = Long.parseLong(digits);
+            if (size <= 0 || size > Long.MAX_VALUE / unit) {
+                throw new IllegalArgumentException(option + " must be positive: " + value);
+            }
+            return size * unit;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        public EmployeeRepository.LoadMode getLoadMode() {
+            return loadMode;
+        }
+
+        public boolean isUseSnapshot() {
+            return useSnapshot;
+        }
+
+        /**
+         * Returns whether the organization is loaded into off-heap columns.
+         */
+        public boolean isOffHeap() {
+            return offHeap;
+        }
+
+        public boolean isConcurrent() {
+            return concurrent;
+        }
+
+        public ReportFormat getFormat() {
+            return format;
+        }
+
+        /**
+         * Returns the report file, or null to write to the console.
+         */
+        public Path getOutputPath() {
+            return outputPath;
+        }
+
+        /**
+         * Returns the number of worst issues of each kind to report, or 0 to
+         * report all issues in file order.
+         */
+        public int getTop() {
+            return top;
+        }
+
+        /**
+         * Returns whether phase timings and counters are printed after the report.
+         */
+        public boolean isMetrics() {
+            return metrics;
+        }
+
+        /**
+         * Returns the memory budget in bytes for keeping employees on disk,
+         * or 0 to load them into memory.
+         */
+        public long getMemoryBudget() {
+            return memoryBudget;
+        }
+
+        public Path getSpillDirectory() {
+            return spillDirectory;
+        }
+
+        /**
+         * Returns the port to answer queries on, 0 for any free port, or -1
+         * to print a report and exit.
+         */
+        public int getServePort() {
+            return servePort;
+        }
+
+        /**
+         * Returns whether the server reloads the CSV file when it changes.
+         */
+        public boolean isWatch() {
+            return watch;
+        }
+
+        /**
+         * Returns the directory of the result cache, or null to analyze
+         * without one.
+         */
+        public Path getCacheDirectory() {
+            return cacheDirectory;
+        }
+
+        public long getCacheSize() {
+            return cacheSize;
+        }
+
+        public SalaryRangeRule getSalaryRule() {
+            return new SalaryRangeRule(minSalaryRatio, maxSalaryRatio);
+        }
+
+        public ReportingLineRule getReportingLineRule() {
+            return new ReportingLineRule(maxManagersBetween);
+        }
+    }
+
+    /**
+     * Writes one issue to the report.
+     */
+    private interface IssueWriter<T> {
+        void write(T issue) throws IOException;
+    }
+
+    /**
+     * Writes the issues of the report between {@link ReportSink#start()} and
+     * {@link ReportSink#finish(long)}.
+     */
+    private interface ReportBody {
+        void write(ReportSink sink) throws IOException;
+    }
+
+    private final EmployeeRepository.LoadMode loadMode;
+    private final boolean useSnapshot;
+    private final boolean offHeap;
+    private final boolean concurrent;
+    private final ReportFormat format;
+    private final Path outputPath;
+    private final SalaryRangeRule salaryRule;
+    private final ReportingLineRule reportingLineRule;
+    private final int top;
+    private final boolean metrics;
+    private final long memoryBudget;
+    private final Path spillDirectory;
+    private final Path cacheDirectory;
+    private final long cacheSize;
+
+    public OrganizationalAnalyzer() {
+        this(EmployeeRepository.LoadMode.SEQUENTIAL, false, false, false, ReportFormat.TEXT, null,
+            new SalaryRangeRule(), new ReportingLineRule(), 0, false, 0, null, null, 0);
+    }
+
+    public OrganizationalAnalyzer(Options options) {
+        this(options.getLoadMode(), options.isUseSnapshot(), options.isOffHeap(), options.isConcurrent(),
+            options.getFormat(), options.getOutputPath(), options.getSalaryRule(), options.getReportingLineRule(),
+            options.getTop(), options.isMetrics(), options.getMemoryBudget(), options.getSpillDirectory(),
+            options.getCacheDirectory(), options.getCacheSize());
+    }
+
+    private OrganizationalAnalyzer(EmployeeRepository.LoadMode loadMode, boolean useSnapshot, boolean offHeap,
+                                   boolean concurrent, ReportFormat format, Path outputPath, SalaryRangeRule salaryRule,
+                                   ReportingLineRule reportingLineRule, int top, boolean metrics,
+                                   long memoryBudget, Path spillDirectory, Path cacheDirectory, long cacheSize) {
+        this.loadMode = loadMode;
+        this.useSnapshot = useSnapshot;
+        this.offHeap = offHeap;
+        this.concurrent = concurrent;
+        this.format = format;
+        this.outputPath = outputPath;
+        this.salaryRule = salaryRule;
+        this.reportingLineRule = reportingLineRule;
+        this.top = top;
+        this.metrics = metrics;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+        this.cacheDirectory = cacheDirectory;
+        this.cacheSize = cacheSize;
+    }
 
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.err.println("Usage: java -jar organizational-analyzer.jar <path-to-csv-file>");
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
             System.exit(1);
+            return;
         }
 
-        String filePath = args[0];
-
         try {
-            OrganizationalAnalyzer analyzer = new OrganizationalAnalyzer();
-            analyzer.analyze(filePath);
+            OrganizationalAnalyzer analyzer = new OrganizationalAnalyzer(options);
+            if (options.getServePort() >= 0) {
+                QueryServer server = analyzer.serve(options.getFilePath(), options.getServePort());
+                Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+                if (options.isWatch()) {
+                    server.watch(Path.of(options.getFilePath()));
+                }
+                InetSocketAddress address = server.getAddress();
+                System.err.println("Serving " + options.getFilePath() + " at http://"
+                    + address.getHostString() + ":" + address.getPort() + "/");
+            } else {
+                analyzer.analyze(options.getFilePath());
+            }
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
             System.exit(1);
@@ -39,90 +399,333 @@ public class OrganizationalAnalyzer {
     }
 
     public void analyze(String filePath) throws IOException {
-        // Load employee data
-        EmployeeRepository repository = new EmployeeRepository();
-        repository.loadFromFile(filePath);
-
-        System.out.println("=".repeat(80));
-        System.out.println("ORGANIZATIONAL STRUCTURE ANALYSIS");
-        System.out.println("=".repeat(80));
-        System.out.println();
-
-        // Analyze manager salaries
-        analyzeSalaries(repository);
-        
-        System.out.println();
-        
-        // Analyze reporting lines
-        analyzeReportingLines(repository);
-        
-        System.out.println();
-        System.out.println("=".repeat(80));
-        System.out.println("ANALYSIS COMPLETE");
-        System.out.println("=".repeat(80));
-    }
-
-    private void analyzeSalaries(EmployeeRepository repository) {
-        SalaryAnalyzer salaryAnalyzer = new SalaryAnalyzer(repository);
-        List<SalaryAnalyzer.SalaryIssue> salaryIssues = salaryAnalyzer.analyzeManagerSalaries();
-
-        System.out.println("SALARY ANALYSIS");
-        System.out.println("-".repeat(80));
-
-        if (salaryIssues.isEmpty()) {
-            System.out.println("✓ All manager salaries are within acceptable range (20%-50% above average).");
+        // Cached results are held on the heap whole, which out-of-core runs cannot afford
+        if (cacheDirectory != null && memoryBudget == 0) {
+            ResultCache.Results results = cachedResults(filePath);
+            writeReport(results.getEmployees(), sink -> {
+                if (top > 0) {
+                    writeWorstIssues(results, sink);
+                } else {
+                    writeIssues(results, sink);
+                }
+            });
+        } else if (memoryBudget > 0) {
+            try (ExternalEmployeeStore store =
+                     ExternalEmployeeStore.load(Path.of(filePath), spillDirectory, memoryBudget)) {
+                ExternalAnalyzer analyzer = new ExternalAnalyzer(store, salaryRule, reportingLineRule);
+                writeReport(store.size(), sink -> {
+                    if (top > 0) {
+                        writeWorstIssues(analyzer, sink);
+                    } else {
+                        writeIssues(analyzer, sink);
+                    }
+                });
+            }
         } else {
-            // Separate issues into underpaid and overpaid
-            List<SalaryAnalyzer.SalaryIssue> underpaid = salaryIssues.stream()
-                .filter(SalaryAnalyzer.SalaryIssue::isEarningTooLittle)
-                .toList();
-            
-            List<SalaryAnalyzer.SalaryIssue> overpaid = salaryIssues.stream()
-                .filter(issue -> !issue.isEarningTooLittle())
-                .toList();
-
-            if (!underpaid.isEmpty()) {
-                System.out.println("\nManagers earning LESS than they should:");
-                System.out.println();
-                for (SalaryAnalyzer.SalaryIssue issue : underpaid) {
-                    System.out.println("  • " + issue);
+            // Load employee data
+            ColumnarEmployeeStore store = loadStore(filePath);
+            writeReport(store.size(), sink -> {
+                if (top > 0) {
+                    writeWorstIssues(store, sink);
+                } else {
+                    writeIssues(store, sink);
                 }
+            });
+        }
+
+        if (metrics) {
+            // stderr, so that the report itself can still be piped
+            Metrics.report(System.err);
+        }
+    }
+
+    /**
+     * Returns the results cached for the file's contents and the thresholds,
+     * or analyzes the file and caches its results. A cache that cannot be
+     * written only costs the next run a new analysis.
+     */
+    private ResultCache.Results cachedResults(String filePath) throws IOException {
+        ResultCache cache = new ResultCache(cacheDirectory, cacheSize);
+        long sourceHash = ContentHash.of(Path.of(filePath));
+        ResultCache.Results results = cache.get(sourceHash, salaryRule, reportingLineRule);
+        if (results == null) {
+            results = analyzeAll(filePath, sourceHash);
+            try {
+                cache.put(sourceHash, salaryRule, reportingLineRule, results);
+            } catch (IOException e) {
+                System.err.println("Could not cache results in " + cacheDirectory + ": " + e.getMessage());
             }
+        }
+        return results;
+    }
 
-            if (!overpaid.isEmpty()) {
-                System.out.println("\nManagers earning MORE than they should:");
-                System.out.println();
-                for (SalaryAnalyzer.SalaryIssue issue : overpaid) {
-                    System.out.println("  • " + issue);
-                }
+    /**
+     * Collects every issue in report order, to be cached.
+     */
+    private ResultCache.Results analyzeAll(String filePath, long sourceHash) throws IOException {
+        List<SalaryAnalyzer.SalaryIssue> salaryIssues = new ArrayList<>();
+        List<ReportingLineAnalyzer.ReportingLineIssue> reportingIssues = new ArrayList<>();
+
+        ColumnarEmployeeStore store = loadStore(filePath, sourceHash);
+        new RuleEngine(store, concurrent ? ForkJoinPool.commonPool() : null)
+            .addRule(salaryRule, salaryIssues::add)
+            .addRule(reportingLineRule, reportingIssues::add)
+            .run();
+        return new ResultCache.Results(store.size(), salaryIssues, reportingIssues);
+    }
+
+    private void writeReport(long employees, ReportBody body) throws IOException {
+        Writer out = outputPath == null
+            ? new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), OUTPUT_BUFFER_CHARS)
+            : Files.newBufferedWriter(outputPath);
+        try (Metrics.Phase phase = Metrics.phase("report")) {
+            phase.rows(employees);
+            ReportSink sink = format.createSink(out, salaryRule, reportingLineRule);
+            sink.start();
+            body.write(sink);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (outputPath != null) {
+                out.close(); // The console stays open; finish() has flushed it
             }
+        }
+    }
+
+    /**
+     * Checks both rules in one pass over the store. Salary issues stream to
+     * the sink as they are found; reporting-line issues are written after
+     * them, so they are collected until the pass is done. Their chains hold
+     * store indexes only, which keeps the collected issues small.
+     */
+    private void writeIssues(ColumnarEmployeeStore store, ReportSink sink) throws IOException {
+        ForkJoinPool pool = concurrent ? ForkJoinPool.commonPool() : null;
+        SalaryCounts salaryCounts = new SalaryCounts();
+        List<ReportingLineAnalyzer.ReportingLineIssue> reportingIssues = new ArrayList<>();
+
+        new RuleEngine(store, pool)
+            .addRule(salaryRule, salaryCounts.andThen(writingTo(sink::salaryIssue)))
+            .addRule(reportingLineRule, reportingIssues::add)
+            .run();
+
+        finishIssues(sink, salaryCounts, reportingIssues);
+    }
+
+    /**
+     * Same as {@link #writeIssues(ColumnarEmployeeStore, ReportSink)}, over
+     * employees kept on disk. The analyzer finds reporting-line issues in a
+     * second pass, so both kinds stream to the sink and none are collected.
+     */
+    private void writeIssues(ExternalAnalyzer analyzer, ReportSink sink) throws IOException {
+        SalaryCounts salaryCounts = new SalaryCounts();
+        analyzer.salaryIssues(salaryCounts.andThen(writingTo(sink::salaryIssue)));
+        sink.endSalaryIssues(salaryCounts.underpaid, salaryCounts.overpaid);
 
-            System.out.println();
-            System.out.println(String.format("Total issues found: %d (%d underpaid, %d overpaid)",
-                salaryIssues.size(), underpaid.size(), overpaid.size()));
+        sink.finish(analyzer.reportingLineIssues(writingTo(sink::reportingLineIssue)));
+    }
+
+    /**
+     * Same as {@link #writeIssues(ColumnarEmployeeStore, ReportSink)}, from
+     * cached results.
+     */
+    private void writeIssues(ResultCache.Results results, ReportSink sink) throws IOException {
+        SalaryCounts salaryCounts = new SalaryCounts();
+        for (SalaryAnalyzer.SalaryIssue issue : results.getSalaryIssues()) {
+            salaryCounts.accept(issue);
+            sink.salaryIssue(issue);
         }
+
+        finishIssues(sink, salaryCounts, results.getReportingLineIssues());
     }
 
-    private void analyzeReportingLines(EmployeeRepository repository) {
-        ReportingLineAnalyzer reportingAnalyzer = new ReportingLineAnalyzer(repository);
-        List<ReportingLineAnalyzer.ReportingLineIssue> reportingIssues = 
-            reportingAnalyzer.analyzeLongReportingLines();
+    private static void finishIssues(ReportSink sink, SalaryCounts salaryCounts,
+                                     List<ReportingLineAnalyzer.ReportingLineIssue> reportingIssues)
+            throws IOException {
+        sink.endSalaryIssues(salaryCounts.underpaid, salaryCounts.overpaid);
+        for (ReportingLineAnalyzer.ReportingLineIssue issue : reportingIssues) {
+            sink.reportingLineIssue(issue);
+        }
+        sink.finish(reportingIssues.size());
+    }
 
-        System.out.println("REPORTING LINE ANALYSIS");
-        System.out.println("-".repeat(80));
+    /**
+     * Keeps only the {@code top} largest salary deviations and longest
+     * reporting lines in bounded heaps, one per range of employees, merged
+     * when the pass is done. All other issues are only counted.
+     */
+    private void writeWorstIssues(ColumnarEmployeeStore store, ReportSink sink) throws IOException {
+        ForkJoinPool pool = concurrent ? ForkJoinPool.commonPool() : null;
+        List<WorstSalaryIssues> salaryIssues = new ArrayList<>(1);
+        List<TopK<ReportingLineAnalyzer.ReportingLineIssue>> reportingIssues = new ArrayList<>(1);
 
-        if (reportingIssues.isEmpty()) {
-            System.out.println("✓ All employees have acceptable reporting line length (max 4 managers).");
-        } else {
-            System.out.println("\nEmployees with reporting lines that are TOO LONG:");
-            System.out.println();
-            
-            for (ReportingLineAnalyzer.ReportingLineIssue issue : reportingIssues) {
-                System.out.println("  • " + issue);
-                System.out.println();
+        new RuleEngine(store, pool)
+            .collect(salaryRule, WorstSalaryIssues.collector(top), salaryIssues::add)
+            .collect(reportingLineRule, TopK.collector(top, LONGEST_REPORTING_LINE), reportingIssues::add)
+            .run();
+
+        finishWorstIssues(sink, salaryIssues.get(0), reportingIssues.get(0));
+    }
+
+    /**
+     * Same as {@link #writeWorstIssues(ColumnarEmployeeStore, ReportSink)},
+     * over employees kept on disk.
+     */
+    private void writeWorstIssues(ExternalAnalyzer analyzer, ReportSink sink) throws IOException {
+        WorstSalaryIssues worstSalaries = new WorstSalaryIssues(top);
+        TopK<ReportingLineAnalyzer.ReportingLineIssue> worstLines = new TopK<>(top, LONGEST_REPORTING_LINE);
+
+        analyzer.run(worstSalaries, worstLines);
+
+        finishWorstIssues(sink, worstSalaries, worstLines);
+    }
+
+    /**
+     * Same as {@link #writeWorstIssues(ColumnarEmployeeStore, ReportSink)},
+     * from cached results.
+     */
+    private void writeWorstIssues(ResultCache.Results results, ReportSink sink) throws IOException {
+        WorstSalaryIssues worstSalaries = new WorstSalaryIssues(top);
+        TopK<ReportingLineAnalyzer.ReportingLineIssue> worstLines = new TopK<>(top, LONGEST_REPORTING_LINE);
+
+        results.getSalaryIssues().forEach(worstSalaries);
+        results.getReportingLineIssues().forEach(worstLines);
+
+        finishWorstIssues(sink, worstSalaries, worstLines);
+    }
+
+    private static void finishWorstIssues(ReportSink sink, WorstSalaryIssues worstSalaries,
+                                          TopK<ReportingLineAnalyzer.ReportingLineIssue> worstLines)
+            throws IOException {
+        for (SalaryAnalyzer.SalaryIssue issue : worstSalaries.worst.toList()) {
+            sink.salaryIssue(issue);
+        }
+        sink.endSalaryIssues(worstSalaries.counts.underpaid, worstSalaries.counts.overpaid);
+
+        for (ReportingLineAnalyzer.ReportingLineIssue issue : worstLines.toList()) {
+            sink.reportingLineIssue(issue);
+        }
+        sink.finish(worstLines.count());
+    }
+
+    /**
+     * Counts salary issues by direction.
+     */
+    private static final class SalaryCounts implements Consumer<SalaryAnalyzer.SalaryIssue> {
+        private long underpaid;
+        private long overpaid;
+
+        @Override
+        public void accept(SalaryAnalyzer.SalaryIssue issue) {
+            if (issue.isEarningTooLittle()) {
+                underpaid++;
+            } else {
+                overpaid++;
+            }
+        }
+
+        SalaryCounts merge(SalaryCounts later) {
+            underpaid += later.underpaid;
+            overpaid += later.overpaid;
+            return this;
+        }
+    }
+
+    /**
+     * The largest salary deviations of a range of managers, and the number
+     * of issues in each direction.
+     */
+    private static final class WorstSalaryIssues implements Consumer<SalaryAnalyzer.SalaryIssue> {
+        private final TopK<SalaryAnalyzer.SalaryIssue> worst;
+        private final SalaryCounts counts = new SalaryCounts();
+
+        WorstSalaryIssues(int top) {
+            worst = new TopK<>(top, LARGEST_DEVIATION);
+        }
+
+        static Collector<SalaryAnalyzer.SalaryIssue, WorstSalaryIssues, WorstSalaryIssues> collector(int top) {
+            return Collector.of(() -> new WorstSalaryIssues(top), WorstSalaryIssues::accept, WorstSalaryIssues::merge);
+        }
+
+        @Override
+        public void accept(SalaryAnalyzer.SalaryIssue issue) {
+            worst.accept(issue);
+            counts.accept(issue);
+        }
+
+        WorstSalaryIssues merge(WorstSalaryIssues later) {
+            worst.merge(later.worst);
+            counts.merge(later.counts);
+            return this;
+        }
+    }
+
+    private static <T> Consumer<T> writingTo(IssueWriter<T> writer) {
+        return issue -> {
+            try {
+                writer.write(issue);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * Loads the organization and starts answering queries about it on the
+     * loopback interface. Reloads read the file again the same way.
+     *
+     * @param port the port, or 0 for any free port
+     * @throws IOException if the file cannot be read or the port cannot be bound
+     * @throws IllegalArgumentException if the data is invalid
+     */
+    public QueryServer serve(String filePath, int port) throws IOException {
+        QueryServer server = new QueryServer(() -> loadStore(filePath), salaryRule, reportingLineRule,
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+            Runtime.getRuntime().availableProcessors() * 2);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Loads the organization, reading the binary snapshot next to the CSV
+     * instead when it was made from the same CSV contents. After parsing the
+     * CSV, the snapshot is (re)written for the next run. Off-heap stores are
+     * always parsed, since reading a snapshot creates heap columns.
+     */
+    private ColumnarEmployeeStore loadStore(String filePath) throws IOException {
+        boolean snapshots = useSnapshot && !offHeap;
+        return loadStore(filePath, snapshots ? ContentHash.of(Path.of(filePath)) : 0);
+    }
+
+    /**
+     * Same as {@link #loadStore(String)}, for a file already hashed.
+     *
+     * @param sourceHash {@link ContentHash} of the file; only used with snapshots
+     */
+    private ColumnarEmployeeStore loadStore(String filePath, long sourceHash) throws IOException {
+        if (offHeap) {
+            return ColumnarEmployeeStore.loadOffHeap(filePath);
+        }
+        if (!useSnapshot) {
+            return ColumnarEmployeeStore.load(filePath, loadMode);
+        }
+
+        Path csvFile = Path.of(filePath);
+        Path snapshot = EmployeeSnapshot.pathFor(csvFile);
+
+        if (EmployeeSnapshot.matches(snapshot, sourceHash)) {
+            try {
+                return EmployeeSnapshot.read(snapshot);
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable snapshot: " + e.getMessage());
             }
-            
-            System.out.println(String.format("Total issues found: %d", reportingIssues.size()));
         }
+
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(filePath, loadMode);
+        try {
+            EmployeeSnapshot.write(store, sourceHash, snapshot);
+        } catch (IOException e) {
+            System.err.println("Could not write snapshot " + snapshot + ": " + e.getMessage());
+        }
+        return store;
     }
 }
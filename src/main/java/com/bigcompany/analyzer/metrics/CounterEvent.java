@@ -0,0 +1,26 @@
+package com.bigcompany.analyzer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Periodic Flight Recorder event with the running total of one counter, such
+ * as issues found or reporting chains built.
+ */
+@Name("com.bigcompany.analyzer.Counter")
+@Label("Analyzer Counter")
+@Category("Big Company Analyzer")
+@Description("Running total of an analyzer counter")
+@Period("1 s")
+@StackTrace(false)
+class CounterEvent extends jdk.jfr.Event {
+    @Label("Counter")
+    String counter;
+
+    @Label("Value")
+    long value;
+}
@@ -0,0 +1,283 @@
+package com.bigcompany.analyzer.metrics;
+
+import jdk.jfr.FlightRecorder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide phase timings and counters.
+ *
+ * Loading and analysis code wraps each phase in {@link #phase(String)}, which
+ * is recorded once per phase, and adds to {@link Counter}s, which are striped
+ * like {@link LongAdder} and cheap enough for per-issue counts from several
+ * threads. Both are always on. While Flight Recorder is running, each phase
+ * is also emitted as an event ({@code com.bigcompany.analyzer.Phase}), and
+ * the counter totals are emitted periodically
+ * ({@code com.bigcompany.analyzer.Counter}) when a recording enables them, so
+ * the numbers line up with GC and CPU events of the same recording. Creating
+ * the first event starts up the recorder's support classes, which costs a
+ * few hundred milliseconds, so runs without a recording create none.
+ *
+ * Phase and counter names are dotted, e.g. {@code csv.parse} or
+ * {@code issues.salary}, and are reported in the order first seen.
+ */
+public final class Metrics {
+    private static final Map<String, PhaseStats> PHASES = new LinkedHashMap<>();
+    private static final Map<String, Counter> COUNTERS = new LinkedHashMap<>();
+
+    private static volatile boolean counterEventAdded;
+
+    private Metrics() {
+    }
+
+    /**
+     * Starts timing a phase; the phase ends when the returned handle is
+     * closed, normally by try-with-resources.
+     */
+    public static Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Returns the counter with the given name, creating it at 0 on first use.
+     * Hot code should look the counter up once and keep it.
+     */
+    public static Counter counter(String name) {
+        synchronized (COUNTERS) {
+            return COUNTERS.computeIfAbsent(name, Counter::new);
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the named counter.
+     */
+    public static void count(String name, long delta) {
+        counter(name).add(delta);
+    }
+
+    /**
+     * Returns the number of times a phase ran.
+     */
+    public static long runs(String phase) {
+        synchronized (PHASES) {
+            PhaseStats stats = PHASES.get(phase);
+            return stats == null ? 0 : stats.runs;
+        }
+    }
+
+    /**
+     * Returns the number of rows a phase processed over all its runs.
+     */
+    public static long rows(String phase) {
+        synchronized (PHASES) {
+            PhaseStats stats = PHASES.get(phase);
+            return stats == null ? 0 : stats.rows;
+        }
+    }
+
+    /**
+     * Forgets all phases and sets all counters back to 0.
+     */
+    public static void reset() {
+        synchronized (PHASES) {
+            PHASES.clear();
+        }
+        synchronized (COUNTERS) {
+            for (Counter counter : COUNTERS.values()) {
+                counter.value.reset();
+            }
+        }
+    }
+
+    /**
+     * Writes one line per phase, with total time, rows, rows per second and
+     * bytes where the phase recorded them, then one line per counter that is
+     * not 0.
+     */
+    public static void report(Appendable out) throws IOException {
+        List<Map.Entry<String, PhaseStats>> phases;
+        synchronized (PHASES) {
+            phases = new ArrayList<>();
+            for (Map.Entry<String, PhaseStats> entry : PHASES.entrySet()) {
+                phases.add(Map.entry(entry.getKey(), entry.getValue().copy()));
+            }
+        }
+        List<Counter> counters;
+        synchronized (COUNTERS) {
+            counters = new ArrayList<>(COUNTERS.values());
+        }
+
+        String nl = System.lineSeparator();
+        out.append("METRICS").append(nl);
+        for (Map.Entry<String, PhaseStats> entry : phases) {
+            PhaseStats stats = entry.getValue();
+            double millis = stats.nanos / 1e6;
+            out.append(String.format("  %-28s %10.2f ms", entry.getKey(), millis));
+            if (stats.runs > 1) {
+                out.append(String.format(" in %d runs", stats.runs));
+            }
+            if (stats.rows > 0) {
+                out.append(String.format(", %d rows", stats.rows));
+                if (stats.nanos > 0) {
+                    out.append(String.format(" (%.0f rows/s)", stats.rows * 1e9 / stats.nanos));
+                }
+            }
+            if (stats.bytes > 0) {
+                out.append(String.format(", %d bytes", stats.bytes));
+            }
+            out.append(nl);
+        }
+        for (Counter counter : counters) {
+            long value = counter.get();
+            if (value != 0) {
+                out.append(String.format("  %-28s %10d", counter.name, value)).append(nl);
+            }
+        }
+    }
+
+    /**
+     * Returns whether Flight Recorder is running, from the start or since a
+     * recording was started on the running process, and if so makes sure the
+     * counter event is registered.
+     */
+    private static boolean recording() {
+        if (!FlightRecorder.isInitialized()) {
+            return false;
+        }
+        if (!counterEventAdded) {
+            synchronized (COUNTERS) {
+                if (!counterEventAdded) {
+                    FlightRecorder.addPeriodicEvent(CounterEvent.class, Metrics::emitCounters);
+                    counterEventAdded = true;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void emitCounters() {
+        List<Counter> counters;
+        synchronized (COUNTERS) {
+            counters = new ArrayList<>(COUNTERS.values());
+        }
+        for (Counter counter : counters) {
+            CounterEvent event = new CounterEvent();
+            event.counter = counter.name;
+            event.value = counter.get();
+            event.commit();
+        }
+    }
+
+    private static void record(String name, long nanos, long rows, long bytes) {
+        synchronized (PHASES) {
+            PhaseStats stats = PHASES.computeIfAbsent(name, k -> new PhaseStats());
+            stats.runs++;
+            stats.nanos += nanos;
+            stats.rows += rows;
+            stats.bytes += bytes;
+        }
+    }
+
+    /**
+     * A running phase. Rows and bytes are optional and may be set any time
+     * before the phase is closed.
+     */
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        /** Null unless Flight Recorder was running when the phase started. */
+        private final PhaseEvent event;
+        private final long start;
+        private long rows;
+        private long bytes;
+
+        private Phase(String name) {
+            this.name = name;
+            event = recording() ? new PhaseEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
+            start = System.nanoTime();
+        }
+
+        /**
+         * Records the number of employees the phase processed.
+         *
+         * @return this phase
+         */
+        public Phase rows(long rows) {
+            this.rows = rows;
+            return this;
+        }
+
+        /**
+         * Records the number of bytes the phase read or wrote.
+         *
+         * @return this phase
+         */
+        public Phase bytes(long bytes) {
+            this.bytes = bytes;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            record(name, System.nanoTime() - start, rows, bytes);
+
+            if (event == null) {
+                return;
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.rows = rows;
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * A named, thread-safe running total.
+     */
+    public static final class Counter {
+        private final String name;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long delta) {
+            value.add(delta);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    private static final class PhaseStats {
+        private long runs;
+        private long nanos;
+        private long rows;
+        private long bytes;
+
+        PhaseStats copy() {
+            PhaseStats copy = new PhaseStats();
+            copy.runs = runs;
+            copy.nanos = nanos;
+            copy.rows = rows;
+            copy.bytes = bytes;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.bigcompany.analyzer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one run of an instrumented phase. Its duration is
+ * the phase's wall-clock time on the thread that ran it.
+ */
+@Name("com.bigcompany.analyzer.Phase")
+@Label("Analyzer Phase")
+@Category("Big Company Analyzer")
+@Description("A phase of loading or analyzing an organization")
+@StackTrace(false)
+class PhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Rows")
+    @Description("Employees the phase processed")
+    long rows;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+}
@@ -1,5 +1,7 @@
 package com.bigcompany.analyzer.model;
 
+import java.io.IOException;
+
 /**
  * Represents an employee in the organization.
  */
@@ -42,6 +44,14 @@ public class Employee {
         return firstName + " " + lastName;
     }
 
+    /**
+     * Writes the same text as {@link #getFullName()} straight to the output,
+     * without building the combined string.
+     */
+    public void appendFullName(Appendable out) throws IOException {
+        out.append(firstName).append(' ').append(lastName);
+    }
+
     public boolean isCEO() {
         return managerId == null || managerId.trim().isEmpty();
     }
@@ -0,0 +1,120 @@
+package com.bigcompany.analyzer.report;
+
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes one CSV row per issue. Salary and reporting-line issues share the
+ * columns below; columns that do not apply to an issue type are left empty.
+ * The reporting chain lists employee IDs from the employee up to the CEO,
+ * separated by '>'.
+ */
+public class CsvReportSink implements ReportSink {
+    private static final String HEADER = "type,employeeId,name,salary,averageSubordinateSalary,expectedSalary,"
+        + "deviation,direction,managersBetween,excessManagers,reportingChain\n";
+
+    private final Writer out;
+
+    public CsvReportSink(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void start() throws IOException {
+        out.write(HEADER);
+    }
+
+    @Override
+    public void salaryIssue(SalaryAnalyzer.SalaryIssue issue) throws IOException {
+        Employee manager = issue.getManager();
+        out.write("salary,");
+        writeField(manager.getId());
+        out.write(',');
+        writeFullName(manager);
+        out.write(',');
+        out.write(Double.toString(issue.getCurrentSalary()));
+        out.write(',');
+        out.write(Double.toString(issue.getAverageSubordinateSalary()));
+        out.write(',');
+        out.write(Double.toString(issue.getExpectedSalary()));
+        out.write(',');
+        out.write(Double.toString(issue.getDeviation()));
+        out.write(issue.isEarningTooLittle() ? ",underpaid,,,\n" : ",overpaid,,,\n");
+    }
+
+    @Override
+    public void endSalaryIssues(long underpaid, long overpaid) {
+        // Issues of both kinds share one table
+    }
+
+    @Override
+    public void reportingLineIssue(ReportingLineAnalyzer.ReportingLineIssue issue) throws IOException {
+        Employee employee = issue.getEmployee();
+        out.write("reporting_line,");
+        writeField(employee.getId());
+        out.write(',');
+        writeFullName(employee);
+        out.write(",,,,,,");
+        out.write(Integer.toString(issue.getManagersCount()));
+        out.write(',');
+        out.write(Integer.toString(issue.getExcessManagers()));
+        out.write(',');
+
+        StringBuilder chain = new StringBuilder();
+        List<Employee> reportingChain = issue.getReportingChain();
+        for (int i = 0; i < reportingChain.size(); i++) {
+            if (i > 0) {
+                chain.append('>');
+            }
+            chain.append(reportingChain.get(i).getId());
+        }
+        writeField(chain.toString());
+        out.write('\n');
+    }
+
+    @Override
+    public void finish(long reportingLineIssues) throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes the employee's full name as a field. Only names that need
+     * quoting are combined into one string first.
+     */
+    private void writeFullName(Employee employee) throws IOException {
+        if (needsQuotes(employee.getFirstName()) || needsQuotes(employee.getLastName())) {
+            writeField(employee.getFullName());
+        } else {
+            employee.appendFullName(out);
+        }
+    }
+
+    /**
+     * Writes a field, quoting it if it contains a separator, quote or line
+     * break.
+     */
+    private void writeField(String value) throws IOException {
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
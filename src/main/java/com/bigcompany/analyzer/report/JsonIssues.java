@@ -0,0 +1,112 @@
+package com.bigcompany.analyzer.report;
+
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * JSON encoding of issues, shared by the NDJSON and JSON sinks. Each issue is
+ * one object on a single line; reporting chains are listed by employee ID,
+ * from the employee up to the CEO. The string and number encodings are also
+ * used for other JSON responses, such as those of the query server.
+ */
+public final class JsonIssues {
+
+    private JsonIssues() {
+    }
+
+    static void writeSalaryIssue(Writer out, SalaryAnalyzer.SalaryIssue issue) throws IOException {
+        Employee manager = issue.getManager();
+        out.write("{\"type\":\"salary\",\"employeeId\":");
+        writeString(out, manager.getId());
+        out.write(",\"name\":");
+        writeName(out, manager);
+        out.write(",\"salary\":");
+        writeNumber(out, issue.getCurrentSalary());
+        out.write(",\"averageSubordinateSalary\":");
+        writeNumber(out, issue.getAverageSubordinateSalary());
+        out.write(",\"expectedSalary\":");
+        writeNumber(out, issue.getExpectedSalary());
+        out.write(",\"deviation\":");
+        writeNumber(out, issue.getDeviation());
+        out.write(issue.isEarningTooLittle() ? ",\"direction\":\"underpaid\"}" : ",\"direction\":\"overpaid\"}");
+    }
+
+    static void writeReportingLineIssue(Writer out, ReportingLineAnalyzer.ReportingLineIssue issue) throws IOException {
+        Employee employee = issue.getEmployee();
+        out.write("{\"type\":\"reporting_line\",\"employeeId\":");
+        writeString(out, employee.getId());
+        out.write(",\"name\":");
+        writeName(out, employee);
+        out.write(",\"managersBetween\":");
+        out.write(Integer.toString(issue.getManagersCount()));
+        out.write(",\"excessManagers\":");
+        out.write(Integer.toString(issue.getExcessManagers()));
+        out.write(",\"reportingChain\":[");
+        List<Employee> chain = issue.getReportingChain();
+        for (int i = 0; i < chain.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeString(out, chain.get(i).getId());
+        }
+        out.write("]}");
+    }
+
+    static void writeSummary(Writer out, long underpaid, long overpaid, long reportingLines) throws IOException {
+        out.write("{\"salaryIssues\":");
+        out.write(Long.toString(underpaid + overpaid));
+        out.write(",\"underpaid\":");
+        out.write(Long.toString(underpaid));
+        out.write(",\"overpaid\":");
+        out.write(Long.toString(overpaid));
+        out.write(",\"reportingLineIssues\":");
+        out.write(Long.toString(reportingLines));
+        out.write('}');
+    }
+
+    private static void writeName(Writer out, Employee employee) throws IOException {
+        out.write('"');
+        writeEscaped(out, employee.getFirstName());
+        out.write(' ');
+        writeEscaped(out, employee.getLastName());
+        out.write('"');
+    }
+
+    public static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+        writeEscaped(out, value);
+        out.write('"');
+    }
+
+    private static void writeEscaped(Writer out, String value) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+
+            out.write(value, start, i - start);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> out.write(String.format("\\u%04x", (int) c));
+            }
+            start = i + 1;
+        }
+        out.write(value, start, value.length() - start);
+    }
+
+    public static void writeNumber(Writer out, double value) throws IOException {
+        // JSON has no representation for NaN or infinity
+        out.write(Double.isFinite(value) ? Double.toString(value) : "null");
+    }
+}
@@ -0,0 +1,64 @@
+package com.bigcompany.analyzer.report;
+
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a single JSON document:
+ * <pre>
+ * {"salaryIssues":[...],"reportingLineIssues":[...],"summary":{...}}
+ * </pre>
+ * The document is written as the issues arrive, one issue per line, so it is
+ * never held in memory as a whole.
+ */
+public class JsonReportSink implements ReportSink {
+    private final Writer out;
+    private boolean firstIssue = true;
+    private long underpaidCount;
+    private long overpaidCount;
+
+    public JsonReportSink(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void start() throws IOException {
+        out.write("{\"salaryIssues\":[");
+    }
+
+    @Override
+    public void salaryIssue(SalaryAnalyzer.SalaryIssue issue) throws IOException {
+        separate();
+        JsonIssues.writeSalaryIssue(out, issue);
+    }
+
+    @Override
+    public void endSalaryIssues(long underpaid, long overpaid) throws IOException {
+        underpaidCount = underpaid;
+        overpaidCount = overpaid;
+        firstIssue = true;
+        out.write("\n],\"reportingLineIssues\":[");
+    }
+
+    @Override
+    public void reportingLineIssue(ReportingLineAnalyzer.ReportingLineIssue issue) throws IOException {
+        separate();
+        JsonIssues.writeReportingLineIssue(out, issue);
+    }
+
+    @Override
+    public void finish(long reportingLineIssues) throws IOException {
+        out.write("\n],\"summary\":");
+        JsonIssues.writeSummary(out, underpaidCount, overpaidCount, reportingLineIssues);
+        out.write("}\n");
+        out.flush();
+    }
+
+    private void separate() throws IOException {
+        out.write(firstIssue ? "\n" : ",\n");
+        firstIssue = false;
+    }
+}
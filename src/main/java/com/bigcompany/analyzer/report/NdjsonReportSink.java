@@ -0,0 +1,54 @@
+package com.bigcompany.analyzer.report;
+
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes newline-delimited JSON: one object per issue, with a "type" field of
+ * "salary" or "reporting_line", and a final object of type "summary" with
+ * the issue counts.
+ */
+public class NdjsonReportSink implements ReportSink {
+    private final Writer out;
+    private long underpaidCount;
+    private long overpaidCount;
+
+    public NdjsonReportSink(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void start() {
+        // No header
+    }
+
+    @Override
+    public void salaryIssue(SalaryAnalyzer.SalaryIssue issue) throws IOException {
+        JsonIssues.writeSalaryIssue(out, issue);
+        out.write('\n');
+    }
+
+    @Override
+    public void endSalaryIssues(long underpaid, long overpaid) {
+        // Issues of both kinds share one stream; the totals go into the summary
+        underpaidCount = underpaid;
+        overpaidCount = overpaid;
+    }
+
+    @Override
+    public void reportingLineIssue(ReportingLineAnalyzer.ReportingLineIssue issue) throws IOException {
+        JsonIssues.writeReportingLineIssue(out, issue);
+        out.write('\n');
+    }
+
+    @Override
+    public void finish(long reportingLineIssues) throws IOException {
+        out.write("{\"type\":\"summary\",\"counts\":");
+        JsonIssues.writeSummary(out, underpaidCount, overpaidCount, reportingLineIssues);
+        out.write("}\n");
+        out.flush();
+    }
+}
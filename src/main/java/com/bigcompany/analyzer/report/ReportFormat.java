@@ -0,0 +1,51 @@
+package com.bigcompany.analyzer.report;
+
+import com.bigcompany.analyzer.service.ReportingLineRule;
+import com.bigcompany.analyzer.service.SalaryRangeRule;
+
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Output formats for analysis reports.
+ */
+public enum ReportFormat {
+    /** Human-readable report, as printed to the console. */
+    TEXT,
+    /** One JSON object per line and issue, followed by a summary line. */
+    NDJSON,
+    /** A single JSON document with both issue lists and a summary. */
+    JSON,
+    /** One CSV row per issue, with a header row. */
+    CSV;
+
+    public ReportSink createSink(Writer out) {
+        return createSink(out, new SalaryRangeRule(), new ReportingLineRule());
+    }
+
+    /**
+     * Creates a sink for a report made with the given rules. Only the text
+     * report states the thresholds.
+     */
+    public ReportSink createSink(Writer out, SalaryRangeRule salaryRule, ReportingLineRule reportingLineRule) {
+        return switch (this) {
+            case TEXT -> new TextReportSink(out, salaryRule, reportingLineRule);
+            case NDJSON -> new NdjsonReportSink(out);
+            case JSON -> new JsonReportSink(out);
+            case CSV -> new CsvReportSink(out);
+        };
+    }
+
+    /**
+     * Returns the format with the given name, ignoring case.
+     *
+     * @throws IllegalArgumentException if there is no such format
+     */
+    public static ReportFormat parse(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown report format: " + name);
+        }
+    }
+}
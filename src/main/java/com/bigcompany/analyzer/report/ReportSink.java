@@ -0,0 +1,32 @@
+package com.bigcompany.analyzer.report;
+
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+
+import java.io.IOException;
+
+/**
+ * Receives analysis results while they are produced and writes them in one
+ * output format.
+ *
+ * Calls arrive in this order: {@link #start()}, the salary issues,
+ * {@link #endSalaryIssues}, the reporting-line issues, {@link #finish}.
+ * Sinks write to the Writer they were created with and flush it in finish;
+ * closing the writer is left to whoever opened it.
+ *
+ * The totals passed to endSalaryIssues and finish count all issues found.
+ * When only the worst issues are reported, fewer issues than that arrive,
+ * ordered from the worst down rather than in file order.
+ */
+public interface ReportSink {
+
+    void start() throws IOException;
+
+    void salaryIssue(SalaryAnalyzer.SalaryIssue issue) throws IOException;
+
+    void endSalaryIssues(long underpaid, long overpaid) throws IOException;
+
+    void reportingLineIssue(ReportingLineAnalyzer.ReportingLineIssue issue) throws IOException;
+
+    void finish(long reportingLineIssues) throws IOException;
+}
@@ -0,0 +1,156 @@
+package com.bigcompany.analyzer.report;
+
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.ReportingLineRule;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+import com.bigcompany.analyzer.service.SalaryRangeRule;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the human-readable console report.
+ *
+ * The report lists underpaid managers before overpaid ones, so overpaid
+ * managers are held back until the salary section ends. Everything else,
+ * including all reporting-line issues, is written as it arrives. If fewer
+ * issues arrive than the totals count, the report says how many are shown.
+ */
+public class TextReportSink implements ReportSink {
+    private static final String RULE = "=".repeat(80);
+    private static final String SECTION_RULE = "-".repeat(80);
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final Writer out;
+    private final SalaryRangeRule salaryRule;
+    private final ReportingLineRule reportingLineRule;
+    private final List<SalaryAnalyzer.SalaryIssue> overpaidIssues = new ArrayList<>();
+    private int underpaidCount;
+    private int reportingLineCount;
+
+    public TextReportSink(Writer out) {
+        this(out, new SalaryRangeRule(), new ReportingLineRule());
+    }
+
+    /**
+     * Creates a sink whose "no issues" lines state the thresholds of the given
+     * rules.
+     */
+    public TextReportSink(Writer out, SalaryRangeRule salaryRule, ReportingLineRule reportingLineRule) {
+        this.out = out;
+        this.salaryRule = salaryRule;
+        this.reportingLineRule = reportingLineRule;
+    }
+
+    @Override
+    public void start() throws IOException {
+        line(RULE);
+        line("ORGANIZATIONAL STRUCTURE ANALYSIS");
+        line(RULE);
+        line("");
+        line("SALARY ANALYSIS");
+        line(SECTION_RULE);
+    }
+
+    @Override
+    public void salaryIssue(SalaryAnalyzer.SalaryIssue issue) throws IOException {
+        if (!issue.isEarningTooLittle()) {
+            overpaidIssues.add(issue);
+            return;
+        }
+
+        if (underpaidCount == 0) {
+            out.write('\n');
+            line("Managers earning LESS than they should:");
+            line("");
+        }
+        underpaidCount++;
+        bullet(issue);
+    }
+
+    @Override
+    public void endSalaryIssues(long underpaid, long overpaid) throws IOException {
+        if (underpaid + overpaid == 0) {
+            line("✓ All manager salaries are within acceptable range (" + percentAbove(salaryRule.getMinRatio())
+                + "%-" + percentAbove(salaryRule.getMaxRatio()) + "% above average).");
+        } else {
+            if (!overpaidIssues.isEmpty()) {
+                out.write('\n');
+                line("Managers earning MORE than they should:");
+                line("");
+                for (SalaryAnalyzer.SalaryIssue issue : overpaidIssues) {
+                    bullet(issue);
+                }
+            }
+
+            line("");
+            line(String.format("Total issues found: %d (%d underpaid, %d overpaid)",
+                underpaid + overpaid, underpaid, overpaid));
+            long shown = underpaidCount + overpaidIssues.size();
+            if (shown < underpaid + overpaid) {
+                line(String.format("Showing the %d largest deviations.", shown));
+            }
+        }
+        overpaidIssues.clear();
+
+        line("");
+        line("REPORTING LINE ANALYSIS");
+        line(SECTION_RULE);
+    }
+
+    @Override
+    public void reportingLineIssue(ReportingLineAnalyzer.ReportingLineIssue issue) throws IOException {
+        if (reportingLineCount == 0) {
+            out.write('\n');
+            line("Employees with reporting lines that are TOO LONG:");
+            line("");
+        }
+        reportingLineCount++;
+
+        out.write("  • ");
+        issue.appendTo(out);
+        out.write(NEWLINE);
+        line("");
+    }
+
+    @Override
+    public void finish(long reportingLineIssues) throws IOException {
+        if (reportingLineIssues == 0) {
+            line("✓ All employees have acceptable reporting line length (max "
+                + reportingLineRule.getMaxManagersBetween() + " managers).");
+        } else {
+            line(String.format("Total issues found: %d", reportingLineIssues));
+            if (reportingLineCount < reportingLineIssues) {
+                line(String.format("Showing the %d longest reporting lines.", reportingLineCount));
+            }
+        }
+
+        line("");
+        line(RULE);
+        line("ANALYSIS COMPLETE");
+        line(RULE);
+        out.flush();
+    }
+
+    /**
+     * Formats a salary ratio as the percentage above average it allows, e.g.
+     * 1.2 as "20", without the rounding noise of binary arithmetic.
+     */
+    private static String percentAbove(double ratio) {
+        return BigDecimal.valueOf(ratio).subtract(BigDecimal.ONE).movePointRight(2).stripTrailingZeros().toPlainString();
+    }
+
+    private void bullet(SalaryAnalyzer.SalaryIssue issue) throws IOException {
+        out.write("  • ");
+        issue.appendTo(out);
+        out.write(NEWLINE);
+    }
+
+    private void line(String text) throws IOException {
+        out.write(text);
+        out.write(NEWLINE);
+    }
+}
@@ -0,0 +1,240 @@
+package com.bigcompany.analyzer.repository;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Binary-lifting table over the manager links of a {@link ColumnarEmployeeStore}.
+ *
+ * For every employee the table holds the manager 1, 2, 4, ... levels up, so
+ * the k-th manager of an employee, the lowest common manager of two employees
+ * and the number of hops between them each take O(log depth) steps and
+ * allocate nothing. The table has one row per bit of the deepest level, so a
+ * flat organization costs a few rows and a 1M-level chain twenty.
+ *
+ * All queries take and return employee indexes of the store the index was
+ * built from.
+ */
+public final class AncestorIndex {
+    /** Batch size below which batch queries are not split further. */
+    private static final int MIN_BATCH = 16 * 1024;
+
+    private final int[] depths;
+    /** {@code up[j][i]} is the manager 2^j levels above {@code i}, or the CEO if there is none. */
+    private final int[][] up;
+
+    private AncestorIndex(int[] depths, int[][] up) {
+        this.depths = depths;
+        this.up = up;
+    }
+
+    /**
+     * Builds the table in O(n log depth) time. The store's hierarchy must be
+     * a single tree rooted at the CEO, which holds for every validated store.
+     */
+    public static AncestorIndex of(ColumnarEmployeeStore store) {
+        int size = store.size();
+        int ceo = store.ceoIndex();
+        LevelOrder levelOrder = store.levelOrder();
+
+        int levels = Math.max(1, 32 - Integer.numberOfLeadingZeros(levelOrder.maxDepth()));
+        int[][] up = new int[levels][];
+        up[0] = new int[size];
+        for (int employee = 0; employee < size; employee++) {
+            int manager = store.manager(employee);
+            up[0][employee] = manager == ColumnarEmployeeStore.NO_MANAGER ? ceo : manager;
+        }
+        for (int j = 1; j < levels; j++) {
+            int[] previous = up[j - 1];
+            int[] current = new int[size];
+            for (int employee = 0; employee < size; employee++) {
+                current[employee] = previous[previous[employee]];
+            }
+            up[j] = current;
+        }
+        return new AncestorIndex(levelOrder.depths, up);
+    }
+
+    /**
+     * Returns the number of levels between the employee and the CEO; the CEO
+     * is at depth 0 and its direct subordinates at depth 1.
+     */
+    public int depth(int employee) {
+        return depths[employee];
+    }
+
+    /**
+     * Returns the manager {@code k} levels above the employee: the employee
+     * itself for 0, the direct manager for 1, and so on. Returns
+     * {@link ColumnarEmployeeStore#NO_MANAGER} if {@code k} is greater than the
+     * employee's depth.
+     *
+     * @throws IllegalArgumentException if {@code k} is negative
+     */
+    public int ancestor(int employee, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Number of levels must not be negative: " + k);
+        }
+        if (k > depths[employee]) {
+            return ColumnarEmployeeStore.NO_MANAGER;
+        }
+        return lift(employee, k);
+    }
+
+    /**
+     * Returns the lowest employee that both employees report to. If one of
+     * them reports to the other, that is the other one; an employee's lowest
+     * common manager with themselves is themselves.
+     */
+    public int lowestCommonManager(int first, int second) {
+        int a = first;
+        int b = second;
+        if (depths[a] < depths[b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        a = lift(a, depths[a] - depths[b]);
+        if (a == b) {
+            return a;
+        }
+
+        for (int j = up.length - 1; j >= 0; j--) {
+            int[] level = up[j];
+            if (level[a] != level[b]) {
+                a = level[a];
+                b = level[b];
+            }
+        }
+        return up[0][a];
+    }
+
+    /**
+     * Returns the number of manager links on the path between the two
+     * employees: 0 for the same employee, 1 for an employee and their direct
+     * manager or subordinate, 2 for peers, and so on.
+     */
+    public int distance(int first, int second) {
+        int common = lowestCommonManager(first, second);
+        return depths[first] + depths[second] - 2 * depths[common];
+    }
+
+    /**
+     * Writes the employees on the path between the two employees into
+     * {@code path}: {@code first}, its managers up to the lowest common
+     * manager, then down to {@code second}. A buffer of
+     * {@code depth(first) + depth(second) + 1} elements always fits the path.
+     *
+     * @return the number of employees written, {@code distance(first, second) + 1}
+     * @throws IllegalArgumentException if the path does not fit in the buffer
+     */
+    public int path(int first, int second, int[] path) {
+        int common = lowestCommonManager(first, second);
+        int climb = depths[first] - depths[common];
+        int length = climb + depths[second] - depths[common] + 1;
+        if (length > path.length) {
+            throw new IllegalArgumentException(
+                "Path of " + length + " employees does not fit in a buffer of " + path.length);
+        }
+
+        int[] managers = up[0];
+        for (int i = 0, employee = first; i <= climb; i++, employee = managers[employee]) {
+            path[i] = employee;
+        }
+        for (int i = length - 1, employee = second; i > climb; i--, employee = managers[employee]) {
+            path[i] = employee;
+        }
+        return length;
+    }
+
+    /**
+     * Computes {@code result[i] = lowestCommonManager(first[i], second[i])} for
+     * every pair. Large batches are split across the pool; a null pool runs
+     * the batch on the calling thread.
+     *
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public void lowestCommonManagers(int[] first, int[] second, int[] result, ForkJoinPool pool) {
+        checkBatch(first, second, result);
+        runBatch(pool, first.length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                result[i] = lowestCommonManager(first[i], second[i]);
+            }
+        });
+    }
+
+    /**
+     * Computes {@code result[i] = distance(first[i], second[i])} for every
+     * pair. Large batches are split across the pool; a null pool runs the
+     * batch on the calling thread.
+     *
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public void distances(int[] first, int[] second, int[] result, ForkJoinPool pool) {
+        checkBatch(first, second, result);
+        runBatch(pool, first.length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                result[i] = distance(first[i], second[i]);
+            }
+        });
+    }
+
+    private int lift(int employee, int k) {
+        int current = employee;
+        for (int j = 0; k != 0; j++, k >>>= 1) {
+            if ((k & 1) != 0) {
+                current = up[j][current];
+            }
+        }
+        return current;
+    }
+
+    private static void checkBatch(int[] first, int[] second, int[] result) {
+        if (first.length != second.length || first.length != result.length) {
+            throw new IllegalArgumentException("Batch arrays differ in length: "
+                + first.length + ", " + second.length + ", " + result.length);
+        }
+    }
+
+    private static void runBatch(ForkJoinPool pool, int size, BatchBody body) {
+        if (pool == null || size <= MIN_BATCH) {
+            body.run(0, size);
+        } else {
+            pool.invoke(new BatchTask(body, 0, size));
+        }
+    }
+
+    /**
+     * Processes the pairs [start, end) of a batch.
+     */
+    private interface BatchBody {
+        void run(int start, int end);
+    }
+
+    /**
+     * Halves a batch range until it is small enough to run directly.
+     */
+    private static final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BatchBody body;
+        private final int start;
+        private final int end;
+
+        BatchTask(BatchBody body, int start, int end) {
+            this.body = body;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= MIN_BATCH) {
+                body.run(start, end);
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new BatchTask(body, start, middle), new BatchTask(body, middle, end));
+        }
+    }
+}
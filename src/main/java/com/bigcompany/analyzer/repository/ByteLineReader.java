@@ -0,0 +1,82 @@
+package com.bigcompany.analyzer.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads lines from a stream as raw bytes into a reusable row buffer.
+ *
+ * Lines end with {@code \n}, {@code \r} or {@code \r\n}, like
+ * {@link java.io.BufferedReader#readLine()}, but no String is created.
+ */
+class ByteLineReader implements Closeable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[READ_BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean skipLineFeed;
+
+    private byte[] row = new byte[256];
+    private int length;
+
+    ByteLineReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next line into {@link #row()}.
+     *
+     * @return false at end of stream
+     */
+    boolean readLine() throws IOException {
+        length = 0;
+        boolean readAny = false;
+
+        while (true) {
+            if (position == limit) {
+                limit = in.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return readAny;
+                }
+            }
+
+            byte b = buffer[position++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (b == '\n') {
+                    continue;
+                }
+            }
+
+            readAny = true;
+            if (b == '\n' || b == '\r') {
+                skipLineFeed = b == '\r';
+                return true;
+            }
+
+            if (length == row.length) {
+                row = Arrays.copyOf(row, row.length * 2);
+            }
+            row[length++] = b;
+        }
+    }
+
+    byte[] row() {
+        return row;
+    }
+
+    int length() {
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,411 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+import com.bigcompany.analyzer.model.Employee;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable struct-of-arrays view of the organization.
+ *
+ * Each employee is identified by a dense index assigned in file order. Salaries
+ * and manager links are kept in primitive columns and direct subordinates are
+ * stored in CSR form: the subordinates of employee {@code i} are
+ * {@code child(k)} for {@code childStart(i) <= k < childEnd(i)}, in file order.
+ * No {@link Employee} objects are held; {@link #toEmployee(int)} creates one on
+ * demand, e.g. for reporting an issue.
+ *
+ * The columns are heap arrays, or direct buffers outside the heap when loaded
+ * with {@link #loadOffHeap(String)}; both are read the same way.
+ */
+public final class ColumnarEmployeeStore {
+    /** Manager index of the CEO. */
+    public static final int NO_MANAGER = -1;
+
+    private final int size;
+    private final EmployeeColumns columns;
+    private final int ceo;
+    private volatile LevelOrder levelOrder;
+
+    private ColumnarEmployeeStore(EmployeeColumns columns, int ceo) {
+        this.size = columns.size;
+        this.columns = columns;
+        this.ceo = ceo;
+    }
+
+    /**
+     * Loads the store directly from a CSV file without creating
+     * {@link Employee} objects. Applies the same validation as
+     * {@link EmployeeRepository#loadFromFile(String)}.
+     *
+     * @param filePath path to the CSV file
+     * @throws IOException if file cannot be read
+     * @throws IllegalArgumentException if data is invalid
+     * @throws InvalidHierarchyException if the manager links contain cycles
+     */
+    public static ColumnarEmployeeStore load(String filePath) throws IOException {
+        return load(filePath, EmployeeRepository.LoadMode.SEQUENTIAL);
+    }
+
+    /**
+     * Loads the store from a CSV file using the given load mode.
+     *
+     * @param filePath path to the CSV file
+     * @param mode how the file is read
+     * @throws IOException if file cannot be read
+     * @throws IllegalArgumentException if data is invalid
+     * @throws InvalidHierarchyException if the manager links contain cycles
+     */
+    public static ColumnarEmployeeStore load(String filePath, EmployeeRepository.LoadMode mode) throws IOException {
+        if (mode == EmployeeRepository.LoadMode.PARALLEL) {
+            return loadParallel(filePath);
+        }
+
+        Builder builder = new Builder();
+        CsvRowTokenizer tokenizer = new CsvRowTokenizer();
+
+        try (Metrics.Phase phase = Metrics.phase("csv.parse");
+             ByteLineReader reader = new ByteLineReader(Files.newInputStream(Path.of(filePath)))) {
+            phase.bytes(Files.size(Path.of(filePath)));
+            boolean firstLine = true;
+
+            while (reader.readLine()) {
+                if (firstLine) {
+                    firstLine = false;
+                    continue; // Skip header
+                }
+
+                if (CsvRowTokenizer.isBlank(reader.row(), reader.length())) {
+                    continue; // Skip empty lines
+                }
+
+                tokenizer.tokenize(reader.row(), reader.length());
+                builder.add(tokenizer.id(), tokenizer.firstName(), tokenizer.lastName(),
+                    tokenizer.salary(), tokenizer.managerId());
+            }
+            phase.rows(builder.size);
+        }
+
+        return build(builder);
+    }
+
+    /**
+     * Loads the store from a CSV file into columns outside the Java heap:
+     * salaries, manager links, child lists and the ID index in direct
+     * buffers, and IDs and names in a memory-mapped file. The heap then
+     * holds a handful of objects however large the organization, and
+     * strings are only created when they are read. The memory is released
+     * when the store is garbage collected.
+     *
+     * @param filePath path to the CSV file
+     * @throws IOException if file cannot be read
+     * @throws IllegalArgumentException if data is invalid
+     * @throws InvalidHierarchyException if the manager links contain cycles
+     */
+    public static ColumnarEmployeeStore loadOffHeap(String filePath) throws IOException {
+        CsvRowTokenizer tokenizer = new CsvRowTokenizer();
+
+        try (OffHeapColumns.Builder builder = new OffHeapColumns.Builder()) {
+            try (Metrics.Phase phase = Metrics.phase("csv.parse");
+                 ByteLineReader reader = new ByteLineReader(Files.newInputStream(Path.of(filePath)))) {
+                phase.bytes(Files.size(Path.of(filePath)));
+                boolean firstLine = true;
+
+                while (reader.readLine()) {
+                    if (firstLine) {
+                        firstLine = false;
+                        continue; // Skip header
+                    }
+
+                    if (CsvRowTokenizer.isBlank(reader.row(), reader.length())) {
+                        continue; // Skip empty lines
+                    }
+
+                    tokenizer.tokenize(reader.row(), reader.length());
+                    builder.add(reader.row(), tokenizer);
+                }
+                phase.rows(builder.size());
+            }
+
+            try (Metrics.Phase phase = Metrics.phase("store.build")) {
+                phase.rows(builder.size());
+                OffHeapColumns columns = builder.build();
+                return new ColumnarEmployeeStore(columns, columns.ceo());
+            }
+        }
+    }
+
+    private static ColumnarEmployeeStore loadParallel(String filePath) throws IOException {
+        Builder builder = new Builder();
+        ParallelCsvLoader loader = new ParallelCsvLoader(ForkJoinPool.commonPool());
+
+        try (Metrics.Phase phase = Metrics.phase("csv.parse")) {
+            phase.bytes(Files.size(Path.of(filePath)));
+            for (ParallelCsvLoader.ChunkResult chunk : loader.load(Path.of(filePath))) {
+                for (Employee employee : chunk.employees) {
+                    builder.add(employee.getId(), employee.getFirstName(), employee.getLastName(),
+                        employee.getSalary(), employee.getManagerId());
+                }
+                if (chunk.error != null) {
+                    throw chunk.error;
+                }
+            }
+            phase.rows(builder.size);
+        }
+
+        return build(builder);
+    }
+
+    private static ColumnarEmployeeStore build(Builder builder) {
+        try (Metrics.Phase phase = Metrics.phase("store.build")) {
+            phase.rows(builder.size);
+            return builder.build();
+        }
+    }
+
+    /**
+     * Creates a store from columns that are already known to form a valid
+     * hierarchy, e.g. read back from an {@link EmployeeSnapshot}.
+     */
+    static ColumnarEmployeeStore fromColumns(String[] ids, String[] firstNames, String[] lastNames,
+                                             double[] salaries, int[] managers, int[] childOffsets,
+                                             int[] children, int ceo) {
+        return new ColumnarEmployeeStore(new EmployeeColumns.HeapColumns(ids, firstNames, lastNames, salaries,
+            managers, childOffsets, children, IdIndex.of(ids, ids.length)), ceo);
+    }
+
+    /**
+     * Creates a store from an already loaded repository, keeping its
+     * employee order.
+     */
+    public static ColumnarEmployeeStore from(EmployeeRepository repository) {
+        Builder builder = new Builder();
+        for (Employee employee : repository.getAllEmployees()) {
+            builder.add(employee.getId(), employee.getFirstName(), employee.getLastName(),
+                employee.getSalary(), employee.getManagerId());
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int ceoIndex() {
+        return ceo;
+    }
+
+    /**
+     * Returns the index of the employee with the given ID, or -1 if there is none.
+     */
+    public int indexOf(String id) {
+        return columns.indexOf(id);
+    }
+
+    public String id(int index) {
+        return columns.id(index);
+    }
+
+    public String firstName(int index) {
+        return columns.firstName(index);
+    }
+
+    public String lastName(int index) {
+        return columns.lastName(index);
+    }
+
+    public String fullName(int index) {
+        return columns.firstName(index) + " " + columns.lastName(index);
+    }
+
+    public double salary(int index) {
+        return columns.salary(index);
+    }
+
+    /**
+     * Returns the index of the employee's manager, or {@link #NO_MANAGER} for the CEO.
+     */
+    public int manager(int index) {
+        return columns.manager(index);
+    }
+
+    public int childStart(int index) {
+        return columns.childOffset(index);
+    }
+
+    public int childEnd(int index) {
+        return columns.childOffset(index + 1);
+    }
+
+    public int child(int position) {
+        return columns.child(position);
+    }
+
+    public int childCount(int index) {
+        return columns.childOffset(index + 1) - columns.childOffset(index);
+    }
+
+    public boolean isManager(int index) {
+        return columns.childOffset(index + 1) > columns.childOffset(index);
+    }
+
+    /**
+     * Returns the employees in breadth-first order with their depths. The
+     * order is built on the first call and shared by all later ones.
+     */
+    public LevelOrder levelOrder() {
+        return levelOrder(null);
+    }
+
+    /**
+     * Returns the employees in breadth-first order with their depths,
+     * building it on the pool if this is the first call.
+     *
+     * @param pool pool to build the order on, or null for the calling thread
+     */
+    public LevelOrder levelOrder(ForkJoinPool pool) {
+        LevelOrder order = levelOrder;
+        if (order == null) {
+            synchronized (this) {
+                order = levelOrder;
+                if (order == null) {
+                    order = LevelOrder.of(this, pool);
+                    levelOrder = order;
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Returns whether the columns are kept outside the Java heap.
+     */
+    public boolean isOffHeap() {
+        return columns instanceof OffHeapColumns;
+    }
+
+    // Column access for EmployeeSnapshot; callers must not modify the arrays
+
+    String[] idColumn() {
+        return columns.idColumn();
+    }
+
+    String[] firstNameColumn() {
+        return columns.firstNameColumn();
+    }
+
+    String[] lastNameColumn() {
+        return columns.lastNameColumn();
+    }
+
+    double[] salaryColumn() {
+        return columns.salaryColumn();
+    }
+
+    int[] managerColumn() {
+        return columns.managerColumn();
+    }
+
+    int[] childOffsetColumn() {
+        return columns.childOffsetColumn();
+    }
+
+    int[] childColumn() {
+        return columns.childColumn();
+    }
+
+    /**
+     * Creates an {@link Employee} for the given index.
+     */
+    public Employee toEmployee(int index) {
+        int manager = columns.manager(index);
+        return new Employee(columns.id(index), columns.firstName(index), columns.lastName(index),
+            columns.salary(index), manager == NO_MANAGER ? null : columns.id(manager));
+    }
+
+    /**
+     * Collects rows and resolves manager IDs to indexes once all rows are known.
+     */
+    static final class Builder {
+        private int size;
+        private String[] ids = new String[1024];
+        private String[] firstNames = new String[1024];
+        private String[] lastNames = new String[1024];
+        private double[] salaries = new double[1024];
+        private String[] managerIds = new String[1024];
+        private int ceo = NO_MANAGER;
+
+        void add(String id, String firstName, String lastName, double salary, String managerId) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                firstNames = Arrays.copyOf(firstNames, capacity);
+                lastNames = Arrays.copyOf(lastNames, capacity);
+                salaries = Arrays.copyOf(salaries, capacity);
+                managerIds = Arrays.copyOf(managerIds, capacity);
+            }
+
+            if (managerId == null) {
+                if (ceo != NO_MANAGER) {
+                    throw new IllegalArgumentException(
+                        "Multiple CEOs found: " + ids[ceo] + " and " + id);
+                }
+                ceo = size;
+            }
+
+            ids[size] = id;
+            firstNames[size] = firstName;
+            lastNames[size] = lastName;
+            salaries[size] = salary;
+            managerIds[size] = managerId;
+            size++;
+        }
+
+        ColumnarEmployeeStore build() {
+            if (ceo == NO_MANAGER) {
+                throw new IllegalArgumentException("No CEO found in the data");
+            }
+
+            String[] ids = Arrays.copyOf(this.ids, size);
+            IdIndex indexById = IdIndex.of(ids, size);
+
+            int[] managers = new int[size];
+            int[] childOffsets = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                if (managerIds[i] == null) {
+                    managers[i] = NO_MANAGER;
+                    continue;
+                }
+                int manager = indexById.indexOf(managerIds[i]);
+                if (manager < 0) {
+                    throw new IllegalArgumentException(
+                        "Employee " + ids[i] + " has invalid manager ID: " + managerIds[i]);
+                }
+                managers[i] = manager;
+                childOffsets[manager + 1]++;
+            }
+
+            HierarchyValidator.validate(ids, managers, size);
+
+            // Counting sort keeps each manager's subordinates in file order
+            for (int i = 0; i < size; i++) {
+                childOffsets[i + 1] += childOffsets[i];
+            }
+            int[] children = new int[size - 1];
+            int[] next = Arrays.copyOf(childOffsets, size);
+            for (int i = 0; i < size; i++) {
+                if (managers[i] != NO_MANAGER) {
+                    children[next[managers[i]]++] = i;
+                }
+            }
+
+            return new ColumnarEmployeeStore(new EmployeeColumns.HeapColumns(ids,
+                Arrays.copyOf(firstNames, size), Arrays.copyOf(lastNames, size),
+                Arrays.copyOf(salaries, size), managers, childOffsets, children, indexById), ceo);
+        }
+    }
+}
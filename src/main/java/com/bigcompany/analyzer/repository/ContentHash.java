@@ -0,0 +1,135 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 64-bit XXH64 hash of file contents, used to tell whether an input file has
+ * changed since a snapshot or cached result was made from it.
+ *
+ * Files are hashed through memory-mapped windows, so hashing runs at close to
+ * memory bandwidth and never loads the whole file onto the heap.
+ */
+public final class ContentHash {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE = 32;
+    private static final int WINDOW = 64 * 1024 * 1024; // multiple of STRIPE
+
+    private ContentHash() {
+    }
+
+    /**
+     * Hashes the contents of a file.
+     */
+    public static long of(Path path) throws IOException {
+        try (Metrics.Phase phase = Metrics.phase("csv.hash");
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            phase.bytes(size);
+            long[] lanes = initialLanes(0);
+            long position = 0;
+
+            while (size - position >= STRIPE) {
+                long windowSize = Math.min(WINDOW, (size - position) / STRIPE * STRIPE);
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+                consumeStripes(lanes, window, (int) windowSize);
+                position += windowSize;
+            }
+
+            ByteBuffer tail = ByteBuffer.allocate((int) (size - position)).order(ByteOrder.LITTLE_ENDIAN);
+            while (tail.hasRemaining() && channel.read(tail, position + tail.position()) > 0) {
+                // Keep reading until the tail is complete
+            }
+            tail.flip();
+            return finish(lanes, size, tail);
+        }
+    }
+
+    /**
+     * Hashes a byte array.
+     */
+    public static long of(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        long[] lanes = initialLanes(0);
+        int stripes = data.length / STRIPE * STRIPE;
+        consumeStripes(lanes, buffer, stripes);
+        buffer.position(stripes);
+        return finish(lanes, data.length, buffer.slice().order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    private static long[] initialLanes(long seed) {
+        return new long[] {seed + PRIME1 + PRIME2, seed + PRIME2, seed, seed - PRIME1};
+    }
+
+    private static void consumeStripes(long[] lanes, ByteBuffer buffer, int length) {
+        long v1 = lanes[0];
+        long v2 = lanes[1];
+        long v3 = lanes[2];
+        long v4 = lanes[3];
+        for (int i = 0; i < length; i += STRIPE) {
+            v1 = round(v1, buffer.getLong(i));
+            v2 = round(v2, buffer.getLong(i + 8));
+            v3 = round(v3, buffer.getLong(i + 16));
+            v4 = round(v4, buffer.getLong(i + 24));
+        }
+        lanes[0] = v1;
+        lanes[1] = v2;
+        lanes[2] = v3;
+        lanes[3] = v4;
+    }
+
+    private static long finish(long[] lanes, long totalLength, ByteBuffer tail) {
+        long hash;
+        if (totalLength >= STRIPE) {
+            hash = Long.rotateLeft(lanes[0], 1) + Long.rotateLeft(lanes[1], 7)
+                + Long.rotateLeft(lanes[2], 12) + Long.rotateLeft(lanes[3], 18);
+            for (long lane : lanes) {
+                hash = (hash ^ round(0, lane)) * PRIME1 + PRIME4;
+            }
+        } else {
+            hash = lanes[2] + PRIME5;
+        }
+        hash += totalLength;
+
+        int i = 0;
+        int remaining = tail.remaining();
+        for (; i + 8 <= remaining; i += 8) {
+            hash ^= round(0, tail.getLong(i));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (i + 4 <= remaining) {
+            hash ^= (tail.getInt(i) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            i += 4;
+        }
+        for (; i < remaining; i++) {
+            hash ^= (tail.get(i) & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME1;
+    }
+}
@@ -0,0 +1,215 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.model.Employee;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses a single CSV row from raw bytes in one scan.
+ *
+ * Field boundaries are recorded in reusable offset arrays instead of splitting
+ * the row, whitespace is trimmed by moving offsets, and the salary is parsed
+ * straight from the bytes. Strings are only created for the fields kept in the
+ * resulting {@link Employee}, and names and manager IDs, which repeat from row
+ * to row, go through a {@link NameTable} so each distinct value is decoded and
+ * held once per tokenizer. An instance is not thread-safe; use one per thread.
+ */
+class CsvRowTokenizer {
+    static final int FIELD_COUNT = 5;
+
+    private static final byte DELIMITER = ',';
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final int[] fieldStart = new int[FIELD_COUNT];
+    private final int[] fieldEnd = new int[FIELD_COUNT];
+    private final NameTable names = new NameTable();
+    private final NameTable managerIds = new NameTable();
+    private byte[] row;
+    private double salary;
+
+    /**
+     * Returns true if the row contains only whitespace.
+     */
+    static boolean isBlank(byte[] row, int length) {
+        for (int i = 0; i < length; i++) {
+            if (!isWhitespace(row[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses bytes [0, length) of the given buffer as an employee row.
+     *
+     * @throws IllegalArgumentException if the row does not have 5 columns or
+     *         the salary is not a valid number
+     */
+    Employee parse(byte[] row, int length) {
+        tokenize(row, length);
+        return new Employee(id(), firstName(), lastName(), salary(), managerId());
+    }
+
+    /**
+     * Splits bytes [0, length) of the given buffer into fields and parses the
+     * salary. The field accessors then read from the same buffer, so they must
+     * be called before the buffer is reused.
+     *
+     * @throws IllegalArgumentException if the row does not have 5 columns or
+     *         the salary is not a valid number
+     */
+    void tokenize(byte[] row, int length) {
+        this.row = row;
+        int fields = 0;
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || row[i] == DELIMITER) {
+                if (fields == FIELD_COUNT) {
+                    throw invalidLine(row, length);
+                }
+                fieldStart[fields] = start;
+                fieldEnd[fields] = i;
+                fields++;
+                start = i + 1;
+            }
+        }
+        if (fields != FIELD_COUNT) {
+            throw invalidLine(row, length);
+        }
+
+        int rawSalaryStart = fieldStart[3];
+        int rawSalaryEnd = fieldEnd[3];
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            trim(row, f);
+        }
+
+        salary = parseSalary(row, rawSalaryStart, rawSalaryEnd);
+    }
+
+    String id() {
+        return field(row, 0);
+    }
+
+    String firstName() {
+        return names.intern(row, fieldStart[1], fieldEnd[1]);
+    }
+
+    String lastName() {
+        return names.intern(row, fieldStart[2], fieldEnd[2]);
+    }
+
+    double salary() {
+        return salary;
+    }
+
+    /**
+     * Returns where the trimmed field starts in the row, for callers that
+     * copy field bytes instead of decoding them. Fields are numbered in
+     * column order from 0 (ID) to 4 (manager ID).
+     */
+    int start(int field) {
+        return fieldStart[field];
+    }
+
+    /**
+     * Returns where the trimmed field ends in the row, exclusive.
+     */
+    int end(int field) {
+        return fieldEnd[field];
+    }
+
+    /**
+     * Returns the manager ID, or null if the field is empty (the CEO).
+     */
+    String managerId() {
+        return fieldStart[4] == fieldEnd[4] ? null : managerIds.intern(row, fieldStart[4], fieldEnd[4]);
+    }
+
+    private void trim(byte[] row, int f) {
+        int start = fieldStart[f];
+        int end = fieldEnd[f];
+        while (start < end && isWhitespace(row[start])) {
+            start++;
+        }
+        while (end > start && isWhitespace(row[end - 1])) {
+            end--;
+        }
+        fieldStart[f] = start;
+        fieldEnd[f] = end;
+    }
+
+    private String field(byte[] row, int f) {
+        return new String(row, fieldStart[f], fieldEnd[f] - fieldStart[f], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses plain decimal salaries such as {@code 45000} or {@code -1234.50}
+     * without allocating. Anything else (exponents, long mantissas, special
+     * values) falls back to {@link Double#parseDouble} so the accepted syntax
+     * is unchanged.
+     */
+    private double parseSalary(byte[] row, int rawStart, int rawEnd) {
+        int start = fieldStart[3];
+        int end = fieldEnd[3];
+        int i = start;
+        boolean negative = false;
+
+        if (i < end && (row[i] == '-' || row[i] == '+')) {
+            negative = row[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        boolean fastPath = true;
+
+        for (; i < end && fastPath; i++) {
+            byte b = row[i];
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (seenPoint) {
+                    fractionDigits++;
+                }
+                fastPath = digits <= MAX_EXACT_DIGITS && fractionDigits < POWERS_OF_TEN.length;
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                fastPath = false;
+            }
+        }
+
+        if (fastPath && seenDigit) {
+            // Both operands are exact doubles, so one division rounds correctly
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+
+        try {
+            return Double.parseDouble(new String(row, start, end - start, StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid salary for employee " + id() + ": "
+                + new String(row, rawStart, rawEnd - rawStart, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static IllegalArgumentException invalidLine(byte[] row, int length) {
+        return new IllegalArgumentException(
+            "Invalid CSV line: " + new String(row, 0, length, StandardCharsets.UTF_8));
+    }
+
+    private static boolean isWhitespace(byte b) {
+        // Same set of characters as String.trim(); UTF-8 continuation bytes are negative
+        return b >= 0 && b <= ' ';
+    }
+}
@@ -0,0 +1,210 @@
+package com.bigcompany.analyzer.repository;
+
+/**
+ * The columns behind a {@link ColumnarEmployeeStore}: IDs, names, salaries,
+ * manager links and the CSR child lists, indexed by employee.
+ *
+ * {@link HeapColumns} keeps them in arrays. {@link OffHeapColumns} keeps
+ * them in direct buffers outside the Java heap, so that a very large
+ * organization adds almost nothing for the garbage collector to trace.
+ * Implementations are immutable and safe to read from several threads.
+ */
+abstract class EmployeeColumns {
+    final int size;
+
+    EmployeeColumns(int size) {
+        this.size = size;
+    }
+
+    abstract String id(int index);
+
+    abstract String firstName(int index);
+
+    abstract String lastName(int index);
+
+    abstract double salary(int index);
+
+    /**
+     * Returns the manager's index, or {@link ColumnarEmployeeStore#NO_MANAGER}.
+     */
+    abstract int manager(int index);
+
+    /**
+     * Returns where the subordinates of {@code index} start in the child
+     * column; {@code childOffset(size)} is the length of that column.
+     */
+    abstract int childOffset(int index);
+
+    abstract int child(int position);
+
+    /**
+     * Returns the index of the employee with the given ID, or -1 if there is none.
+     */
+    abstract int indexOf(String id);
+
+    // Whole columns for EmployeeSnapshot; heap columns return their own arrays, except numeric IDs
+
+    String[] idColumn() {
+        String[] column = new String[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = id(i);
+        }
+        return column;
+    }
+
+    String[] firstNameColumn() {
+        String[] column = new String[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = firstName(i);
+        }
+        return column;
+    }
+
+    String[] lastNameColumn() {
+        String[] column = new String[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = lastName(i);
+        }
+        return column;
+    }
+
+    double[] salaryColumn() {
+        double[] column = new double[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = salary(i);
+        }
+        return column;
+    }
+
+    int[] managerColumn() {
+        int[] column = new int[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = manager(i);
+        }
+        return column;
+    }
+
+    int[] childOffsetColumn() {
+        int[] column = new int[size + 1];
+        for (int i = 0; i <= size; i++) {
+            column[i] = childOffset(i);
+        }
+        return column;
+    }
+
+    int[] childColumn() {
+        int[] column = new int[childOffset(size)];
+        for (int k = 0; k < column.length; k++) {
+            column[k] = child(k);
+        }
+        return column;
+    }
+
+    /**
+     * Columns in heap arrays, with IDs indexed by {@link IdIndex}. When every
+     * ID is a plain decimal number, the IDs are kept as the index's numbers
+     * instead of strings, which is most of the heap of an employee, and are
+     * formatted again when asked for.
+     */
+    static final class HeapColumns extends EmployeeColumns {
+        /** Null when {@link #numericIds} holds the IDs. */
+        private final String[] ids;
+        private final long[] numericIds;
+        private final String[] firstNames;
+        private final String[] lastNames;
+        private final double[] salaries;
+        private final int[] managers;
+        private final int[] childOffsets;
+        private final int[] children;
+        private final IdIndex indexById;
+
+        HeapColumns(String[] ids, String[] firstNames, String[] lastNames, double[] salaries,
+                    int[] managers, int[] childOffsets, int[] children, IdIndex indexById) {
+            super(ids.length);
+            this.numericIds = indexById.numericIds();
+            this.ids = numericIds == null ? ids : null;
+            this.firstNames = firstNames;
+            this.lastNames = lastNames;
+            this.salaries = salaries;
+            this.managers = managers;
+            this.childOffsets = childOffsets;
+            this.children = children;
+            this.indexById = indexById;
+        }
+
+        @Override
+        String id(int index) {
+            return ids != null ? ids[index] : Long.toString(numericIds[index]);
+        }
+
+        @Override
+        String firstName(int index) {
+            return firstNames[index];
+        }
+
+        @Override
+        String lastName(int index) {
+            return lastNames[index];
+        }
+
+        @Override
+        double salary(int index) {
+            return salaries[index];
+        }
+
+        @Override
+        int manager(int index) {
+            return managers[index];
+        }
+
+        @Override
+        int childOffset(int index) {
+            return childOffsets[index];
+        }
+
+        @Override
+        int child(int position) {
+            return children[position];
+        }
+
+        @Override
+        int indexOf(String id) {
+            return indexById.indexOf(id);
+        }
+
+        @Override
+        String[] idColumn() {
+            return ids != null ? ids : super.idColumn();
+        }
+
+        @Override
+        String[] firstNameColumn() {
+            return firstNames;
+        }
+
+        @Override
+        String[] lastNameColumn() {
+            return lastNames;
+        }
+
+        @Override
+        double[] salaryColumn() {
+            return salaries;
+        }
+
+        @Override
+        int[] managerColumn() {
+            return managers;
+        }
+
+        @Override
+        int[] childOffsetColumn() {
+            return childOffsets;
+        }
+
+        @Override
+        int[] childColumn() {
+            return children;
+        }
+    }
+}
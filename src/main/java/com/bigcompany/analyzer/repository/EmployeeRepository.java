@@ -1,20 +1,35 @@
 package com.bigcompany.analyzer.repository;
 
+import com.bigcompany.analyzer.metrics.Metrics;
 import com.bigcompany.analyzer.model.Employee;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Loads and manages employee data from CSV files.
  */
 public class EmployeeRepository {
-    private static final String CSV_DELIMITER = ",";
-    private final Map<String, Employee> employees = new HashMap<>();
-    private final Map<String, List<Employee>> subordinatesMap = new HashMap<>();
+
+    /**
+     * How the CSV file is read.
+     */
+    public enum LoadMode {
+        /** Reads the file line by line on the calling thread. */
+        SEQUENTIAL,
+        /** Memory-maps the file and parses newline-aligned chunks on a fork-join pool. */
+        PARALLEL
+    }
+
+    private Map<String, Employee> employees = new LinkedHashMap<>();
+    private Map<String, List<Employee>> subordinatesMap = new HashMap<>();
     private Employee ceo;
+    private ColumnarEmployeeStore indexedStore;
+    private SubtreeIndex subtreeIndex;
+    private AncestorIndex ancestorIndex;
 
     /**
      * Loads employees from a CSV file.
@@ -24,90 +39,181 @@ public class EmployeeRepository {
      * - CSV format: Id,firstName,lastName,salary,managerId
      * - Empty managerId indicates CEO
      * - Salary values are valid numbers
+     * - Employee IDs are unique
      * 
      * @param filePath path to the CSV file
      * @throws IOException if file cannot be read
      * @throws IllegalArgumentException if data is invalid
      */
     public void loadFromFile(String filePath) throws IOException {
-        employees.clear();
-        subordinatesMap.clear();
-        ceo = null;
+        loadFromFile(filePath, LoadMode.SEQUENTIAL);
+    }
+
+    /**
+     * Loads employees from a CSV file using the given load mode.
+     * Both modes apply the same validation and keep employees in file order.
+     * The employees are replaced only once the whole file has loaded and
+     * validated, so a failed load leaves the previous employees in place.
+     *
+     * @param filePath path to the CSV file
+     * @param mode how the file is read
+     * @throws IOException if file cannot be read
+     * @throws IllegalArgumentException if data is invalid
+     * @throws InvalidHierarchyException if the manager links contain cycles
+     */
+    public void loadFromFile(String filePath, LoadMode mode) throws IOException {
+        EmployeeRepository loaded = new EmployeeRepository();
+
+        try (Metrics.Phase phase = Metrics.phase("csv.parse")) {
+            phase.bytes(Files.size(Path.of(filePath)));
+            if (mode == LoadMode.PARALLEL) {
+                loaded.loadParallel(filePath);
+            } else {
+                loaded.loadSequential(filePath);
+            }
+            phase.rows(loaded.employees.size());
+        }
+
+        if (loaded.ceo == null) {
+            throw new IllegalArgumentException("No CEO found in the data");
+        }
+
+        loaded.buildSubordinatesMap();
+        loaded.validateHierarchy();
+        replaceAll(loaded);
+    }
+
+    /**
+     * Loads employees from a snapshot written by {@link #writeSnapshot(String, long)}
+     * or {@link EmployeeSnapshot#write}. The snapshot was validated when it was
+     * written, so only the subordinate lists are rebuilt.
+     *
+     * @param snapshotPath path to the snapshot file
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    public void loadFromSnapshot(String snapshotPath) throws IOException {
+        ColumnarEmployeeStore store = EmployeeSnapshot.read(Path.of(snapshotPath));
+
+        EmployeeRepository loaded = new EmployeeRepository();
+        for (int i = 0; i < store.size(); i++) {
+            loaded.addLoadedEmployee(store.toEmployee(i));
+        }
+        loaded.buildSubordinatesMap();
+        replaceAll(loaded);
+    }
+
+    /**
+     * Writes the loaded employees to a binary snapshot.
+     *
+     * @param snapshotPath path of the snapshot file to create or replace
+     * @param sourceHash {@link ContentHash} of the CSV the employees were loaded from
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void writeSnapshot(String snapshotPath, long sourceHash) throws IOException {
+        EmployeeSnapshot.write(ColumnarEmployeeStore.from(this), sourceHash, Path.of(snapshotPath));
+    }
+
+    private void loadSequential(String filePath) throws IOException {
+        CsvRowTokenizer tokenizer = new CsvRowTokenizer();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
+        try (ByteLineReader reader = new ByteLineReader(Files.newInputStream(Path.of(filePath)))) {
             boolean firstLine = true;
 
-            while ((line = reader.readLine()) != null) {
+            while (reader.readLine()) {
                 if (firstLine) {
                     firstLine = false;
                     continue; // Skip header
                 }
 
-                if (line.trim().isEmpty()) {
+                if (CsvRowTokenizer.isBlank(reader.row(), reader.length())) {
                     continue; // Skip empty lines
                 }
 
-                Employee employee = parseEmployee(line);
-                employees.put(employee.getId(), employee);
-
-                if (employee.isCEO()) {
-                    if (ceo != null) {
-                        throw new IllegalArgumentException(
-                            "Multiple CEOs found: " + ceo.getId() + " and " + employee.getId());
-                    }
-                    ceo = employee;
-                }
+                addLoadedEmployee(tokenizer.parse(reader.row(), reader.length()));
             }
         }
+    }
 
-        if (ceo == null) {
-            throw new IllegalArgumentException("No CEO found in the data");
-        }
+    private void loadParallel(String filePath) throws IOException {
+        ParallelCsvLoader loader = new ParallelCsvLoader(ForkJoinPool.commonPool());
 
-        buildSubordinatesMap();
+        // Chunks come back in file order, so merging them here reports the
+        // same first error as the sequential loader would
+        for (ParallelCsvLoader.ChunkResult chunk : loader.load(Path.of(filePath))) {
+            for (Employee employee : chunk.employees) {
+                addLoadedEmployee(employee);
+            }
+            if (chunk.error != null) {
+                throw chunk.error;
+            }
+        }
     }
 
-    private Employee parseEmployee(String line) {
-        String[] parts = line.split(CSV_DELIMITER, -1); // -1 to keep empty trailing fields
-        
-        if (parts.length != 5) {
-            throw new IllegalArgumentException("Invalid CSV line: " + line);
-        }
+    /**
+     * Takes over the employees of a completely loaded repository.
+     */
+    private void replaceAll(EmployeeRepository loaded) {
+        employees = loaded.employees;
+        subordinatesMap = loaded.subordinatesMap;
+        ceo = loaded.ceo;
+        invalidateIndexes();
+    }
 
-        String id = parts[0].trim();
-        String firstName = parts[1].trim();
-        String lastName = parts[2].trim();
-        double salary;
-        
-        try {
-            salary = Double.parseDouble(parts[3].trim());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid salary for employee " + id + ": " + parts[3]);
+    private void addLoadedEmployee(Employee employee) {
+        if (employees.putIfAbsent(employee.getId(), employee) != null) {
+            throw new IllegalArgumentException("Duplicate employee ID: " + employee.getId());
         }
 
-        String managerId = parts[4].trim();
-        if (managerId.isEmpty()) {
-            managerId = null;
+        if (employee.isCEO()) {
+            if (ceo != null) {
+                throw new IllegalArgumentException(
+                    "Multiple CEOs found: " + ceo.getId() + " and " + employee.getId());
+            }
+            ceo = employee;
         }
-
-        return new Employee(id, firstName, lastName, salary, managerId);
     }
 
     private void buildSubordinatesMap() {
         subordinatesMap.clear();
 
-        for (Employee employee : employees.values()) {
-            if (!employee.isCEO()) {
-                String managerId = employee.getManagerId();
-                
-                if (!employees.containsKey(managerId)) {
-                    throw new IllegalArgumentException(
-                        "Employee " + employee.getId() + " has invalid manager ID: " + managerId);
-                }
+        try (Metrics.Phase phase = Metrics.phase("repository.subordinates")) {
+            for (Employee employee : employees.values()) {
+                if (!employee.isCEO()) {
+                    String managerId = employee.getManagerId();
 
-                subordinatesMap.computeIfAbsent(managerId, k -> new ArrayList<>()).add(employee);
+                    if (!employees.containsKey(managerId)) {
+                        throw new IllegalArgumentException(
+                            "Employee " + employee.getId() + " has invalid manager ID: " + managerId);
+                    }
+
+                    subordinatesMap.computeIfAbsent(managerId, k -> new ArrayList<>()).add(employee);
+                }
             }
+            phase.rows(employees.size());
+        }
+        Metrics.count("repository.managers", subordinatesMap.size());
+    }
+
+    /**
+     * Checks that every reporting line ends at the CEO, reporting all cycles
+     * and the employees stuck under them at once.
+     *
+     * @throws InvalidHierarchyException if the manager links contain cycles
+     */
+    private void validateHierarchy() {
+        int size = employees.size();
+        String[] ids = employees.keySet().toArray(new String[size]);
+        IdIndex indexById = IdIndex.of(ids, size);
+
+        int[] managers = new int[size];
+        int index = 0;
+        for (Employee employee : employees.values()) {
+            managers[index++] = employee.isCEO() ? -1 : indexById.indexOf(employee.getManagerId());
+        }
+
+        try (Metrics.Phase phase = Metrics.phase("repository.validate")) {
+            phase.rows(size);
+            HierarchyValidator.validate(ids, managers, size);
         }
     }
 
@@ -130,4 +236,279 @@ public class EmployeeRepository {
     public boolean isManager(String employeeId) {
         return subordinatesMap.containsKey(employeeId);
     }
+
+    /**
+     * Adds a new employee under an existing manager.
+     *
+     * @throws IllegalArgumentException if the ID is taken or the manager does not exist
+     */
+    public void addEmployee(Employee employee) {
+        if (employees.containsKey(employee.getId())) {
+            throw new IllegalArgumentException("Employee already exists: " + employee.getId());
+        }
+        if (employee.isCEO()) {
+            throw new IllegalArgumentException("Multiple CEOs found: " + ceo.getId() + " and " + employee.getId());
+        }
+        requireEmployee(employee.getManagerId());
+
+        employees.put(employee.getId(), employee);
+        subordinatesMap.computeIfAbsent(employee.getManagerId(), k -> new ArrayList<>()).add(employee);
+        invalidateIndexes();
+    }
+
+    /**
+     * Removes an employee who has no direct subordinates.
+     *
+     * @return the removed employee
+     * @throws IllegalArgumentException if the employee does not exist, is the
+     *         CEO, or still has subordinates (reassign them first)
+     */
+    public Employee removeEmployee(String employeeId) {
+        Employee employee = requireEmployee(employeeId);
+        if (employee.isCEO()) {
+            throw new IllegalArgumentException("The CEO cannot be removed");
+        }
+        if (isManager(employeeId)) {
+            throw new IllegalArgumentException(
+                "Employee " + employeeId + " still has subordinates; reassign them first");
+        }
+
+        employees.remove(employeeId);
+        removeSubordinate(employee);
+        invalidateIndexes();
+        return employee;
+    }
+
+    /**
+     * Changes an employee's salary.
+     *
+     * @return the updated employee, which replaces the previous instance
+     */
+    public Employee changeSalary(String employeeId, double salary) {
+        Employee employee = requireEmployee(employeeId);
+        Employee updated = new Employee(employee.getId(), employee.getFirstName(), employee.getLastName(),
+            salary, employee.getManagerId());
+        replace(employee, updated);
+        invalidateIndexes();
+        return updated;
+    }
+
+    /**
+     * Moves an employee, with everyone under them, to a new manager.
+     *
+     * @return the updated employee, which replaces the previous instance
+     * @throws IllegalArgumentException if either employee does not exist, the
+     *         employee is the CEO, or the new manager reports to the employee
+     */
+    public Employee changeManager(String employeeId, String managerId) {
+        Employee employee = requireEmployee(employeeId);
+        requireEmployee(managerId);
+        if (employee.isCEO()) {
+            throw new IllegalArgumentException("The CEO cannot be assigned a manager");
+        }
+
+        // The new manager must not be inside the moved subtree, or the move would create a cycle
+        for (Employee current = getEmployee(managerId); current != null; current = getEmployee(current.getManagerId())) {
+            if (current.getId().equals(employeeId)) {
+                throw new IllegalArgumentException(
+                    "Employee " + managerId + " reports to " + employeeId + " and cannot become their manager");
+            }
+            if (current.isCEO()) {
+                break;
+            }
+        }
+
+        Employee updated = new Employee(employee.getId(), employee.getFirstName(), employee.getLastName(),
+            employee.getSalary(), managerId);
+        employees.put(employeeId, updated);
+        removeSubordinate(employee);
+        subordinatesMap.computeIfAbsent(managerId, k -> new ArrayList<>()).add(updated);
+        invalidateIndexes();
+        return updated;
+    }
+
+    /**
+     * Returns whether the employee reports to the manager, directly or through
+     * other managers. An employee is not under themselves.
+     *
+     * @throws IllegalArgumentException if either employee does not exist
+     */
+    public boolean isUnder(String employeeId, String managerId) {
+        int employee = requireIndex(employeeId);
+        int manager = requireIndex(managerId);
+        return employee != manager && subtreeIndex().isInSubtree(employee, manager);
+    }
+
+    /**
+     * Returns the number of employees in the manager's subtree, including the
+     * manager.
+     *
+     * @throws IllegalArgumentException if the employee does not exist
+     */
+    public int getSubtreeSize(String managerId) {
+        return subtreeIndex().subtreeSize(requireIndex(managerId));
+    }
+
+    /**
+     * Returns the total salary of the manager's subtree, including the
+     * manager's own salary.
+     *
+     * @throws IllegalArgumentException if the employee does not exist
+     */
+    public double getSubtreeSalaryTotal(String managerId) {
+        return subtreeIndex().subtreeSalaryTotal(requireIndex(managerId));
+    }
+
+    /**
+     * Returns the lowest salary in the manager's subtree, including the manager.
+     *
+     * @throws IllegalArgumentException if the employee does not exist
+     */
+    public double getSubtreeMinSalary(String managerId) {
+        return subtreeIndex().subtreeMinSalary(requireIndex(managerId));
+    }
+
+    /**
+     * Returns the highest salary in the manager's subtree, including the manager.
+     *
+     * @throws IllegalArgumentException if the employee does not exist
+     */
+    public double getSubtreeMaxSalary(String managerId) {
+        return subtreeIndex().subtreeMaxSalary(requireIndex(managerId));
+    }
+
+    /**
+     * Returns the number of employees at each level of the manager's subtree:
+     * element 0 is the manager, element 1 their direct subordinates, and so on.
+     *
+     * @throws IllegalArgumentException if the employee does not exist
+     */
+    public int[] getSubtreeDepthHistogram(String managerId) {
+        return subtreeIndex().depthHistogram(requireIndex(managerId));
+    }
+
+    /**
+     * Returns the lowest employee that both employees report to. If one of
+     * them reports to the other, that is the other one.
+     *
+     * @throws IllegalArgumentException if either employee does not exist
+     */
+    public Employee getLowestCommonManager(String firstId, String secondId) {
+        int common = ancestorIndex().lowestCommonManager(requireIndex(firstId), requireIndex(secondId));
+        return employees.get(indexedStore.id(common));
+    }
+
+    /**
+     * Returns the number of manager links between two employees: 1 for an
+     * employee and their manager, 2 for peers, and so on.
+     *
+     * @throws IllegalArgumentException if either employee does not exist
+     */
+    public int getReportingDistance(String firstId, String secondId) {
+        return ancestorIndex().distance(requireIndex(firstId), requireIndex(secondId));
+    }
+
+    /**
+     * Returns the manager the given number of levels above the employee, or
+     * null if the employee has fewer managers above them.
+     *
+     * @throws IllegalArgumentException if the employee does not exist or
+     *         {@code levels} is negative
+     */
+    public Employee getManagerAbove(String employeeId, int levels) {
+        int manager = ancestorIndex().ancestor(requireIndex(employeeId), levels);
+        return manager == ColumnarEmployeeStore.NO_MANAGER ? null : employees.get(indexedStore.id(manager));
+    }
+
+    /**
+     * Returns the employees connecting two employees: the first employee, their
+     * managers up to the lowest common manager, then down to the second
+     * employee.
+     *
+     * @throws IllegalArgumentException if either employee does not exist
+     */
+    public List<Employee> getConnectingChain(String firstId, String secondId) {
+        AncestorIndex index = ancestorIndex();
+        int first = requireIndex(firstId);
+        int second = requireIndex(secondId);
+        int[] path = new int[index.depth(first) + index.depth(second) + 1];
+        int length = index.path(first, second, path);
+
+        List<Employee> chain = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            chain.add(employees.get(indexedStore.id(path[i])));
+        }
+        return chain;
+    }
+
+    /**
+     * Returns the subtree index, building it on the first query after a load
+     * or change. Building is linear in the number of employees; every query
+     * after that takes constant time, apart from the depth histogram, which
+     * takes a binary search per level.
+     */
+    private SubtreeIndex subtreeIndex() {
+        if (subtreeIndex == null) {
+            subtreeIndex = SubtreeIndex.of(indexedStore());
+        }
+        return subtreeIndex;
+    }
+
+    /**
+     * Returns the ancestor index, building it on the first query after a load
+     * or change.
+     */
+    private AncestorIndex ancestorIndex() {
+        if (ancestorIndex == null) {
+            ancestorIndex = AncestorIndex.of(indexedStore());
+        }
+        return ancestorIndex;
+    }
+
+    private ColumnarEmployeeStore indexedStore() {
+        if (indexedStore == null) {
+            indexedStore = ColumnarEmployeeStore.from(this);
+        }
+        return indexedStore;
+    }
+
+    private int requireIndex(String employeeId) {
+        int index = indexedStore().indexOf(employeeId);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown employee: " + employeeId);
+        }
+        return index;
+    }
+
+    private void invalidateIndexes() {
+        indexedStore = null;
+        subtreeIndex = null;
+        ancestorIndex = null;
+    }
+
+    private Employee requireEmployee(String employeeId) {
+        Employee employee = employees.get(employeeId);
+        if (employee == null) {
+            throw new IllegalArgumentException("Unknown employee: " + employeeId);
+        }
+        return employee;
+    }
+
+    private void replace(Employee previous, Employee updated) {
+        employees.put(updated.getId(), updated);
+        if (previous.isCEO()) {
+            ceo = updated;
+        } else {
+            List<Employee> siblings = subordinatesMap.get(previous.getManagerId());
+            siblings.set(siblings.indexOf(previous), updated);
+        }
+    }
+
+    private void removeSubordinate(Employee employee) {
+        List<Employee> siblings = subordinatesMap.get(employee.getManagerId());
+        siblings.remove(employee);
+        if (siblings.isEmpty()) {
+            subordinatesMap.remove(employee.getManagerId());
+        }
+    }
 }
@@ -0,0 +1,387 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Versioned binary snapshot of a loaded organization.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * int     magic "BCAS"
+ * int     format version
+ * long    hash of the source CSV ({@link ContentHash})
+ * int     employee count n, int CEO index
+ * int     string count s, then s x (int length, UTF-8 bytes)   interned strings
+ * int[n]  ID, int[n] first name, int[n] last name             string table indexes
+ * double[n] salaries, int[n] manager indexes
+ * int[n+1] child offsets, int[n-1] children                   CSR child index
+ * long    CRC32C of all preceding bytes
+ * </pre>
+ * Snapshots are written to a temporary file and moved into place, so a
+ * concurrent reader never sees a partial file. Reading maps the file and
+ * copies each column in bulk; no CSV parsing or validation is repeated.
+ */
+public final class EmployeeSnapshot {
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x42434153; // "BCAS"
+    private static final int HEADER_BYTES = 16;
+    private static final int CHECKSUM_BYTES = 8;
+    private static final int WINDOW_BYTES = 256 * 1024 * 1024;
+    private static final int WRITE_BUFFER_BYTES = 1024 * 1024;
+    private static final String FILE_SUFFIX = ".snapshot";
+
+    private EmployeeSnapshot() {
+    }
+
+    /**
+     * Returns the default snapshot location for a CSV file: the same path
+     * with {@code .snapshot} appended.
+     */
+    public static Path pathFor(Path csvFile) {
+        return csvFile.resolveSibling(csvFile.getFileName() + FILE_SUFFIX);
+    }
+
+    /**
+     * Writes a snapshot of the store.
+     *
+     * @param store the organization to write
+     * @param sourceHash hash of the CSV the store was loaded from
+     * @param path snapshot file to create or replace
+     */
+    public static void write(ColumnarEmployeeStore store, long sourceHash, Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+
+        try {
+            try (Metrics.Phase phase = Metrics.phase("snapshot.write");
+                 FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                phase.rows(store.size());
+                Output out = new Output(channel);
+                out.putInt(MAGIC);
+                out.putInt(VERSION);
+                out.putLong(sourceHash);
+                out.putInt(store.size());
+                out.putInt(store.ceoIndex());
+
+                // Names repeat heavily across a large company, so each distinct string is stored once
+                Map<String, Integer> table = new HashMap<>();
+                List<String> strings = new ArrayList<>();
+                int[] idRefs = intern(store.idColumn(), table, strings);
+                int[] firstNameRefs = intern(store.firstNameColumn(), table, strings);
+                int[] lastNameRefs = intern(store.lastNameColumn(), table, strings);
+
+                out.putInt(strings.size());
+                for (String value : strings) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.putInt(bytes.length);
+                    out.putBytes(bytes);
+                }
+
+                out.putInts(idRefs);
+                out.putInts(firstNameRefs);
+                out.putInts(lastNameRefs);
+                out.putDoubles(store.salaryColumn());
+                out.putInts(store.managerColumn());
+                out.putInts(store.childOffsetColumn());
+                out.putInts(store.childColumn());
+                out.finish();
+                phase.bytes(channel.size());
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns true if the file is a snapshot of this format version that was
+     * made from a CSV with the given hash. Only the header is read.
+     */
+    public static boolean matches(Path path, long sourceHash) {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // Keep reading until the header is complete
+            }
+            return !header.hasRemaining()
+                && header.getInt(0) == MAGIC
+                && header.getInt(4) == VERSION
+                && header.getLong(8) == sourceHash;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @throws IOException if the file cannot be read, is not a snapshot of this
+     *         format version, or fails its checksum
+     */
+    public static ColumnarEmployeeStore read(Path path) throws IOException {
+        try (Metrics.Phase phase = Metrics.phase("snapshot.read");
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            phase.bytes(channel.size());
+            long dataBytes = channel.size() - CHECKSUM_BYTES;
+            if (dataBytes < HEADER_BYTES) {
+                throw new IOException("Not an employee snapshot: " + path);
+            }
+            verifyChecksum(channel, dataBytes, path);
+
+            Input in = new Input(channel, dataBytes);
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not an employee snapshot: " + path);
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            in.getLong(); // source hash, see matches()
+
+            int size = in.getInt();
+            int ceo = in.getInt();
+            phase.rows(size);
+
+            String[] strings = new String[in.getInt()];
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = in.getInt();
+                if (length > scratch.length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                in.getBytes(scratch, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+
+            String[] ids = resolve(in, strings, size);
+            String[] firstNames = resolve(in, strings, size);
+            String[] lastNames = resolve(in, strings, size);
+            double[] salaries = new double[size];
+            in.getDoubles(salaries);
+            int[] managers = new int[size];
+            in.getInts(managers);
+            int[] childOffsets = new int[size + 1];
+            in.getInts(childOffsets);
+            int[] children = new int[Math.max(0, size - 1)];
+            in.getInts(children);
+
+            return ColumnarEmployeeStore.fromColumns(ids, firstNames, lastNames, salaries, managers,
+                childOffsets, children, ceo);
+        }
+    }
+
+    private static int[] intern(String[] values, Map<String, Integer> table, List<String> strings) {
+        int[] refs = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Integer ref = table.get(values[i]);
+            if (ref == null) {
+                ref = strings.size();
+                table.put(values[i], ref);
+                strings.add(values[i]);
+            }
+            refs[i] = ref;
+        }
+        return refs;
+    }
+
+    private static String[] resolve(Input in, String[] strings, int size) throws IOException {
+        int[] refs = new int[size];
+        in.getInts(refs);
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = strings[refs[i]];
+        }
+        return values;
+    }
+
+    private static void verifyChecksum(FileChannel channel, long dataBytes, Path path) throws IOException {
+        CRC32C crc = new CRC32C();
+        for (long position = 0; position < dataBytes; position += WINDOW_BYTES) {
+            long length = Math.min(WINDOW_BYTES, dataBytes - position);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+        }
+
+        ByteBuffer stored = ByteBuffer.allocate(CHECKSUM_BYTES);
+        while (stored.hasRemaining() && channel.read(stored, dataBytes + stored.position()) > 0) {
+            // Keep reading until the checksum is complete
+        }
+        if (stored.hasRemaining() || stored.getLong(0) != crc.getValue()) {
+            throw new IOException("Snapshot checksum mismatch: " + path);
+        }
+    }
+
+    /**
+     * Buffered writer that keeps a running CRC32C of everything written.
+     */
+    private static class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        private final CRC32C crc = new CRC32C();
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void putInts(int[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(Integer.BYTES);
+                int length = Math.min(buffer.remaining() / Integer.BYTES, values.length - offset);
+                buffer.asIntBuffer().put(values, offset, length);
+                buffer.position(buffer.position() + length * Integer.BYTES);
+                offset += length;
+            }
+        }
+
+        void putDoubles(double[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(Double.BYTES);
+                int length = Math.min(buffer.remaining() / Double.BYTES, values.length - offset);
+                buffer.asDoubleBuffer().put(values, offset, length);
+                buffer.position(buffer.position() + length * Double.BYTES);
+                offset += length;
+            }
+        }
+
+        /**
+         * Flushes the data and appends the checksum.
+         */
+        void finish() throws IOException {
+            flush(true);
+            buffer.putLong(crc.getValue());
+            flush(false);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush(true);
+            }
+        }
+
+        private void flush(boolean checksummed) throws IOException {
+            buffer.flip();
+            if (checksummed) {
+                crc.update(buffer.duplicate());
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads from the file through memory-mapped windows of at most
+     * {@link #WINDOW_BYTES}, so files larger than 2 GB can be read.
+     */
+    private static class Input {
+        private final FileChannel channel;
+        private final long limit;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        Input(FileChannel channel, long limit) throws IOException {
+            this.channel = channel;
+            this.limit = limit;
+            map(0);
+        }
+
+        int getInt() throws IOException {
+            ensure(Integer.BYTES);
+            return window.getInt();
+        }
+
+        long getLong() throws IOException {
+            ensure(Long.BYTES);
+            return window.getLong();
+        }
+
+        void getBytes(byte[] destination, int length) throws IOException {
+            int offset = 0;
+            while (offset < length) {
+                ensure(1);
+                int chunk = Math.min(window.remaining(), length - offset);
+                window.get(destination, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        void getInts(int[] destination) throws IOException {
+            int offset = 0;
+            while (offset < destination.length) {
+                ensure(Integer.BYTES);
+                int length = Math.min(window.remaining() / Integer.BYTES, destination.length - offset);
+                window.asIntBuffer().get(destination, offset, length);
+                window.position(window.position() + length * Integer.BYTES);
+                offset += length;
+            }
+        }
+
+        void getDoubles(double[] destination) throws IOException {
+            int offset = 0;
+            while (offset < destination.length) {
+                ensure(Double.BYTES);
+                int length = Math.min(window.remaining() / Double.BYTES, destination.length - offset);
+                window.asDoubleBuffer().get(destination, offset, length);
+                window.position(window.position() + length * Double.BYTES);
+                offset += length;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = windowStart + window.position();
+                if (limit - position < bytes) {
+                    throw new IOException("Truncated employee snapshot");
+                }
+                map(position);
+            }
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, limit - position));
+        }
+    }
+}
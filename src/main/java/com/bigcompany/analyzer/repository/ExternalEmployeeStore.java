@@ -0,0 +1,748 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+import com.bigcompany.analyzer.model.Employee;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Organization kept in files instead of the heap, for CSV files too large to
+ * load.
+ *
+ * Loading sorts employee IDs and manager references on disk within a memory
+ * budget, which resolves every manager ID to a row number and adds up each
+ * manager's subordinate salaries in file order. Depths are computed by
+ * pointer jumping: every round joins each employee with the ancestor it
+ * points at and takes over that ancestor's pointer, doubling the distance
+ * covered, so a hierarchy of depth d needs about log2(d) rounds of two
+ * external sorts each. The result is one fixed-width record per employee,
+ * read in file order with a {@link Cursor}, and a separate file of IDs and
+ * names that is only read for employees being reported.
+ *
+ * Rows are numbered in file order from 0. An instance is not thread-safe.
+ * Closing it deletes its files.
+ */
+public final class ExternalEmployeeStore implements Closeable {
+    /** Salary, text offset, manager row, depth, subordinate count and subordinate salary total. */
+    private static final int ROW_BYTES = 48;
+    private static final int IO_BUFFER = 64 * 1024;
+    private static final int MAX_REPORTED_IDS = 10;
+
+    private static final String ROWS = "rows.bin";
+    private static final String TEXT = "text.bin";
+
+    private final Path directory;
+    private final long size;
+    private final long ceo;
+    private final FileChannel rows;
+    private final FileChannel text;
+    private final ByteBuffer rowBuffer = ByteBuffer.allocate(ROW_BYTES);
+    private ByteBuffer textBuffer = ByteBuffer.allocate(256);
+
+    private ExternalEmployeeStore(Path directory, long size, long ceo) throws IOException {
+        this.directory = directory;
+        this.size = size;
+        this.ceo = ceo;
+        this.rows = FileChannel.open(directory.resolve(ROWS), StandardOpenOption.READ);
+        this.text = FileChannel.open(directory.resolve(TEXT), StandardOpenOption.READ);
+    }
+
+    /**
+     * Loads the CSV file into a new directory under {@code spillDirectory},
+     * holding about {@code memoryBudget} bytes of employee data in memory at
+     * any time. Applies the same validation as
+     * {@link ColumnarEmployeeStore#load(String)}, though the first error
+     * reported may be a different one.
+     *
+     * @throws IOException if a file cannot be read or written
+     * @throws IllegalArgumentException if data is invalid or the manager
+     *         links contain cycles
+     */
+    public static ExternalEmployeeStore load(Path csvFile, Path spillDirectory, long memoryBudget)
+            throws IOException {
+        Files.createDirectories(spillDirectory);
+        Path directory = Files.createTempDirectory(spillDirectory, "employees-");
+        try {
+            return new Loader(directory, memoryBudget).load(csvFile);
+        } catch (IOException | RuntimeException e) {
+            deleteDirectory(directory);
+            throw e;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long ceoRow() {
+        return ceo;
+    }
+
+    /**
+     * Returns a cursor over all rows in file order.
+     */
+    public Cursor cursor() throws IOException {
+        return new Cursor(directory.resolve(ROWS), size);
+    }
+
+    /**
+     * Returns the row of the employee's manager, or
+     * {@link ColumnarEmployeeStore#NO_MANAGER} for the CEO.
+     */
+    public long manager(long row) throws IOException {
+        readRow(row);
+        return rowBuffer.getLong(16);
+    }
+
+    /**
+     * Reads the employee in the given row.
+     */
+    public Employee toEmployee(long row) throws IOException {
+        readRow(row);
+        double salary = rowBuffer.getDouble(0);
+        long textOffset = rowBuffer.getLong(8);
+        long manager = rowBuffer.getLong(16);
+
+        String[] fields = readText(textOffset);
+        String managerId = null;
+        if (manager != ColumnarEmployeeStore.NO_MANAGER) {
+            readRow(manager);
+            managerId = readText(rowBuffer.getLong(8))[0];
+        }
+        return new Employee(fields[0], fields[1], fields[2], salary, managerId);
+    }
+
+    /**
+     * Closes the files and deletes them.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            rows.close();
+            text.close();
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    private void readRow(long row) throws IOException {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        rowBuffer.clear();
+        readFully(rows, rowBuffer, row * ROW_BYTES);
+    }
+
+    private String[] readText(long offset) throws IOException {
+        textBuffer.clear().limit(4);
+        readFully(text, textBuffer, offset);
+        int length = textBuffer.getInt(0);
+        if (length > textBuffer.capacity()) {
+            textBuffer = ByteBuffer.allocate(Math.max(length, textBuffer.capacity() * 2));
+        }
+        textBuffer.clear().limit(length);
+        readFully(text, textBuffer, offset + 4);
+        return decodeText(textBuffer);
+    }
+
+    private static String[] decodeText(ByteBuffer buffer) {
+        String[] fields = new String[3];
+        int position = 0;
+        for (int f = 0; f < fields.length; f++) {
+            int length = buffer.getInt(position);
+            fields[f] = new String(buffer.array(), position + 4, length, StandardCharsets.UTF_8);
+            position += 4 + length;
+        }
+        return fields;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of " + channel);
+            }
+        }
+    }
+
+    private static DataOutputStream openOutput(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER));
+    }
+
+    private static DataInputStream openInput(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER));
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Reads rows in file order.
+     */
+    public static final class Cursor implements Closeable {
+        private final DataInputStream in;
+        private final long size;
+        private long row = -1;
+        private double salary;
+        private long manager;
+        private int depth;
+        private long subordinateCount;
+        private double subordinateSalaryTotal;
+
+        private Cursor(Path rows, long size) throws IOException {
+            this.in = openInput(rows);
+            this.size = size;
+        }
+
+        /**
+         * Moves to the next row.
+         *
+         * @return false after the last row
+         */
+        public boolean next() throws IOException {
+            if (row + 1 >= size) {
+                return false;
+            }
+            row++;
+            salary = in.readDouble();
+            in.readLong(); // text offset, read by toEmployee()
+            manager = in.readLong();
+            depth = (int) in.readLong();
+            subordinateCount = in.readLong();
+            subordinateSalaryTotal = in.readDouble();
+            return true;
+        }
+
+        public long row() {
+            return row;
+        }
+
+        public double salary() {
+            return salary;
+        }
+
+        /**
+         * Returns the manager's row, or {@link ColumnarEmployeeStore#NO_MANAGER}
+         * for the CEO.
+         */
+        public long manager() {
+            return manager;
+        }
+
+        /**
+         * Returns the number of levels between the employee and the CEO; the
+         * CEO is at depth 0.
+         */
+        public int depth() {
+            return depth;
+        }
+
+        public long subordinateCount() {
+            return subordinateCount;
+        }
+
+        /**
+         * Returns the salary total of the direct subordinates, added up in
+         * file order like {@link ColumnarEmployeeStore} does.
+         */
+        public double subordinateSalaryTotal() {
+            return subordinateSalaryTotal;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Builds the files of one store. Intermediate files are fixed-width
+     * records of longs in row order, so they are read and joined
+     * sequentially; only the sorters hold records in memory.
+     */
+    private static final class Loader {
+        private static final String BASE = "base.bin";
+        private static final String MANAGERS = "managers.bin";
+        private static final String AGGREGATES = "aggregates.bin";
+
+        private static final byte KIND_ID = 0;
+        private static final byte KIND_MANAGER_ID = 1;
+
+        private final Path directory;
+        private final long memoryBudget;
+        private long size;
+        private long ceo = ColumnarEmployeeStore.NO_MANAGER;
+        private String ceoId;
+
+        private byte[] record = new byte[64];
+        private byte[] currentKey = new byte[64];
+        private int currentKeyLength = -1;
+        private long currentManager;
+        private long nextRow;
+        private long aggregateManager;
+        private long aggregateCount;
+        private double aggregateTotal;
+        private long aggregates;
+        private long pending;
+
+        Loader(Path directory, long memoryBudget) {
+            this.directory = directory;
+            this.memoryBudget = memoryBudget;
+        }
+
+        ExternalEmployeeStore load(Path csvFile) throws IOException {
+            ExternalSorter references = parse(csvFile);
+
+            // Both are filled during one merge, so each gets half of the budget
+            ExternalSorter managers = new ExternalSorter(directory, "managers", memoryBudget / 2);
+            ExternalSorter subordinates = new ExternalSorter(directory, "subordinates", memoryBudget / 2);
+            try (Metrics.Phase phase = Metrics.phase("external.resolveManagers")) {
+                phase.rows(size);
+                resolveManagers(references, managers, subordinates);
+                writeManagers(managers);
+            }
+            try (Metrics.Phase phase = Metrics.phase("external.aggregate")) {
+                phase.rows(size);
+                writeAggregates(subordinates);
+            }
+            Path depths;
+            try (Metrics.Phase phase = Metrics.phase("external.depths")) {
+                phase.rows(size);
+                depths = computeDepths(directory.resolve(MANAGERS));
+            }
+            try (Metrics.Phase phase = Metrics.phase("external.writeRows")) {
+                phase.rows(size).bytes(size * ROW_BYTES);
+                writeRows(depths);
+            }
+            return new ExternalEmployeeStore(directory, size, ceo);
+        }
+
+        /**
+         * Writes salaries and names in row order and returns the sorter
+         * holding one record per employee ID and one per manager reference.
+         */
+        private ExternalSorter parse(Path csvFile) throws IOException {
+            ExternalSorter references = new ExternalSorter(directory, "references", memoryBudget);
+            CsvRowTokenizer tokenizer = new CsvRowTokenizer();
+            long textOffset = 0;
+
+            try (Metrics.Phase phase = Metrics.phase("external.parse");
+                 ByteLineReader reader = new ByteLineReader(Files.newInputStream(csvFile));
+                 DataOutputStream base = openOutput(directory.resolve(BASE));
+                 DataOutputStream text = openOutput(directory.resolve(TEXT))) {
+                phase.bytes(Files.size(csvFile));
+                boolean firstLine = true;
+
+                while (reader.readLine()) {
+                    if (firstLine) {
+                        firstLine = false;
+                        continue; // Skip header
+                    }
+
+                    byte[] row = reader.row();
+                    if (CsvRowTokenizer.isBlank(row, reader.length())) {
+                        continue; // Skip empty lines
+                    }
+                    tokenizer.tokenize(row, reader.length());
+
+                    if (tokenizer.start(4) == tokenizer.end(4)) {
+                        String id = field(row, tokenizer, 0);
+                        if (ceo != ColumnarEmployeeStore.NO_MANAGER) {
+                            throw new IllegalArgumentException("Multiple CEOs found: " + ceoId + " and " + id);
+                        }
+                        ceo = size;
+                        ceoId = id;
+                    } else {
+                        addReference(references, row, tokenizer.start(4), tokenizer.end(4), KIND_MANAGER_ID,
+                            tokenizer.salary());
+                    }
+                    addReference(references, row, tokenizer.start(0), tokenizer.end(0), KIND_ID, 0);
+
+                    base.writeDouble(tokenizer.salary());
+                    base.writeLong(textOffset);
+                    textOffset += writeText(text, row, tokenizer);
+                    size++;
+                }
+                phase.rows(size);
+            }
+
+            if (ceo == ColumnarEmployeeStore.NO_MANAGER) {
+                throw new IllegalArgumentException("No CEO found in the data");
+            }
+            return references;
+        }
+
+        /**
+         * Adds [key length][key][kind][row][salary]. Equal keys sort
+         * together, the ID before the references to it.
+         */
+        private void addReference(ExternalSorter references, byte[] row, int start, int end, byte kind,
+                                  double salary) throws IOException {
+            int keyLength = end - start;
+            int length = 4 + keyLength + 1 + 16;
+            if (length > record.length) {
+                record = new byte[Math.max(length, record.length * 2)];
+            }
+            ExternalSorter.putInt(record, 0, keyLength);
+            System.arraycopy(row, start, record, 4, keyLength);
+            record[4 + keyLength] = kind;
+            ExternalSorter.putLong(record, 5 + keyLength, size);
+            ExternalSorter.putLong(record, 13 + keyLength, Double.doubleToRawLongBits(salary));
+            references.add(record, length);
+        }
+
+        private static int writeText(DataOutputStream text, byte[] row, CsvRowTokenizer tokenizer)
+                throws IOException {
+            int length = 0;
+            for (int f = 0; f < 3; f++) {
+                length += 4 + tokenizer.end(f) - tokenizer.start(f);
+            }
+            text.writeInt(length);
+            for (int f = 0; f < 3; f++) {
+                text.writeInt(tokenizer.end(f) - tokenizer.start(f));
+                text.write(row, tokenizer.start(f), tokenizer.end(f) - tokenizer.start(f));
+            }
+            return 4 + length;
+        }
+
+        private static String field(byte[] row, CsvRowTokenizer tokenizer, int f) {
+            return new String(row, tokenizer.start(f), tokenizer.end(f) - tokenizer.start(f), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Walks the references in key order, where each ID is followed by the
+         * rows that name it as their manager.
+         */
+        private void resolveManagers(ExternalSorter references, ExternalSorter managers,
+                                     ExternalSorter subordinates) throws IOException {
+            byte[] pair = new byte[16];
+            byte[] triple = new byte[24];
+            references.sort((data, offset, length) -> {
+                int keyLength = ExternalSorter.getInt(data, offset);
+                int keyStart = offset + 4;
+                if (keyLength != currentKeyLength
+                    || !Arrays.equals(data, keyStart, keyStart + keyLength, currentKey, 0, keyLength)) {
+                    if (keyLength > currentKey.length) {
+                        currentKey = new byte[Math.max(keyLength, currentKey.length * 2)];
+                    }
+                    System.arraycopy(data, keyStart, currentKey, 0, keyLength);
+                    currentKeyLength = keyLength;
+                    currentManager = ColumnarEmployeeStore.NO_MANAGER;
+                }
+
+                byte kind = data[keyStart + keyLength];
+                long row = ExternalSorter.getLong(data, keyStart + keyLength + 1);
+                if (kind == KIND_ID) {
+                    if (currentManager != ColumnarEmployeeStore.NO_MANAGER) {
+                        throw new IllegalArgumentException("Duplicate employee ID: " + currentKey());
+                    }
+                    currentManager = row;
+                    return;
+                }
+                if (currentManager == ColumnarEmployeeStore.NO_MANAGER) {
+                    throw new IllegalArgumentException(
+                        "Employee " + readId(row) + " has invalid manager ID: " + currentKey());
+                }
+
+                ExternalSorter.putLong(pair, 0, row);
+                ExternalSorter.putLong(pair, 8, currentManager);
+                managers.add(pair, pair.length);
+
+                ExternalSorter.putLong(triple, 0, currentManager);
+                ExternalSorter.putLong(triple, 8, row);
+                System.arraycopy(data, keyStart + keyLength + 9, triple, 16, 8); // salary bits
+                subordinates.add(triple, triple.length);
+            });
+        }
+
+        private String currentKey() {
+            return new String(currentKey, 0, currentKeyLength, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Writes (row, manager, 1) for every row, which is the manager column
+         * and the first table of {@link #computeDepths}.
+         */
+        private void writeManagers(ExternalSorter managers) throws IOException {
+            nextRow = 0;
+            try (DataOutputStream out = openOutput(directory.resolve(MANAGERS))) {
+                managers.sort((data, offset, length) -> {
+                    if (nextRow == ceo) {
+                        writeEntry(out, ceo, ColumnarEmployeeStore.NO_MANAGER, 0);
+                        nextRow++;
+                    }
+                    writeEntry(out, ExternalSorter.getLong(data, offset), ExternalSorter.getLong(data, offset + 8), 1);
+                    nextRow++;
+                });
+                if (nextRow == ceo) {
+                    writeEntry(out, ceo, ColumnarEmployeeStore.NO_MANAGER, 0);
+                }
+            }
+        }
+
+        /**
+         * Adds up the subordinate salaries of each manager. The references
+         * are sorted by manager and then row, so salaries are added in file
+         * order, as the in-memory analyzers do.
+         */
+        private void writeAggregates(ExternalSorter subordinates) throws IOException {
+            aggregateManager = ColumnarEmployeeStore.NO_MANAGER;
+            try (DataOutputStream out = openOutput(directory.resolve(AGGREGATES))) {
+                subordinates.sort((data, offset, length) -> {
+                    long manager = ExternalSorter.getLong(data, offset);
+                    if (manager != aggregateManager) {
+                        writeAggregate(out);
+                        aggregateManager = manager;
+                        aggregateCount = 0;
+                        aggregateTotal = 0;
+                    }
+                    aggregateCount++;
+                    aggregateTotal += Double.longBitsToDouble(ExternalSorter.getLong(data, offset + 16));
+                });
+                writeAggregate(out);
+            }
+        }
+
+        private void writeAggregate(DataOutputStream out) throws IOException {
+            if (aggregateManager != ColumnarEmployeeStore.NO_MANAGER) {
+                out.writeLong(aggregateManager);
+                out.writeLong(aggregateCount);
+                out.writeDouble(aggregateTotal);
+                aggregates++;
+            }
+        }
+
+        /**
+         * Pointer jumping over tables of (row, ancestor, distance) in row
+         * order. An entry whose ancestor is {@code NO_MANAGER} is done and
+         * its distance is the row's depth. Every other entry asks for the
+         * entry of its ancestor, and takes over that entry's ancestor while
+         * adding its distance.
+         *
+         * @return the final table, in which every entry is done
+         */
+        private Path computeDepths(Path initialTable) throws IOException {
+            Path table = initialTable;
+            pending = size - 1;
+            // Distances double every round, and no depth exceeds the number of employees
+            int maxRounds = 64 - Long.numberOfLeadingZeros(size) + 1;
+            byte[] entry = new byte[24];
+
+            for (int round = 1; pending > 0; round++) {
+                if (round > maxRounds) {
+                    throw unreachable(table);
+                }
+                Metrics.count("external.depthRounds", 1);
+
+                ExternalSorter requests = new ExternalSorter(directory, "requests", memoryBudget);
+                try (DataInputStream in = openInput(table)) {
+                    for (long i = 0; i < size; i++) {
+                        long row = in.readLong();
+                        long ancestor = in.readLong();
+                        long distance = in.readLong();
+                        if (ancestor != ColumnarEmployeeStore.NO_MANAGER) {
+                            addEntry(requests, entry, ancestor, row, distance);
+                        }
+                    }
+                }
+
+                ExternalSorter jumped = new ExternalSorter(directory, "jumped", memoryBudget / 2);
+                try (TableReader targets = new TableReader(table, size)) {
+                    requests.sort((data, offset, length) -> {
+                        long ancestor = ExternalSorter.getLong(data, offset);
+                        targets.advanceTo(ancestor, jumped, entry);
+                        addEntry(jumped, entry, ExternalSorter.getLong(data, offset + 8), targets.ancestor,
+                            ExternalSorter.getLong(data, offset + 16) + targets.distance);
+                    });
+                    targets.advanceTo(size, jumped, entry);
+                }
+
+                Path next = directory.resolve("depths-" + round + ".bin");
+                pending = 0;
+                try (DataOutputStream out = openOutput(next)) {
+                    jumped.sort((data, offset, length) -> {
+                        long ancestor = ExternalSorter.getLong(data, offset + 8);
+                        writeEntry(out, ExternalSorter.getLong(data, offset), ancestor,
+                            ExternalSorter.getLong(data, offset + 16));
+                        if (ancestor != ColumnarEmployeeStore.NO_MANAGER) {
+                            pending++;
+                        }
+                    });
+                }
+                if (!table.equals(initialTable)) {
+                    Files.delete(table);
+                }
+                table = next;
+            }
+            return table;
+        }
+
+        private static void addEntry(ExternalSorter sorter, byte[] entry, long first, long second, long third)
+                throws IOException {
+            ExternalSorter.putLong(entry, 0, first);
+            ExternalSorter.putLong(entry, 8, second);
+            ExternalSorter.putLong(entry, 16, third);
+            sorter.add(entry, entry.length);
+        }
+
+        private static void writeEntry(DataOutputStream out, long row, long ancestor, long distance)
+                throws IOException {
+            out.writeLong(row);
+            out.writeLong(ancestor);
+            out.writeLong(distance);
+        }
+
+        /**
+         * Rows still pointing at an ancestor after every depth would have been
+         * reached are in a cycle or report into one.
+         */
+        private IllegalArgumentException unreachable(Path table) throws IOException {
+            List<String> ids = new ArrayList<>();
+            try (DataInputStream in = openInput(table)) {
+                for (long i = 0; i < size && ids.size() < MAX_REPORTED_IDS; i++) {
+                    long row = in.readLong();
+                    long ancestor = in.readLong();
+                    in.readLong();
+                    if (ancestor != ColumnarEmployeeStore.NO_MANAGER) {
+                        ids.add(readId(row));
+                    }
+                }
+            }
+            return new IllegalArgumentException(String.format(
+                "Circular reporting lines found: %d employee(s) cannot reach the CEO, including %s",
+                pending, String.join(", ", ids)));
+        }
+
+        /**
+         * Combines the row-ordered files into the rows file.
+         */
+        private void writeRows(Path depths) throws IOException {
+            try (DataInputStream base = openInput(directory.resolve(BASE));
+                 DataInputStream managers = openInput(directory.resolve(MANAGERS));
+                 DataInputStream subordinates = openInput(directory.resolve(AGGREGATES));
+                 DataInputStream levels = openInput(depths);
+                 DataOutputStream out = openOutput(directory.resolve(ROWS))) {
+                long remainingAggregates = aggregates;
+                long nextManager = remainingAggregates > 0 ? subordinates.readLong() : -1;
+
+                for (long row = 0; row < size; row++) {
+                    double salary = base.readDouble();
+                    long textOffset = base.readLong();
+                    managers.readLong();
+                    long manager = managers.readLong();
+                    managers.readLong();
+                    levels.readLong();
+                    levels.readLong();
+                    long depth = levels.readLong();
+
+                    long count = 0;
+                    double total = 0;
+                    if (row == nextManager) {
+                        count = subordinates.readLong();
+                        total = subordinates.readDouble();
+                        nextManager = --remainingAggregates > 0 ? subordinates.readLong() : -1;
+                    }
+
+                    out.writeDouble(salary);
+                    out.writeLong(textOffset);
+                    out.writeLong(manager);
+                    out.writeLong(depth);
+                    out.writeLong(count);
+                    out.writeDouble(total);
+                }
+            }
+            Files.delete(directory.resolve(BASE));
+            Files.delete(directory.resolve(MANAGERS));
+            Files.delete(directory.resolve(AGGREGATES));
+            if (!depths.equals(directory.resolve(MANAGERS))) {
+                Files.delete(depths);
+            }
+        }
+
+        /**
+         * Reads the ID of a row while loading, for error messages.
+         */
+        private String readId(long row) throws IOException {
+            try (FileChannel base = FileChannel.open(directory.resolve(BASE), StandardOpenOption.READ);
+                 FileChannel text = FileChannel.open(directory.resolve(TEXT), StandardOpenOption.READ)) {
+                ByteBuffer offset = ByteBuffer.allocate(8);
+                readFully(base, offset, row * 16 + 8);
+                ByteBuffer length = ByteBuffer.allocate(4);
+                readFully(text, length, offset.getLong(0));
+                ByteBuffer fields = ByteBuffer.allocate(length.getInt(0));
+                readFully(text, fields, offset.getLong(0) + 4);
+                return decodeText(fields)[0];
+            }
+        }
+    }
+
+    /**
+     * Reads a (row, ancestor, distance) table in row order, passing on
+     * entries that are done as it moves past them.
+     */
+    private static final class TableReader implements Closeable {
+        private final DataInputStream in;
+        private final long size;
+        private long row = -1;
+        private long ancestor;
+        private long distance;
+
+        TableReader(Path table, long size) throws IOException {
+            this.in = openInput(table);
+            this.size = size;
+            next();
+        }
+
+        /**
+         * Moves to the entry of {@code target}. Entries that are done are
+         * added to {@code done} when they are left behind.
+         */
+        void advanceTo(long target, ExternalSorter done, byte[] entry) throws IOException {
+            while (row < target && row < size) {
+                if (ancestor == ColumnarEmployeeStore.NO_MANAGER) {
+                    Loader.addEntry(done, entry, row, ancestor, distance);
+                }
+                next();
+            }
+        }
+
+        private void next() throws IOException {
+            if (row + 1 >= size) {
+                row = size;
+                return;
+            }
+            row = in.readLong();
+            ancestor = in.readLong();
+            distance = in.readLong();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
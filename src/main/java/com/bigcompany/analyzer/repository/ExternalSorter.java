@@ -0,0 +1,303 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts byte records that may not fit in memory.
+ *
+ * Records are collected in an arena of about half the memory budget. When the
+ * arena is full it is sorted and written to a run file in the spill
+ * directory; {@link #sort} then merges the runs, in several passes if there
+ * are more runs than the budget has room for read buffers. Records that all
+ * fit in the arena are sorted in memory and never written.
+ *
+ * Records compare as unsigned bytes, so fields written with
+ * {@link #putLong} sort by their signed value in field order. Equal records
+ * may come out in any order.
+ */
+final class ExternalSorter {
+    private static final int IO_BUFFER = 64 * 1024;
+    private static final int MIN_ARENA = 4 * 1024;
+    private static final int MAX_ARENA = 1 << 30;
+    private static final int MAX_FAN_IN = 64;
+
+    private static final Metrics.Counter RUNS = Metrics.counter("external.runs");
+    private static final Metrics.Counter SPILLED_BYTES = Metrics.counter("external.spilledBytes");
+
+    private final Path directory;
+    private final String name;
+    private final int arenaSize;
+    private final int fanIn;
+    private final List<Path> runs = new ArrayList<>();
+
+    private byte[] arena;
+    private int arenaUsed;
+    /** Start of each record's length prefix in the arena. */
+    private int[] starts = new int[1024];
+    private int count;
+    private long total;
+
+    /**
+     * @param directory where run files are written
+     * @param name prefix of the run file names
+     * @param memoryBudget bytes the sorter may hold while records are added
+     */
+    ExternalSorter(Path directory, String name, long memoryBudget) {
+        this.directory = directory;
+        this.name = name;
+        this.arenaSize = (int) Math.max(MIN_ARENA, Math.min(MAX_ARENA, memoryBudget / 2));
+        this.fanIn = (int) Math.max(2, Math.min(MAX_FAN_IN, memoryBudget / 2 / IO_BUFFER));
+    }
+
+    /**
+     * Adds bytes [0, length) of the record.
+     */
+    void add(byte[] record, int length) throws IOException {
+        if (arena == null) {
+            arena = new byte[arenaSize];
+        }
+        if (arenaUsed + 4 + length > arena.length) {
+            if (count == 0) {
+                throw new IllegalArgumentException("Record of " + length + " bytes exceeds the sort buffer");
+            }
+            spill();
+        }
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+        }
+
+        starts[count++] = arenaUsed;
+        putInt(arena, arenaUsed, length);
+        System.arraycopy(record, 0, arena, arenaUsed + 4, length);
+        arenaUsed += 4 + length;
+        total++;
+    }
+
+    /**
+     * Returns the number of records added.
+     */
+    long size() {
+        return total;
+    }
+
+    /**
+     * Passes all records to the handler in ascending order and deletes the
+     * run files. The sorter is empty afterwards.
+     */
+    void sort(RecordHandler handler) throws IOException {
+        try {
+            if (runs.isEmpty()) {
+                sortArena();
+                for (int i = 0; i < count; i++) {
+                    int start = starts[i];
+                    handler.accept(arena, start + 4, getInt(arena, start));
+                }
+                return;
+            }
+
+            if (count > 0) {
+                spill();
+            }
+            release();
+            while (runs.size() > fanIn) {
+                List<Path> group = new ArrayList<>(runs.subList(0, fanIn));
+                runs.subList(0, fanIn).clear();
+                Path merged = newRun();
+                try (DataOutputStream out = openRun(merged)) {
+                    merge(group, (data, offset, length) -> {
+                        out.writeInt(length);
+                        out.write(data, offset, length);
+                    });
+                }
+                for (Path run : group) {
+                    Files.delete(run);
+                }
+                runs.add(merged);
+            }
+            merge(runs, handler);
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            runs.clear();
+            release();
+            total = 0;
+        }
+    }
+
+    private void release() {
+        arena = null;
+        arenaUsed = 0;
+        starts = new int[1024];
+        count = 0;
+    }
+
+    private void spill() throws IOException {
+        sortArena();
+        Path run = newRun();
+        try (DataOutputStream out = openRun(run)) {
+            for (int i = 0; i < count; i++) {
+                int start = starts[i];
+                out.write(arena, start, 4 + getInt(arena, start));
+            }
+        }
+        runs.add(run);
+        RUNS.increment();
+        SPILLED_BYTES.add(arenaUsed);
+        arenaUsed = 0;
+        count = 0;
+    }
+
+    private Path newRun() throws IOException {
+        return Files.createTempFile(directory, name, ".run");
+    }
+
+    private static DataOutputStream openRun(Path run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER));
+    }
+
+    /**
+     * Merge sort of the record starts; comparisons read the arena.
+     */
+    private void sortArena() {
+        int[] from = starts;
+        int[] to = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count; low += 2 * width) {
+                int middle = Math.min(low + width, count);
+                int high = Math.min(low + 2 * width, count);
+                int i = low;
+                int j = middle;
+                for (int k = low; k < high; k++) {
+                    if (i < middle && (j >= high || compare(from[i], from[j]) <= 0)) {
+                        to[k] = from[i++];
+                    } else {
+                        to[k] = from[j++];
+                    }
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != starts) {
+            System.arraycopy(from, 0, starts, 0, count);
+        }
+    }
+
+    private int compare(int a, int b) {
+        return Arrays.compareUnsigned(arena, a + 4, a + 4 + getInt(arena, a),
+            arena, b + 4, b + 4 + getInt(arena, b));
+    }
+
+    private static void merge(List<Path> runs, RecordHandler handler) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(runs.size());
+        try {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                handler.accept(reader.record, 0, reader.length);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+        }
+    }
+
+    static void putInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    static int getInt(byte[] data, int offset) {
+        return (data[offset] & 0xff) << 24 | (data[offset + 1] & 0xff) << 16
+            | (data[offset + 2] & 0xff) << 8 | (data[offset + 3] & 0xff);
+    }
+
+    /**
+     * Writes a long so that unsigned byte order is signed numeric order.
+     */
+    static void putLong(byte[] data, int offset, long value) {
+        long flipped = value ^ Long.MIN_VALUE;
+        for (int i = 7; i >= 0; i--) {
+            data[offset + i] = (byte) flipped;
+            flipped >>>= 8;
+        }
+    }
+
+    static long getLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (data[offset + i] & 0xff);
+        }
+        return value ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Receives sorted records. The array is reused, so a record must be
+     * read before the handler returns.
+     */
+    interface RecordHandler {
+        void accept(byte[] data, int offset, int length) throws IOException;
+    }
+
+    private static final class RunReader implements Comparable<RunReader> {
+        private final DataInputStream in;
+        private byte[] record = new byte[64];
+        private int length;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER));
+        }
+
+        boolean next() throws IOException {
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            if (length > record.length) {
+                record = new byte[Math.max(length, record.length * 2)];
+            }
+            in.readFully(record, 0, length);
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return Arrays.compareUnsigned(record, 0, length, other.record, 0, other.length);
+        }
+    }
+}
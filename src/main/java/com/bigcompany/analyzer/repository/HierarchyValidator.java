@@ -0,0 +1,108 @@
+package com.bigcompany.analyzer.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Checks in O(n) that every employee's reporting line ends at the CEO.
+ *
+ * Each employee has exactly one manager, so following manager links from any
+ * employee either reaches the CEO or runs into a cycle. Employees are coloured
+ * iteratively: an unvisited employee starts a walk that marks each step as
+ * on-path until it meets the CEO, an already resolved employee, or an on-path
+ * employee (which closes a new cycle). The whole path is then resolved at
+ * once, so every employee is visited a constant number of times.
+ */
+final class HierarchyValidator {
+    private static final byte UNVISITED = 0;
+    private static final byte ON_PATH = 1;
+    private static final byte REACHES_CEO = 2;
+    private static final byte IN_CYCLE = 3;
+    private static final byte REPORTS_INTO_CYCLE = 4;
+
+    private HierarchyValidator() {
+    }
+
+    /**
+     * Validates the hierarchy given as manager indexes.
+     *
+     * @param ids employee IDs, used for the error report
+     * @param managers manager index of each employee, or a negative value for the CEO
+     * @param size number of employees
+     * @throws InvalidHierarchyException if any employee cannot reach the CEO
+     */
+    static void validate(String[] ids, int[] managers, int size) {
+        validate(i -> ids[i], i -> managers[i], size);
+    }
+
+    /**
+     * Validates a hierarchy whose columns are not heap arrays, such as
+     * {@link OffHeapColumns}. IDs are only read for the error report.
+     *
+     * @throws InvalidHierarchyException if any employee cannot reach the CEO
+     */
+    static void validate(IntFunction<String> ids, IntUnaryOperator managers, int size) {
+        byte[] state = new byte[size];
+        // Position on the current walk while ON_PATH, then the cycle number once resolved
+        int[] mark = new int[size];
+        int[] path = new int[size];
+
+        List<List<String>> cycles = new ArrayList<>();
+        List<List<String>> unreachable = new ArrayList<>();
+
+        for (int start = 0; start < size; start++) {
+            if (state[start] != UNVISITED) {
+                continue;
+            }
+
+            int length = 0;
+            int current = start;
+            while (current >= 0 && state[current] == UNVISITED) {
+                state[current] = ON_PATH;
+                mark[current] = length;
+                path[length++] = current;
+                current = managers.applyAsInt(current);
+            }
+
+            byte outcome;
+            int cycle = -1;
+            int resolveUpTo = length;
+
+            if (current < 0 || state[current] == REACHES_CEO) {
+                outcome = REACHES_CEO;
+            } else if (state[current] == ON_PATH) {
+                // The walk closed a new cycle: path[cycleStart] .. path[length - 1]
+                int cycleStart = mark[current];
+                cycle = cycles.size();
+                List<String> members = new ArrayList<>();
+                for (int i = cycleStart; i < length; i++) {
+                    state[path[i]] = IN_CYCLE;
+                    mark[path[i]] = cycle;
+                    members.add(ids.apply(path[i]));
+                }
+                cycles.add(members);
+                unreachable.add(new ArrayList<>());
+                resolveUpTo = cycleStart;
+                outcome = REPORTS_INTO_CYCLE;
+            } else {
+                // Ran into an employee already known to be in or under a cycle
+                cycle = mark[current];
+                outcome = REPORTS_INTO_CYCLE;
+            }
+
+            for (int i = 0; i < resolveUpTo; i++) {
+                state[path[i]] = outcome;
+                if (cycle >= 0) {
+                    mark[path[i]] = cycle;
+                    unreachable.get(cycle).add(ids.apply(path[i]));
+                }
+            }
+        }
+
+        if (!cycles.isEmpty()) {
+            throw new InvalidHierarchyException(cycles, unreachable);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.bigcompany.analyzer.repository;
+
+import java.util.Arrays;
+
+/**
+ * Maps employee IDs to dense indexes without boxing.
+ *
+ * When every ID is a plain decimal number, IDs are looked up by their numeric
+ * value: in a flat array if the numbers are dense enough, otherwise in an
+ * open-addressed {@code long -> int} table. Other IDs go into an
+ * open-addressed table of indexes into the ID column, compared by
+ * {@link String#equals}. None of the tables allocate per entry.
+ */
+abstract class IdIndex {
+    /** Longest ID that is always parsed into a {@code long} without overflow. */
+    private static final int MAX_NUMERIC_DIGITS = 18;
+    /** Numeric IDs use a flat array if it has at most this many slots per ID. */
+    private static final int MAX_DENSE_SLOTS_PER_ID = 2;
+    private static final int MIN_DENSE_SLOTS = 1024;
+
+    /**
+     * Returns the index of the ID, or -1 if there is none.
+     */
+    abstract int indexOf(String id);
+
+    /**
+     * Returns the numeric value of every ID by index if all IDs are plain
+     * decimal numbers, or null otherwise. The array is shared and must not
+     * be modified.
+     */
+    long[] numericIds() {
+        return null;
+    }
+
+    /**
+     * Indexes {@code ids[0 .. size)}.
+     *
+     * @throws IllegalArgumentException if an ID occurs more than once
+     */
+    static IdIndex of(String[] ids, int size) {
+        long[] numbers = new long[size];
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            long number = parseNumber(ids[i]);
+            if (number < 0) {
+                return new StringIdIndex(ids, size);
+            }
+            numbers[i] = number;
+            min = Math.min(min, number);
+            max = Math.max(max, number);
+        }
+
+        if (size > 0 && max - min < Math.max(MIN_DENSE_SLOTS, (long) size * MAX_DENSE_SLOTS_PER_ID)) {
+            return new DenseIdIndex(ids, numbers, min, (int) (max - min + 1));
+        }
+        return new NumericIdIndex(ids, numbers);
+    }
+
+    /**
+     * Returns the value of an ID written as a decimal number without sign or
+     * leading zeros, or -1 for any other ID. Only such IDs map one-to-one to
+     * their value, so "7" and "007" stay different employees.
+     */
+    static long parseNumber(String id) {
+        int length = id.length();
+        if (length == 0 || length > MAX_NUMERIC_DIGITS || (id.charAt(0) == '0' && length > 1)) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    static int capacityFor(int size) {
+        // At most half full, so probe sequences stay short
+        return Integer.highestOneBit(Math.max(4, size) * 2 - 1) * 2;
+    }
+
+    static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private static IllegalArgumentException duplicate(String id) {
+        return new IllegalArgumentException("Duplicate employee ID: " + id);
+    }
+
+    /**
+     * Numeric IDs within a narrow range: the index is read at
+     * {@code slots[id - min]}.
+     */
+    private static final class DenseIdIndex extends IdIndex {
+        private final long[] numbers;
+        private final long min;
+        private final int[] slots;
+
+        DenseIdIndex(String[] ids, long[] numbers, long min, int range) {
+            this.numbers = numbers;
+            this.min = min;
+            this.slots = new int[range];
+            Arrays.fill(slots, -1);
+            for (int i = 0; i < numbers.length; i++) {
+                int slot = (int) (numbers[i] - min);
+                if (slots[slot] >= 0) {
+                    throw duplicate(ids[i]);
+                }
+                slots[slot] = i;
+            }
+        }
+
+        @Override
+        int indexOf(String id) {
+            long offset = parseNumber(id) - min;
+            if (offset < 0 || offset >= slots.length) {
+                return -1; // Also rejects IDs that are not numbers, as -1 - min < 0
+            }
+            return slots[(int) offset];
+        }
+
+        @Override
+        long[] numericIds() {
+            return numbers;
+        }
+    }
+
+    /**
+     * Numeric IDs spread too widely for a flat array, in an open-addressed
+     * table with linear probing.
+     */
+    private static final class NumericIdIndex extends IdIndex {
+        private final long[] numbers;
+        private final long[] keys;
+        private final int[] values;
+
+        NumericIdIndex(String[] ids, long[] numbers) {
+            this.numbers = numbers;
+            int capacity = capacityFor(numbers.length);
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, -1);
+
+            int mask = capacity - 1;
+            for (int i = 0; i < numbers.length; i++) {
+                int slot = mix(numbers[i]) & mask;
+                while (values[slot] >= 0) {
+                    if (keys[slot] == numbers[i]) {
+                        throw duplicate(ids[i]);
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = numbers[i];
+                values[slot] = i;
+            }
+        }
+
+        @Override
+        int indexOf(String id) {
+            long number = parseNumber(id);
+            if (number < 0) {
+                return -1;
+            }
+            int mask = keys.length - 1;
+            for (int slot = mix(number) & mask; values[slot] >= 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == number) {
+                    return values[slot];
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        long[] numericIds() {
+            return numbers;
+        }
+    }
+
+    /**
+     * Any IDs, as indexes into the ID column in an open-addressed table.
+     */
+    private static final class StringIdIndex extends IdIndex {
+        private final String[] ids;
+        /** Index of the ID in each slot, or -1 for an empty slot. */
+        private final int[] slots;
+
+        StringIdIndex(String[] ids, int size) {
+            this.ids = ids;
+            this.slots = new int[capacityFor(size)];
+            Arrays.fill(slots, -1);
+
+            int mask = slots.length - 1;
+            for (int i = 0; i < size; i++) {
+                int slot = mix(ids[i].hashCode()) & mask;
+                while (slots[slot] >= 0) {
+                    if (ids[slots[slot]].equals(ids[i])) {
+                        throw duplicate(ids[i]);
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = i;
+            }
+        }
+
+        @Override
+        int indexOf(String id) {
+            int mask = slots.length - 1;
+            for (int slot = mix(id.hashCode()) & mask; slots[slot] >= 0; slot = (slot + 1) & mask) {
+                if (ids[slots[slot]].equals(id)) {
+                    return slots[slot];
+                }
+            }
+            return -1;
+        }
+    }
+}
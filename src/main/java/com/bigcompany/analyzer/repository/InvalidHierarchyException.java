@@ -0,0 +1,54 @@
+package com.bigcompany.analyzer.repository;
+
+import java.util.List;
+
+/**
+ * Thrown when the manager links do not form a single tree under the CEO.
+ *
+ * Lists every cycle found, and for each cycle the employees outside it whose
+ * reporting line leads into it and therefore can never reach the CEO.
+ */
+public class InvalidHierarchyException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<List<String>> cycles;
+    private final List<List<String>> unreachableSubtrees;
+
+    public InvalidHierarchyException(List<List<String>> cycles, List<List<String>> unreachableSubtrees) {
+        super(buildMessage(cycles, unreachableSubtrees));
+        this.cycles = cycles;
+        this.unreachableSubtrees = unreachableSubtrees;
+    }
+
+    /**
+     * Returns the member IDs of each cycle, each listed in reporting order.
+     */
+    public List<List<String>> getCycles() {
+        return cycles;
+    }
+
+    /**
+     * Returns, for each cycle at the same position in {@link #getCycles()},
+     * the IDs of the employees outside the cycle that report into it.
+     */
+    public List<List<String>> getUnreachableSubtrees() {
+        return unreachableSubtrees;
+    }
+
+    private static String buildMessage(List<List<String>> cycles, List<List<String>> unreachableSubtrees) {
+        int unreachable = unreachableSubtrees.stream().mapToInt(List::size).sum();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Circular reporting lines found: %d cycle(s), %d other employee(s) cannot reach the CEO",
+            cycles.size(), unreachable));
+
+        for (int i = 0; i < cycles.size(); i++) {
+            sb.append("; cycle: ").append(String.join(" -> ", cycles.get(i)));
+            sb.append(" -> ").append(cycles.get(i).get(0));
+            if (!unreachableSubtrees.get(i).isEmpty()) {
+                sb.append(" (reporting into it: ").append(String.join(", ", unreachableSubtrees.get(i))).append(")");
+            }
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,191 @@
+package com.bigcompany.analyzer.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+/**
+ * The employees of a {@link ColumnarEmployeeStore} in breadth-first order
+ * from the CEO, one level after another, with the depth of every employee
+ * and, on first request, the size of every subtree.
+ *
+ * Managers come before their subordinates, so a forward pass over the order
+ * works top-down and a backward pass bottom-up, both without recursion. The
+ * order is built once per store, see {@link ColumnarEmployeeStore#levelOrder},
+ * and shared by every index and analyzer that needs depths or subtree sizes.
+ */
+public final class LevelOrder {
+    private static final int MIN_CHUNK = 16 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Shared with the indexes of this package; callers must not modify the arrays
+    final int[] order;
+    final int[] depths;
+    /** Start of each level in {@link #order}, with a trailing end offset. */
+    final int[] levelOffsets;
+
+    private final ColumnarEmployeeStore store;
+    private volatile int[] subtreeSizes;
+
+    private LevelOrder(ColumnarEmployeeStore store, int[] order, int[] depths, int[] levelOffsets) {
+        this.store = store;
+        this.order = order;
+        this.depths = depths;
+        this.levelOffsets = levelOffsets;
+    }
+
+    /**
+     * Builds the order level by level. Each level is a contiguous range of
+     * the order, so with a pool its managers are split into chunks whose
+     * children are appended by several threads at once, each at an offset
+     * given by the child counts of the chunks before it.
+     *
+     * @param pool pool to expand large levels on, or null for the calling thread
+     */
+    static LevelOrder of(ColumnarEmployeeStore store, ForkJoinPool pool) {
+        int size = store.size();
+        int[] order = new int[size];
+        int[] depths = new int[size];
+        int[] levelOffsets = new int[16];
+        int levels = 0;
+        order[0] = store.ceoIndex();
+        int levelStart = 0;
+        int levelEnd = 1;
+
+        while (levelStart < levelEnd) {
+            if (levels + 2 > levelOffsets.length) {
+                levelOffsets = Arrays.copyOf(levelOffsets, levelOffsets.length * 2);
+            }
+            levelOffsets[++levels] = levelEnd;
+
+            int childDepth = levels;
+            int start = levelStart;
+            int end = levelEnd;
+            int chunks = chunkCount(pool, end - start);
+            int chunkSize = (end - start + chunks - 1) / chunks;
+
+            // offsets[c] = number of children of the managers in chunks before c
+            int[] offsets = new int[chunks + 1];
+            forEachChunk(pool, chunks, chunk -> {
+                int count = 0;
+                for (int q = start + chunk * chunkSize; q < Math.min(end, start + (chunk + 1) * chunkSize); q++) {
+                    count += store.childCount(order[q]);
+                }
+                offsets[chunk + 1] = count;
+            });
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                offsets[chunk + 1] += offsets[chunk];
+            }
+
+            forEachChunk(pool, chunks, chunk -> {
+                int tail = end + offsets[chunk];
+                for (int q = start + chunk * chunkSize; q < Math.min(end, start + (chunk + 1) * chunkSize); q++) {
+                    int manager = order[q];
+                    for (int k = store.childStart(manager); k < store.childEnd(manager); k++) {
+                        int child = store.child(k);
+                        depths[child] = childDepth;
+                        order[tail++] = child;
+                    }
+                }
+            });
+
+            levelStart = end;
+            levelEnd = end + offsets[chunks];
+        }
+
+        return new LevelOrder(store, order, depths, Arrays.copyOf(levelOffsets, levels + 1));
+    }
+
+    private static int chunkCount(ForkJoinPool pool, int length) {
+        if (pool == null || length <= MIN_CHUNK) {
+            return 1;
+        }
+        return Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, (length + MIN_CHUNK - 1) / MIN_CHUNK);
+    }
+
+    private static void forEachChunk(ForkJoinPool pool, int chunks, IntConsumer body) {
+        if (chunks == 1) {
+            body.accept(0);
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            int chunk = i;
+            tasks.add(ForkJoinTask.adapt(() -> body.accept(chunk)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    /**
+     * Returns the employee at a position of the order; position 0 is the CEO.
+     */
+    public int employeeAt(int position) {
+        return order[position];
+    }
+
+    /**
+     * Returns the number of levels between the employee and the CEO; the CEO
+     * is at depth 0 and its direct subordinates at depth 1.
+     */
+    public int depth(int employee) {
+        return depths[employee];
+    }
+
+    /**
+     * Returns the number of levels: the deepest depth plus one.
+     */
+    public int levelCount() {
+        return levelOffsets.length - 1;
+    }
+
+    public int maxDepth() {
+        return levelOffsets.length - 2;
+    }
+
+    /**
+     * Returns the first position of a level in the order.
+     */
+    public int levelStart(int depth) {
+        return levelOffsets[depth];
+    }
+
+    /**
+     * Returns the position after the last employee of a level in the order.
+     */
+    public int levelEnd(int depth) {
+        return levelOffsets[depth + 1];
+    }
+
+    /**
+     * Returns the number of employees in the subtree of an employee,
+     * including the employee. The sizes are counted on the first call.
+     */
+    public int subtreeSize(int employee) {
+        return subtreeSizeColumn()[employee];
+    }
+
+    int[] subtreeSizeColumn() {
+        int[] sizes = subtreeSizes;
+        if (sizes == null) {
+            synchronized (this) {
+                sizes = subtreeSizes;
+                if (sizes == null) {
+                    sizes = new int[order.length];
+                    // Reverse order adds every subtree to its manager before the manager's own is added
+                    for (int i = order.length - 1; i >= 0; i--) {
+                        int employee = order[i];
+                        sizes[employee]++;
+                        if (i > 0) {
+                            sizes[store.manager(employee)] += sizes[employee];
+                        }
+                    }
+                    subtreeSizes = sizes;
+                }
+            }
+        }
+        return sizes;
+    }
+}
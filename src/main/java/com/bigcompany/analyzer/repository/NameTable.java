@@ -0,0 +1,99 @@
+package com.bigcompany.analyzer.repository;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes CSV fields into strings, returning the same {@link String} instance
+ * for every occurrence of the same bytes.
+ *
+ * First names, last names and manager IDs repeat heavily across a large
+ * company, so each distinct value is decoded and held once, and repeats cost
+ * a hash lookup instead of a new string. The table is open-addressed and
+ * compares ASCII values against the held strings directly, so it keeps no
+ * copy of the bytes. An instance is not thread-safe; use one per thread.
+ */
+final class NameTable {
+    /** Distinct values beyond this are decoded but no longer held. */
+    static final int MAX_ENTRIES = 1 << 20;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Returns the string for bytes [start, end) of the buffer.
+     */
+    String intern(byte[] buffer, int start, int end) {
+        int hash = hash(buffer, start, end);
+        int mask = values.length - 1;
+        int slot = hash & mask;
+
+        for (String value = values[slot]; value != null; value = values[slot]) {
+            if (hashes[slot] == hash && matches(value, buffer, start, end)) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String value = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        if (size < MAX_ENTRIES) {
+            values[slot] = value;
+            hashes[slot] = hash;
+            if (++size * 2 > values.length) {
+                grow();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of distinct values held.
+     */
+    int size() {
+        return size;
+    }
+
+    private static boolean matches(String value, byte[] buffer, int start, int end) {
+        int length = end - start;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[start + i];
+            if (b < 0) {
+                // Multi-byte UTF-8; lengths in bytes and chars differ, so decode to compare
+                return value.equals(new String(buffer, start, length, StandardCharsets.UTF_8));
+            }
+            if (i >= value.length() || value.charAt(i) != b) {
+                return false;
+            }
+        }
+        return value.length() == length;
+    }
+
+    private static int hash(byte[] buffer, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        String[] oldValues = values;
+        int[] oldHashes = hashes;
+        values = new String[oldValues.length * 2];
+        hashes = new int[oldValues.length * 2];
+        int mask = values.length - 1;
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                values[slot] = oldValues[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+}
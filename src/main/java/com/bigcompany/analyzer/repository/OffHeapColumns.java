@@ -0,0 +1,409 @@
+package com.bigcompany.analyzer.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Employee columns outside the Java heap.
+ *
+ * Salaries, manager links and the child lists are direct buffers of
+ * primitives. IDs and names are written to a temporary file while the CSV is
+ * parsed and memory-mapped once it is complete, one record per employee:
+ * ID, first name, last name and manager ID, each as an int length followed
+ * by UTF-8 bytes. The file is deleted once mapped; the mapping stays valid.
+ * IDs are indexed by an open-addressed table in a direct buffer that
+ * compares the mapped bytes, so neither loading nor lookups create strings.
+ *
+ * The buffers are freed when the columns are garbage collected. Direct
+ * buffers count against {@code -XX:MaxDirectMemorySize}; the mapped text
+ * does not.
+ */
+final class OffHeapColumns extends EmployeeColumns {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final DoubleBuffer salaries;
+    private final IntBuffer managers;
+    private final IntBuffer childOffsets;
+    private final IntBuffer children;
+    private final TextArena text;
+    /** Pairs of (row + 1, ID hash) per slot; row + 1 is 0 for an empty slot. */
+    private final IntBuffer idSlots;
+    private final int ceo;
+
+    private OffHeapColumns(int size, DoubleBuffer salaries, IntBuffer managers, IntBuffer childOffsets,
+                           IntBuffer children, TextArena text, IntBuffer idSlots, int ceo) {
+        super(size);
+        this.salaries = salaries;
+        this.managers = managers;
+        this.childOffsets = childOffsets;
+        this.children = children;
+        this.text = text;
+        this.idSlots = idSlots;
+        this.ceo = ceo;
+    }
+
+    int ceo() {
+        return ceo;
+    }
+
+    @Override
+    String id(int index) {
+        return text.field(index, TextArena.ID);
+    }
+
+    @Override
+    String firstName(int index) {
+        return text.field(index, TextArena.FIRST_NAME);
+    }
+
+    @Override
+    String lastName(int index) {
+        return text.field(index, TextArena.LAST_NAME);
+    }
+
+    @Override
+    double salary(int index) {
+        return salaries.get(index);
+    }
+
+    @Override
+    int manager(int index) {
+        return managers.get(index);
+    }
+
+    @Override
+    int childOffset(int index) {
+        return childOffsets.get(index);
+    }
+
+    @Override
+    int child(int position) {
+        return children.get(position);
+    }
+
+    @Override
+    int indexOf(String id) {
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        int hash = TextArena.hash(bytes, 0, bytes.length);
+        int mask = idSlots.capacity() / 2 - 1;
+        for (int slot = IdIndex.mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int row = idSlots.get(2 * slot) - 1;
+            if (row < 0) {
+                return -1;
+            }
+            if (idSlots.get(2 * slot + 1) == hash && text.fieldEquals(row, TextArena.ID, bytes)) {
+                return row;
+            }
+        }
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many employees for off-heap columns: " + bytes + " bytes");
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Collects rows into the text file and direct buffers, then resolves
+     * manager IDs once all rows are known. Closing the builder deletes the
+     * text file, also when loading failed.
+     */
+    static final class Builder implements Closeable {
+        private static final int STAGING_BYTES = 64 * 1024;
+
+        private final FileChannel textChannel;
+        private final ByteBuffer staging = ByteBuffer.allocateDirect(STAGING_BYTES).order(ByteOrder.nativeOrder());
+        private long stagingStart;
+        private long textSize;
+
+        private DoubleBuffer salaries = allocate(8L * INITIAL_CAPACITY).asDoubleBuffer();
+        private LongBuffer textOffsets = allocate(8L * INITIAL_CAPACITY).asLongBuffer();
+        private int size;
+        private int ceo = ColumnarEmployeeStore.NO_MANAGER;
+        private String ceoId;
+
+        Builder() throws IOException {
+            Path textFile = Files.createTempFile("employees-", ".text");
+            textChannel = FileChannel.open(textFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Adds the row the tokenizer has just split.
+         */
+        void add(byte[] row, CsvRowTokenizer tokenizer) throws IOException {
+            if (size == salaries.capacity()) {
+                salaries = allocate(16L * size).asDoubleBuffer().put(0, salaries, 0, size);
+                textOffsets = allocate(16L * size).asLongBuffer().put(0, textOffsets, 0, size);
+            }
+
+            if (tokenizer.start(4) == tokenizer.end(4)) {
+                String id = field(row, tokenizer, 0);
+                if (ceo != ColumnarEmployeeStore.NO_MANAGER) {
+                    throw new IllegalArgumentException("Multiple CEOs found: " + ceoId + " and " + id);
+                }
+                ceo = size;
+                ceoId = id;
+            }
+
+            salaries.put(size, tokenizer.salary());
+            textOffsets.put(size, writeText(row, tokenizer));
+            size++;
+        }
+
+        private static String field(byte[] row, CsvRowTokenizer tokenizer, int f) {
+            return new String(row, tokenizer.start(f), tokenizer.end(f) - tokenizer.start(f), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Appends the text record and returns its offset.
+         */
+        private long writeText(byte[] row, CsvRowTokenizer tokenizer) throws IOException {
+            int length = 0;
+            for (int f : TextArena.CSV_FIELDS) {
+                length += 4 + tokenizer.end(f) - tokenizer.start(f);
+            }
+            if (length > TextArena.SEGMENT_SIZE) {
+                throw new IllegalArgumentException("Row too long for off-heap columns: " + length + " bytes");
+            }
+            long segmentEnd = (textSize | (TextArena.SEGMENT_SIZE - 1)) + 1;
+            if (textSize + length > segmentEnd) {
+                // Keep every record inside one mapped segment
+                flush();
+                textSize = segmentEnd;
+                stagingStart = segmentEnd;
+            }
+
+            long offset = textSize;
+            for (int f : TextArena.CSV_FIELDS) {
+                int start = tokenizer.start(f);
+                int fieldLength = tokenizer.end(f) - start;
+                if (staging.remaining() < 4 + fieldLength) {
+                    flush();
+                }
+                staging.putInt(fieldLength);
+                if (fieldLength <= staging.remaining()) {
+                    staging.put(row, start, fieldLength);
+                } else {
+                    flush();
+                    write(ByteBuffer.wrap(row, start, fieldLength));
+                }
+                textSize += 4 + fieldLength;
+            }
+            return offset;
+        }
+
+        private void flush() throws IOException {
+            staging.flip();
+            write(staging);
+            staging.clear();
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                stagingStart += textChannel.write(buffer, stagingStart);
+            }
+        }
+
+        private TextArena mapText() throws IOException {
+            int segments = (int) ((textSize + TextArena.SEGMENT_SIZE - 1) >>> TextArena.SEGMENT_SHIFT);
+            ByteBuffer[] mapped = new ByteBuffer[segments];
+            for (int s = 0; s < segments; s++) {
+                long start = (long) s << TextArena.SEGMENT_SHIFT;
+                mapped[s] = textChannel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(TextArena.SEGMENT_SIZE, textSize - start)).order(ByteOrder.nativeOrder());
+            }
+            return new TextArena(mapped, textOffsets);
+        }
+
+        /**
+         * @throws IllegalArgumentException if data is invalid
+         * @throws InvalidHierarchyException if the manager links contain cycles
+         */
+        OffHeapColumns build() throws IOException {
+            if (ceo == ColumnarEmployeeStore.NO_MANAGER) {
+                throw new IllegalArgumentException("No CEO found in the data");
+            }
+            flush();
+            TextArena text = mapText();
+            IntBuffer idSlots = indexIds(text);
+
+            IntBuffer managers = allocate(4L * size).asIntBuffer();
+            IntBuffer childOffsets = allocate(4L * (size + 1)).asIntBuffer();
+            int mask = idSlots.capacity() / 2 - 1;
+            for (int i = 0; i < size; i++) {
+                if (i == ceo) {
+                    managers.put(i, ColumnarEmployeeStore.NO_MANAGER);
+                    continue;
+                }
+                int hash = text.hash(i, TextArena.MANAGER_ID);
+                int manager = -1;
+                for (int slot = IdIndex.mix(hash) & mask; idSlots.get(2 * slot) > 0; slot = (slot + 1) & mask) {
+                    int candidate = idSlots.get(2 * slot) - 1;
+                    if (idSlots.get(2 * slot + 1) == hash
+                        && text.fieldEquals(candidate, TextArena.ID, i, TextArena.MANAGER_ID)) {
+                        manager = candidate;
+                        break;
+                    }
+                }
+                if (manager < 0) {
+                    throw new IllegalArgumentException("Employee " + text.field(i, TextArena.ID)
+                        + " has invalid manager ID: " + text.field(i, TextArena.MANAGER_ID));
+                }
+                managers.put(i, manager);
+                childOffsets.put(manager + 1, childOffsets.get(manager + 1) + 1);
+            }
+
+            HierarchyValidator.validate(i -> text.field(i, TextArena.ID), managers::get, size);
+
+            // Counting sort keeps each manager's subordinates in file order
+            for (int i = 0; i < size; i++) {
+                childOffsets.put(i + 1, childOffsets.get(i + 1) + childOffsets.get(i));
+            }
+            IntBuffer children = allocate(4L * (size - 1)).asIntBuffer();
+            IntBuffer next = allocate(4L * size).asIntBuffer().put(0, childOffsets, 0, size);
+            for (int i = 0; i < size; i++) {
+                int manager = managers.get(i);
+                if (manager != ColumnarEmployeeStore.NO_MANAGER) {
+                    int position = next.get(manager);
+                    children.put(position, i);
+                    next.put(manager, position + 1);
+                }
+            }
+
+            return new OffHeapColumns(size, salaries, managers, childOffsets, children, text, idSlots, ceo);
+        }
+
+        /**
+         * @throws IllegalArgumentException if an ID occurs more than once
+         */
+        private IntBuffer indexIds(TextArena text) {
+            int capacity = IdIndex.capacityFor(size);
+            IntBuffer slots = allocate(8L * capacity).asIntBuffer();
+            int mask = capacity - 1;
+            for (int i = 0; i < size; i++) {
+                int hash = text.hash(i, TextArena.ID);
+                int slot = IdIndex.mix(hash) & mask;
+                while (slots.get(2 * slot) > 0) {
+                    int other = slots.get(2 * slot) - 1;
+                    if (slots.get(2 * slot + 1) == hash && text.fieldEquals(other, TextArena.ID, i, TextArena.ID)) {
+                        throw new IllegalArgumentException("Duplicate employee ID: " + text.field(i, TextArena.ID));
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                slots.put(2 * slot, i + 1);
+                slots.put(2 * slot + 1, hash);
+            }
+            return slots;
+        }
+
+        @Override
+        public void close() throws IOException {
+            textChannel.close();
+        }
+    }
+
+    /**
+     * The mapped text records, in segments of at most 1 GiB. Reads use
+     * absolute positions only, so any number of threads may read at once.
+     */
+    private static final class TextArena {
+        static final int SEGMENT_SHIFT = 30;
+        static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+        static final int ID = 0;
+        static final int FIRST_NAME = 1;
+        static final int LAST_NAME = 2;
+        static final int MANAGER_ID = 3;
+        /** CSV column of each record field; the salary column is kept apart. */
+        static final int[] CSV_FIELDS = {0, 1, 2, 4};
+
+        private final ByteBuffer[] segments;
+        private final LongBuffer offsets;
+
+        TextArena(ByteBuffer[] segments, LongBuffer offsets) {
+            this.segments = segments;
+            this.offsets = offsets;
+        }
+
+        String field(int row, int field) {
+            ByteBuffer segment = segment(row);
+            int position = position(row, field, segment);
+            byte[] bytes = new byte[segment.getInt(position)];
+            segment.get(position + 4, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int hash(int row, int field) {
+            ByteBuffer segment = segment(row);
+            int position = position(row, field, segment);
+            int end = position + 4 + segment.getInt(position);
+            int hash = 0;
+            for (int i = position + 4; i < end; i++) {
+                hash = 31 * hash + segment.get(i);
+            }
+            return hash;
+        }
+
+        static int hash(byte[] bytes, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            return hash;
+        }
+
+        boolean fieldEquals(int row, int field, byte[] bytes) {
+            ByteBuffer segment = segment(row);
+            int position = position(row, field, segment);
+            if (segment.getInt(position) != bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (segment.get(position + 4 + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean fieldEquals(int row, int field, int otherRow, int otherField) {
+            ByteBuffer segment = segment(row);
+            int position = position(row, field, segment);
+            ByteBuffer otherSegment = segment(otherRow);
+            int otherPosition = position(otherRow, otherField, otherSegment);
+            int length = segment.getInt(position);
+            if (otherSegment.getInt(otherPosition) != length) {
+                return false;
+            }
+            return segment.slice(position + 4, length).equals(otherSegment.slice(otherPosition + 4, length));
+        }
+
+        private ByteBuffer segment(int row) {
+            return segments[(int) (offsets.get(row) >>> SEGMENT_SHIFT)];
+        }
+
+        private int position(int row, int field, ByteBuffer segment) {
+            int position = (int) (offsets.get(row) & (SEGMENT_SIZE - 1));
+            for (int f = 0; f < field; f++) {
+                position += 4 + segment.getInt(position);
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.model.Employee;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses a CSV file in parallel by memory-mapping it and splitting it into
+ * line-aligned chunks that are parsed on a fork-join pool.
+ *
+ * Chunks are returned in file order so that the caller can merge them exactly
+ * as the sequential loader would, including which error is reported first.
+ */
+class ParallelCsvLoader {
+    private static final int MIN_CHUNK_BYTES = 1 << 20;    // 1 MB
+    private static final int MAX_CHUNK_BYTES = 1 << 28;    // 256 MB, well below the 2 GB mapping limit
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int PROBE_BYTES = 8192;
+
+    private final ForkJoinPool pool;
+
+    ParallelCsvLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Result of parsing one chunk: the employees parsed before the first
+     * invalid row, and the error for that row if there was one.
+     */
+    static class ChunkResult {
+        final List<Employee> employees;
+        final IllegalArgumentException error;
+
+        ChunkResult(List<Employee> employees, IllegalArgumentException error) {
+            this.employees = employees;
+            this.error = error;
+        }
+    }
+
+    List<ChunkResult> load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] boundaries = findChunkBoundaries(channel);
+            try {
+                return pool.invoke(new ChunkTask(channel, boundaries, 0, boundaries.length - 1));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Returns chunk boundaries [b0, b1, ..., bn] where chunk i covers bytes
+     * [b(i), b(i+1)). The first boundary is placed after the header line and
+     * every other boundary directly after a line break.
+     */
+    private long[] findChunkBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long start = nextLineStart(channel, 0, size);
+
+        long dataBytes = size - start;
+        int parallelism = pool.getParallelism() * CHUNKS_PER_THREAD;
+        long chunkSize = Math.max(MIN_CHUNK_BYTES, (dataBytes + parallelism - 1) / Math.max(1, parallelism));
+        chunkSize = Math.min(chunkSize, MAX_CHUNK_BYTES);
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(start);
+        long position = start;
+        while (size - position > chunkSize) {
+            long next = nextLineStart(channel, position + chunkSize, size);
+            if (next >= size) {
+                break;
+            }
+            boundaries.add(next);
+            position = next;
+        }
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the offset of the first byte after the next line break at or
+     * after {@code from}, or {@code size} if there is none. Line breaks are
+     * {@code \n}, {@code \r} or {@code \r\n}, as for {@link ByteLineReader}.
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_BYTES);
+        long position = from;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = probe.get(i);
+                if (b == '\n') {
+                    return position + i + 1;
+                }
+                if (b == '\r') {
+                    long next = position + i + 1;
+                    return next < size && byteAt(channel, next) == '\n' ? next + 1 : next;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static byte byteAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer single = ByteBuffer.allocate(1);
+        if (channel.read(single, position) <= 0) {
+            throw new IOException("Could not read byte " + position);
+        }
+        return single.get(0);
+    }
+
+    private static class ChunkTask extends RecursiveTask<List<ChunkResult>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+
+        ChunkTask(FileChannel channel, long[] boundaries, int from, int to) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<ChunkResult> compute() {
+            if (to - from <= 1) {
+                List<ChunkResult> single = new ArrayList<>(1);
+                if (to > from) {
+                    single.add(parseChunk(boundaries[from], boundaries[to]));
+                }
+                return single;
+            }
+
+            int mid = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(channel, boundaries, from, mid);
+            ChunkTask right = new ChunkTask(channel, boundaries, mid, to);
+            right.fork();
+            List<ChunkResult> results = left.compute();
+            results.addAll(right.join());
+            return results;
+        }
+
+        private ChunkResult parseChunk(long start, long end) {
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            CsvRowTokenizer tokenizer = new CsvRowTokenizer();
+            List<Employee> employees = new ArrayList<>();
+            byte[] lineBytes = new byte[256];
+            int limit = buffer.limit();
+            int lineStart = 0;
+
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n' && buffer.get(lineEnd) != '\r') {
+                    lineEnd++;
+                }
+
+                int length = lineEnd - lineStart;
+                if (length > lineBytes.length) {
+                    lineBytes = new byte[Math.max(length, lineBytes.length * 2)];
+                }
+                buffer.get(lineStart, lineBytes, 0, length);
+                // Boundaries never split a \r\n pair, so its \n is within the chunk
+                lineStart = lineEnd + 1;
+                if (lineEnd + 1 < limit && buffer.get(lineEnd) == '\r' && buffer.get(lineEnd + 1) == '\n') {
+                    lineStart++;
+                }
+
+                if (CsvRowTokenizer.isBlank(lineBytes, length)) {
+                    continue; // Skip empty lines
+                }
+
+                try {
+                    employees.add(tokenizer.parse(lineBytes, length));
+                } catch (IllegalArgumentException e) {
+                    return new ChunkResult(employees, e);
+                }
+            }
+
+            return new ChunkResult(employees, null);
+        }
+    }
+}
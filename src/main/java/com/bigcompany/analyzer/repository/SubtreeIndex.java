@@ -0,0 +1,178 @@
+package com.bigcompany.analyzer.repository;
+
+import java.util.Arrays;
+
+/**
+ * Pre-order interval labelling of the organization.
+ *
+ * Every employee {@code i} gets an entry position {@code tin(i)} in a
+ * depth-first walk from the CEO, and the employees under {@code i} occupy the
+ * positions {@code tin(i) + 1 .. tin(i) + subtreeSize(i) - 1}. Subtree
+ * membership is therefore two integer comparisons, and the subtree salary
+ * total is a difference of two prefix sums. Minimum and maximum salary are
+ * folded per employee while the index is built, and the depth histogram of a
+ * subtree is answered by binary search in the pre-order positions of each
+ * depth.
+ *
+ * All queries take employee indexes of the {@link ColumnarEmployeeStore} the
+ * index was built from, and count the subtree root itself.
+ */
+public final class SubtreeIndex {
+    private final int[] tin;
+    private final int[] subtreeSizes;
+    private final int[] depths;
+    private final double[] prefixSalaries;
+    private final double[] subtreeMinSalaries;
+    private final double[] subtreeMaxSalaries;
+    /** Pre-order positions grouped by depth, ascending within each depth. */
+    private final int[] positionsByDepth;
+    /** Start of each depth in {@link #positionsByDepth}, with a trailing end offset. */
+    private final int[] depthOffsets;
+
+    private SubtreeIndex(int[] tin, int[] subtreeSizes, int[] depths, double[] prefixSalaries,
+                         double[] subtreeMinSalaries, double[] subtreeMaxSalaries,
+                         int[] positionsByDepth, int[] depthOffsets) {
+        this.tin = tin;
+        this.subtreeSizes = subtreeSizes;
+        this.depths = depths;
+        this.prefixSalaries = prefixSalaries;
+        this.subtreeMinSalaries = subtreeMinSalaries;
+        this.subtreeMaxSalaries = subtreeMaxSalaries;
+        this.positionsByDepth = positionsByDepth;
+        this.depthOffsets = depthOffsets;
+    }
+
+    /**
+     * Builds the index in linear time. The store's hierarchy must be a single
+     * tree rooted at the CEO, which holds for every validated store.
+     */
+    public static SubtreeIndex of(ColumnarEmployeeStore store) {
+        int size = store.size();
+        LevelOrder levelOrder = store.levelOrder();
+        int[] order = levelOrder.order;
+        int[] depths = levelOrder.depths;
+        int maxDepth = levelOrder.maxDepth();
+        int[] subtreeSizes = levelOrder.subtreeSizeColumn();
+
+        double[] minSalaries = new double[size];
+        double[] maxSalaries = new double[size];
+        for (int employee = 0; employee < size; employee++) {
+            minSalaries[employee] = store.salary(employee);
+            maxSalaries[employee] = store.salary(employee);
+        }
+        // Reverse breadth-first order folds every subtree into its manager before the manager's own
+        for (int i = size - 1; i > 0; i--) {
+            int employee = order[i];
+            int manager = store.manager(employee);
+            minSalaries[manager] = Math.min(minSalaries[manager], minSalaries[employee]);
+            maxSalaries[manager] = Math.max(maxSalaries[manager], maxSalaries[employee]);
+        }
+
+        // Subordinates follow their manager, each one after the subtrees of its earlier siblings
+        int[] tin = new int[size];
+        for (int i = 0; i < size; i++) {
+            int manager = order[i];
+            int next = tin[manager] + 1;
+            for (int k = store.childStart(manager); k < store.childEnd(manager); k++) {
+                int child = store.child(k);
+                tin[child] = next;
+                next += subtreeSizes[child];
+            }
+        }
+
+        double[] prefixSalaries = new double[size + 1];
+        int[] depthOffsets = new int[maxDepth + 2];
+        int[] employeeAt = new int[size];
+        for (int employee = 0; employee < size; employee++) {
+            employeeAt[tin[employee]] = employee;
+            depthOffsets[depths[employee] + 1]++;
+        }
+        for (int d = 0; d <= maxDepth; d++) {
+            depthOffsets[d + 1] += depthOffsets[d];
+        }
+
+        int[] positionsByDepth = new int[size];
+        int[] fill = Arrays.copyOf(depthOffsets, maxDepth + 1);
+        for (int position = 0; position < size; position++) {
+            int employee = employeeAt[position];
+            prefixSalaries[position + 1] = prefixSalaries[position] + store.salary(employee);
+            positionsByDepth[fill[depths[employee]]++] = position;
+        }
+
+        return new SubtreeIndex(tin, subtreeSizes, depths, prefixSalaries, minSalaries, maxSalaries,
+            positionsByDepth, depthOffsets);
+    }
+
+    /**
+     * Returns whether {@code employee} is {@code root} or anywhere under it.
+     */
+    public boolean isInSubtree(int employee, int root) {
+        int position = tin[employee];
+        return position >= tin[root] && position < tin[root] + subtreeSizes[root];
+    }
+
+    /**
+     * Returns the number of employees in the subtree, including its root.
+     */
+    public int subtreeSize(int root) {
+        return subtreeSizes[root];
+    }
+
+    public double subtreeSalaryTotal(int root) {
+        return prefixSalaries[tin[root] + subtreeSizes[root]] - prefixSalaries[tin[root]];
+    }
+
+    public double subtreeMinSalary(int root) {
+        return subtreeMinSalaries[root];
+    }
+
+    public double subtreeMaxSalary(int root) {
+        return subtreeMaxSalaries[root];
+    }
+
+    /**
+     * Returns the number of levels between the employee and the CEO; the CEO
+     * is at depth 0 and its direct subordinates at depth 1.
+     */
+    public int depth(int employee) {
+        return depths[employee];
+    }
+
+    /**
+     * Returns the number of employees at each level of the subtree: element 0
+     * is the root, element 1 its direct subordinates, and so on down to the
+     * deepest level of the subtree.
+     */
+    public int[] depthHistogram(int root) {
+        int start = tin[root];
+        int end = start + subtreeSizes[root];
+        int rootDepth = depths[root];
+        int[] histogram = new int[depthOffsets.length - 1 - rootDepth];
+
+        int levels = 0;
+        for (int d = rootDepth; d < depthOffsets.length - 1; d++) {
+            int from = lowerBound(start, depthOffsets[d], depthOffsets[d + 1]);
+            int count = lowerBound(end, from, depthOffsets[d + 1]) - from;
+            if (count == 0) {
+                // A level without members ends the subtree
+                break;
+            }
+            histogram[levels++] = count;
+        }
+        return Arrays.copyOf(histogram, levels);
+    }
+
+    private int lowerBound(int position, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positionsByDepth[mid] < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,109 @@
+package com.bigcompany.analyzer.server;
+
+import com.bigcompany.analyzer.report.ReportFormat;
+import com.bigcompany.analyzer.report.ReportSink;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.SubtreeIndex;
+import com.bigcompany.analyzer.service.KllSketch;
+import com.bigcompany.analyzer.service.OrgShapeAnalyzer;
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.ReportingLineRule;
+import com.bigcompany.analyzer.service.RuleEngine;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+import com.bigcompany.analyzer.service.SalaryQuantiles;
+import com.bigcompany.analyzer.service.SalaryRangeRule;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * One generation of the organization a {@link QueryServer} answers from: the
+ * store, its subtree index, its shape, its salary sketches and the issue
+ * report, rendered as JSON once when the snapshot is built. Nothing in it
+ * changes afterwards, so a request that has read the current snapshot keeps
+ * a consistent view while a newer one is built and published.
+ */
+final class OrgSnapshot {
+    final long version;
+    final Instant loadedAt;
+    /** Time taken to load the store and build the snapshot. */
+    final long buildMillis;
+    final ColumnarEmployeeStore store;
+    final SubtreeIndex subtrees;
+    final OrgShapeAnalyzer.OrgShape shape;
+    /** Salary sketches per level and for the managers of the largest teams. */
+    final SalaryQuantiles salaries;
+    /** The full issue report in the {@link ReportFormat#JSON} format. */
+    final byte[] issuesJson;
+    final long salaryIssues;
+    final long reportingLineIssues;
+
+    private OrgSnapshot(long version, long buildMillis, ColumnarEmployeeStore store, SubtreeIndex subtrees,
+                        OrgShapeAnalyzer.OrgShape shape, SalaryQuantiles salaries, byte[] issuesJson,
+                        long salaryIssues, long reportingLineIssues) {
+        this.version = version;
+        this.loadedAt = Instant.now();
+        this.buildMillis = buildMillis;
+        this.store = store;
+        this.subtrees = subtrees;
+        this.shape = shape;
+        this.salaries = salaries;
+        this.issuesJson = issuesJson;
+        this.salaryIssues = salaryIssues;
+        this.reportingLineIssues = reportingLineIssues;
+    }
+
+    /**
+     * Loads the store and runs both rules over it.
+     *
+     * @throws IOException if the store cannot be loaded
+     * @throws IllegalArgumentException if the data is invalid
+     */
+    static OrgSnapshot build(long version, QueryServer.StoreLoader loader, SalaryRangeRule salaryRule,
+                             ReportingLineRule reportingLineRule) throws IOException {
+        long start = System.nanoTime();
+        ColumnarEmployeeStore store = loader.load();
+        SubtreeIndex subtrees = SubtreeIndex.of(store);
+        OrgShapeAnalyzer.OrgShape shape = new OrgShapeAnalyzer(store, ForkJoinPool.commonPool(),
+            OrgShapeAnalyzer.DEFAULT_MIN_DIRECT_REPORTS, OrgShapeAnalyzer.DEFAULT_MAX_DIRECT_REPORTS,
+            OrgShapeAnalyzer.DEFAULT_HEAVIEST).analyze();
+        SalaryQuantiles salaries = SalaryQuantiles.of(store, ForkJoinPool.commonPool(), KllSketch.DEFAULT_K,
+            shape.getHeaviestManagers());
+
+        List<SalaryAnalyzer.SalaryIssue> salaryIssues = new ArrayList<>();
+        List<ReportingLineAnalyzer.ReportingLineIssue> reportingIssues = new ArrayList<>();
+        new RuleEngine(store)
+            .addRule(salaryRule, salaryIssues::add)
+            .addRule(reportingLineRule, reportingIssues::add)
+            .run();
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try (Writer out = new OutputStreamWriter(json, StandardCharsets.UTF_8)) {
+            ReportSink sink = ReportFormat.JSON.createSink(out, salaryRule, reportingLineRule);
+            sink.start();
+            long underpaid = 0;
+            for (SalaryAnalyzer.SalaryIssue issue : salaryIssues) {
+                sink.salaryIssue(issue);
+                if (issue.isEarningTooLittle()) {
+                    underpaid++;
+                }
+            }
+            sink.endSalaryIssues(underpaid, salaryIssues.size() - underpaid);
+            for (ReportingLineAnalyzer.ReportingLineIssue issue : reportingIssues) {
+                sink.reportingLineIssue(issue);
+            }
+            sink.finish(reportingIssues.size());
+        }
+
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        return new OrgSnapshot(version, buildMillis, store, subtrees, shape, salaries, json.toByteArray(),
+            salaryIssues.size(), reportingIssues.size());
+    }
+}
@@ -0,0 +1,483 @@
+package com.bigcompany.analyzer.server;
+
+import com.bigcompany.analyzer.report.JsonIssues;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.service.KllSketch;
+import com.bigcompany.analyzer.service.OrgShapeAnalyzer;
+import com.bigcompany.analyzer.service.ReportingLineRule;
+import com.bigcompany.analyzer.service.SalaryQuantiles;
+import com.bigcompany.analyzer.service.SalaryRangeRule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Long-running HTTP service that answers queries about one organization from
+ * memory, so that each query costs a few index lookups instead of a JVM
+ * start, a load and a full analysis.
+ *
+ * Endpoints, all answering with JSON:
+ * <ul>
+ *   <li>{@code GET /issues}: the full report, as written by {@code --format json}</li>
+ *   <li>{@code GET /employees/{id}}: one employee with their depth and team sizes</li>
+ *   <li>{@code GET /employees/{id}/subtree}: totals and levels of everyone under the employee</li>
+ *   <li>{@code GET /employees/{id}/chain}: the reporting chain up to the CEO</li>
+ *   <li>{@code GET /shape}: levels, spans of control and the managers of the largest teams</li>
+ *   <li>{@code GET /salaries}: salary median, p90 and p99 per level and for the largest teams</li>
+ *   <li>{@code GET /status}: version and size of the current snapshot, and how reloads went</li>
+ *   <li>{@code POST /reload}: reloads the organization in the background</li>
+ * </ul>
+ *
+ * Every request reads the current {@link OrgSnapshot} from an atomic
+ * reference once and answers from it, so requests never wait for a reload:
+ * a reload builds a complete snapshot on its own thread and then replaces
+ * the reference. A reload that fails leaves the previous snapshot in place.
+ * Reloads can also follow changes to the source file, see {@link #watch}.
+ * Requests are handled by a fixed pool of threads.
+ */
+public final class QueryServer implements Closeable {
+    /**
+     * Loads the organization for a new snapshot.
+     */
+    @FunctionalInterface
+    public interface StoreLoader {
+        ColumnarEmployeeStore load() throws IOException;
+    }
+
+    private static final String EMPLOYEES = "/employees/";
+
+    /** How long a watched file must stay unchanged before it is reloaded. */
+    static final long WATCH_QUIET_MILLIS = 200;
+    /** How long {@link #close()} waits for running requests. */
+    static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final StoreLoader loader;
+    private final SalaryRangeRule salaryRule;
+    private final ReportingLineRule reportingLineRule;
+    private final AtomicReference<OrgSnapshot> current = new AtomicReference<>();
+    /** Runs one reload at a time, so versions increase by one per snapshot. */
+    private final ExecutorService reloads = Executors.newSingleThreadExecutor(named("reload"));
+    private final ExecutorService requests;
+    private final HttpServer server;
+    /** A reload that has been requested but not started, or null; guarded by reloads. */
+    private CompletableFuture<Long> pendingReload;
+    // Written only by the reload thread
+    /** Time from the request of the last successful reload until its snapshot was served. */
+    private volatile long lastReloadMillis;
+    private volatile long failedReloads;
+    private volatile String lastReloadError;
+    private volatile SourceWatcher watcher;
+
+    /**
+     * Loads the first snapshot and binds the address; {@link #start()}
+     * starts serving.
+     *
+     * @param threads number of threads handling requests
+     * @throws IOException if the organization cannot be loaded or the
+     *         address cannot be bound
+     * @throws IllegalArgumentException if the data is invalid
+     */
+    public QueryServer(StoreLoader loader, SalaryRangeRule salaryRule, ReportingLineRule reportingLineRule,
+                       InetSocketAddress address, int threads) throws IOException {
+        this.loader = loader;
+        this.salaryRule = salaryRule;
+        this.reportingLineRule = reportingLineRule;
+        current.set(OrgSnapshot.build(1, loader, salaryRule, reportingLineRule));
+
+        requests = Executors.newFixedThreadPool(threads, named("query"));
+        server = HttpServer.create(address, 0);
+        server.setExecutor(requests);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the address the server is bound to, with the actual port if
+     * port 0 was requested.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Returns the version of the snapshot being served; the first is 1.
+     */
+    public long getVersion() {
+        return current.get().version;
+    }
+
+    /**
+     * Returns the number of reloads that failed and left the previous
+     * snapshot in service.
+     */
+    public long getFailedReloads() {
+        return failedReloads;
+    }
+
+    /**
+     * Builds a new snapshot in the background and serves it once complete.
+     * Requests made while an earlier one is still waiting to start share
+     * its reload.
+     *
+     * @return the version of the new snapshot, or the load error
+     */
+    public CompletableFuture<Long> reload() {
+        synchronized (reloads) {
+            if (pendingReload == null) {
+                long requested = System.nanoTime();
+                pendingReload = CompletableFuture.supplyAsync(() -> runReload(requested), reloads);
+            }
+            return pendingReload;
+        }
+    }
+
+    /**
+     * Reloads whenever the given file changes, until the server is closed.
+     *
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    public void watch(Path file) throws IOException {
+        watcher = new SourceWatcher(file, WATCH_QUIET_MILLIS, this::reload);
+    }
+
+    /**
+     * Stops accepting connections and waits up to {@link #CLOSE_TIMEOUT_SECONDS}
+     * for running requests to end. A reload still running is interrupted.
+     */
+    @Override
+    public void close() {
+        SourceWatcher watching = watcher;
+        if (watching != null) {
+            try {
+                watching.close();
+            } catch (IOException e) {
+                System.err.println("Could not stop watching: " + e.getMessage());
+            }
+        }
+        server.stop(0);
+        requests.shutdown();
+        reloads.shutdownNow();
+        try {
+            if (!requests.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Requests still running after " + CLOSE_TIMEOUT_SECONDS + "s; stopping anyway");
+                requests.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            requests.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long runReload(long requested) {
+        synchronized (reloads) {
+            // A change made from now on may come after this reload has read
+            // the file, so it needs a reload of its own
+            pendingReload = null;
+        }
+        try {
+            OrgSnapshot snapshot = OrgSnapshot.build(current.get().version + 1, loader, salaryRule,
+                reportingLineRule);
+            current.set(snapshot);
+            lastReloadMillis = (System.nanoTime() - requested) / 1_000_000;
+            lastReloadError = null;
+            return snapshot.version;
+        } catch (IOException e) {
+            reloadFailed(e);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            reloadFailed(e);
+            throw e;
+        }
+    }
+
+    private void reloadFailed(Exception e) {
+        failedReloads++;
+        lastReloadError = String.valueOf(e.getMessage());
+        System.err.println("Reload failed, still serving version " + getVersion() + ": " + e.getMessage());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            OrgSnapshot snapshot = current.get();
+            String path = exchange.getRequestURI().getRawPath();
+            String method = exchange.getRequestMethod();
+
+            if (path.equals("/reload")) {
+                if (!method.equals("POST")) {
+                    error(exchange, 405, "Use POST to reload");
+                    return;
+                }
+                reload();
+                respond(exchange, 202, "{\"reloading\":true,\"version\":" + snapshot.version + "}");
+                return;
+            }
+            if (!method.equals("GET")) {
+                error(exchange, 405, "Unsupported method: " + method);
+                return;
+            }
+
+            if (path.equals("/issues")) {
+                respond(exchange, 200, snapshot.issuesJson);
+            } else if (path.equals("/shape")) {
+                respond(exchange, 200, shape(snapshot));
+            } else if (path.equals("/salaries")) {
+                respond(exchange, 200, salaries(snapshot));
+            } else if (path.equals("/status")) {
+                respond(exchange, 200, status(snapshot));
+            } else if (path.startsWith(EMPLOYEES)) {
+                employee(exchange, snapshot, path.substring(EMPLOYEES.length()));
+            } else {
+                error(exchange, 404, "Unknown path: " + path);
+            }
+        } catch (RuntimeException e) {
+            error(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void employee(HttpExchange exchange, OrgSnapshot snapshot, String rest) throws IOException {
+        int slash = rest.indexOf('/');
+        String id = URLDecoder.decode(slash < 0 ? rest : rest.substring(0, slash), StandardCharsets.UTF_8);
+        String view = slash < 0 ? "" : rest.substring(slash + 1);
+
+        int index = snapshot.store.indexOf(id);
+        if (index < 0) {
+            error(exchange, 404, "Unknown employee: " + id);
+            return;
+        }
+        switch (view) {
+            case "" -> respond(exchange, 200, employee(snapshot, index));
+            case "subtree" -> respond(exchange, 200, subtree(snapshot, index));
+            case "chain" -> respond(exchange, 200, chain(snapshot, index));
+            default -> error(exchange, 404, "Unknown employee view: " + view);
+        }
+    }
+
+    private String status(OrgSnapshot snapshot) throws IOException {
+        StringWriter out = new StringWriter();
+        out.write("{\"version\":" + snapshot.version);
+        out.write(",\"loadedAt\":");
+        JsonIssues.writeString(out, snapshot.loadedAt.toString());
+        out.write(",\"buildMillis\":" + snapshot.buildMillis);
+        out.write(",\"employees\":" + snapshot.store.size());
+        out.write(",\"salaryIssues\":" + snapshot.salaryIssues);
+        out.write(",\"reportingLineIssues\":" + snapshot.reportingLineIssues);
+        out.write(",\"lastReloadMillis\":" + lastReloadMillis);
+        out.write(",\"failedReloads\":" + failedReloads);
+        out.write(",\"lastReloadError\":");
+        String error = lastReloadError;
+        if (error == null) {
+            out.write("null");
+        } else {
+            JsonIssues.writeString(out, error);
+        }
+        out.write(",\"watching\":" + (watcher != null));
+        out.write('}');
+        return out.toString();
+    }
+
+    private static String shape(OrgSnapshot snapshot) throws IOException {
+        ColumnarEmployeeStore store = snapshot.store;
+        OrgShapeAnalyzer.OrgShape shape = snapshot.shape;
+        StringWriter out = new StringWriter();
+        out.write("{\"levels\":");
+        writeCounts(out, shape.getDepthHistogram());
+        out.write(",\"fanOut\":");
+        writeCounts(out, shape.getFanOutHistogram());
+        out.write(",\"heaviestManagers\":[");
+        int[] heaviest = shape.getHeaviestManagers();
+        for (int i = 0; i < heaviest.length; i++) {
+            out.write(i > 0 ? ",{\"id\":" : "{\"id\":");
+            JsonIssues.writeString(out, store.id(heaviest[i]));
+            out.write(",\"name\":");
+            JsonIssues.writeString(out, store.fullName(heaviest[i]));
+            out.write(",\"employees\":" + shape.getSubtreeSize(heaviest[i]));
+            out.write(",\"directReports\":" + store.childCount(heaviest[i]) + "}");
+        }
+        out.write("],\"spanIssues\":[");
+        List<OrgShapeAnalyzer.SpanIssue> issues = shape.getSpanIssues();
+        for (int i = 0; i < issues.size(); i++) {
+            OrgShapeAnalyzer.SpanIssue issue = issues.get(i);
+            out.write(i > 0 ? ",{\"id\":" : "{\"id\":");
+            JsonIssues.writeString(out, issue.getManager().getId());
+            out.write(",\"name\":");
+            JsonIssues.writeString(out, issue.getManager().getFullName());
+            out.write(",\"directReports\":" + issue.getDirectReports());
+            out.write(",\"limit\":" + issue.getLimit());
+            out.write(",\"tooMany\":" + issue.isTooMany() + "}");
+        }
+        out.write("]}");
+        return out.toString();
+    }
+
+    private static String salaries(OrgSnapshot snapshot) throws IOException {
+        ColumnarEmployeeStore store = snapshot.store;
+        SalaryQuantiles salaries = snapshot.salaries;
+        StringWriter out = new StringWriter();
+        out.write("{\"rankError\":");
+        JsonIssues.writeNumber(out, salaries.getCompany().getNormalizedRankError());
+        out.write(",\"company\":");
+        writeQuantiles(out, salaries.getCompany());
+        out.write(",\"levels\":[");
+        for (int depth = 0; depth < salaries.getLevels(); depth++) {
+            out.write(depth > 0 ? "," : "");
+            writeQuantiles(out, salaries.getLevel(depth));
+        }
+        out.write("],\"teams\":[");
+        int[] roots = salaries.getSubtreeRoots();
+        for (int i = 0; i < roots.length; i++) {
+            out.write(i > 0 ? ",{\"id\":" : "{\"id\":");
+            JsonIssues.writeString(out, store.id(roots[i]));
+            out.write(",\"name\":");
+            JsonIssues.writeString(out, store.fullName(roots[i]));
+            out.write(",\"salaries\":");
+            writeQuantiles(out, salaries.getSubtree(roots[i]));
+            out.write('}');
+        }
+        out.write("]}");
+        return out.toString();
+    }
+
+    private static void writeQuantiles(StringWriter out, KllSketch sketch) throws IOException {
+        out.write("{\"employees\":" + sketch.getCount());
+        out.write(",\"min\":");
+        JsonIssues.writeNumber(out, sketch.getMin());
+        out.write(",\"p50\":");
+        JsonIssues.writeNumber(out, sketch.quantile(0.5));
+        out.write(",\"p90\":");
+        JsonIssues.writeNumber(out, sketch.quantile(0.9));
+        out.write(",\"p99\":");
+        JsonIssues.writeNumber(out, sketch.quantile(0.99));
+        out.write(",\"max\":");
+        JsonIssues.writeNumber(out, sketch.getMax());
+        out.write('}');
+    }
+
+    private static void writeCounts(StringWriter out, long[] counts) {
+        out.write('[');
+        for (int i = 0; i < counts.length; i++) {
+            out.write((i > 0 ? "," : "") + counts[i]);
+        }
+        out.write(']');
+    }
+
+    private static String employee(OrgSnapshot snapshot, int index) throws IOException {
+        ColumnarEmployeeStore store = snapshot.store;
+        StringWriter out = new StringWriter();
+        out.write("{\"id\":");
+        JsonIssues.writeString(out, store.id(index));
+        out.write(",\"firstName\":");
+        JsonIssues.writeString(out, store.firstName(index));
+        out.write(",\"lastName\":");
+        JsonIssues.writeString(out, store.lastName(index));
+        out.write(",\"salary\":");
+        JsonIssues.writeNumber(out, store.salary(index));
+        out.write(",\"managerId\":");
+        int manager = store.manager(index);
+        if (manager == ColumnarEmployeeStore.NO_MANAGER) {
+            out.write("null");
+        } else {
+            JsonIssues.writeString(out, store.id(manager));
+        }
+        out.write(",\"depth\":" + snapshot.subtrees.depth(index));
+        out.write(",\"directReports\":" + store.childCount(index));
+        out.write(",\"subtreeSize\":" + snapshot.subtrees.subtreeSize(index));
+        out.write('}');
+        return out.toString();
+    }
+
+    private static String subtree(OrgSnapshot snapshot, int root) throws IOException {
+        ColumnarEmployeeStore store = snapshot.store;
+        StringWriter out = new StringWriter();
+        out.write("{\"id\":");
+        JsonIssues.writeString(out, store.id(root));
+        out.write(",\"employees\":" + snapshot.subtrees.subtreeSize(root));
+        out.write(",\"salaryTotal\":");
+        JsonIssues.writeNumber(out, snapshot.subtrees.subtreeSalaryTotal(root));
+        out.write(",\"minSalary\":");
+        JsonIssues.writeNumber(out, snapshot.subtrees.subtreeMinSalary(root));
+        out.write(",\"maxSalary\":");
+        JsonIssues.writeNumber(out, snapshot.subtrees.subtreeMaxSalary(root));
+        out.write(",\"levels\":[");
+        int[] levels = snapshot.subtrees.depthHistogram(root);
+        for (int d = 0; d < levels.length; d++) {
+            out.write((d > 0 ? "," : "") + levels[d]);
+        }
+        out.write("],\"directReports\":[");
+        for (int k = store.childStart(root); k < store.childEnd(root); k++) {
+            if (k > store.childStart(root)) {
+                out.write(',');
+            }
+            JsonIssues.writeString(out, store.id(store.child(k)));
+        }
+        out.write("]}");
+        return out.toString();
+    }
+
+    private static String chain(OrgSnapshot snapshot, int employee) throws IOException {
+        ColumnarEmployeeStore store = snapshot.store;
+        StringWriter out = new StringWriter();
+        out.write("{\"id\":");
+        JsonIssues.writeString(out, store.id(employee));
+        out.write(",\"managersBetween\":" + Math.max(0, snapshot.subtrees.depth(employee) - 1));
+        out.write(",\"chain\":[");
+        for (int i = employee; i != ColumnarEmployeeStore.NO_MANAGER; i = store.manager(i)) {
+            if (i != employee) {
+                out.write(',');
+            }
+            out.write("{\"id\":");
+            JsonIssues.writeString(out, store.id(i));
+            out.write(",\"name\":");
+            JsonIssues.writeString(out, store.fullName(i));
+            out.write('}');
+        }
+        out.write("]}");
+        return out.toString();
+    }
+
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        StringWriter out = new StringWriter();
+        out.write("{\"error\":");
+        JsonIssues.writeString(out, message);
+        out.write('}');
+        respond(exchange, status, out.toString());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        respond(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> new Thread(task, prefix + "-" + count.incrementAndGet());
+    }
+}
@@ -0,0 +1,92 @@
+package com.bigcompany.analyzer.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches one file and runs an action after it changes.
+ *
+ * The directory of the file is registered with a {@link WatchService}, so
+ * a file replaced by a rename is noticed as well as one written in place.
+ * A single save usually produces several events, and a large file is
+ * written in many steps, so the action runs only once no event has arrived
+ * for a quiet period. It runs on the watcher's own daemon thread.
+ */
+final class SourceWatcher implements Closeable {
+    private final Path file;
+    private final long quietMillis;
+    private final Runnable onChange;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Starts watching.
+     *
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    SourceWatcher(Path file, long quietMillis, Runnable onChange) throws IOException {
+        this.file = file.toAbsolutePath().normalize();
+        this.quietMillis = quietMillis;
+        this.onChange = onChange;
+
+        Path directory = this.file.getParent();
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(this::run, "watch-" + this.file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = changed(key);
+                boolean watching = key.reset();
+
+                // Wait for the writer to finish before acting
+                while (changed && watching) {
+                    WatchKey next = watchService.poll(quietMillis, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    changed(next);
+                    watching = next.reset();
+                }
+
+                if (changed) {
+                    onChange.run();
+                }
+                if (!watching) {
+                    System.err.println("Stopped watching " + file + ": its directory is no longer accessible");
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private boolean changed(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // Events were lost, so the file may have changed
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                || file.getFileName().equals(event.context());
+        }
+        return changed;
+    }
+}
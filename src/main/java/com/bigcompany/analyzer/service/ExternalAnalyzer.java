@@ -0,0 +1,148 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.ExternalEmployeeStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.function.Consumer;
+
+/**
+ * Checks the salary and reporting-line rules against an
+ * {@link ExternalEmployeeStore} in sequential passes over its rows.
+ *
+ * The store already holds every employee's depth and subordinate salary
+ * total, so each pass reads every row once; only employees with an issue are
+ * read with their names. Salary issues are found in one pass and
+ * reporting-line issues in a second, so that a report can write each kind as
+ * it is found instead of holding one kind back until the other is done.
+ * Reporting chains are kept as row numbers and read as they are written.
+ * Issues are reported in file order, the same issues {@link RuleEngine}
+ * reports for the same file.
+ */
+public class ExternalAnalyzer {
+    private final ExternalEmployeeStore store;
+    private final SalaryRangeRule salaryRule;
+    private final ReportingLineRule reportingLineRule;
+
+    public ExternalAnalyzer(ExternalEmployeeStore store) {
+        this(store, new SalaryRangeRule(), new ReportingLineRule());
+    }
+
+    public ExternalAnalyzer(ExternalEmployeeStore store, SalaryRangeRule salaryRule,
+                            ReportingLineRule reportingLineRule) {
+        this.store = store;
+        this.salaryRule = salaryRule;
+        this.reportingLineRule = reportingLineRule;
+    }
+
+    /**
+     * Passes every salary issue, then every reporting-line issue, to the
+     * given consumers, each in file order.
+     */
+    public void run(Consumer<? super SalaryAnalyzer.SalaryIssue> salaryIssues,
+                    Consumer<? super ReportingLineAnalyzer.ReportingLineIssue> reportingLineIssues)
+            throws IOException {
+        salaryIssues(salaryIssues);
+        reportingLineIssues(reportingLineIssues);
+    }
+
+    /**
+     * Passes every salary issue to the consumer, in file order.
+     *
+     * @return the number of issues
+     */
+    public long salaryIssues(Consumer<? super SalaryAnalyzer.SalaryIssue> issues) throws IOException {
+        long count = 0;
+        try (Metrics.Phase phase = Metrics.phase("external.salaryScan");
+             ExternalEmployeeStore.Cursor cursor = store.cursor()) {
+            phase.rows(store.size());
+            while (cursor.next()) {
+                if (cursor.subordinateCount() > 0) {
+                    double avgSubordinateSalary = cursor.subordinateSalaryTotal() / cursor.subordinateCount();
+                    if (salaryRule.isOutOfRange(cursor.salary(), avgSubordinateSalary)) {
+                        SalaryRangeRule.ISSUES.increment();
+                        issues.accept(salaryRule.evaluate(store.toEmployee(cursor.row()), avgSubordinateSalary));
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Passes every reporting-line issue to the consumer, in file order. The
+     * chains read their employees from the store, so they can only be read
+     * while it is open.
+     *
+     * @return the number of issues
+     */
+    public long reportingLineIssues(Consumer<? super ReportingLineAnalyzer.ReportingLineIssue> issues)
+            throws IOException {
+        int maxManagersBetween = reportingLineRule.getMaxManagersBetween();
+        long count = 0;
+        try (Metrics.Phase phase = Metrics.phase("external.reportingLineScan");
+             ExternalEmployeeStore.Cursor cursor = store.cursor()) {
+            phase.rows(store.size());
+            while (cursor.next()) {
+                // An employee at depth d has d - 1 managers between them and the CEO
+                int managersBetween = cursor.depth() - 1;
+                if (managersBetween > maxManagersBetween) {
+                    long[] chain = chainOf(cursor.row(), cursor.depth());
+                    ReportingLineRule.ISSUES.increment();
+                    ReportingLineRule.CHAINS.increment();
+                    ReportingLineRule.CHAIN_EMPLOYEES.add(chain.length);
+                    issues.accept(new ReportingLineAnalyzer.ReportingLineIssue(store.toEmployee(cursor.row()),
+                        managersBetween, new ReportingChain(store, chain), maxManagersBetween));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the rows from the employee up to the CEO.
+     */
+    private long[] chainOf(long row, int depth) throws IOException {
+        long[] chain = new long[depth + 1];
+        int length = 0;
+        for (long i = row; i != ColumnarEmployeeStore.NO_MANAGER; i = store.manager(i)) {
+            chain[length++] = i;
+        }
+        return chain;
+    }
+
+    /**
+     * Reporting chain kept as row numbers; employees are read from the store
+     * as the chain is read, so a held issue costs a long per level instead
+     * of an {@link Employee} with its names.
+     */
+    private static final class ReportingChain extends AbstractList<Employee> {
+        private final ExternalEmployeeStore store;
+        private final long[] chain;
+
+        ReportingChain(ExternalEmployeeStore store, long[] chain) {
+            this.store = store;
+            this.chain = chain;
+        }
+
+        @Override
+        public Employee get(int index) {
+            try {
+                return store.toEmployee(chain[index]);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public int size() {
+            return chain.length;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.repository.EmployeeRepository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps salary and reporting-line issues up to date while the organization
+ * changes, instead of re-running both analyzers after every change.
+ *
+ * The analyzer holds each employee's depth below the CEO and the current
+ * issues. Every change is applied to the repository through this class and
+ * re-evaluates only what it can affect:
+ * - a hire, exit or raise re-evaluates the employee and their manager
+ * - a re-org re-evaluates the old and new manager and the depths inside the
+ *   moved subtree
+ * The returned {@link Delta} lists the issues that appeared and disappeared.
+ * A manager's subordinate average is re-summed from their direct subordinates
+ * on every evaluation rather than kept as a running total, so it is exactly the
+ * value a full analysis computes and undoing a change yields an empty delta.
+ * Issues are checked with the same {@link SalaryRangeRule} and
+ * {@link ReportingLineRule} thresholds as the {@link RuleEngine} would use.
+ */
+public class IncrementalAnalyzer {
+    private final EmployeeRepository repository;
+    private final SalaryRangeRule salaryRule;
+    private final ReportingLineRule reportingLineRule;
+    private final Map<String, Integer> depths = new HashMap<>();
+    private final Map<String, SalaryAnalyzer.SalaryIssue> salaryIssues = new LinkedHashMap<>();
+    private final Map<String, ReportingLineAnalyzer.ReportingLineIssue> reportingLineIssues = new LinkedHashMap<>();
+
+    /**
+     * Issues that appeared or disappeared because of one change. An issue whose
+     * details changed (e.g. a different deviation) is reported as removed and
+     * added again.
+     */
+    public static class Delta {
+        private final List<SalaryAnalyzer.SalaryIssue> addedSalaryIssues = new ArrayList<>();
+        private final List<SalaryAnalyzer.SalaryIssue> removedSalaryIssues = new ArrayList<>();
+        private final List<ReportingLineAnalyzer.ReportingLineIssue> addedReportingLineIssues = new ArrayList<>();
+        private final List<ReportingLineAnalyzer.ReportingLineIssue> removedReportingLineIssues = new ArrayList<>();
+
+        public List<SalaryAnalyzer.SalaryIssue> getAddedSalaryIssues() {
+            return addedSalaryIssues;
+        }
+
+        public List<SalaryAnalyzer.SalaryIssue> getRemovedSalaryIssues() {
+            return removedSalaryIssues;
+        }
+
+        public List<ReportingLineAnalyzer.ReportingLineIssue> getAddedReportingLineIssues() {
+            return addedReportingLineIssues;
+        }
+
+        public List<ReportingLineAnalyzer.ReportingLineIssue> getRemovedReportingLineIssues() {
+            return removedReportingLineIssues;
+        }
+
+        public boolean isEmpty() {
+            return addedSalaryIssues.isEmpty() && removedSalaryIssues.isEmpty()
+                && addedReportingLineIssues.isEmpty() && removedReportingLineIssues.isEmpty();
+        }
+    }
+
+    /**
+     * Computes the depths and the initial issues for a loaded repository,
+     * with the default thresholds.
+     */
+    public IncrementalAnalyzer(EmployeeRepository repository) {
+        this(repository, new SalaryRangeRule(), new ReportingLineRule());
+    }
+
+    /**
+     * Computes the depths and the initial issues for a loaded repository,
+     * with the thresholds of the given rules.
+     */
+    public IncrementalAnalyzer(EmployeeRepository repository, SalaryRangeRule salaryRule,
+                               ReportingLineRule reportingLineRule) {
+        this.repository = repository;
+        this.salaryRule = salaryRule;
+        this.reportingLineRule = reportingLineRule;
+
+        updateDepths(repository.getCEO(), 0, new Delta());
+
+        for (Employee employee : repository.getAllEmployees()) {
+            evaluateSalary(employee.getId(), new Delta());
+        }
+    }
+
+    public Collection<SalaryAnalyzer.SalaryIssue> getSalaryIssues() {
+        return Collections.unmodifiableCollection(salaryIssues.values());
+    }
+
+    public Collection<ReportingLineAnalyzer.ReportingLineIssue> getReportingLineIssues() {
+        return Collections.unmodifiableCollection(reportingLineIssues.values());
+    }
+
+    /**
+     * Hires a new employee under an existing manager.
+     */
+    public Delta addEmployee(Employee employee) {
+        repository.addEmployee(employee);
+
+        Delta delta = new Delta();
+        evaluateSalary(employee.getManagerId(), delta);
+        updateDepths(employee, depths.get(employee.getManagerId()) + 1, delta);
+        return delta;
+    }
+
+    /**
+     * Removes an employee who has no direct subordinates.
+     */
+    public Delta removeEmployee(String employeeId) {
+        Employee removed = repository.removeEmployee(employeeId);
+
+        Delta delta = new Delta();
+        depths.remove(employeeId);
+        replaceReportingLineIssue(employeeId, null, delta);
+        evaluateSalary(removed.getManagerId(), delta);
+        return delta;
+    }
+
+    /**
+     * Changes an employee's salary. This affects the employee's own salary
+     * check (if they are a manager) and their manager's subordinate average.
+     */
+    public Delta changeSalary(String employeeId, double salary) {
+        Employee updated = repository.changeSalary(employeeId, salary);
+
+        Delta delta = new Delta();
+        evaluateSalary(employeeId, delta);
+        if (!updated.isCEO()) {
+            evaluateSalary(updated.getManagerId(), delta);
+        }
+        return delta;
+    }
+
+    /**
+     * Moves an employee, with everyone under them, to a new manager.
+     */
+    public Delta changeManager(String employeeId, String managerId) {
+        Employee previous = repository.getEmployee(employeeId);
+        Employee updated = repository.changeManager(employeeId, managerId);
+
+        Delta delta = new Delta();
+        evaluateSalary(previous.getManagerId(), delta);
+        evaluateSalary(managerId, delta);
+        evaluateSalary(employeeId, delta);
+        updateDepths(updated, depths.get(managerId) + 1, delta);
+        return delta;
+    }
+
+    private void evaluateSalary(String managerId, Delta delta) {
+        List<Employee> subordinates = repository.getDirectSubordinates(managerId);
+        SalaryAnalyzer.SalaryIssue issue = null;
+        if (!subordinates.isEmpty()) {
+            // Same summation order as SalaryAnalyzer, so the deviations compare exactly
+            double total = 0;
+            for (Employee subordinate : subordinates) {
+                total += subordinate.getSalary();
+            }
+            issue = salaryRule.evaluate(repository.getEmployee(managerId), total / subordinates.size());
+        }
+
+        SalaryAnalyzer.SalaryIssue previous = issue == null
+            ? salaryIssues.remove(managerId)
+            : salaryIssues.put(managerId, issue);
+
+        if (previous != null && issue != null && isSame(previous, issue)) {
+            return; // Unchanged; keep the issue that refers to the current employee instance
+        }
+        if (previous != null) {
+            delta.removedSalaryIssues.add(previous);
+        }
+        if (issue != null) {
+            delta.addedSalaryIssues.add(issue);
+        }
+    }
+
+    /**
+     * Sets the depth of the given employee and everyone under them, and
+     * re-evaluates their reporting lines. Only the given subtree is visited.
+     */
+    private void updateDepths(Employee root, int rootDepth, Delta delta) {
+        Deque<Employee> pending = new ArrayDeque<>();
+        Deque<Integer> pendingDepths = new ArrayDeque<>();
+        pending.push(root);
+        pendingDepths.push(rootDepth);
+
+        while (!pending.isEmpty()) {
+            Employee employee = pending.pop();
+            int depth = pendingDepths.pop();
+            depths.put(employee.getId(), depth);
+
+            ReportingLineAnalyzer.ReportingLineIssue issue = null;
+            int managersBetween = depth - 1;
+            if (managersBetween > reportingLineRule.getMaxManagersBetween()) {
+                issue = new ReportingLineAnalyzer.ReportingLineIssue(employee, managersBetween,
+                    buildReportingChain(employee), reportingLineRule.getMaxManagersBetween());
+            }
+            replaceReportingLineIssue(employee.getId(), issue, delta);
+
+            for (Employee subordinate : repository.getDirectSubordinates(employee.getId())) {
+                pending.push(subordinate);
+                pendingDepths.push(depth + 1);
+            }
+        }
+    }
+
+    private void replaceReportingLineIssue(String employeeId, ReportingLineAnalyzer.ReportingLineIssue issue,
+                                           Delta delta) {
+        ReportingLineAnalyzer.ReportingLineIssue previous = issue == null
+            ? reportingLineIssues.remove(employeeId)
+            : reportingLineIssues.put(employeeId, issue);
+
+        if (previous != null && issue != null && isSame(previous, issue)) {
+            return; // Unchanged; keep the issue that refers to the current employee instances
+        }
+        if (previous != null) {
+            delta.removedReportingLineIssues.add(previous);
+        }
+        if (issue != null) {
+            delta.addedReportingLineIssues.add(issue);
+        }
+    }
+
+    private List<Employee> buildReportingChain(Employee employee) {
+        List<Employee> chain = new ArrayList<>();
+        for (Employee current = employee; current != null; current = repository.getEmployee(current.getManagerId())) {
+            chain.add(current);
+            if (current.isCEO()) {
+                break;
+            }
+        }
+        return chain;
+    }
+
+    private static boolean isSame(SalaryAnalyzer.SalaryIssue a, SalaryAnalyzer.SalaryIssue b) {
+        return a.isEarningTooLittle() == b.isEarningTooLittle()
+            && a.getDeviation() == b.getDeviation()
+            && a.getManager().getSalary() == b.getManager().getSalary();
+    }
+
+    private static boolean isSame(ReportingLineAnalyzer.ReportingLineIssue a,
+                                  ReportingLineAnalyzer.ReportingLineIssue b) {
+        if (a.getManagersCount() != b.getManagersCount()) {
+            return false;
+        }
+        List<Employee> chainA = a.getReportingChain();
+        List<Employee> chainB = b.getReportingChain();
+        for (int i = 0; i < chainA.size(); i++) {
+            if (!chainA.get(i).getId().equals(chainB.get(i).getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,279 @@
+package com.bigcompany.analyzer.service;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Streaming quantile sketch after Karnin, Lang and Liberty ("Optimal
+ * Quantile Approximation in Streams", 2016), answering quantile and rank
+ * queries over any number of values in bounded memory.
+ *
+ * Values are kept in a stack of compactors. Level 0 holds values as they
+ * arrive; a value at level h stands for 2^h of the original values. When
+ * the sketch is full, the lowest level at its capacity is sorted and every
+ * other value, starting at a random offset, moves up a level while the rest
+ * are dropped. Capacities shrink by 2/3 per level below the top, which holds
+ * {@code k} values, so the sketch keeps at most about {@code 3k} values plus
+ * a few per level, however many values it has seen.
+ *
+ * Error bound: a quantile query returns a value whose true rank differs from
+ * the requested rank by at most {@link #getNormalizedRankError()} times the
+ * number of values, with 99% confidence. For the default k = 200 that is
+ * about 1.3% (2.296 / k^0.9723, the bound Apache DataSketches measured for
+ * this construction). The minimum and maximum are exact.
+ *
+ * Sketches of disjoint parts of the data can be {@link #merge merged}, and
+ * the result has the same error bound as one sketch of all the data, so the
+ * parts can be sketched in parallel. A sketch is not thread-safe. Compaction
+ * offsets come from a fixed seed, so the same updates and merges in the same
+ * order always give the same sketch.
+ */
+public final class KllSketch {
+    public static final int DEFAULT_K = 200;
+
+    private static final int MIN_CAPACITY = 8;
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+    private static final long SEED = 0x6B6C6CL;
+
+    private final int k;
+    private final SplittableRandom random = new SplittableRandom(SEED);
+    /** levels[h] holds sizes[h] values of weight 2^h, in no particular order. */
+    private double[][] levels = new double[0][];
+    private int[] sizes = new int[0];
+    private int[] capacities = new int[0];
+    private int totalCapacity;
+    private int retained;
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * @param k accuracy parameter; the rank error shrinks about as 1/k
+     * @throws IllegalArgumentException if k is less than 8
+     */
+    public KllSketch(int k) {
+        checkK(k);
+        this.k = k;
+        addLevel();
+    }
+
+    static void checkK(int k) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY + ": " + k);
+        }
+    }
+
+    /**
+     * Returns the normalized rank error of sketches with parameter k, at 99%
+     * confidence.
+     */
+    public static double normalizedRankError(int k) {
+        return 2.296 / Math.pow(k, 0.9723);
+    }
+
+    public double getNormalizedRankError() {
+        return normalizedRankError(k);
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Returns the number of values seen.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of values the sketch keeps.
+     */
+    public int getRetained() {
+        return retained;
+    }
+
+    /**
+     * Returns the smallest value seen, or NaN if there were none.
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the largest value seen, or NaN if there were none.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @throws IllegalArgumentException if the value is NaN
+     */
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot sketch NaN");
+        }
+        min = count == 0 ? value : Math.min(min, value);
+        max = count == 0 ? value : Math.max(max, value);
+        count++;
+        append(0, value);
+        compress();
+    }
+
+    /**
+     * Adds all values seen by another sketch, which is left unchanged.
+     */
+    public void merge(KllSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        min = count == 0 ? other.min : Math.min(min, other.min);
+        max = count == 0 ? other.max : Math.max(max, other.max);
+        count += other.count;
+        while (levels.length < other.levels.length) {
+            addLevel();
+        }
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        compress();
+    }
+
+    /**
+     * Returns an estimate of the value at normalized rank {@code q}: about
+     * {@code q * count} of the values seen are at most the result.
+     * {@code q = 0} and {@code q = 1} return the exact minimum and maximum.
+     *
+     * @return the estimate, or NaN if no values were seen
+     * @throws IllegalArgumentException if q is not within [0, 1]
+     */
+    public double quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("Quantile must be within [0, 1]: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+
+        // Walk all levels in value order, each sorted on its own
+        double[][] sorted = new double[levels.length][];
+        for (int h = 0; h < levels.length; h++) {
+            sorted[h] = Arrays.copyOf(levels[h], sizes[h]);
+            Arrays.sort(sorted[h]);
+        }
+        int[] next = new int[levels.length];
+        double target = q * count;
+        long cumulative = 0;
+        while (true) {
+            int lowest = -1;
+            for (int h = 0; h < sorted.length; h++) {
+                if (next[h] < sorted[h].length
+                    && (lowest < 0 || sorted[h][next[h]] < sorted[lowest][next[lowest]])) {
+                    lowest = h;
+                }
+            }
+            if (lowest < 0) {
+                return max;
+            }
+            double value = sorted[lowest][next[lowest]++];
+            cumulative += 1L << lowest;
+            if (cumulative >= target) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Returns an estimate of the fraction of the values seen that are at
+     * most {@code value}, or NaN if no values were seen.
+     */
+    public double rank(double value) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long weight = 0;
+        for (int h = 0; h < levels.length; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                if (levels[h][i] <= value) {
+                    weight += 1L << h;
+                }
+            }
+        }
+        return (double) weight / count;
+    }
+
+    private void append(int level, double value) {
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+
+    /**
+     * Adds a level on top; every level below moves one step further from the
+     * top, so all capacities are recomputed.
+     */
+    private void addLevel() {
+        int height = levels.length + 1;
+        levels = Arrays.copyOf(levels, height);
+        levels[height - 1] = new double[MIN_CAPACITY];
+        sizes = Arrays.copyOf(sizes, height);
+        capacities = new int[height];
+        totalCapacity = 0;
+        for (int h = 0; h < height; h++) {
+            int depth = height - 1 - h;
+            capacities[h] = Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+            totalCapacity += capacities[h];
+        }
+    }
+
+    /**
+     * Compacts the lowest full level until the sketch fits its capacity.
+     */
+    private void compress() {
+        while (retained > totalCapacity) {
+            int level = 0;
+            while (sizes[level] < capacities[level]) {
+                level++;
+            }
+            if (level == levels.length - 1) {
+                addLevel();
+            }
+            compact(level);
+        }
+    }
+
+    /**
+     * Sorts a level and moves every other value, from a random offset, up
+     * one level. With an odd count, the largest value stays behind.
+     */
+    private void compact(int level) {
+        double[] values = levels[level];
+        int size = sizes[level];
+        Arrays.sort(values, 0, size);
+
+        int pairs = size & ~1;
+        for (int i = random.nextInt(2); i < pairs; i += 2) {
+            append(level + 1, values[i]);
+        }
+        values[0] = values[size - 1];
+        sizes[level] = size - pairs;
+        retained -= pairs;
+    }
+}
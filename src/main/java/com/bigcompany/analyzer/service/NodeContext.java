@@ -0,0 +1,130 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.LevelOrder;
+
+/**
+ * The employee a {@link OrgRule} is checking, with the values the rule
+ * engine computes once per employee for all rules: depth, number of direct
+ * subordinates and their salary total, minimum and maximum.
+ *
+ * The engine reuses one context per thread and moves it from employee to
+ * employee, so rules must copy what they need to keep.
+ */
+public final class NodeContext {
+    private final ColumnarEmployeeStore store;
+    private final LevelOrder levels;
+
+    private int index;
+    private int subordinateCount;
+    private double subordinateSalaryTotal;
+    private double minSubordinateSalary;
+    private double maxSubordinateSalary;
+
+    NodeContext(ColumnarEmployeeStore store, LevelOrder levels) {
+        this.store = store;
+        this.levels = levels;
+    }
+
+    void moveTo(int employee) {
+        index = employee;
+        int start = store.childStart(employee);
+        int end = store.childEnd(employee);
+        subordinateCount = end - start;
+
+        // Plain summation in subordinate order, identical to the repository path
+        double total = 0;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        for (int k = start; k < end; k++) {
+            double salary = store.salary(store.child(k));
+            total += salary;
+            min = k == start ? salary : Math.min(min, salary);
+            max = k == start ? salary : Math.max(max, salary);
+        }
+        subordinateSalaryTotal = total;
+        minSubordinateSalary = min;
+        maxSubordinateSalary = max;
+    }
+
+    public ColumnarEmployeeStore store() {
+        return store;
+    }
+
+    /**
+     * Returns the employee's index in the store.
+     */
+    public int index() {
+        return index;
+    }
+
+    public double salary() {
+        return store.salary(index);
+    }
+
+    /**
+     * Returns the index of the employee's manager, or
+     * {@link ColumnarEmployeeStore#NO_MANAGER} for the CEO.
+     */
+    public int manager() {
+        return store.manager(index);
+    }
+
+    /**
+     * Returns the number of levels between the employee and the CEO; the CEO
+     * is at depth 0 and its direct subordinates at depth 1.
+     *
+     * @throws IllegalStateException if no rule of the engine declared
+     *         {@link OrgRule#needsDepth()}
+     */
+    public int depth() {
+        if (levels == null) {
+            throw new IllegalStateException("Depths were not computed; the rule must override needsDepth()");
+        }
+        return levels.depth(index);
+    }
+
+    public boolean isManager() {
+        return subordinateCount > 0;
+    }
+
+    public int subordinateCount() {
+        return subordinateCount;
+    }
+
+    public double subordinateSalaryTotal() {
+        return subordinateSalaryTotal;
+    }
+
+    /**
+     * Returns the average salary of the direct subordinates, or NaN if there
+     * are none.
+     */
+    public double averageSubordinateSalary() {
+        return subordinateSalaryTotal / subordinateCount;
+    }
+
+    /**
+     * Returns the lowest salary of the direct subordinates, or NaN if there
+     * are none.
+     */
+    public double minSubordinateSalary() {
+        return minSubordinateSalary;
+    }
+
+    /**
+     * Returns the highest salary of the direct subordinates, or NaN if there
+     * are none.
+     */
+    public double maxSubordinateSalary() {
+        return maxSubordinateSalary;
+    }
+
+    /**
+     * Creates an {@link Employee} for the current employee, e.g. for an issue.
+     */
+    public Employee toEmployee() {
+        return store.toEmployee(index);
+    }
+}
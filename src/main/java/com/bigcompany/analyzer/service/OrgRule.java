@@ -0,0 +1,29 @@
+package com.bigcompany.analyzer.service;
+
+import java.util.function.Consumer;
+
+/**
+ * A check applied to every employee by the {@link RuleEngine}.
+ *
+ * All rules of an engine run in the same pass over the organization and share
+ * the per-employee values in {@link NodeContext}, so a rule only pays for its
+ * own comparison. Rules may be called from several threads at once, each with
+ * its own context, and must not keep the context after {@link #check} returns.
+ *
+ * @param <T> the type of issue the rule reports
+ */
+public interface OrgRule<T> {
+
+    /**
+     * Checks one employee and passes any issue found to {@code issues}.
+     */
+    void check(NodeContext node, Consumer<? super T> issues);
+
+    /**
+     * Returns whether the rule reads {@link NodeContext#depth()}. Depths take
+     * an extra breadth-first pass, which is skipped if no rule needs them.
+     */
+    default boolean needsDepth() {
+        return false;
+    }
+}
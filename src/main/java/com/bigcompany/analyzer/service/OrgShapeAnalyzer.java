@@ -0,0 +1,292 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.LevelOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the shape of the organization: how many direct reports each
+ * manager has (span of control), how many employees each subtree holds, how
+ * employees are spread over the levels, and which managers head the largest
+ * subtrees. Managers with fewer or more direct reports than the limits are
+ * reported as {@link SpanIssue}s.
+ *
+ * Levels and subtree sizes come from the store's shared {@link LevelOrder}.
+ * Spans, span issues and the largest subtrees are then counted in one scan
+ * over index ranges, in parallel when a pool is given, and the ranges are
+ * merged in index order. The results are the same with or without a pool.
+ */
+public class OrgShapeAnalyzer {
+    public static final int DEFAULT_MIN_DIRECT_REPORTS = 2;
+    public static final int DEFAULT_MAX_DIRECT_REPORTS = 15;
+    public static final int DEFAULT_HEAVIEST = 10;
+
+    private final ColumnarEmployeeStore store;
+    private final ForkJoinPool pool;
+    private final int minDirectReports;
+    private final int maxDirectReports;
+    private final int heaviest;
+
+    public OrgShapeAnalyzer(ColumnarEmployeeStore store) {
+        this(store, null, DEFAULT_MIN_DIRECT_REPORTS, DEFAULT_MAX_DIRECT_REPORTS, DEFAULT_HEAVIEST);
+    }
+
+    /**
+     * @param pool pool to scan index ranges on, or null for the calling thread
+     * @param minDirectReports fewest direct reports a manager should have
+     * @param maxDirectReports most direct reports a manager should have
+     * @param heaviest number of managers with the largest subtrees to report
+     * @throws IllegalArgumentException if the limits are not
+     *         {@code 1 <= minDirectReports <= maxDirectReports}, or
+     *         {@code heaviest} is not positive
+     */
+    public OrgShapeAnalyzer(ColumnarEmployeeStore store, ForkJoinPool pool, int minDirectReports,
+                            int maxDirectReports, int heaviest) {
+        if (minDirectReports < 1 || maxDirectReports < minDirectReports) {
+            throw new IllegalArgumentException("Direct report limits must satisfy 1 <= min <= max: "
+                + minDirectReports + ", " + maxDirectReports);
+        }
+        if (heaviest < 1) {
+            throw new IllegalArgumentException("Number of heaviest managers must be positive: " + heaviest);
+        }
+        this.store = store;
+        this.pool = pool;
+        this.minDirectReports = minDirectReports;
+        this.maxDirectReports = maxDirectReports;
+        this.heaviest = heaviest;
+    }
+
+    /**
+     * A manager with fewer or more direct reports than the limits.
+     */
+    public static class SpanIssue {
+        private final Employee manager;
+        private final int directReports;
+        private final int limit;
+        private final boolean tooMany;
+
+        public SpanIssue(Employee manager, int directReports, int limit, boolean tooMany) {
+            this.manager = manager;
+            this.directReports = directReports;
+            this.limit = limit;
+            this.tooMany = tooMany;
+        }
+
+        public Employee getManager() {
+            return manager;
+        }
+
+        public int getDirectReports() {
+            return directReports;
+        }
+
+        /**
+         * Returns the maximum that was exceeded, or the minimum that was not reached.
+         */
+        public int getLimit() {
+            return limit;
+        }
+
+        public boolean isTooMany() {
+            return tooMany;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s has too %s direct reports: %d (%s is %d)", manager.getFullName(),
+                tooMany ? "many" : "few", directReports, tooMany ? "maximum" : "minimum", limit);
+        }
+    }
+
+    /**
+     * The measured shape of an organization.
+     */
+    public static class OrgShape {
+        private final LevelOrder levels;
+        private final long[] fanOutHistogram;
+        private final long[] depthHistogram;
+        private final int[] heaviestManagers;
+        private final List<SpanIssue> spanIssues;
+
+        OrgShape(LevelOrder levels, long[] fanOutHistogram, long[] depthHistogram, int[] heaviestManagers,
+                 List<SpanIssue> spanIssues) {
+            this.levels = levels;
+            this.fanOutHistogram = fanOutHistogram;
+            this.depthHistogram = depthHistogram;
+            this.heaviestManagers = heaviestManagers;
+            this.spanIssues = spanIssues;
+        }
+
+        /**
+         * Returns the number of employees in the subtree of an employee,
+         * including the employee.
+         */
+        public int getSubtreeSize(int employee) {
+            return levels.subtreeSize(employee);
+        }
+
+        /**
+         * Returns how many employees have each number of direct reports:
+         * element k counts those with exactly k, up to the largest span.
+         */
+        public long[] getFanOutHistogram() {
+            return fanOutHistogram.clone();
+        }
+
+        /**
+         * Returns how many employees are at each level: element 0 is the CEO,
+         * element 1 the CEO's direct reports, and so on.
+         */
+        public long[] getDepthHistogram() {
+            return depthHistogram.clone();
+        }
+
+        /**
+         * Returns the store indexes of the managers with the largest
+         * subtrees, largest first.
+         */
+        public int[] getHeaviestManagers() {
+            return heaviestManagers.clone();
+        }
+
+        /**
+         * Returns the managers outside the direct report limits, in employee order.
+         */
+        public List<SpanIssue> getSpanIssues() {
+            return spanIssues;
+        }
+    }
+
+    /**
+     * Measures the organization.
+     */
+    public OrgShape analyze() {
+        try (Metrics.Phase phase = Metrics.phase("shape.analyze")) {
+            phase.rows(store.size());
+            LevelOrder levels = store.levelOrder(pool);
+            // Larger subtrees first; equal ones in employee order
+            Comparator<Integer> order = Comparator.<Integer>comparingInt(levels::subtreeSize)
+                .thenComparing(Comparator.reverseOrder());
+
+            Partial shape = new Partial(heaviest, order);
+            ParallelScan.<Partial>scan(pool, store.size(), (start, end, results) -> {
+                Partial partial = new Partial(heaviest, order);
+                for (int employee = start; employee < end; employee++) {
+                    partial.visit(employee);
+                }
+                results.accept(partial);
+            }, shape::merge);
+
+            long[] depthHistogram = new long[levels.levelCount()];
+            for (int depth = 0; depth < depthHistogram.length; depth++) {
+                depthHistogram[depth] = levels.levelEnd(depth) - levels.levelStart(depth);
+            }
+            return shape.finish(levels, depthHistogram);
+        }
+    }
+
+    /**
+     * Counts of one range of employees.
+     */
+    private final class Partial {
+        private final Histogram fanOut = new Histogram();
+        private final TopK<Integer> heaviest;
+        private final IntList spanIssues = new IntList();
+
+        Partial(int heaviest, Comparator<Integer> order) {
+            this.heaviest = new TopK<>(heaviest, order);
+        }
+
+        void visit(int employee) {
+            int span = store.childCount(employee);
+            fanOut.increment(span);
+            if (span > 0) {
+                heaviest.accept(employee);
+                if (span < minDirectReports || span > maxDirectReports) {
+                    spanIssues.add(employee);
+                }
+            }
+        }
+
+        void merge(Partial other) {
+            fanOut.merge(other.fanOut);
+            heaviest.merge(other.heaviest);
+            spanIssues.addAll(other.spanIssues);
+        }
+
+        OrgShape finish(LevelOrder levels, long[] depthHistogram) {
+            // Ranges are merged in index order, so the issues already are in employee order
+            List<SpanIssue> issues = new ArrayList<>(spanIssues.size);
+            for (int i = 0; i < spanIssues.size; i++) {
+                int manager = spanIssues.values[i];
+                int span = store.childCount(manager);
+                boolean tooMany = span > maxDirectReports;
+                issues.add(new SpanIssue(store.toEmployee(manager), span,
+                    tooMany ? maxDirectReports : minDirectReports, tooMany));
+            }
+
+            int[] heaviestManagers = heaviest.toList().stream().mapToInt(Integer::intValue).toArray();
+            return new OrgShape(levels, fanOut.toArray(), depthHistogram, heaviestManagers, issues);
+        }
+    }
+
+    /**
+     * Counts per bucket, growing as larger buckets are seen.
+     */
+    private static final class Histogram {
+        private long[] counts = new long[16];
+        private int buckets;
+
+        void increment(int bucket) {
+            add(bucket, 1);
+        }
+
+        void add(int bucket, long count) {
+            if (bucket >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(bucket + 1, counts.length * 2));
+            }
+            counts[bucket] += count;
+            buckets = Math.max(buckets, bucket + 1);
+        }
+
+        void merge(Histogram other) {
+            for (int bucket = 0; bucket < other.buckets; bucket++) {
+                if (other.counts[bucket] != 0) {
+                    add(bucket, other.counts[bucket]);
+                }
+            }
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(counts, buckets);
+        }
+    }
+
+    /**
+     * A growable list of ints.
+     */
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+    }
+}
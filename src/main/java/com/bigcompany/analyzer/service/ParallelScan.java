@@ -0,0 +1,102 @@
+package com.bigcompany.analyzer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Splits index ranges of the columnar store into chunks that are processed on
+ * a fork/join pool.
+ *
+ * Chunk results are handed on in index order, so a parallel scan produces
+ * exactly what a sequential scan from 0 to size would.
+ */
+final class ParallelScan {
+    static final int MIN_CHUNK = 16 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Scans employees [start, end) and passes its results on in index order.
+     */
+    interface RangeScanner<T> {
+        void scan(int start, int end, Consumer<? super T> results);
+    }
+
+    private ParallelScan() {
+    }
+
+    /**
+     * Scans [0, size). Runs on the calling thread, passing results straight
+     * on, if the pool is null or the range is too small to be worth splitting.
+     * Otherwise all chunks are started at once and each chunk's results are
+     * passed on as soon as it and the chunks before it are done.
+     */
+    static <T> void scan(ForkJoinPool pool, int size, RangeScanner<T> scanner, Consumer<? super T> results) {
+        int chunks = chunkCount(pool, size);
+        if (chunks == 1) {
+            scanner.scan(0, size, results);
+            return;
+        }
+
+        int chunkSize = chunkSize(pool, size);
+        List<ForkJoinTask<List<T>>> tasks = new ArrayList<>(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int start = chunk * chunkSize;
+            int end = Math.min(size, start + chunkSize);
+            tasks.add(pool.submit(() -> {
+                List<T> chunkResults = new ArrayList<>();
+                scanner.scan(start, end, chunkResults::add);
+                return chunkResults;
+            }));
+        }
+        for (ForkJoinTask<List<T>> task : tasks) {
+            task.join().forEach(results);
+        }
+    }
+
+    /**
+     * Number of chunks to split a range of the given size into; 1 if it should
+     * not be split.
+     */
+    static int chunkCount(ForkJoinPool pool, int size) {
+        if (pool == null || size <= MIN_CHUNK) {
+            return 1;
+        }
+        int chunk = chunkSize(pool, size);
+        return (size + chunk - 1) / chunk;
+    }
+
+    /**
+     * Runs body(0) ... body(chunks - 1) on the pool and waits for all of them.
+     */
+    static void forEachChunk(ForkJoinPool pool, int chunks, IntConsumer body) {
+        if (chunks == 1) {
+            body.accept(0);
+            return;
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                List<RecursiveAction> tasks = new ArrayList<>(chunks);
+                for (int i = 0; i < chunks; i++) {
+                    int chunk = i;
+                    tasks.add(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            body.accept(chunk);
+                        }
+                    });
+                }
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+    }
+
+    private static int chunkSize(ForkJoinPool pool, int size) {
+        return Math.max(MIN_CHUNK, size / (pool.getParallelism() * CHUNKS_PER_THREAD));
+    }
+}
@@ -1,10 +1,19 @@
 package com.bigcompany.analyzer.service;
 
+import com.bigcompany.analyzer.metrics.Metrics;
 import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
 import com.bigcompany.analyzer.repository.EmployeeRepository;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * Analyzes reporting line lengths in the organization.
@@ -12,15 +21,40 @@ import java.util.List;
  * Assumption: The reporting line is counted as the number of managers between
  * an employee and the CEO (not including the employee itself, but potentially 
  * including the CEO as the top manager). If there are MORE than 4 managers 
- * between an employee and CEO, it's too long.
+ * between an employee and CEO, it's too long. Other limits can be checked
+ * with a {@link ReportingLineRule} in a {@link RuleEngine}.
  */
 public class ReportingLineAnalyzer {
-    private static final int MAX_MANAGERS_BETWEEN = 4;
+    public static final int MAX_MANAGERS_BETWEEN = 4;
 
     private final EmployeeRepository repository;
+    private final ColumnarEmployeeStore store;
+    private final ForkJoinPool pool;
 
     public ReportingLineAnalyzer(EmployeeRepository repository) {
         this.repository = repository;
+        this.store = null;
+        this.pool = null;
+    }
+
+    /**
+     * Creates an analyzer that follows manager indexes in the columnar store.
+     * Employee objects are only created for the chains of reported issues.
+     */
+    public ReportingLineAnalyzer(ColumnarEmployeeStore store) {
+        this(store, null);
+    }
+
+    /**
+     * Creates an analyzer over the columnar store that computes depths level
+     * by level and builds reporting chains for ranges of employees in parallel
+     * on the given pool. Issues are returned in the same order as a sequential
+     * scan.
+     */
+    public ReportingLineAnalyzer(ColumnarEmployeeStore store, ForkJoinPool pool) {
+        this.repository = null;
+        this.store = store;
+        this.pool = pool;
     }
 
     public static class ReportingLineIssue {
@@ -28,12 +62,22 @@ public class ReportingLineAnalyzer {
         private final int managersCount;
         private final int excessManagers;
         private final List<Employee> reportingChain;
+        private final int maxManagersBetween;
 
         public ReportingLineIssue(Employee employee, int managersCount, List<Employee> reportingChain) {
+            this(employee, managersCount, reportingChain, MAX_MANAGERS_BETWEEN);
+        }
+
+        /**
+         * Creates an issue for a limit other than {@link #MAX_MANAGERS_BETWEEN}.
+         */
+        public ReportingLineIssue(Employee employee, int managersCount, List<Employee> reportingChain,
+                                  int maxManagersBetween) {
             this.employee = employee;
             this.managersCount = managersCount;
-            this.excessManagers = managersCount - MAX_MANAGERS_BETWEEN;
+            this.excessManagers = managersCount - maxManagersBetween;
             this.reportingChain = reportingChain;
+            this.maxManagersBetween = maxManagersBetween;
         }
 
         public Employee getEmployee() {
@@ -52,89 +96,137 @@ public class ReportingLineAnalyzer {
             return reportingChain;
         }
 
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder();
-            sb.append(String.format("%s has a reporting line that is too long by %d level(s) ",
-                employee.getFullName(), excessManagers));
-            sb.append(String.format("(%d managers between employee and CEO, maximum is %d)%n",
-                managersCount, MAX_MANAGERS_BETWEEN));
-            sb.append("  Reporting chain: ");
-            
+        public int getMaxManagersBetween() {
+            return maxManagersBetween;
+        }
+
+        /**
+         * Writes the same text as {@link #toString()} straight to the output,
+         * without building the (possibly long) chain string first.
+         */
+        public void appendTo(Appendable out) throws IOException {
+            employee.appendFullName(out);
+            out.append(" has a reporting line that is too long by ")
+                .append(Integer.toString(excessManagers))
+                .append(" level(s) (")
+                .append(Integer.toString(managersCount))
+                .append(" managers between employee and CEO, maximum is ")
+                .append(Integer.toString(maxManagersBetween))
+                .append(')')
+                .append(System.lineSeparator())
+                .append("  Reporting chain: ");
+
             for (int i = 0; i < reportingChain.size(); i++) {
                 if (i > 0) {
-                    sb.append(" -> ");
+                    out.append(" -> ");
                 }
-                sb.append(reportingChain.get(i).getFullName());
+                reportingChain.get(i).appendFullName(out);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            try {
+                appendTo(sb);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // StringBuilder does not throw
             }
-            
             return sb.toString();
         }
     }
 
     public List<ReportingLineIssue> analyzeLongReportingLines() {
         List<ReportingLineIssue> issues = new ArrayList<>();
+        analyzeLongReportingLines(issues::add);
+        return issues;
+    }
+
+    /**
+     * Passes each issue to the consumer as soon as its reporting chain is
+     * built, in the same order as {@link #analyzeLongReportingLines()}
+     * returns them.
+     */
+    public void analyzeLongReportingLines(Consumer<? super ReportingLineIssue> issues) {
+        try (Metrics.Phase phase = Metrics.phase("analysis.reportingLines")) {
+            if (store != null) {
+                phase.rows(store.size());
+                new RuleEngine(store, pool).addRule(new ReportingLineRule(), issues).run();
+                return;
+            }
+
+            phase.rows(repository.getAllEmployees().size());
+            Set<Employee> tooDeep = findEmployeesTooDeep();
 
-        for (Employee employee : repository.getAllEmployees()) {
-            if (!employee.isCEO()) {
-                ReportingLineIssue issue = checkReportingLine(employee);
-                if (issue != null) {
-                    issues.add(issue);
+            // Report in employee order; chains are only built for the employees found above
+            for (Employee employee : repository.getAllEmployees()) {
+                if (tooDeep.contains(employee)) {
+                    issues.accept(createIssue(buildReportingChain(employee)));
                 }
             }
+            ReportingLineRule.ISSUES.add(tooDeep.size());
         }
-
-        return issues;
     }
 
-    private ReportingLineIssue checkReportingLine(Employee employee) {
-        List<Employee> reportingChain = buildReportingChain(employee);
-        
-        // Count managers between employee and CEO
-        // reportingChain includes: employee -> manager1 -> manager2 -> ... -> CEO
-        // So managers between = reportingChain.size() - 2 (exclude employee and CEO)
-        // But we want to count all managers in the chain up to CEO
-        // Let's reconsider: "managers between them and the CEO"
-        // If employee -> manager -> CEO, there is 1 manager between
-        // reportingChain = [employee, manager, CEO], size=3, managers between = 3-2 = 1
-        
-        int managersBetween = reportingChain.size() - 2;
+    /**
+     * Walks the hierarchy top-down from the CEO one level at a time, so every
+     * employee's depth is known after a single O(n) pass. Returns the employees
+     * with more than MAX_MANAGERS_BETWEEN managers between them and the CEO.
+     */
+    private Set<Employee> findEmployeesTooDeep() {
+        Set<Employee> tooDeep = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Employee> level = List.of(repository.getCEO());
+        int depth = 0;
+
+        while (!level.isEmpty()) {
+            List<Employee> nextLevel = new ArrayList<>();
+            for (Employee manager : level) {
+                nextLevel.addAll(repository.getDirectSubordinates(manager.getId()));
+            }
+            depth++;
 
-        if (managersBetween > MAX_MANAGERS_BETWEEN) {
-            return new ReportingLineIssue(employee, managersBetween, reportingChain);
+            // An employee at depth d has d - 1 managers between them and the CEO
+            if (depth - 1 > MAX_MANAGERS_BETWEEN) {
+                tooDeep.addAll(nextLevel);
+            }
+            level = nextLevel;
         }
 
-        return null;
+        return tooDeep;
+    }
+
+    /**
+     * Creates an issue from a chain [employee, manager1, ..., CEO].
+     * The managers between employee and CEO exclude both ends of the chain.
+     */
+    static ReportingLineIssue createIssue(List<Employee> reportingChain) {
+        int managersBetween = reportingChain.size() - 2;
+        return new ReportingLineIssue(reportingChain.get(0), managersBetween, reportingChain);
     }
 
     /**
      * Builds the reporting chain from employee to CEO.
      * Returns list: [employee, manager1, manager2, ..., CEO]
+     *
+     * The repository rejects circular reporting lines when loading, so every
+     * chain ends at the CEO regardless of how deep it is.
      */
     private List<Employee> buildReportingChain(Employee employee) {
         List<Employee> chain = new ArrayList<>();
         Employee current = employee;
 
-        // Prevent infinite loops in case of circular references
-        int maxIterations = 1000;
-        int iterations = 0;
-
-        while (current != null && iterations < maxIterations) {
+        while (current != null) {
             chain.add(current);
-            
+
             if (current.isCEO()) {
                 break;
             }
 
             current = repository.getEmployee(current.getManagerId());
-            iterations++;
-        }
-
-        if (iterations >= maxIterations) {
-            throw new IllegalStateException(
-                "Circular reference detected in reporting chain for employee: " + employee.getId());
         }
 
+        ReportingLineRule.CHAINS.increment();
+        ReportingLineRule.CHAIN_EMPLOYEES.add(chain.size());
         return chain;
     }
 }
@@ -0,0 +1,89 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+
+import java.util.AbstractList;
+import java.util.function.Consumer;
+
+/**
+ * Reports employees with more than a maximum number of managers between them
+ * and the CEO; by default {@link ReportingLineAnalyzer#MAX_MANAGERS_BETWEEN}.
+ */
+public class ReportingLineRule implements OrgRule<ReportingLineAnalyzer.ReportingLineIssue> {
+    static final Metrics.Counter ISSUES = Metrics.counter("issues.reportingLine");
+    static final Metrics.Counter CHAINS = Metrics.counter("chains.built");
+    static final Metrics.Counter CHAIN_EMPLOYEES = Metrics.counter("chains.employees");
+
+    private final int maxManagersBetween;
+
+    public ReportingLineRule() {
+        this(ReportingLineAnalyzer.MAX_MANAGERS_BETWEEN);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the maximum is negative
+     */
+    public ReportingLineRule(int maxManagersBetween) {
+        if (maxManagersBetween < 0) {
+            throw new IllegalArgumentException("Invalid maximum number of managers: " + maxManagersBetween);
+        }
+        this.maxManagersBetween = maxManagersBetween;
+    }
+
+    public int getMaxManagersBetween() {
+        return maxManagersBetween;
+    }
+
+    @Override
+    public boolean needsDepth() {
+        return true;
+    }
+
+    @Override
+    public void check(NodeContext node, Consumer<? super ReportingLineAnalyzer.ReportingLineIssue> issues) {
+        // An employee at depth d has d - 1 managers between them and the CEO
+        int managersBetween = node.depth() - 1;
+        if (managersBetween <= maxManagersBetween) {
+            return;
+        }
+
+        ColumnarEmployeeStore store = node.store();
+        int[] chain = new int[node.depth() + 1];
+        int length = 0;
+        for (int i = node.index(); i != ColumnarEmployeeStore.NO_MANAGER; i = store.manager(i)) {
+            chain[length++] = i;
+        }
+        ISSUES.increment();
+        CHAINS.increment();
+        CHAIN_EMPLOYEES.add(length);
+        issues.accept(new ReportingLineAnalyzer.ReportingLineIssue(node.toEmployee(), managersBetween,
+            new ReportingChain(store, chain), maxManagersBetween));
+    }
+
+    /**
+     * Reporting chain kept as store indexes; employees are created as the
+     * chain is read. Issues may be held until all salary issues are written,
+     * and an index per level is much smaller than an {@link Employee}.
+     */
+    private static final class ReportingChain extends AbstractList<Employee> {
+        private final ColumnarEmployeeStore store;
+        private final int[] chain;
+
+        ReportingChain(ColumnarEmployeeStore store, int[] chain) {
+            this.store = store;
+            this.chain = chain;
+        }
+
+        @Override
+        public Employee get(int index) {
+            return store.toEmployee(chain[index]);
+        }
+
+        @Override
+        public int size() {
+            return chain.length;
+        }
+    }
+}
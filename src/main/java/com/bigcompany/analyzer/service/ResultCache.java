@@ -0,0 +1,402 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.repository.ContentHash;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * On-disk cache of analysis results, so that analyzing an unchanged file
+ * again with the same thresholds reads the issues back instead of loading
+ * and checking the whole organization.
+ *
+ * Entries are keyed by the {@link ContentHash} of the input file and the
+ * thresholds of both rules; each is one file in the cache directory.
+ * Layout (big-endian):
+ * <pre>
+ * int     magic "BCAR"
+ * int     format version
+ * long    hash of the source CSV
+ * double  min salary ratio, double max salary ratio, int max managers between
+ * long    number of employees analyzed
+ * int     employee count e, then e x (string ID, first name, last name,
+ *         double salary, boolean has manager, [string manager ID])
+ * int     salary issue count, then per issue: int employee, double average
+ *         subordinate salary, double deviation, boolean underpaid,
+ *         double expected minimum, double expected maximum
+ * int     reporting-line issue count, then per issue: int employee,
+ *         int managers between, int chain length, int[] chain employees
+ * long    CRC32C of all preceding bytes
+ * </pre>
+ * Strings are an int length and UTF-8 bytes; employees are stored once and
+ * referred to by their position, since reporting chains share managers.
+ *
+ * Several processes can use the same directory at once. Entries are written
+ * to a temporary file and moved into place, so readers never see a partial
+ * entry, and a damaged or vanished entry is read as a miss. Reading an
+ * entry updates its modification time; when the entries grow beyond the
+ * size limit, the least recently used are deleted, under a lock on
+ * {@code cache.lock} so that only one process evicts at a time. Temporary
+ * files left behind by a writer that died are deleted by the next eviction
+ * once they are older than {@link #STALE_TEMP_MILLIS}.
+ */
+public final class ResultCache {
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x42434152; // "BCAR"
+    private static final int CHECKSUM_BYTES = 8;
+    private static final String FILE_SUFFIX = ".results";
+    private static final String LOCK_FILE = "cache.lock";
+    private static final String TEMP_SUFFIX = ".tmp";
+    /** Age after which a temporary file can no longer belong to a running write. */
+    static final long STALE_TEMP_MILLIS = 60 * 60 * 1000;
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * Opens a cache, creating the directory if needed.
+     *
+     * @param maxBytes total size of the entries to keep
+     */
+    public ResultCache(Path directory, long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The complete results of one analysis, with issues in report order.
+     */
+    public static final class Results {
+        private final long employees;
+        private final List<SalaryAnalyzer.SalaryIssue> salaryIssues;
+        private final List<ReportingLineAnalyzer.ReportingLineIssue> reportingLineIssues;
+
+        public Results(long employees, List<SalaryAnalyzer.SalaryIssue> salaryIssues,
+                       List<ReportingLineAnalyzer.ReportingLineIssue> reportingLineIssues) {
+            this.employees = employees;
+            this.salaryIssues = salaryIssues;
+            this.reportingLineIssues = reportingLineIssues;
+        }
+
+        /**
+         * Returns the number of employees that were analyzed.
+         */
+        public long getEmployees() {
+            return employees;
+        }
+
+        public List<SalaryAnalyzer.SalaryIssue> getSalaryIssues() {
+            return salaryIssues;
+        }
+
+        public List<ReportingLineAnalyzer.ReportingLineIssue> getReportingLineIssues() {
+            return reportingLineIssues;
+        }
+    }
+
+    /**
+     * Returns the cached results for a file and thresholds, or null if there
+     * are none.
+     *
+     * @param sourceHash {@link ContentHash} of the input file
+     */
+    public Results get(long sourceHash, SalaryRangeRule salaryRule, ReportingLineRule reportingLineRule) {
+        Path entry = entryFor(sourceHash, salaryRule, reportingLineRule);
+        byte[] data;
+        try (Metrics.Phase phase = Metrics.phase("cache.read")) {
+            data = Files.readAllBytes(entry);
+            phase.bytes(data.length);
+        } catch (IOException e) {
+            Metrics.count("cache.misses", 1);
+            return null;
+        }
+
+        Results results;
+        try {
+            results = decode(data, sourceHash, salaryRule, reportingLineRule);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable cache entry " + entry + ": " + e.getMessage());
+            Metrics.count("cache.misses", 1);
+            return null;
+        }
+
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Evicted meanwhile; the results are still valid
+        }
+        Metrics.count("cache.hits", 1);
+        return results;
+    }
+
+    /**
+     * Stores the results for a file and thresholds, then evicts the least
+     * recently used entries beyond the size limit.
+     *
+     * @param sourceHash {@link ContentHash} of the input file
+     */
+    public void put(long sourceHash, SalaryRangeRule salaryRule, ReportingLineRule reportingLineRule,
+                    Results results) throws IOException {
+        Path entry = entryFor(sourceHash, salaryRule, reportingLineRule);
+        Path temp = Files.createTempFile(directory, entry.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            try (Metrics.Phase phase = Metrics.phase("cache.write");
+                 OutputStream file = Files.newOutputStream(temp)) {
+                encode(file, sourceHash, salaryRule, reportingLineRule, results);
+                phase.bytes(Files.size(temp));
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evict();
+    }
+
+    /**
+     * Deletes stale temporary files, then the least recently used entries
+     * until the rest fit the size limit.
+     */
+    void evict() throws IOException {
+        // File locks are held per process, so threads of this one take turns first
+        synchronized (ResultCache.class) {
+            try (FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    deleteStaleTempFiles();
+                    evictEntries();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private void deleteStaleTempFiles() throws IOException {
+        long staleBefore = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + TEMP_SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < staleBefore) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (NoSuchFileException e) {
+                    // Moved into place meanwhile
+                }
+            }
+        }
+    }
+
+    private void evictEntries() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        Map<Path, FileTime> lastUsed = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    lastUsed.put(file, Files.getLastModifiedTime(file));
+                    sizes.put(file, Files.size(file));
+                } catch (NoSuchFileException e) {
+                    continue; // Replaced meanwhile
+                }
+                entries.add(file);
+                total += sizes.get(file);
+            }
+        }
+
+        entries.sort(Comparator.comparing(lastUsed::get));
+        for (int i = 0; i < entries.size() && total > maxBytes; i++) {
+            Files.deleteIfExists(entries.get(i));
+            total -= sizes.get(entries.get(i));
+            Metrics.count("cache.evictions", 1);
+        }
+    }
+
+    Path entryFor(long sourceHash, SalaryRangeRule salaryRule, ReportingLineRule reportingLineRule) {
+        ByteBuffer key = ByteBuffer.allocate(28)
+            .putLong(sourceHash)
+            .putDouble(salaryRule.getMinRatio())
+            .putDouble(salaryRule.getMaxRatio())
+            .putInt(reportingLineRule.getMaxManagersBetween());
+        return directory.resolve(String.format("%016x%s", ContentHash.of(key.array()), FILE_SUFFIX));
+    }
+
+    private static void encode(OutputStream file, long sourceHash, SalaryRangeRule salaryRule,
+                               ReportingLineRule reportingLineRule, Results results) throws IOException {
+        CRC32C crc = new CRC32C();
+        DataOutputStream out = new DataOutputStream(
+            new CheckedOutputStream(new BufferedOutputStream(file, 64 * 1024), crc));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(sourceHash);
+        out.writeDouble(salaryRule.getMinRatio());
+        out.writeDouble(salaryRule.getMaxRatio());
+        out.writeInt(reportingLineRule.getMaxManagersBetween());
+        out.writeLong(results.employees);
+
+        Map<String, Integer> positions = new HashMap<>();
+        List<Employee> employees = new ArrayList<>();
+        for (SalaryAnalyzer.SalaryIssue issue : results.salaryIssues) {
+            position(issue.getManager(), positions, employees);
+        }
+        for (ReportingLineAnalyzer.ReportingLineIssue issue : results.reportingLineIssues) {
+            position(issue.getEmployee(), positions, employees);
+            for (Employee employee : issue.getReportingChain()) {
+                position(employee, positions, employees);
+            }
+        }
+
+        out.writeInt(employees.size());
+        for (Employee employee : employees) {
+            writeString(out, employee.getId());
+            writeString(out, employee.getFirstName());
+            writeString(out, employee.getLastName());
+            out.writeDouble(employee.getSalary());
+            out.writeBoolean(!employee.isCEO());
+            if (!employee.isCEO()) {
+                writeString(out, employee.getManagerId());
+            }
+        }
+
+        out.writeInt(results.salaryIssues.size());
+        for (SalaryAnalyzer.SalaryIssue issue : results.salaryIssues) {
+            out.writeInt(positions.get(issue.getManager().getId()));
+            out.writeDouble(issue.getAverageSubordinateSalary());
+            out.writeDouble(issue.getDeviation());
+            out.writeBoolean(issue.isEarningTooLittle());
+            out.writeDouble(issue.getExpectedMinSalary());
+            out.writeDouble(issue.getExpectedMaxSalary());
+        }
+
+        out.writeInt(results.reportingLineIssues.size());
+        for (ReportingLineAnalyzer.ReportingLineIssue issue : results.reportingLineIssues) {
+            out.writeInt(positions.get(issue.getEmployee().getId()));
+            out.writeInt(issue.getManagersCount());
+            out.writeInt(issue.getReportingChain().size());
+            for (Employee employee : issue.getReportingChain()) {
+                out.writeInt(positions.get(employee.getId()));
+            }
+        }
+
+        out.flush();
+        out.writeLong(crc.getValue());
+        out.flush();
+    }
+
+    private static Results decode(byte[] data, long sourceHash, SalaryRangeRule salaryRule,
+                                  ReportingLineRule reportingLineRule) throws IOException {
+        int dataBytes = data.length - CHECKSUM_BYTES;
+        if (dataBytes < 0) {
+            throw new IOException("Truncated entry");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, dataBytes);
+        if (crc.getValue() != ByteBuffer.wrap(data, dataBytes, CHECKSUM_BYTES).getLong()) {
+            throw new IOException("Checksum mismatch");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, dataBytes));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a result cache entry");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+        // The file name is a hash of the key, so check the key itself
+        if (in.readLong() != sourceHash
+            || in.readDouble() != salaryRule.getMinRatio()
+            || in.readDouble() != salaryRule.getMaxRatio()
+            || in.readInt() != reportingLineRule.getMaxManagersBetween()) {
+            throw new IOException("Entry belongs to another input");
+        }
+        long analyzed = in.readLong();
+
+        Employee[] employees = new Employee[in.readInt()];
+        for (int i = 0; i < employees.length; i++) {
+            String id = readString(in);
+            String firstName = readString(in);
+            String lastName = readString(in);
+            double salary = in.readDouble();
+            String managerId = in.readBoolean() ? readString(in) : null;
+            employees[i] = new Employee(id, firstName, lastName, salary, managerId);
+        }
+
+        int salaryIssueCount = in.readInt();
+        List<SalaryAnalyzer.SalaryIssue> salaryIssues = new ArrayList<>(salaryIssueCount);
+        for (int i = 0; i < salaryIssueCount; i++) {
+            Employee manager = employees[in.readInt()];
+            double average = in.readDouble();
+            double deviation = in.readDouble();
+            boolean underpaid = in.readBoolean();
+            double expectedMin = in.readDouble();
+            double expectedMax = in.readDouble();
+            salaryIssues.add(new SalaryAnalyzer.SalaryIssue(manager, average, deviation, underpaid,
+                expectedMin, expectedMax));
+        }
+
+        int reportingIssueCount = in.readInt();
+        List<ReportingLineAnalyzer.ReportingLineIssue> reportingIssues = new ArrayList<>(reportingIssueCount);
+        for (int i = 0; i < reportingIssueCount; i++) {
+            Employee employee = employees[in.readInt()];
+            int managersBetween = in.readInt();
+            int length = in.readInt();
+            List<Employee> chain = new ArrayList<>(length);
+            for (int k = 0; k < length; k++) {
+                chain.add(employees[in.readInt()]);
+            }
+            reportingIssues.add(new ReportingLineAnalyzer.ReportingLineIssue(employee, managersBetween, chain,
+                reportingLineRule.getMaxManagersBetween()));
+        }
+        return new Results(analyzed, salaryIssues, reportingIssues);
+    }
+
+    private static void position(Employee employee, Map<String, Integer> positions, List<Employee> employees) {
+        if (positions.putIfAbsent(employee.getId(), employees.size()) == null) {
+            employees.add(employee);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new EOFException("Truncated string");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,264 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.LevelOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Checks any number of {@link OrgRule}s in a single pass over the columnar
+ * store.
+ *
+ * For every employee the engine computes the shared values of
+ * {@link NodeContext} once and then calls each rule in the order it was added.
+ * Each rule's issues go to that rule's consumer in employee (file) order, the
+ * same order a sequential scan produces even when ranges of employees are
+ * checked in parallel. Alternatively a rule's issues can be reduced with a
+ * {@link Collector}, e.g. {@link TopK#collector}, one partial result per range,
+ * so that only the partial results are held rather than all issues.
+ */
+public class RuleEngine {
+    private final ColumnarEmployeeStore store;
+    private final ForkJoinPool pool;
+    private final List<Binding<?>> bindings = new ArrayList<>();
+
+    /**
+     * Creates an engine that checks all employees on the calling thread.
+     */
+    public RuleEngine(ColumnarEmployeeStore store) {
+        this(store, null);
+    }
+
+    /**
+     * Creates an engine that checks ranges of employees in parallel on the
+     * given pool.
+     */
+    public RuleEngine(ColumnarEmployeeStore store, ForkJoinPool pool) {
+        this.store = store;
+        this.pool = pool;
+    }
+
+    /**
+     * Adds a rule whose issues are passed to {@code issues}.
+     *
+     * @return this engine
+     */
+    public <T> RuleEngine addRule(OrgRule<T> rule, Consumer<? super T> issues) {
+        bindings.add(new StreamingBinding<>(rule, issues));
+        return this;
+    }
+
+    /**
+     * Adds a rule whose issues are reduced with the collector. Each range of
+     * employees is collected into its own container, and the containers are
+     * combined in employee order. The finished result is passed to
+     * {@code result} at the end of {@link #run()}.
+     *
+     * @return this engine
+     */
+    public <T, A, R> RuleEngine collect(OrgRule<T> rule, Collector<? super T, A, R> collector,
+                                        Consumer<? super R> result) {
+        bindings.add(new CollectingBinding<>(rule, collector, result));
+        return this;
+    }
+
+    /**
+     * Checks every employee against every rule. Issues are passed on while the
+     * pass runs; with a pool, each range's issues are passed on once it and
+     * the ranges before it are done.
+     */
+    public void run() {
+        boolean needsDepth = false;
+        for (Binding<?> binding : bindings) {
+            needsDepth |= binding.rule.needsDepth();
+        }
+        LevelOrder levels = null;
+        if (needsDepth) {
+            try (Metrics.Phase phase = Metrics.phase("rules.depths")) {
+                phase.rows(store.size());
+                levels = store.levelOrder(pool);
+            }
+        }
+
+        try (Metrics.Phase phase = Metrics.phase("rules.scan")) {
+            phase.rows(store.size());
+            scan(levels);
+        }
+
+        for (Binding<?> binding : bindings) {
+            binding.complete();
+        }
+    }
+
+    private void scan(LevelOrder levels) {
+        ParallelScan.<Finding>scan(pool, store.size(), (from, to, findings) -> {
+            NodeContext node = new NodeContext(store, levels);
+            List<RangeCheck> checks = new ArrayList<>(bindings.size());
+            for (Binding<?> binding : bindings) {
+                checks.add(binding.startRange(findings));
+            }
+
+            for (int employee = from; employee < to; employee++) {
+                node.moveTo(employee);
+                for (int r = 0; r < checks.size(); r++) {
+                    checks.get(r).check(node);
+                }
+            }
+            for (RangeCheck check : checks) {
+                check.finish();
+            }
+        }, finding -> finding.binding.deliver(finding.value));
+    }
+
+    /**
+     * Checks one range of employees against one rule.
+     */
+    private interface RangeCheck {
+        void check(NodeContext node);
+
+        /**
+         * Called after the last employee of the range.
+         */
+        void finish();
+    }
+
+    /**
+     * A rule together with what becomes of its issues.
+     */
+    private abstract static class Binding<T> {
+        final OrgRule<T> rule;
+
+        Binding(OrgRule<T> rule) {
+            this.rule = rule;
+        }
+
+        /**
+         * Returns the check for one range. Values for the calling thread are
+         * tagged with this binding, so the values of all rules can travel
+         * through one ordered scan.
+         */
+        abstract RangeCheck startRange(Consumer<? super Finding> findings);
+
+        /**
+         * Receives, on the calling thread and in range order, the values the
+         * range checks passed on.
+         */
+        abstract void deliver(Object value);
+
+        /**
+         * Called on the calling thread once all ranges are delivered.
+         */
+        void complete() {
+        }
+    }
+
+    /**
+     * Passes every issue on as it is found.
+     */
+    private static final class StreamingBinding<T> extends Binding<T> {
+        private final Consumer<? super T> issues;
+
+        StreamingBinding(OrgRule<T> rule, Consumer<? super T> issues) {
+            super(rule);
+            this.issues = issues;
+        }
+
+        @Override
+        RangeCheck startRange(Consumer<? super Finding> findings) {
+            Consumer<T> tagged = issue -> findings.accept(new Finding(this, issue));
+            return new RangeCheck() {
+                @Override
+                public void check(NodeContext node) {
+                    rule.check(node, tagged);
+                }
+
+                @Override
+                public void finish() {
+                    // Every issue has been passed on already
+                }
+            };
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void deliver(Object issue) {
+            issues.accept((T) issue); // Only startRange creates findings for this binding
+        }
+    }
+
+    /**
+     * Collects each range's issues into a container and combines the
+     * containers in range order.
+     */
+    private static final class CollectingBinding<T, A, R> extends Binding<T> {
+        private final Supplier<A> supplier;
+        private final BiConsumer<A, ? super T> accumulator;
+        private final BinaryOperator<A> combiner;
+        private final Function<A, R> finisher;
+        private final Consumer<? super R> result;
+        private A combined;
+
+        CollectingBinding(OrgRule<T> rule, Collector<? super T, A, R> collector, Consumer<? super R> result) {
+            super(rule);
+            this.supplier = collector.supplier();
+            this.accumulator = collector.accumulator();
+            this.combiner = collector.combiner();
+            this.finisher = collector.finisher();
+            this.result = result;
+        }
+
+        @Override
+        RangeCheck startRange(Consumer<? super Finding> findings) {
+            A container = supplier.get();
+            Consumer<T> collecting = issue -> accumulator.accept(container, issue);
+            return new RangeCheck() {
+                @Override
+                public void check(NodeContext node) {
+                    rule.check(node, collecting);
+                }
+
+                @Override
+                public void finish() {
+                    findings.accept(new Finding(CollectingBinding.this, container));
+                }
+            };
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void deliver(Object container) {
+            A partial = (A) container; // Only startRange creates findings for this binding
+            combined = combined == null ? partial : combiner.apply(combined, partial);
+        }
+
+        @Override
+        void complete() {
+            A all = combined == null ? supplier.get() : combined;
+            combined = null;
+            result.accept(finisher.apply(all));
+        }
+    }
+
+    /**
+     * An issue or partial result on its way to the binding of the rule that
+     * produced it.
+     */
+    private static final class Finding {
+        private final Binding<?> binding;
+        private final Object value;
+
+        Finding(Binding<?> binding, Object value) {
+            this.binding = binding;
+            this.value = value;
+        }
+    }
+}
@@ -1,25 +1,54 @@
 package com.bigcompany.analyzer.service;
 
+import com.bigcompany.analyzer.metrics.Metrics;
 import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
 import com.bigcompany.analyzer.repository.EmployeeRepository;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * Analyzes manager salaries against their subordinates' average salaries.
- * 
- * Assumption: A manager should earn between 20% and 50% more than the 
- * average salary of their DIRECT subordinates only.
+ *
+ * Assumption: A manager should earn between 20% and 50% more than the
+ * average salary of their DIRECT subordinates only. Other ranges can be
+ * checked with a {@link SalaryRangeRule} in a {@link RuleEngine}.
  */
 public class SalaryAnalyzer {
-    private static final double MIN_SALARY_RATIO = 1.20; // 20% more
-    private static final double MAX_SALARY_RATIO = 1.50; // 50% more
+    private static final SalaryRangeRule DEFAULT_RULE = new SalaryRangeRule();
 
     private final EmployeeRepository repository;
+    private final ColumnarEmployeeStore store;
+    private final ForkJoinPool pool;
 
     public SalaryAnalyzer(EmployeeRepository repository) {
         this.repository = repository;
+        this.store = null;
+        this.pool = null;
+    }
+
+    /**
+     * Creates an analyzer that reads salaries and subordinates from the
+     * columnar store. Employee objects are only created for reported issues.
+     */
+    public SalaryAnalyzer(ColumnarEmployeeStore store) {
+        this(store, null);
+    }
+
+    /**
+     * Creates an analyzer over the columnar store that checks ranges of
+     * managers in parallel on the given pool. Issues are returned in the same
+     * order as a sequential scan.
+     */
+    public SalaryAnalyzer(ColumnarEmployeeStore store, ForkJoinPool pool) {
+        this.repository = null;
+        this.store = store;
+        this.pool = pool;
     }
 
     public static class SalaryIssue {
@@ -32,11 +61,20 @@ public class SalaryAnalyzer {
         private final boolean earningTooLittle;
 
         public SalaryIssue(Employee manager, double avgSubSalary, double deviation, boolean earningTooLittle) {
+            this(manager, avgSubSalary, deviation, earningTooLittle,
+                avgSubSalary * SalaryRangeRule.DEFAULT_MIN_RATIO, avgSubSalary * SalaryRangeRule.DEFAULT_MAX_RATIO);
+        }
+
+        /**
+         * Creates an issue for a salary range other than the default one.
+         */
+        public SalaryIssue(Employee manager, double avgSubSalary, double deviation, boolean earningTooLittle,
+                           double expectedMinSalary, double expectedMaxSalary) {
             this.manager = manager;
             this.currentSalary = manager.getSalary();
             this.averageSubordinateSalary = avgSubSalary;
-            this.expectedMinSalary = avgSubSalary * MIN_SALARY_RATIO;
-            this.expectedMaxSalary = avgSubSalary * MAX_SALARY_RATIO;
+            this.expectedMinSalary = expectedMinSalary;
+            this.expectedMaxSalary = expectedMaxSalary;
             this.deviation = deviation;
             this.earningTooLittle = earningTooLittle;
         }
@@ -53,67 +91,122 @@ public class SalaryAnalyzer {
             return earningTooLittle;
         }
 
-        @Override
-        public String toString() {
+        public double getCurrentSalary() {
+            return currentSalary;
+        }
+
+        public double getAverageSubordinateSalary() {
+            return averageSubordinateSalary;
+        }
+
+        public double getExpectedMinSalary() {
+            return expectedMinSalary;
+        }
+
+        public double getExpectedMaxSalary() {
+            return expectedMaxSalary;
+        }
+
+        /**
+         * Returns the minimum salary for an underpaid manager, or the maximum
+         * salary for an overpaid one.
+         */
+        public double getExpectedSalary() {
+            return earningTooLittle ? expectedMinSalary : expectedMaxSalary;
+        }
+
+        /**
+         * Writes the same text as {@link #toString()} straight to the output,
+         * without building the manager's full name first.
+         */
+        public void appendTo(Appendable out) throws IOException {
             String direction = earningTooLittle ? "less" : "more";
-            String expected = earningTooLittle ? 
-                String.format("%.2f", expectedMinSalary) : 
+            String expected = earningTooLittle ?
+                String.format("%.2f", expectedMinSalary) :
                 String.format("%.2f", expectedMaxSalary);
-            
-            return String.format("%s earns %s than they should by %.2f " +
+
+            manager.appendFullName(out);
+            out.append(String.format(" earns %s than they should by %.2f " +
                 "(current: %.2f, avg subordinate: %.2f, expected %s: %s)",
-                manager.getFullName(),
                 direction,
                 Math.abs(deviation),
                 currentSalary,
                 averageSubordinateSalary,
                 earningTooLittle ? "minimum" : "maximum",
-                expected);
+                expected));
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            try {
+                appendTo(sb);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // StringBuilder does not throw
+            }
+            return sb.toString();
         }
     }
 
     public List<SalaryIssue> analyzeManagerSalaries() {
         List<SalaryIssue> issues = new ArrayList<>();
+        analyzeManagerSalaries(issues::add);
+        return issues;
+    }
 
-        for (Employee employee : repository.getAllEmployees()) {
-            if (repository.isManager(employee.getId())) {
-                SalaryIssue issue = checkManagerSalary(employee);
-                if (issue != null) {
-                    issues.add(issue);
+    /**
+     * Passes each issue to the consumer as soon as it is found, in the same
+     * order as {@link #analyzeManagerSalaries()} returns them.
+     */
+    public void analyzeManagerSalaries(Consumer<? super SalaryIssue> issues) {
+        try (Metrics.Phase phase = Metrics.phase("analysis.salary")) {
+            if (store != null) {
+                phase.rows(store.size());
+                new RuleEngine(store, pool).addRule(DEFAULT_RULE, issues).run();
+                return;
+            }
+
+            phase.rows(repository.getAllEmployees().size());
+            long found = 0;
+            for (Employee employee : repository.getAllEmployees()) {
+                if (repository.isManager(employee.getId())) {
+                    SalaryIssue issue = checkManagerSalary(employee);
+                    if (issue != null) {
+                        found++;
+                        issues.accept(issue);
+                    }
                 }
             }
+            SalaryRangeRule.ISSUES.add(found);
         }
-
-        return issues;
     }
 
     private SalaryIssue checkManagerSalary(Employee manager) {
         List<Employee> subordinates = repository.getDirectSubordinates(manager.getId());
-        
+
         if (subordinates.isEmpty()) {
             return null; // No subordinates, no rule to check
         }
 
-        double avgSubordinateSalary = calculateAverageSalary(subordinates);
-        double minExpectedSalary = avgSubordinateSalary * MIN_SALARY_RATIO;
-        double maxExpectedSalary = avgSubordinateSalary * MAX_SALARY_RATIO;
-        double currentSalary = manager.getSalary();
-
-        if (currentSalary < minExpectedSalary) {
-            double deviation = minExpectedSalary - currentSalary;
-            return new SalaryIssue(manager, avgSubordinateSalary, deviation, true);
-        } else if (currentSalary > maxExpectedSalary) {
-            double deviation = currentSalary - maxExpectedSalary;
-            return new SalaryIssue(manager, avgSubordinateSalary, deviation, false);
-        }
+        return evaluate(manager, calculateAverageSalary(subordinates));
+    }
 
-        return null; // Salary is within acceptable range
+    /**
+     * Checks a manager's salary against the average salary of their direct
+     * subordinates.
+     *
+     * @return the issue, or null if the salary is within the acceptable range
+     */
+    public static SalaryIssue evaluate(Employee manager, double avgSubordinateSalary) {
+        return DEFAULT_RULE.evaluate(manager, avgSubordinateSalary);
     }
 
     private double calculateAverageSalary(List<Employee> employees) {
-        return employees.stream()
-            .mapToDouble(Employee::getSalary)
-            .average()
-            .orElse(0.0);
+        // Plain summation in subordinate order, identical to the columnar path
+        double total = 0;
+        for (Employee employee : employees) {
+            total += employee.getSalary();
+        }
+        return total / employees.size();
     }
 }
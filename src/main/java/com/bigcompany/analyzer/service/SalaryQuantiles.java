@@ -0,0 +1,206 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.LevelOrder;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Salary distributions of the organization, per level and per chosen
+ * subtree, kept as {@link KllSketch}es so that medians and high percentiles
+ * can be read off in bounded memory however large the organization is.
+ *
+ * Levels come from the store's shared {@link LevelOrder}, and one pass over
+ * that order gives every employee the nearest chosen subtree root above it
+ * (or itself). Salaries
+ * are then sketched in index ranges, in parallel when a pool is given, and
+ * the sketches of the ranges are merged in index order. Finally each chosen
+ * subtree, deepest first, is merged into the nearest chosen subtree above
+ * it, so that every subtree sketch covers all of its employees.
+ */
+public final class SalaryQuantiles {
+    private final KllSketch company;
+    private final KllSketch[] levels;
+    private final int[] subtreeRoots;
+    private final KllSketch[] subtrees;
+
+    private SalaryQuantiles(KllSketch company, KllSketch[] levels, int[] subtreeRoots, KllSketch[] subtrees) {
+        this.company = company;
+        this.levels = levels;
+        this.subtreeRoots = subtreeRoots;
+        this.subtrees = subtrees;
+    }
+
+    /**
+     * Sketches the salaries of a store.
+     *
+     * @param pool pool to sketch index ranges on, or null for the calling thread
+     * @param k accuracy parameter of every sketch; see {@link KllSketch}
+     * @param subtreeRoots store indexes of the employees whose subtrees get a sketch
+     * @throws IllegalArgumentException if k is too small, or a subtree root is
+     *         out of range or given twice
+     */
+    public static SalaryQuantiles of(ColumnarEmployeeStore store, ForkJoinPool pool, int k, int[] subtreeRoots) {
+        KllSketch.checkK(k);
+        int size = store.size();
+        int[] owners = new int[size];
+        Arrays.fill(owners, -1);
+        for (int slot = 0; slot < subtreeRoots.length; slot++) {
+            int root = subtreeRoots[slot];
+            if (root < 0 || root >= size || owners[root] >= 0) {
+                throw new IllegalArgumentException("Invalid or repeated subtree root: " + root);
+            }
+            owners[root] = slot;
+        }
+
+        try (Metrics.Phase phase = Metrics.phase("quantiles.sketch")) {
+            phase.rows(size);
+            LevelOrder levels = store.levelOrder(pool);
+            assignOwners(store, levels, owners);
+
+            Partial total = new Partial(k, levels.levelCount(), subtreeRoots.length);
+            ParallelScan.<Partial>scan(pool, size, (start, end, results) -> {
+                Partial partial = new Partial(k, levels.levelCount(), subtreeRoots.length);
+                for (int employee = start; employee < end; employee++) {
+                    partial.add(store.salary(employee), levels.depth(employee), owners[employee]);
+                }
+                results.accept(partial);
+            }, total::merge);
+
+            Integer[] deepestFirst = IntStream.range(0, subtreeRoots.length).boxed()
+                .sorted(Comparator.<Integer>comparingInt(slot -> levels.depth(subtreeRoots[slot])).reversed())
+                .toArray(Integer[]::new);
+            for (int slot : deepestFirst) {
+                int manager = store.manager(subtreeRoots[slot]);
+                if (manager != ColumnarEmployeeStore.NO_MANAGER && owners[manager] >= 0) {
+                    total.subtrees[owners[manager]].merge(total.subtrees[slot]);
+                }
+            }
+
+            KllSketch company = new KllSketch(k);
+            for (KllSketch level : total.levels) {
+                company.merge(level);
+            }
+            return new SalaryQuantiles(company, total.levels, subtreeRoots.clone(), total.subtrees);
+        }
+    }
+
+    /**
+     * Spreads each subtree root's slot in {@code owners} down to the
+     * employees under it, stopping at nested roots.
+     */
+    private static void assignOwners(ColumnarEmployeeStore store, LevelOrder levels, int[] owners) {
+        for (int position = 1; position < store.size(); position++) {
+            int employee = levels.employeeAt(position);
+            if (owners[employee] < 0) {
+                owners[employee] = owners[store.manager(employee)];
+            }
+        }
+    }
+
+    /**
+     * Returns the sketch of all salaries.
+     */
+    public KllSketch getCompany() {
+        return company;
+    }
+
+    /**
+     * Returns the number of levels: the deepest level plus one.
+     */
+    public int getLevels() {
+        return levels.length;
+    }
+
+    /**
+     * Returns the sketch of the salaries at a level, 0 being the CEO. The
+     * sketch is shared and must not be updated.
+     */
+    public KllSketch getLevel(int depth) {
+        return levels[depth];
+    }
+
+    /**
+     * Returns the store indexes of the subtree roots, in the order given.
+     */
+    public int[] getSubtreeRoots() {
+        return subtreeRoots.clone();
+    }
+
+    /**
+     * Returns the sketch of the salaries in the subtree of an employee,
+     * including the employee. The sketch is shared and must not be updated.
+     *
+     * @throws IllegalArgumentException if the employee's subtree was not sketched
+     */
+    public KllSketch getSubtree(int root) {
+        for (int slot = 0; slot < subtreeRoots.length; slot++) {
+            if (subtreeRoots[slot] == root) {
+                return subtrees[slot];
+            }
+        }
+        throw new IllegalArgumentException("No sketch for the subtree of " + root);
+    }
+
+    /**
+     * Sketches of one index range. A sketch is only created when the range
+     * has a salary for it, so a range costs memory for the levels and
+     * subtrees it touches rather than for all of them; on a long chain that
+     * is a handful of sketches instead of one per level. Every level and
+     * every chosen subtree has at least one employee, so once all ranges are
+     * merged none of the sketches is missing.
+     */
+    private static final class Partial {
+        private final int k;
+        private final KllSketch[] levels;
+        private final KllSketch[] subtrees;
+
+        Partial(int k, int levelCount, int subtreeCount) {
+            this.k = k;
+            levels = new KllSketch[levelCount];
+            subtrees = new KllSketch[subtreeCount];
+        }
+
+        void add(double salary, int depth, int owner) {
+            sketch(levels, depth).update(salary);
+            if (owner >= 0) {
+                sketch(subtrees, owner).update(salary);
+            }
+        }
+
+        /**
+         * Adds the sketches of a later range. The other partial is discarded
+         * afterwards, so a sketch missing here is taken over rather than copied.
+         */
+        void merge(Partial other) {
+            mergeInto(levels, other.levels);
+            mergeInto(subtrees, other.subtrees);
+        }
+
+        private KllSketch sketch(KllSketch[] sketches, int i) {
+            KllSketch sketch = sketches[i];
+            if (sketch == null) {
+                sketch = new KllSketch(k);
+                sketches[i] = sketch;
+            }
+            return sketch;
+        }
+
+        private static void mergeInto(KllSketch[] sketches, KllSketch[] others) {
+            for (int i = 0; i < sketches.length; i++) {
+                if (others[i] == null) {
+                    continue;
+                }
+                if (sketches[i] == null) {
+                    sketches[i] = others[i];
+                } else {
+                    sketches[i].merge(others[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+import com.bigcompany.analyzer.model.Employee;
+
+import java.util.function.Consumer;
+
+/**
+ * Reports managers whose salary is outside a range relative to the average
+ * salary of their direct subordinates. By default a manager should earn
+ * between 20% and 50% more than that average.
+ */
+public class SalaryRangeRule implements OrgRule<SalaryAnalyzer.SalaryIssue> {
+    public static final double DEFAULT_MIN_RATIO = 1.20; // 20% more
+    public static final double DEFAULT_MAX_RATIO = 1.50; // 50% more
+
+    static final Metrics.Counter ISSUES = Metrics.counter("issues.salary");
+
+    private final double minRatio;
+    private final double maxRatio;
+
+    public SalaryRangeRule() {
+        this(DEFAULT_MIN_RATIO, DEFAULT_MAX_RATIO);
+    }
+
+    /**
+     * Creates a rule with the given bounds, as multiples of the average
+     * subordinate salary.
+     *
+     * @throws IllegalArgumentException if the ratios are not positive or the
+     *         minimum is above the maximum
+     */
+    public SalaryRangeRule(double minRatio, double maxRatio) {
+        if (!(minRatio > 0) || !(maxRatio >= minRatio)) {
+            throw new IllegalArgumentException(
+                "Invalid salary ratio range: " + minRatio + " to " + maxRatio);
+        }
+        this.minRatio = minRatio;
+        this.maxRatio = maxRatio;
+    }
+
+    public double getMinRatio() {
+        return minRatio;
+    }
+
+    public double getMaxRatio() {
+        return maxRatio;
+    }
+
+    @Override
+    public void check(NodeContext node, Consumer<? super SalaryAnalyzer.SalaryIssue> issues) {
+        if (!node.isManager()) {
+            return; // No subordinates, no rule to check
+        }
+
+        double avgSubordinateSalary = node.averageSubordinateSalary();
+        if (isOutOfRange(node.salary(), avgSubordinateSalary)) {
+            ISSUES.increment();
+            issues.accept(evaluate(node.toEmployee(), avgSubordinateSalary));
+        }
+    }
+
+    /**
+     * Returns whether {@link #evaluate} reports an issue for this salary,
+     * without creating the {@link Employee}.
+     */
+    boolean isOutOfRange(double salary, double avgSubordinateSalary) {
+        return salary < avgSubordinateSalary * minRatio || salary > avgSubordinateSalary * maxRatio;
+    }
+
+    /**
+     * Checks a manager's salary against the average salary of their direct
+     * subordinates.
+     *
+     * @return the issue, or null if the salary is within the acceptable range
+     */
+    public SalaryAnalyzer.SalaryIssue evaluate(Employee manager, double avgSubordinateSalary) {
+        double minExpectedSalary = avgSubordinateSalary * minRatio;
+        double maxExpectedSalary = avgSubordinateSalary * maxRatio;
+        double currentSalary = manager.getSalary();
+
+        if (currentSalary < minExpectedSalary) {
+            double deviation = minExpectedSalary - currentSalary;
+            return new SalaryAnalyzer.SalaryIssue(manager, avgSubordinateSalary, deviation, true,
+                minExpectedSalary, maxExpectedSalary);
+        } else if (currentSalary > maxExpectedSalary) {
+            double deviation = currentSalary - maxExpectedSalary;
+            return new SalaryAnalyzer.SalaryIssue(manager, avgSubordinateSalary, deviation, false,
+                minExpectedSalary, maxExpectedSalary);
+        }
+
+        return null; // Salary is within acceptable range
+    }
+}
@@ -0,0 +1,120 @@
+package com.bigcompany.analyzer.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+/**
+ * Keeps the k greatest items offered to it, by a given order, in a bounded
+ * min-heap, and counts all items offered. Memory stays O(k) however many items
+ * are offered.
+ *
+ * Items that compare equal are ranked in the order they were offered, earlier
+ * first, so the result is the same whether the items were offered to one
+ * instance or split into consecutive partitions that were merged in order.
+ *
+ * @param <T> the type of item
+ */
+public final class TopK<T> implements Consumer<T> {
+    private final int k;
+    private final Comparator<? super T> order;
+    /** Smallest kept item first; among equal items the latest offered. */
+    private final PriorityQueue<Entry<T>> heap;
+    private long count;
+
+    /**
+     * @param k the number of items to keep
+     * @param order the order in which greater items are kept
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public TopK(int k, Comparator<? super T> order) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Number of items to keep must be positive: " + k);
+        }
+        this.k = k;
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, this::compare);
+    }
+
+    /**
+     * Returns a collector into a {@code TopK}. Partial results are merged in
+     * encounter order, as {@link RuleEngine#collect} does.
+     */
+    public static <T> Collector<T, TopK<T>, TopK<T>> collector(int k, Comparator<? super T> order) {
+        return Collector.of(() -> new TopK<>(k, order), TopK::accept, TopK::merge);
+    }
+
+    /**
+     * Offers an item; it is kept if it is among the k greatest so far.
+     */
+    @Override
+    public void accept(T item) {
+        offer(item, count++);
+    }
+
+    /**
+     * Adds the items of a partition that was offered its items after this
+     * one's, as if they had been offered to this instance.
+     *
+     * @return this instance
+     */
+    public TopK<T> merge(TopK<T> later) {
+        for (Entry<T> entry : later.heap) {
+            offer(entry.item, count + entry.sequence);
+        }
+        count += later.count;
+        return this;
+    }
+
+    /**
+     * Returns the number of items offered, including those not kept.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the kept items, greatest first.
+     */
+    public List<T> toList() {
+        List<Entry<T>> entries = new ArrayList<>(heap);
+        entries.sort(this::compare);
+
+        List<T> items = new ArrayList<>(entries.size());
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            items.add(entries.get(i).item);
+        }
+        return items;
+    }
+
+    private void offer(T item, long sequence) {
+        if (heap.size() < k) {
+            heap.add(new Entry<>(item, sequence));
+            return;
+        }
+        Entry<T> smallest = heap.peek();
+        int result = order.compare(item, smallest.item);
+        if (result > 0 || (result == 0 && sequence < smallest.sequence)) {
+            heap.poll();
+            heap.add(new Entry<>(item, sequence));
+        }
+    }
+
+    private int compare(Entry<T> a, Entry<T> b) {
+        int result = order.compare(a.item, b.item);
+        return result != 0 ? result : Long.compare(b.sequence, a.sequence);
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long sequence;
+
+        Entry(T item, long sequence) {
+            this.item = item;
+            this.sequence = sequence;
+        }
+    }
+}
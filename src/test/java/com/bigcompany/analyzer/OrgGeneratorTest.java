@@ -0,0 +1,115 @@
+package com.bigcompany.analyzer;
+
+import com.bigcompany.analyzer.repository.EmployeeRepository;
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrgGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWritesExactRowCount() throws IOException {
+        for (String distribution : List.of("fixed", "uniform", "geometric", "power-law")) {
+            Path csv = generate("--rows", "2345", "--fanout-distribution", distribution);
+
+            EmployeeRepository repository = new EmployeeRepository();
+            repository.loadFromFile(csv.toString());
+
+            assertEquals(2345, repository.getAllEmployees().size(), distribution);
+        }
+    }
+
+    @Test
+    void testSameSeedGivesSameFile() throws IOException {
+        Path first = generate("--rows", "500", "--seed", "7");
+        byte[] firstContents = Files.readAllBytes(first);
+        Path second = generate("--rows", "500", "--seed", "7");
+
+        assertArrayEquals(firstContents, Files.readAllBytes(second));
+    }
+
+    @Test
+    void testNoViolationsByDefault() throws IOException {
+        Path csv = generate("--rows", "5000");
+
+        EmployeeRepository repository = new EmployeeRepository();
+        repository.loadFromFile(csv.toString());
+
+        assertTrue(new SalaryAnalyzer(repository).analyzeManagerSalaries().isEmpty());
+        assertTrue(new ReportingLineAnalyzer(repository).analyzeLongReportingLines().isEmpty());
+    }
+
+    @Test
+    void testTruthMatchesAnalysis() throws IOException {
+        Path truth = tempDir.resolve("truth.csv");
+        Path csv = generate("--rows", "20000", "--max-depth", "7", "--fanout-distribution", "power-law",
+            "--salary-distribution", "lognormal", "--salary-violations", "0.1", "--depth-violations", "25",
+            "--truth", truth.toString());
+
+        EmployeeRepository repository = new EmployeeRepository();
+        repository.loadFromFile(csv.toString());
+
+        Set<String> expected = new HashSet<>();
+        for (SalaryAnalyzer.SalaryIssue issue : new SalaryAnalyzer(repository).analyzeManagerSalaries()) {
+            expected.add(String.format(Locale.ROOT, "salary,%s,%s,%.2f", issue.getManager().getId(),
+                issue.isEarningTooLittle() ? "underpaid" : "overpaid", issue.getDeviation()));
+        }
+        for (ReportingLineAnalyzer.ReportingLineIssue issue : new ReportingLineAnalyzer(repository).analyzeLongReportingLines()) {
+            expected.add("reporting_line," + issue.getEmployee().getId() + ",managers_between," + issue.getManagersCount());
+        }
+
+        List<String> lines = Files.readAllLines(truth);
+        assertEquals("issue,employeeId,detail,value", lines.get(0));
+        assertEquals(expected, new HashSet<>(lines.subList(1, lines.size())));
+        assertEquals(expected.size(), lines.size() - 1);
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("salary,")));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("reporting_line,")));
+    }
+
+    @Test
+    void testDepthViolationsInTinyOrganization() throws IOException {
+        Path truth = tempDir.resolve("truth.csv");
+        Path csv = generate("--rows", "12", "--depth-violations", "2", "--truth", truth.toString());
+
+        EmployeeRepository repository = new EmployeeRepository();
+        repository.loadFromFile(csv.toString());
+
+        assertEquals(12, repository.getAllEmployees().size());
+        assertEquals(2, new ReportingLineAnalyzer(repository).analyzeLongReportingLines().size());
+    }
+
+    @Test
+    void testInvalidOptionsThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> OrgGenerator.Options.parse(new String[] {"--rows", "10"}));
+        assertThrows(IllegalArgumentException.class, () -> OrgGenerator.Options.parse(new String[] {"--rows", "x", "out.csv"}));
+        assertThrows(IllegalArgumentException.class,
+            () -> OrgGenerator.Options.parse(new String[] {"--fanout-distribution", "zipf", "out.csv"}));
+        assertThrows(IllegalArgumentException.class,
+            () -> OrgGenerator.Options.parse(new String[] {"--rows", "5", "--depth-violations", "1", "out.csv"}));
+        assertThrows(IllegalArgumentException.class, () -> OrgGenerator.Options.parse(new String[] {"--rows"}));
+    }
+
+    private Path generate(String... args) throws IOException {
+        Path output = tempDir.resolve("generated.csv");
+        String[] allArgs = new String[args.length + 1];
+        System.arraycopy(args, 0, allArgs, 0, args.length);
+        allArgs[args.length] = output.toString();
+
+        new OrgGenerator(OrgGenerator.Options.parse(allArgs)).generate();
+        return output;
+    }
+}
@@ -0,0 +1,249 @@
+package com.bigcompany.analyzer;
+
+import com.bigcompany.analyzer.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrganizationalAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testParseOptions() {
+        OrganizationalAnalyzer.Options options = OrganizationalAnalyzer.Options.parse(
+            new String[] {"--concurrent", "--no-snapshot", "employees.csv"});
+
+        assertEquals("employees.csv", options.getFilePath());
+        assertTrue(options.isConcurrent());
+        assertFalse(options.isUseSnapshot());
+        assertFalse(options.isMetrics());
+        assertFalse(options.isOffHeap());
+        assertTrue(OrganizationalAnalyzer.Options.parse(new String[] {"--off-heap", "employees.csv"}).isOffHeap());
+        assertTrue(OrganizationalAnalyzer.Options.parse(new String[] {"--metrics", "employees.csv"}).isMetrics());
+        assertThrows(IllegalArgumentException.class,
+            () -> OrganizationalAnalyzer.Options.parse(new String[] {"--unknown", "employees.csv"}));
+        assertThrows(IllegalArgumentException.class,
+            () -> OrganizationalAnalyzer.Options.parse(new String[] {"--concurrent"}));
+        assertThrows(IllegalArgumentException.class,
+            () -> OrganizationalAnalyzer.Options.parse(new String[] {"--format", "xml", "employees.csv"}));
+        assertThrows(IllegalArgumentException.class,
+            () -> OrganizationalAnalyzer.Options.parse(new String[] {"employees.csv", "--output"}));
+        assertThrows(IllegalArgumentException.class,
+            () -> OrganizationalAnalyzer.Options.parse(new String[] {"--top", "0", "employees.csv"}));
+        assertEquals(-1, options.getServePort());
+        assertEquals(8080, OrganizationalAnalyzer.Options.parse(
+            new String[] {"--serve", "8080", "employees.csv"}).getServePort());
+        assertThrows(IllegalArgumentException.class,
+            () -> OrganizationalAnalyzer.Options.parse(new String[] {"--serve", "70000", "employees.csv"}));
+        assertTrue(OrganizationalAnalyzer.Options.parse(
+            new String[] {"--serve", "0", "--watch", "employees.csv"}).isWatch());
+        assertThrows(IllegalArgumentException.class,
+            () -> OrganizationalAnalyzer.Options.parse(new String[] {"--watch", "employees.csv"}));
+    }
+
+    @Test
+    void testParseMemoryBudget() {
+        assertEquals(0, OrganizationalAnalyzer.Options.parse(new String[] {"employees.csv"}).getMemoryBudget());
+        assertEquals(512L << 20, OrganizationalAnalyzer.Options.parse(
+            new String[] {"--memory-budget", "512m", "employees.csv"}).getMemoryBudget());
+        assertEquals(2L << 30, OrganizationalAnalyzer.Options.parse(
+            new String[] {"--memory-budget", "2G", "employees.csv"}).getMemoryBudget());
+        assertEquals(Path.of("spill"), OrganizationalAnalyzer.Options.parse(
+            new String[] {"--spill-dir", "spill", "employees.csv"}).getSpillDirectory());
+        assertThrows(IllegalArgumentException.class, () -> OrganizationalAnalyzer.Options.parse(
+            new String[] {"--memory-budget", "0", "employees.csv"}));
+        assertThrows(IllegalArgumentException.class, () -> OrganizationalAnalyzer.Options.parse(
+            new String[] {"--memory-budget", "lots", "employees.csv"}));
+    }
+
+    @Test
+    void testParseThresholds() {
+        OrganizationalAnalyzer.Options options = OrganizationalAnalyzer.Options.parse(new String[] {
+            "--min-salary-ratio", "1.1", "--max-salary-ratio", "1.6", "--max-managers-between", "6", "employees.csv"});
+
+        assertEquals(1.1, options.getSalaryRule().getMinRatio());
+        assertEquals(1.6, options.getSalaryRule().getMaxRatio());
+        assertEquals(6, options.getReportingLineRule().getMaxManagersBetween());
+        assertThrows(IllegalArgumentException.class, () -> OrganizationalAnalyzer.Options.parse(
+            new String[] {"--min-salary-ratio", "1.6", "--max-salary-ratio", "1.5", "employees.csv"}));
+        assertThrows(IllegalArgumentException.class, () -> OrganizationalAnalyzer.Options.parse(
+            new String[] {"--max-managers-between", "-1", "employees.csv"}));
+        assertThrows(IllegalArgumentException.class, () -> OrganizationalAnalyzer.Options.parse(
+            new String[] {"--max-salary-ratio", "high", "employees.csv"}));
+    }
+
+    @Test
+    void testConcurrentOutputMatchesSequential() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "100000", "--max-depth", "7", "--salary-violations", "0.05", csvFile.toString()})).generate();
+
+        String sequential = captureOutput(csvFile, "--no-snapshot");
+        String concurrent = captureOutput(csvFile, "--no-snapshot", "--concurrent");
+
+        assertTrue(sequential.contains("Employees with reporting lines that are TOO LONG"));
+        assertEquals(sequential, concurrent);
+        assertEquals(sequential, captureOutput(csvFile, "--off-heap", "--concurrent"));
+    }
+
+    @Test
+    void testTopReportsWorstIssuesWithFullTotals() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "50000", "--fanout", "4", "--salary-violations", "0.05", "--depth-violations", "30", csvFile.toString()})).generate();
+
+        List<String> all = List.of(captureOutput(csvFile, "--no-snapshot", "--format", "csv").split("\n"));
+        List<String> top = List.of(
+            captureOutput(csvFile, "--no-snapshot", "--concurrent", "--format", "csv", "--top", "5").split("\n"));
+        assertEquals(11, top.size());
+
+        // Columns 6 and 8 hold the deviation and the number of managers between
+        Comparator<String> deviation = Comparator.comparingDouble(row -> Double.parseDouble(row.split(",")[6]));
+        List<String> expectedSalary = all.stream().filter(row -> row.startsWith("salary,"))
+            .sorted(deviation.reversed()).limit(5).toList();
+        assertEquals(expectedSalary, top.subList(1, 6));
+        int longest = all.stream().filter(row -> row.startsWith("reporting_line,"))
+            .mapToInt(row -> Integer.parseInt(row.split(",")[8])).max().orElseThrow();
+        assertEquals(longest, Integer.parseInt(top.get(6).split(",")[8]));
+
+        String fullText = captureOutput(csvFile, "--no-snapshot");
+        String topText = captureOutput(csvFile, "--no-snapshot", "--top", "5");
+        String salaryTotal = fullText.lines().filter(line -> line.contains("underpaid,")).findFirst().orElseThrow();
+        assertTrue(topText.contains(salaryTotal + System.lineSeparator() + "Showing the 5 largest deviations."));
+    }
+
+    @Test
+    void testMemoryBudgetOutputMatchesInMemory() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "20000", "--fanout", "4", "--salary-violations", "0.05", "--depth-violations", "30", csvFile.toString()})).generate();
+        Path spill = tempDir.resolve("spill");
+
+        for (String format : List.of("text", "csv")) {
+            assertEquals(captureOutput(csvFile, "--no-snapshot", "--format", format),
+                captureOutput(csvFile, "--memory-budget", "256k", "--spill-dir", spill.toString(), "--format", format));
+            assertEquals(captureOutput(csvFile, "--no-snapshot", "--format", format, "--top", "5"),
+                captureOutput(csvFile, "--memory-budget", "256k", "--spill-dir", spill.toString(), "--format", format,
+                    "--top", "5"));
+        }
+        try (Stream<Path> files = Files.list(spill)) {
+            assertEquals(0, files.count());
+        }
+        assertFalse(Files.exists(tempDir.resolve("generated.csv.snapshot")));
+    }
+
+    /**
+     * Runs a deep organization in a separate JVM whose heap is far smaller
+     * than the issues it reports, so they must be written as they are found.
+     */
+    @Test
+    void testMemoryBudgetReportFitsSmallHeap() throws Exception {
+        Path csvFile = tempDir.resolve("deep.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "50000", "--max-depth", "12", "--fanout", "3", "--seed", "29", csvFile.toString()})).generate();
+        Path report = tempDir.resolve("report.txt");
+        Path cache = tempDir.resolve("cache");
+
+        Process process = new ProcessBuilder(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-Xmx32m", "-cp", System.getProperty("java.class.path"), OrganizationalAnalyzer.class.getName(),
+            "--memory-budget", "2m", "--spill-dir", tempDir.resolve("spill").toString(),
+            "--cache-dir", cache.toString(), "--output", report.toString(), csvFile.toString())
+            .redirectErrorStream(true)
+            .redirectOutput(tempDir.resolve("console.txt").toFile())
+            .start();
+
+        assertEquals(0, process.waitFor(), () -> readString(tempDir.resolve("console.txt")));
+        Path expected = tempDir.resolve("expected.txt");
+        captureOutput(csvFile, "--no-snapshot", "--output", expected.toString());
+        assertEquals(-1, Files.mismatch(expected, report));
+        assertFalse(Files.exists(cache));
+    }
+
+    @Test
+    void testCachedResultsMatchFreshAnalysis() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "3000", "--max-depth", "6", "--salary-violations", "0.05", "--depth-violations", "20",
+            "--seed", "23", csvFile.toString()})).generate();
+        String cache = tempDir.resolve("cache").toString();
+
+        for (String format : new String[] {"text", "csv", "json"}) {
+            String fresh = captureOutput(csvFile, "--no-snapshot", "--format", format);
+            assertEquals(fresh, captureOutput(csvFile, "--no-snapshot", "--cache-dir", cache, "--format", format));
+
+            // The second run reads the results back without loading the file
+            Metrics.reset();
+            assertEquals(fresh, captureOutput(csvFile, "--no-snapshot", "--cache-dir", cache, "--format", format));
+            assertEquals(0, Metrics.runs("csv.parse"));
+            assertEquals(1, Metrics.counter("cache.hits").get());
+
+            assertEquals(captureOutput(csvFile, "--no-snapshot", "--format", format, "--top", "5"),
+                captureOutput(csvFile, "--cache-dir", cache, "--format", format, "--top", "5"));
+        }
+
+        // Other thresholds are a separate entry
+        Metrics.reset();
+        assertEquals(captureOutput(csvFile, "--no-snapshot", "--max-managers-between", "5"),
+            captureOutput(csvFile, "--cache-dir", cache, "--max-managers-between", "5"));
+        assertEquals(0, Metrics.counter("cache.hits").get());
+    }
+
+    @Test
+    void testWritesReportInRequestedFormatToFile() throws IOException {
+        Path csvFile = tempDir.resolve("employees.csv");
+        Files.write(csvFile, List.of(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "300,Alice,Hasacat,50000,124"
+        ));
+        Path report = tempDir.resolve("report.ndjson");
+
+        String console = captureOutput(csvFile, "--no-snapshot", "--format", "ndjson", "--output", report.toString());
+
+        assertEquals("", console);
+        List<String> lines = Files.readAllLines(report);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"type\":\"salary\",\"employeeId\":\"124\""));
+        assertTrue(lines.get(1).startsWith("{\"type\":\"summary\""));
+    }
+
+    private static String readString(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException e) {
+            return e.toString();
+        }
+    }
+
+    private static String captureOutput(Path csvFile, String... flags) throws IOException {
+        String[] args = new String[flags.length + 1];
+        System.arraycopy(flags, 0, args, 0, flags.length);
+        args[flags.length] = csvFile.toString();
+        OrganizationalAnalyzer.Options options = OrganizationalAnalyzer.Options.parse(args);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            new OrganizationalAnalyzer(options).analyze(options.getFilePath());
+        } finally {
+            System.setOut(originalOut);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,125 @@
+package com.bigcompany.analyzer.metrics;
+
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.EmployeeRepository;
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    @AfterEach
+    void resetMetrics() {
+        Metrics.reset();
+    }
+
+    @Test
+    void testPhasesAccumulateRunsAndRows() throws IOException {
+        try (Metrics.Phase phase = Metrics.phase("test.phase")) {
+            phase.rows(10).bytes(100);
+        }
+        try (Metrics.Phase phase = Metrics.phase("test.phase")) {
+            phase.rows(5);
+        }
+
+        assertEquals(2, Metrics.runs("test.phase"));
+        assertEquals(15, Metrics.rows("test.phase"));
+        assertEquals(0, Metrics.runs("test.other"));
+
+        StringBuilder report = new StringBuilder();
+        Metrics.report(report);
+        assertTrue(report.toString().startsWith("METRICS"));
+        assertTrue(report.toString().contains("in 2 runs, 15 rows"));
+        assertTrue(report.toString().contains("100 bytes"));
+    }
+
+    @Test
+    void testCountersAreSharedByName() throws IOException {
+        Metrics.Counter counter = Metrics.counter("test.counter");
+        counter.increment();
+        Metrics.count("test.counter", 4);
+
+        assertSame(counter, Metrics.counter("test.counter"));
+        assertEquals(5, counter.get());
+
+        Metrics.reset();
+        assertEquals(0, counter.get());
+        StringBuilder report = new StringBuilder();
+        Metrics.report(report);
+        assertFalse(report.toString().contains("test.counter"), "Counters at 0 are not reported");
+    }
+
+    @Test
+    void testPhasesAreEmittedWhileRecording() throws IOException {
+        Path file = tempDir.resolve("metrics.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.bigcompany.analyzer.Phase");
+            recording.start();
+            try (Metrics.Phase phase = Metrics.phase("test.recorded")) {
+                phase.rows(3);
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertTrue(events.stream().anyMatch(event ->
+            event.getEventType().getName().equals("com.bigcompany.analyzer.Phase")
+                && event.getString("phase").equals("test.recorded") && event.getLong("rows") == 3));
+    }
+
+    @Test
+    void testLoadingAndAnalysisAreRecorded() throws IOException {
+        Path csvFile = tempDir.resolve("employees.csv");
+        Files.writeString(csvFile, String.join("\n",
+            "Id,firstName,lastName,salary,managerId",
+            "1,Joe,Doe,60000,",
+            "2,Martin,Chekov,45000,1",
+            "3,Bob,Ronstad,47000,2",
+            "4,Alice,Hasacat,50000,3",
+            "5,Brett,Hardleaf,34000,4",
+            "6,Anna,Long,30000,5",
+            "7,Tim,Deep,30000,6"));
+
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+        int salaryIssues = new SalaryAnalyzer(store).analyzeManagerSalaries().size();
+        int reportingIssues = new ReportingLineAnalyzer(store).analyzeLongReportingLines().size();
+
+        assertEquals(7, Metrics.rows("csv.parse"));
+        assertEquals(1, Metrics.runs("store.build"));
+        assertEquals(1, Metrics.runs("analysis.salary"));
+        assertEquals(1, Metrics.runs("rules.depths"), "Only the reporting line rule needs depths");
+        assertEquals(2, Metrics.runs("rules.scan"));
+        assertEquals(salaryIssues, Metrics.counter("issues.salary").get());
+        assertEquals(1, reportingIssues);
+        assertEquals(1, Metrics.counter("chains.built").get());
+        assertEquals(7, Metrics.counter("chains.employees").get());
+
+        // The repository analyzers count under the same names
+        Metrics.reset();
+        EmployeeRepository repository = new EmployeeRepository();
+        repository.loadFromFile(csvFile.toString());
+        new SalaryAnalyzer(repository).analyzeManagerSalaries();
+        new ReportingLineAnalyzer(repository).analyzeLongReportingLines();
+        assertEquals(salaryIssues, Metrics.counter("issues.salary").get());
+        assertEquals(1, Metrics.counter("issues.reportingLine").get());
+    }
+}
@@ -0,0 +1,163 @@
+package com.bigcompany.analyzer.report;
+
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.service.ReportingLineAnalyzer;
+import com.bigcompany.analyzer.service.ReportingLineRule;
+import com.bigcompany.analyzer.service.SalaryAnalyzer;
+import com.bigcompany.analyzer.service.SalaryRangeRule;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportSinkTest {
+    private static final String NL = System.lineSeparator();
+
+    private final Employee ceo = new Employee("1", "Joe", "Doe", 60000, null);
+    private final Employee martin = new Employee("2", "Martin", "Chekov", 45000, "1");
+    private final Employee quoted = new Employee("3", "Ann \"Q\"", "Smith, Jr", 99000, "2");
+
+    @Test
+    void testTextMatchesConsoleReport() throws IOException {
+        SalaryAnalyzer.SalaryIssue overpaid = SalaryAnalyzer.evaluate(quoted, 50000);
+        SalaryAnalyzer.SalaryIssue underpaid = SalaryAnalyzer.evaluate(martin, 50000);
+        ReportingLineAnalyzer.ReportingLineIssue deep = deepIssue();
+
+        String text = write(ReportFormat.TEXT, List.of(overpaid, underpaid), List.of(deep));
+
+        // Underpaid managers are listed first, even if an overpaid one was found earlier
+        assertTrue(text.indexOf("Managers earning LESS") < text.indexOf("Managers earning MORE"));
+        assertTrue(text.contains("  • " + underpaid + NL));
+        assertTrue(text.contains("Total issues found: 2 (1 underpaid, 1 overpaid)" + NL));
+        assertTrue(text.contains("  • " + deep + NL + NL + "Total issues found: 1" + NL));
+        assertTrue(text.endsWith("ANALYSIS COMPLETE" + NL + "=".repeat(80) + NL));
+    }
+
+    @Test
+    void testTextWithoutIssues() throws IOException {
+        String text = write(ReportFormat.TEXT, List.of(), List.of());
+
+        assertTrue(text.contains("✓ All manager salaries are within acceptable range"));
+        assertTrue(text.contains("✓ All employees have acceptable reporting line length"));
+        assertFalse(text.contains("Total issues found"));
+    }
+
+    @Test
+    void testTextStatesConfiguredThresholds() throws IOException {
+        StringWriter out = new StringWriter();
+        ReportSink sink = ReportFormat.TEXT.createSink(out, new SalaryRangeRule(1.125, 1.6), new ReportingLineRule(6));
+        sink.start();
+        sink.endSalaryIssues(0, 0);
+        sink.finish(0);
+
+        assertTrue(out.toString().contains("within acceptable range (12.5%-60% above average)."));
+        assertTrue(out.toString().contains("acceptable reporting line length (max 6 managers)."));
+    }
+
+    @Test
+    void testTextStatesHowManyIssuesAreShown() throws IOException {
+        StringWriter out = new StringWriter();
+        ReportSink sink = ReportFormat.TEXT.createSink(out);
+        sink.start();
+        sink.salaryIssue(SalaryAnalyzer.evaluate(quoted, 50000));
+        sink.endSalaryIssues(40, 60);
+        sink.reportingLineIssue(deepIssue());
+        sink.finish(7);
+
+        String text = out.toString();
+        assertTrue(text.contains("Total issues found: 100 (40 underpaid, 60 overpaid)" + NL
+            + "Showing the 1 largest deviations." + NL));
+        assertTrue(text.contains("Total issues found: 7" + NL + "Showing the 1 longest reporting lines." + NL));
+    }
+
+    @Test
+    void testSummaryUsesTotals() throws IOException {
+        StringWriter out = new StringWriter();
+        ReportSink sink = ReportFormat.NDJSON.createSink(out);
+        sink.start();
+        sink.salaryIssue(SalaryAnalyzer.evaluate(quoted, 50000));
+        sink.endSalaryIssues(40, 60);
+        sink.finish(7);
+
+        assertTrue(out.toString().endsWith("{\"type\":\"summary\",\"counts\":{\"salaryIssues\":100,"
+            + "\"underpaid\":40,\"overpaid\":60,\"reportingLineIssues\":7}}\n"));
+    }
+
+    @Test
+    void testNdjsonWritesOneObjectPerLine() throws IOException {
+        String ndjson = write(ReportFormat.NDJSON, List.of(SalaryAnalyzer.evaluate(quoted, 50000)), List.of(deepIssue()));
+
+        String[] lines = ndjson.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("{\"type\":\"salary\",\"employeeId\":\"3\",\"name\":\"Ann \\\"Q\\\" Smith, Jr\",\"salary\":99000.0,"
+            + "\"averageSubordinateSalary\":50000.0,\"expectedSalary\":75000.0,\"deviation\":24000.0,"
+            + "\"direction\":\"overpaid\"}", lines[0]);
+        assertEquals("{\"type\":\"reporting_line\",\"employeeId\":\"7\",\"name\":\"Deep Employee\",\"managersBetween\":5,"
+            + "\"excessManagers\":1,\"reportingChain\":[\"7\",\"6\",\"5\",\"4\",\"3\",\"2\",\"1\"]}", lines[1]);
+        assertEquals("{\"type\":\"summary\",\"counts\":{\"salaryIssues\":1,\"underpaid\":0,\"overpaid\":1,"
+            + "\"reportingLineIssues\":1}}", lines[2]);
+    }
+
+    @Test
+    void testJsonDocument() throws IOException {
+        String json = write(ReportFormat.JSON,
+            List.of(SalaryAnalyzer.evaluate(martin, 50000), SalaryAnalyzer.evaluate(quoted, 50000)), List.of());
+
+        assertTrue(json.startsWith("{\"salaryIssues\":[\n{\"type\":\"salary\",\"employeeId\":\"2\""));
+        assertTrue(json.contains("},\n{\"type\":\"salary\",\"employeeId\":\"3\""));
+        assertTrue(json.endsWith("\n],\"reportingLineIssues\":[\n],\"summary\":{\"salaryIssues\":2,\"underpaid\":1,"
+            + "\"overpaid\":1,\"reportingLineIssues\":0}}\n"));
+    }
+
+    @Test
+    void testCsvQuotesFields() throws IOException {
+        String csv = write(ReportFormat.CSV, List.of(SalaryAnalyzer.evaluate(quoted, 50000)), List.of(deepIssue()));
+
+        String[] lines = csv.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("type,employeeId,name,salary,averageSubordinateSalary,expectedSalary,deviation,direction,"
+            + "managersBetween,excessManagers,reportingChain", lines[0]);
+        assertEquals("salary,3,\"Ann \"\"Q\"\" Smith, Jr\",99000.0,50000.0,75000.0,24000.0,overpaid,,,", lines[1]);
+        assertEquals("reporting_line,7,Deep Employee,,,,,,5,1,7>6>5>4>3>2>1", lines[2]);
+    }
+
+    @Test
+    void testParseFormat() {
+        assertEquals(ReportFormat.NDJSON, ReportFormat.parse("ndjson"));
+        assertEquals(ReportFormat.CSV, ReportFormat.parse("CSV"));
+        assertThrows(IllegalArgumentException.class, () -> ReportFormat.parse("xml"));
+    }
+
+    private ReportingLineAnalyzer.ReportingLineIssue deepIssue() {
+        List<Employee> chain = new ArrayList<>();
+        chain.add(new Employee("7", "Deep", "Employee", 20000, "6"));
+        for (int id = 6; id >= 3; id--) {
+            chain.add(new Employee(Integer.toString(id), "Manager", Integer.toString(id), 30000, Integer.toString(id - 1)));
+        }
+        chain.add(martin);
+        chain.add(ceo);
+        return new ReportingLineAnalyzer.ReportingLineIssue(chain.get(0), chain.size() - 2, chain);
+    }
+
+    private static String write(ReportFormat format, List<SalaryAnalyzer.SalaryIssue> salaryIssues,
+                                List<ReportingLineAnalyzer.ReportingLineIssue> reportingLineIssues) throws IOException {
+        StringWriter out = new StringWriter();
+        ReportSink sink = format.createSink(out);
+        sink.start();
+        long underpaid = 0;
+        for (SalaryAnalyzer.SalaryIssue issue : salaryIssues) {
+            sink.salaryIssue(issue);
+            underpaid += issue.isEarningTooLittle() ? 1 : 0;
+        }
+        sink.endSalaryIssues(underpaid, salaryIssues.size() - underpaid);
+        for (ReportingLineAnalyzer.ReportingLineIssue issue : reportingLineIssues) {
+            sink.reportingLineIssue(issue);
+        }
+        sink.finish(reportingLineIssues.size());
+        return out.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.OrgGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AncestorIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMatchesChainWalks() throws IOException {
+        ColumnarEmployeeStore store = generate();
+        AncestorIndex index = AncestorIndex.of(store);
+        int[] path = new int[64];
+        Random random = new Random(7);
+
+        for (int n = 0; n < 5000; n++) {
+            int first = random.nextInt(store.size());
+            int second = n % 10 == 0 ? first : random.nextInt(store.size());
+            List<Integer> firstChain = chain(store, first);
+            List<Integer> secondChain = chain(store, second);
+
+            int common = -1;
+            for (int employee : firstChain) {
+                if (secondChain.contains(employee)) {
+                    common = employee;
+                    break;
+                }
+            }
+            int firstHops = firstChain.indexOf(common);
+            int secondHops = secondChain.indexOf(common);
+
+            assertEquals(firstChain.size() - 1, index.depth(first));
+            assertEquals(common, index.lowestCommonManager(first, second));
+            assertEquals(firstHops + secondHops, index.distance(first, second));
+
+            int length = index.path(first, second, path);
+            List<Integer> expected = new ArrayList<>(firstChain.subList(0, firstHops + 1));
+            for (int i = secondHops - 1; i >= 0; i--) {
+                expected.add(secondChain.get(i));
+            }
+            assertEquals(expected.size(), length);
+            for (int i = 0; i < length; i++) {
+                assertEquals(expected.get(i), path[i]);
+            }
+
+            for (int k = 0; k < firstChain.size(); k++) {
+                assertEquals(firstChain.get(k), index.ancestor(first, k));
+            }
+            assertEquals(ColumnarEmployeeStore.NO_MANAGER, index.ancestor(first, firstChain.size()));
+        }
+    }
+
+    @Test
+    void testBatchMatchesSingleQueries() throws IOException {
+        ColumnarEmployeeStore store = generate();
+        AncestorIndex index = AncestorIndex.of(store);
+        Random random = new Random(11);
+        int pairs = 50_000;
+        int[] first = random.ints(pairs, 0, store.size()).toArray();
+        int[] second = random.ints(pairs, 0, store.size()).toArray();
+        int[] common = new int[pairs];
+        int[] distances = new int[pairs];
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            index.lowestCommonManagers(first, second, common, pool);
+            index.distances(first, second, distances, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < pairs; i++) {
+            assertEquals(index.lowestCommonManager(first[i], second[i]), common[i]);
+            assertEquals(index.distance(first[i], second[i]), distances[i]);
+        }
+        assertThrows(IllegalArgumentException.class,
+            () -> index.distances(first, second, new int[1], null));
+    }
+
+    @Test
+    void testInvalidArguments() throws IOException {
+        Path csvFile = tempDir.resolve("chain.csv");
+        Files.write(csvFile, List.of(
+            "Id,firstName,lastName,salary,managerId",
+            "1,Joe,Doe,60000,",
+            "2,Martin,Chekov,45000,1",
+            "3,Bob,Ronstad,47000,1"
+        ));
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+        AncestorIndex index = AncestorIndex.of(store);
+
+        assertThrows(IllegalArgumentException.class, () -> index.ancestor(store.indexOf("2"), -1));
+        assertThrows(IllegalArgumentException.class,
+            () -> index.path(store.indexOf("2"), store.indexOf("3"), new int[2]));
+        assertEquals(store.ceoIndex(), index.lowestCommonManager(store.indexOf("2"), store.indexOf("3")));
+    }
+
+    private ColumnarEmployeeStore generate() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "3000", "--max-depth", "12", "--fanout", "3", "--fanout-distribution", "geometric",
+            "--depth-violations", "5", "--seed", "5", csvFile.toString()})).generate();
+        return ColumnarEmployeeStore.load(csvFile.toString());
+    }
+
+    /**
+     * Returns the employee followed by their managers up to the CEO.
+     */
+    private static List<Integer> chain(ColumnarEmployeeStore store, int employee) {
+        List<Integer> chain = new ArrayList<>();
+        for (int current = employee; current != ColumnarEmployeeStore.NO_MANAGER; current = store.manager(current)) {
+            chain.add(current);
+        }
+        return chain;
+    }
+}
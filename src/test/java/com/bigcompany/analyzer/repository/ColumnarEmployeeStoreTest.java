@@ -0,0 +1,239 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.OrgGenerator;
+import com.bigcompany.analyzer.model.Employee;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarEmployeeStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testLoadValidFile() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "124,Martin,Chekov,45000,123",
+            "123,Joe,Doe,60000,",
+            "125,Bob,Ronstad,47000,123",
+            "300,Alice,Hasacat,50000,124"
+        );
+
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+
+        assertEquals(4, store.size());
+        int ceo = store.ceoIndex();
+        assertEquals("123", store.id(ceo));
+        assertEquals("Joe Doe", store.fullName(ceo));
+        assertEquals(60000, store.salary(ceo));
+        assertEquals(ColumnarEmployeeStore.NO_MANAGER, store.manager(ceo));
+
+        int martin = store.indexOf("124");
+        assertEquals(ceo, store.manager(martin));
+        assertEquals(-1, store.indexOf("999"));
+        assertEquals("300", store.toEmployee(store.indexOf("300")).getId());
+        assertEquals("124", store.toEmployee(store.indexOf("300")).getManagerId());
+    }
+
+    @Test
+    void testMixedIdsStayStrings() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "1,Joe,Doe,60000,",
+            "007,James,Bond,45000,1",
+            "7,Ann,Other,45000,007"
+        );
+
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+
+        assertEquals("007", store.id(store.indexOf("007")));
+        assertEquals("7", store.id(store.indexOf("7")));
+        assertEquals(store.indexOf("007"), store.manager(store.indexOf("7")));
+    }
+
+    @Test
+    void testChildrenAreInFileOrder() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "125,Bob,Ronstad,47000,123",
+            "300,Alice,Hasacat,50000,124",
+            "124,Martin,Chekov,45000,123"
+        );
+
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+
+        int ceo = store.ceoIndex();
+        assertEquals(2, store.childCount(ceo));
+        assertEquals("125", store.id(store.child(store.childStart(ceo))));
+        assertEquals("124", store.id(store.child(store.childStart(ceo) + 1)));
+
+        int martin = store.indexOf("124");
+        assertTrue(store.isManager(martin));
+        assertEquals("Alice", store.firstName(store.child(store.childStart(martin))));
+        assertFalse(store.isManager(store.indexOf("300")));
+    }
+
+    @Test
+    void testFromRepositoryMatchesRepository() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "125,Bob,Ronstad,47000,123",
+            "300,Alice,Hasacat,50000,124"
+        );
+        EmployeeRepository repository = new EmployeeRepository();
+        repository.loadFromFile(csvFile.toString());
+
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.from(repository);
+
+        assertEquals(repository.getAllEmployees().size(), store.size());
+        for (Employee employee : repository.getAllEmployees()) {
+            int index = store.indexOf(employee.getId());
+            Employee copy = store.toEmployee(index);
+            assertEquals(employee.getFullName(), copy.getFullName());
+            assertEquals(employee.getSalary(), copy.getSalary());
+            assertEquals(employee.getManagerId(), copy.getManagerId());
+            assertEquals(repository.getDirectSubordinates(employee.getId()).size(), store.childCount(index));
+        }
+    }
+
+    @Test
+    void testNoCEOThrowsException() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "124,Martin,Chekov,45000,123"
+        );
+
+        assertThrows(IllegalArgumentException.class, () -> ColumnarEmployeeStore.load(csvFile.toString()));
+    }
+
+    @Test
+    void testMultipleCEOsThrowsException() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,"
+        );
+
+        assertThrows(IllegalArgumentException.class, () -> ColumnarEmployeeStore.load(csvFile.toString()));
+    }
+
+    @Test
+    void testInvalidManagerIdThrowsException() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,999"
+        );
+
+        assertThrows(IllegalArgumentException.class, () -> ColumnarEmployeeStore.load(csvFile.toString()));
+    }
+
+    @Test
+    void testCycleThrowsException() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "200,Cycle,One,40000,201",
+            "201,Cycle,Two,40000,200",
+            "202,Under,Cycle,30000,200"
+        );
+
+        InvalidHierarchyException e = assertThrows(InvalidHierarchyException.class,
+            () -> ColumnarEmployeeStore.load(csvFile.toString()));
+        assertEquals(List.of(List.of("200", "201")), e.getCycles());
+        assertEquals(List.of(List.of("202")), e.getUnreachableSubtrees());
+    }
+
+    @Test
+    void testDuplicateIdThrowsException() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "124,Bob,Ronstad,47000,123"
+        );
+
+        assertThrows(IllegalArgumentException.class, () -> ColumnarEmployeeStore.load(csvFile.toString()));
+    }
+
+    @Test
+    void testOffHeapMatchesHeap() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "20000", "--fanout", "4", "--depth-violations", "5", "--seed", "11", csvFile.toString()})).generate();
+
+        ColumnarEmployeeStore heap = ColumnarEmployeeStore.load(csvFile.toString());
+        ColumnarEmployeeStore offHeap = ColumnarEmployeeStore.loadOffHeap(csvFile.toString());
+
+        assertFalse(heap.isOffHeap());
+        assertTrue(offHeap.isOffHeap());
+        assertEquals(heap.size(), offHeap.size());
+        assertEquals(heap.ceoIndex(), offHeap.ceoIndex());
+        for (int i = 0; i < heap.size(); i++) {
+            assertEquals(heap.id(i), offHeap.id(i));
+            assertEquals(heap.fullName(i), offHeap.fullName(i));
+            assertEquals(heap.salary(i), offHeap.salary(i));
+            assertEquals(heap.manager(i), offHeap.manager(i));
+            assertEquals(heap.childStart(i), offHeap.childStart(i));
+            assertEquals(heap.childEnd(i), offHeap.childEnd(i));
+            assertEquals(i, offHeap.indexOf(heap.id(i)));
+        }
+        for (int k = 0; k < heap.size() - 1; k++) {
+            assertEquals(heap.child(k), offHeap.child(k));
+        }
+        assertEquals(-1, offHeap.indexOf("no-such-id"));
+        assertArrayEquals(heap.idColumn(), offHeap.idColumn());
+    }
+
+    @Test
+    void testOffHeapKeepsNonAsciiNames() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "é1,José,Müller,60000,",
+            "2,Zoë,Ångström,45000,é1"
+        );
+
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.loadOffHeap(csvFile.toString());
+
+        assertEquals("José Müller", store.fullName(store.indexOf("é1")));
+        assertEquals("é1", store.toEmployee(store.indexOf("2")).getManagerId());
+    }
+
+    @Test
+    void testOffHeapRejectsInvalidDataLikeHeap() throws IOException {
+        String header = "Id,firstName,lastName,salary,managerId";
+        List<List<String>> invalidFiles = List.of(
+            List.of(header, "123,Joe,Doe,60000,", "124,Martin,Chekov,45000,"),
+            List.of(header, "123,Joe,Doe,60000,999"),
+            List.of(header, "123,Joe,Doe,60000,", "124,Martin,Chekov,45000,999"),
+            List.of(header, "123,Joe,Doe,60000,", "124,Martin,Chekov,45000,123", "124,Bob,Ronstad,47000,123"),
+            List.of(header, "123,Joe,Doe,60000,", "124,Martin,Chekov,45000,125", "125,Bob,Ronstad,47000,124"));
+
+        for (List<String> lines : invalidFiles) {
+            Path csvFile = createTestFile(lines.toArray(new String[0]));
+            IllegalArgumentException heap = assertThrows(IllegalArgumentException.class,
+                () -> ColumnarEmployeeStore.load(csvFile.toString()));
+            IllegalArgumentException offHeap = assertThrows(IllegalArgumentException.class,
+                () -> ColumnarEmployeeStore.loadOffHeap(csvFile.toString()));
+            assertEquals(heap.getClass(), offHeap.getClass());
+            assertEquals(heap.getMessage(), offHeap.getMessage());
+        }
+    }
+
+    private Path createTestFile(String... lines) throws IOException {
+        Path file = tempDir.resolve("test.csv");
+        Files.write(file, List.of(lines));
+        return file;
+    }
+}
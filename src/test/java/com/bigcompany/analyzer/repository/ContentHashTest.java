@@ -0,0 +1,48 @@
+package com.bigcompany.analyzer.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentHashTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testKnownXxh64Values() {
+        assertEquals(0xEF46DB3751D8E999L, ContentHash.of(new byte[0]));
+        assertEquals(0xD24EC4F1A98C6E5BL, ContentHash.of(bytes("a")));
+        assertEquals(0x44BC2CF5AD770999L, ContentHash.of(bytes("abc")));
+        assertEquals(0xFBCEA83C8A378BF1L, ContentHash.of(bytes("Nobody inspects the spammish repetition")));
+    }
+
+    @Test
+    void testFileHashMatchesByteArrayHash() throws IOException {
+        Random random = new Random(42);
+        for (int length : new int[] {0, 1, 7, 31, 32, 33, 100, 4096, 100_003}) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            Path file = tempDir.resolve("data-" + length);
+            Files.write(file, data);
+
+            assertEquals(ContentHash.of(data), ContentHash.of(file), "length " + length);
+        }
+    }
+
+    @Test
+    void testDifferentContentsHashDifferently() {
+        assertNotEquals(ContentHash.of(bytes("123,Joe,Doe,60000,")), ContentHash.of(bytes("123,Joe,Doe,60001,")));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.model.Employee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRowTokenizerTest {
+
+    private CsvRowTokenizer tokenizer;
+
+    @BeforeEach
+    void setUp() {
+        tokenizer = new CsvRowTokenizer();
+    }
+
+    @Test
+    void testParseRow() {
+        Employee employee = parse("124,Martin,Chekov,45000,123");
+
+        assertEquals("124", employee.getId());
+        assertEquals("Martin", employee.getFirstName());
+        assertEquals("Chekov", employee.getLastName());
+        assertEquals(45000, employee.getSalary());
+        assertEquals("123", employee.getManagerId());
+    }
+
+    @Test
+    void testFieldsAreTrimmed() {
+        Employee employee = parse(" 124 ,\tMartin , Chekov, 45000 , 123 ");
+
+        assertEquals("124", employee.getId());
+        assertEquals("Martin", employee.getFirstName());
+        assertEquals("Chekov", employee.getLastName());
+        assertEquals(45000, employee.getSalary());
+        assertEquals("123", employee.getManagerId());
+    }
+
+    @Test
+    void testEmptyManagerIdIsCEO() {
+        Employee employee = parse("123,Joe,Doe,60000,  ");
+
+        assertNull(employee.getManagerId());
+        assertTrue(employee.isCEO());
+    }
+
+    @Test
+    void testSalaryParsingMatchesParseDouble() {
+        String[] salaries = {
+            "0", "45000", "45000.5", "-1234.50", "+99", "0.1", "123456789012.345",
+            "1.", ".5", "1e5", "2.5E-3", "12345678901234567890", "0.0000000000000000000000001"
+        };
+
+        for (String salary : salaries) {
+            Employee employee = parse("1,A,B," + salary + ",");
+            assertEquals(Double.parseDouble(salary), employee.getSalary(), "salary " + salary);
+        }
+    }
+
+    @Test
+    void testNonAsciiNames() {
+        Employee employee = parse("7,Zoë,Łukasiewicz,50000,1");
+
+        assertEquals("Zoë", employee.getFirstName());
+        assertEquals("Łukasiewicz", employee.getLastName());
+    }
+
+    @Test
+    void testInvalidSalaryThrowsException() {
+        String[] invalid = {"", "abc", "-", ".", "1.2.3", "12a"};
+
+        for (String salary : invalid) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parse("1,A,B," + salary + ","));
+            assertEquals("Invalid salary for employee 1: " + salary, e.getMessage());
+        }
+    }
+
+    @Test
+    void testWrongColumnCountThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> parse("1,A,B,100"));
+        assertThrows(IllegalArgumentException.class, () -> parse("1,A,B,100,,"));
+    }
+
+    @Test
+    void testBufferIsReusedAcrossRows() {
+        byte[] row = new byte[64];
+        byte[] first = "1,Long,Name,1000,".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "2,A,B,5,1".getBytes(StandardCharsets.UTF_8);
+
+        System.arraycopy(first, 0, row, 0, first.length);
+        tokenizer.parse(row, first.length);
+        System.arraycopy(second, 0, row, 0, second.length);
+        Employee employee = tokenizer.parse(row, second.length);
+
+        assertEquals("2", employee.getId());
+        assertEquals(5, employee.getSalary());
+        assertEquals("1", employee.getManagerId());
+    }
+
+    @Test
+    void testRepeatedNamesAndManagerIdsShareOneString() {
+        Employee first = parse("124,Martin,Chekov,45000,123");
+        Employee second = parse("125,Martin,Chekov,47000,123");
+
+        assertSame(first.getFirstName(), second.getFirstName());
+        assertSame(first.getLastName(), second.getLastName());
+        assertSame(first.getManagerId(), second.getManagerId());
+        assertNotSame(first.getId(), second.getId());
+    }
+
+    private Employee parse(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return tokenizer.parse(bytes, bytes.length);
+    }
+}
@@ -8,7 +8,9 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -110,6 +112,47 @@ class EmployeeRepositoryTest {
         });
     }
 
+    @Test
+    void testDuplicateIdThrowsException() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "124,Bob,Ronstad,47000,123"
+        );
+
+        for (EmployeeRepository.LoadMode mode : EmployeeRepository.LoadMode.values()) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> repository.loadFromFile(csvFile.toString(), mode));
+            assertEquals("Duplicate employee ID: 124", e.getMessage());
+        }
+    }
+
+    @Test
+    void testFailedLoadKeepsPreviousEmployees() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123"
+        );
+        repository.loadFromFile(csvFile.toString());
+        Collection<Employee> loaded = repository.getAllEmployees();
+
+        createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "200,Ann,Other,70000,",
+            "201,Ben,Other,40000,999"
+        );
+        for (EmployeeRepository.LoadMode mode : EmployeeRepository.LoadMode.values()) {
+            assertThrows(IllegalArgumentException.class, () -> repository.loadFromFile(csvFile.toString(), mode));
+        }
+
+        assertSame(loaded, repository.getAllEmployees());
+        assertEquals("123", repository.getCEO().getId());
+        assertEquals(1, repository.getDirectSubordinates("123").size());
+        assertNull(repository.getEmployee("200"));
+    }
+
     @Test
     void testInvalidManagerIdThrowsException() throws IOException {
         Path csvFile = createTestFile(
@@ -123,6 +166,28 @@ class EmployeeRepositoryTest {
         });
     }
 
+    @Test
+    void testAllCyclesAndUnreachableEmployeesAreReported() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "200,Cycle,One,40000,201",
+            "201,Cycle,Two,40000,200",
+            "202,Under,Cycle,30000,201",
+            "203,Deeper,Under,30000,202",
+            "300,Self,Managed,40000,300"
+        );
+
+        InvalidHierarchyException e = assertThrows(InvalidHierarchyException.class, () -> {
+            repository.loadFromFile(csvFile.toString());
+        });
+
+        assertEquals(List.of(List.of("200", "201"), List.of("300")), e.getCycles());
+        assertEquals(List.of(List.of("202", "203"), List.of()), e.getUnreachableSubtrees());
+        assertTrue(e.getMessage().contains("cycle: 200 -> 201 -> 200"));
+    }
+
     @Test
     void testInvalidSalaryThrowsException() throws IOException {
         Path csvFile = createTestFile(
@@ -149,6 +214,254 @@ class EmployeeRepositoryTest {
         assertEquals(2, repository.getAllEmployees().size());
     }
 
+    @Test
+    void testParallelLoadMatchesSequentialLoad() throws IOException {
+        // Large enough to be split into several chunks
+        List<String> lines = new ArrayList<>();
+        lines.add("Id,firstName,lastName,salary,managerId");
+        lines.add("1,John,CEO,150000,");
+        for (int i = 2; i <= 100_000; i++) {
+            lines.add(i + ",First" + i + ",Last" + i + "," + (30000 + i % 1000) + "," + (i / 2));
+        }
+        Path csvFile = createTestFile(lines.toArray(new String[0]));
+
+        repository.loadFromFile(csvFile.toString());
+        EmployeeRepository parallel = new EmployeeRepository();
+        parallel.loadFromFile(csvFile.toString(), EmployeeRepository.LoadMode.PARALLEL);
+
+        assertEquals(repository.getAllEmployees().size(), parallel.getAllEmployees().size());
+        assertEquals("1", parallel.getCEO().getId());
+
+        Iterator<Employee> expected = repository.getAllEmployees().iterator();
+        for (Employee actual : parallel.getAllEmployees()) {
+            Employee next = expected.next();
+            assertEquals(next.getId(), actual.getId());
+            assertEquals(next.getFullName(), actual.getFullName());
+            assertEquals(next.getSalary(), actual.getSalary());
+            assertEquals(next.getManagerId(), actual.getManagerId());
+        }
+        assertEquals(2, parallel.getDirectSubordinates("1000").size());
+    }
+
+    @Test
+    void testParallelLoadHandlesCrLfLineEndings() throws IOException {
+        Path file = tempDir.resolve("crlf.csv");
+        Files.writeString(file, "Id,firstName,lastName,salary,managerId\r\n"
+            + "123,Joe,Doe,60000,\r\n"
+            + "124,Martin,Chekov,45000,123\r\n");
+
+        repository.loadFromFile(file.toString(), EmployeeRepository.LoadMode.PARALLEL);
+
+        assertEquals(2, repository.getAllEmployees().size());
+        assertEquals("123", repository.getEmployee("124").getManagerId());
+    }
+
+    @Test
+    void testParallelLoadHandlesCrOnlyLineEndings() throws IOException {
+        Path file = tempDir.resolve("cr.csv");
+        Files.writeString(file, "Id,firstName,lastName,salary,managerId\r"
+            + "123,Joe,Doe,60000,\r"
+            + "124,Martin,Chekov,45000,123\r");
+
+        repository.loadFromFile(file.toString(), EmployeeRepository.LoadMode.PARALLEL);
+
+        assertEquals(2, repository.getAllEmployees().size());
+        assertEquals("123", repository.getEmployee("124").getManagerId());
+    }
+
+    @Test
+    void testParallelLoadSplitsChunksAtAnyLineEnding() throws IOException {
+        // Several 1 MB chunks, with every kind of line break around the boundaries
+        String[] breaks = {"\n", "\r", "\r\n"};
+        StringBuilder csv = new StringBuilder("Id,firstName,lastName,salary,managerId\r\n1,Chief,Executive,900000,");
+        for (int id = 2; id <= 60_000; id++) {
+            csv.append(breaks[id % breaks.length]).append(id).append(",First,Last,50000,1");
+        }
+        Path file = tempDir.resolve("mixed.csv");
+        Files.writeString(file, csv);
+
+        repository.loadFromFile(file.toString(), EmployeeRepository.LoadMode.PARALLEL);
+
+        assertEquals(60_000, repository.getAllEmployees().size());
+        assertEquals("1", repository.getEmployee("60000").getManagerId());
+        assertEquals(59_999, repository.getDirectSubordinates("1").size());
+    }
+
+    @Test
+    void testParallelLoadMultipleCEOsThrowsException() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,"
+        );
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            repository.loadFromFile(csvFile.toString(), EmployeeRepository.LoadMode.PARALLEL);
+        });
+    }
+
+    @Test
+    void testParallelLoadInvalidSalaryThrowsException() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,invalid,",
+            "124,Martin,Chekov,45000,123"
+        );
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> {
+            repository.loadFromFile(csvFile.toString(), EmployeeRepository.LoadMode.PARALLEL);
+        });
+        assertTrue(e.getMessage().startsWith("Invalid salary for employee 123"));
+    }
+
+    @Test
+    void testParallelLoadWrongColumnCountThrowsException() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,45000,123"
+        );
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            repository.loadFromFile(csvFile.toString(), EmployeeRepository.LoadMode.PARALLEL);
+        });
+    }
+
+    @Test
+    void testChangeSalaryReplacesEmployee() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123"
+        );
+        repository.loadFromFile(csvFile.toString());
+
+        Employee updated = repository.changeSalary("124", 50000);
+
+        assertEquals(50000, updated.getSalary());
+        assertSame(updated, repository.getEmployee("124"));
+        assertSame(updated, repository.getDirectSubordinates("123").get(0));
+    }
+
+    @Test
+    void testChangeManagerMovesSubtree() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "125,Bob,Ronstad,47000,123",
+            "300,Alice,Hasacat,50000,124"
+        );
+        repository.loadFromFile(csvFile.toString());
+
+        repository.changeManager("124", "125");
+
+        assertEquals(1, repository.getDirectSubordinates("123").size());
+        assertEquals("124", repository.getDirectSubordinates("125").get(0).getId());
+        assertEquals("300", repository.getDirectSubordinates("124").get(0).getId());
+        assertThrows(IllegalArgumentException.class, () -> repository.changeManager("124", "300"));
+        assertThrows(IllegalArgumentException.class, () -> repository.changeManager("123", "124"));
+    }
+
+    @Test
+    void testAddAndRemoveEmployee() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123"
+        );
+        repository.loadFromFile(csvFile.toString());
+
+        repository.addEmployee(new Employee("300", "Alice", "Hasacat", 50000, "124"));
+        assertTrue(repository.isManager("124"));
+        assertThrows(IllegalArgumentException.class,
+            () -> repository.addEmployee(new Employee("301", "No", "Manager", 1, "999")));
+        assertThrows(IllegalArgumentException.class,
+            () -> repository.addEmployee(new Employee("300", "Duplicate", "Id", 1, "123")));
+        assertThrows(IllegalArgumentException.class, () -> repository.removeEmployee("124"));
+
+        repository.removeEmployee("300");
+        assertFalse(repository.isManager("124"));
+        assertNull(repository.getEmployee("300"));
+        assertEquals(2, repository.getAllEmployees().size());
+    }
+
+    @Test
+    void testSubtreeQueries() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "125,Bob,Ronstad,47000,123",
+            "300,Alice,Hasacat,50000,124",
+            "305,Brett,Hardleaf,34000,300"
+        );
+        repository.loadFromFile(csvFile.toString());
+
+        assertTrue(repository.isUnder("305", "123"));
+        assertTrue(repository.isUnder("305", "124"));
+        assertFalse(repository.isUnder("305", "125"));
+        assertFalse(repository.isUnder("124", "124"));
+        assertFalse(repository.isUnder("123", "124"));
+
+        assertEquals(3, repository.getSubtreeSize("124"));
+        assertEquals(129000, repository.getSubtreeSalaryTotal("124"));
+        assertEquals(34000, repository.getSubtreeMinSalary("124"));
+        assertEquals(50000, repository.getSubtreeMaxSalary("124"));
+        assertArrayEquals(new int[] {1, 2, 1, 1}, repository.getSubtreeDepthHistogram("123"));
+        assertThrows(IllegalArgumentException.class, () -> repository.getSubtreeSize("999"));
+    }
+
+    @Test
+    void testSubtreeQueriesSeeChanges() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "125,Bob,Ronstad,47000,123",
+            "300,Alice,Hasacat,50000,124"
+        );
+        repository.loadFromFile(csvFile.toString());
+        assertEquals(2, repository.getSubtreeSize("124"));
+
+        repository.changeManager("300", "125");
+        assertTrue(repository.isUnder("300", "125"));
+        assertEquals(1, repository.getSubtreeSize("124"));
+
+        repository.changeSalary("300", 52000);
+        assertEquals(99000, repository.getSubtreeSalaryTotal("125"));
+
+        repository.addEmployee(new Employee("301", "New", "Hire", 30000, "300"));
+        assertEquals(30000, repository.getSubtreeMinSalary("123"));
+        assertArrayEquals(new int[] {1, 2, 1, 1}, repository.getSubtreeDepthHistogram("123"));
+    }
+
+    @Test
+    void testPathQueries() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "125,Bob,Ronstad,47000,123",
+            "300,Alice,Hasacat,50000,124",
+            "305,Brett,Hardleaf,34000,300"
+        );
+        repository.loadFromFile(csvFile.toString());
+
+        assertEquals("123", repository.getLowestCommonManager("305", "125").getId());
+        assertEquals("124", repository.getLowestCommonManager("124", "305").getId());
+        assertEquals(4, repository.getReportingDistance("305", "125"));
+        assertEquals(0, repository.getReportingDistance("300", "300"));
+        assertEquals("124", repository.getManagerAbove("305", 2).getId());
+        assertNull(repository.getManagerAbove("305", 4));
+        assertEquals(List.of("305", "300", "124", "123", "125"),
+            repository.getConnectingChain("305", "125").stream().map(Employee::getId).toList());
+
+        repository.changeManager("125", "300");
+        assertEquals("300", repository.getLowestCommonManager("305", "125").getId());
+        assertThrows(IllegalArgumentException.class, () -> repository.getReportingDistance("305", "999"));
+    }
+
     private Path createTestFile(String... lines) throws IOException {
         Path file = tempDir.resolve("test.csv");
         Files.write(file, List.of(lines));
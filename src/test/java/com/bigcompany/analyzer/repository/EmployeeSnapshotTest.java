@@ -0,0 +1,109 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.model.Employee;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000.25,123",
+            "125,Joe,Ronstad,47000,123",
+            "300,Zoë,Doe,50000,124"
+        );
+        ColumnarEmployeeStore original = ColumnarEmployeeStore.load(csvFile.toString());
+        Path snapshot = EmployeeSnapshot.pathFor(csvFile);
+
+        EmployeeSnapshot.write(original, ContentHash.of(csvFile), snapshot);
+        ColumnarEmployeeStore copy = EmployeeSnapshot.read(snapshot);
+
+        assertEquals(original.size(), copy.size());
+        assertEquals(original.ceoIndex(), copy.ceoIndex());
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals(original.id(i), copy.id(i));
+            assertEquals(original.fullName(i), copy.fullName(i));
+            assertEquals(original.salary(i), copy.salary(i));
+            assertEquals(original.manager(i), copy.manager(i));
+            assertEquals(original.childStart(i), copy.childStart(i));
+            assertEquals(original.childEnd(i), copy.childEnd(i));
+        }
+        assertEquals(copy.indexOf("300"), copy.child(copy.childStart(copy.indexOf("124"))));
+    }
+
+    @Test
+    void testMatchesChecksSourceHash() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,"
+        );
+        Path snapshot = EmployeeSnapshot.pathFor(csvFile);
+        long hash = ContentHash.of(csvFile);
+
+        assertFalse(EmployeeSnapshot.matches(snapshot, hash));
+        EmployeeSnapshot.write(ColumnarEmployeeStore.load(csvFile.toString()), hash, snapshot);
+
+        assertTrue(EmployeeSnapshot.matches(snapshot, hash));
+        assertFalse(EmployeeSnapshot.matches(snapshot, hash + 1));
+        assertFalse(EmployeeSnapshot.matches(csvFile, hash));
+    }
+
+    @Test
+    void testCorruptSnapshotIsRejected() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123"
+        );
+        Path snapshot = EmployeeSnapshot.pathFor(csvFile);
+        EmployeeSnapshot.write(ColumnarEmployeeStore.load(csvFile.toString()), 1L, snapshot);
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(snapshot, bytes);
+
+        assertThrows(IOException.class, () -> EmployeeSnapshot.read(snapshot));
+    }
+
+    @Test
+    void testRepositoryRoundTrip() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "125,Bob,Ronstad,47000,123"
+        );
+        EmployeeRepository repository = new EmployeeRepository();
+        repository.loadFromFile(csvFile.toString());
+        Path snapshot = tempDir.resolve("org.snapshot");
+
+        repository.writeSnapshot(snapshot.toString(), ContentHash.of(csvFile));
+        EmployeeRepository restored = new EmployeeRepository();
+        restored.loadFromSnapshot(snapshot.toString());
+
+        assertEquals(3, restored.getAllEmployees().size());
+        assertEquals("123", restored.getCEO().getId());
+        List<Employee> subordinates = restored.getDirectSubordinates("123");
+        assertEquals(2, subordinates.size());
+        assertEquals("Martin", subordinates.get(0).getFirstName());
+    }
+
+    private Path createTestFile(String... lines) throws IOException {
+        Path file = tempDir.resolve("test.csv");
+        Files.write(file, List.of(lines));
+        return file;
+    }
+}
@@ -0,0 +1,152 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.OrgGenerator;
+import com.bigcompany.analyzer.model.Employee;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalEmployeeStoreTest {
+    /** Small enough that every sort spills and merges in several passes. */
+    private static final long SMALL_BUDGET = 16 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMatchesColumnarStore() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "5000", "--max-depth", "12", "--fanout", "3", "--fanout-distribution", "geometric",
+            "--depth-violations", "5", "--seed", "7", csvFile.toString()})).generate();
+        ColumnarEmployeeStore expected = ColumnarEmployeeStore.load(csvFile.toString());
+
+        try (ExternalEmployeeStore store = ExternalEmployeeStore.load(csvFile, spillDirectory(), SMALL_BUDGET);
+             ExternalEmployeeStore.Cursor cursor = store.cursor()) {
+            assertEquals(expected.size(), store.size());
+            assertEquals(expected.ceoIndex(), store.ceoRow());
+
+            while (cursor.next()) {
+                int row = (int) cursor.row();
+                assertEquals(expected.salary(row), cursor.salary());
+                assertEquals(expected.manager(row), cursor.manager());
+                assertEquals(depth(expected, row), cursor.depth());
+                assertEquals(expected.childCount(row), cursor.subordinateCount());
+                double total = 0;
+                for (int k = expected.childStart(row); k < expected.childEnd(row); k++) {
+                    total += expected.salary(expected.child(k));
+                }
+                assertEquals(total, cursor.subordinateSalaryTotal());
+            }
+            assertEquals(expected.size() - 1, cursor.row());
+
+            Employee employee = store.toEmployee(42);
+            Employee expectedEmployee = expected.toEmployee(42);
+            assertEquals(expectedEmployee.getId(), employee.getId());
+            assertEquals(expectedEmployee.getFullName(), employee.getFullName());
+            assertEquals(expectedEmployee.getManagerId(), employee.getManagerId());
+            assertNull(store.toEmployee(store.ceoRow()).getManagerId());
+        }
+    }
+
+    @Test
+    void testDeepReportingLine() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("Id,firstName,lastName,salary,managerId");
+        // Listed bottom-up, so no employee follows their manager
+        for (int i = 2999; i > 0; i--) {
+            lines.add(i + ",First" + i + ",Last,1000," + (i - 1));
+        }
+        lines.add("0,Chief,Executive,1000,");
+        Path csvFile = createTestFile(lines);
+
+        try (ExternalEmployeeStore store = ExternalEmployeeStore.load(csvFile, spillDirectory(), SMALL_BUDGET);
+             ExternalEmployeeStore.Cursor cursor = store.cursor()) {
+            while (cursor.next()) {
+                assertEquals(2999 - cursor.row(), cursor.depth());
+            }
+            assertEquals(2999, store.ceoRow());
+        }
+    }
+
+    @Test
+    void testRejectsInvalidData() throws IOException {
+        assertInvalid("has invalid manager ID: 999",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,999");
+        assertInvalid("Duplicate employee ID: 124",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "124,Bob,Ronstad,47000,123");
+        assertInvalid("Multiple CEOs found: 123 and 124",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,");
+        assertInvalid("No CEO found",
+            "123,Joe,Doe,60000,124",
+            "124,Martin,Chekov,45000,123");
+        assertInvalid("Circular reporting lines",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,125",
+            "125,Bob,Ronstad,47000,124",
+            "126,Alice,Hasacat,50000,125");
+    }
+
+    @Test
+    void testDeletesFilesOnClose() throws IOException {
+        Path csvFile = createTestFile(List.of(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123"));
+        Path spillDirectory = spillDirectory();
+
+        ExternalEmployeeStore store = ExternalEmployeeStore.load(csvFile, spillDirectory, SMALL_BUDGET);
+        assertEquals(1, countFiles(spillDirectory));
+        store.close();
+        assertEquals(0, countFiles(spillDirectory));
+    }
+
+    private void assertInvalid(String message, String... rows) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("Id,firstName,lastName,salary,managerId");
+        lines.addAll(List.of(rows));
+        Path csvFile = createTestFile(lines);
+        Path spillDirectory = spillDirectory();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> ExternalEmployeeStore.load(csvFile, spillDirectory, SMALL_BUDGET));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+        assertEquals(0, countFiles(spillDirectory));
+    }
+
+    private static int depth(ColumnarEmployeeStore store, int employee) {
+        int depth = 0;
+        for (int i = store.manager(employee); i != ColumnarEmployeeStore.NO_MANAGER; i = store.manager(i)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private Path spillDirectory() {
+        return tempDir.resolve("spill");
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private Path createTestFile(List<String> lines) throws IOException {
+        Path file = tempDir.resolve("test.csv");
+        Files.write(file, lines);
+        return file;
+    }
+}
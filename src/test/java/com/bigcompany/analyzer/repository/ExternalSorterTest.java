@@ -0,0 +1,123 @@
+package com.bigcompany.analyzer.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalSorterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSortsInMemoryWithoutWritingRuns() throws IOException {
+        ExternalSorter sorter = new ExternalSorter(tempDir, "test", 1 << 20);
+        List<Long> values = randomValues(1000, 1);
+        add(sorter, values);
+
+        assertEquals(1000, sorter.size());
+        assertEquals(sorted(values), sort(sorter));
+        assertEquals(0, runFiles());
+    }
+
+    @Test
+    void testMergesSpilledRunsInSeveralPasses() throws IOException {
+        // 4K arena and a fan-in of 2: hundreds of runs, merged in several passes
+        ExternalSorter sorter = new ExternalSorter(tempDir, "test", 8 * 1024);
+        List<Long> values = randomValues(50_000, 2);
+        add(sorter, values);
+
+        assertTrue(runFiles() > 2);
+        assertEquals(sorted(values), sort(sorter));
+        assertEquals(0, sorter.size());
+        assertEquals(0, runFiles());
+    }
+
+    @Test
+    void testVariableLengthRecordsCompareAsUnsignedBytes() throws IOException {
+        ExternalSorter sorter = new ExternalSorter(tempDir, "test", 8 * 1024);
+        List<String> keys = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            keys.add(Integer.toString(random.nextInt(100_000), 36) + (i % 7 == 0 ? "é" : ""));
+        }
+        for (String key : keys) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            sorter.add(bytes, bytes.length);
+        }
+
+        List<String> sorted = new ArrayList<>();
+        sorter.sort((data, offset, length) ->
+            sorted.add(new String(data, offset, length, StandardCharsets.UTF_8)));
+
+        for (int i = 1; i < sorted.size(); i++) {
+            byte[] previous = sorted.get(i - 1).getBytes(StandardCharsets.UTF_8);
+            byte[] current = sorted.get(i).getBytes(StandardCharsets.UTF_8);
+            assertTrue(Arrays.compareUnsigned(previous, current) <= 0);
+        }
+        assertEquals(keys.size(), sorted.size());
+    }
+
+    @Test
+    void testLongsSortBySignedValue() {
+        byte[] negative = new byte[8];
+        byte[] positive = new byte[8];
+        ExternalSorter.putLong(negative, 0, -5);
+        ExternalSorter.putLong(positive, 0, 3);
+
+        assertTrue(Arrays.compareUnsigned(negative, positive) < 0);
+        assertEquals(-5, ExternalSorter.getLong(negative, 0));
+        assertEquals(3, ExternalSorter.getLong(positive, 0));
+    }
+
+    @Test
+    void testRejectsRecordLargerThanTheArena() {
+        ExternalSorter sorter = new ExternalSorter(tempDir, "test", 8 * 1024);
+
+        assertThrows(IllegalArgumentException.class, () -> sorter.add(new byte[8 * 1024], 8 * 1024));
+    }
+
+    private static List<Long> randomValues(int count, long seed) {
+        Random random = new Random(seed);
+        List<Long> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(random.nextLong());
+        }
+        return values;
+    }
+
+    private static void add(ExternalSorter sorter, List<Long> values) throws IOException {
+        byte[] record = new byte[8];
+        for (long value : values) {
+            ExternalSorter.putLong(record, 0, value);
+            sorter.add(record, record.length);
+        }
+    }
+
+    private static List<Long> sort(ExternalSorter sorter) throws IOException {
+        List<Long> sorted = new ArrayList<>();
+        sorter.sort((data, offset, length) -> sorted.add(ExternalSorter.getLong(data, offset)));
+        return sorted;
+    }
+
+    private static List<Long> sorted(List<Long> values) {
+        return values.stream().sorted().toList();
+    }
+
+    private long runFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.count();
+        }
+    }
+}
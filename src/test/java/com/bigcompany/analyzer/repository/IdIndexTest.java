@@ -0,0 +1,78 @@
+package com.bigcompany.analyzer.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdIndexTest {
+
+    @Test
+    void testDenseNumericIds() {
+        IdIndex index = IdIndex.of(new String[] {"123", "124", "125", "300"}, 4);
+
+        assertEquals(0, index.indexOf("123"));
+        assertEquals(3, index.indexOf("300"));
+        assertEquals(-1, index.indexOf("126"));
+        assertEquals(-1, index.indexOf("0"));
+        assertEquals(-1, index.indexOf("99999"));
+        assertEquals(-1, index.indexOf("abc"));
+        assertArrayEquals(new long[] {123, 124, 125, 300}, index.numericIds());
+    }
+
+    @Test
+    void testSparseNumericIds() {
+        String[] ids = {"1", "1000000000", "999999999999999999", "5000"};
+        IdIndex index = IdIndex.of(ids, ids.length);
+
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i, index.indexOf(ids[i]));
+        }
+        assertEquals(-1, index.indexOf("2"));
+        assertEquals(-1, index.indexOf("1000000001"));
+        assertEquals(-1, index.indexOf("x"));
+        assertArrayEquals(new long[] {1, 1000000000, 999999999999999999L, 5000}, index.numericIds());
+    }
+
+    @Test
+    void testNumbersWithLeadingZerosAreDistinctIds() {
+        IdIndex index = IdIndex.of(new String[] {"7", "007"}, 2);
+
+        assertEquals(0, index.indexOf("7"));
+        assertEquals(1, index.indexOf("007"));
+        assertEquals(-1, index.indexOf("07"));
+        assertNull(index.numericIds());
+    }
+
+    @Test
+    void testStringIds() {
+        String[] ids = new String[5000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = "E-" + i;
+        }
+        IdIndex index = IdIndex.of(ids, ids.length);
+
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i, index.indexOf(new String(ids[i])));
+        }
+        assertEquals(-1, index.indexOf("E-5000"));
+        assertEquals(-1, index.indexOf("17"));
+    }
+
+    @Test
+    void testParseNumber() {
+        assertEquals(0, IdIndex.parseNumber("0"));
+        assertEquals(123, IdIndex.parseNumber("123"));
+        assertEquals(-1, IdIndex.parseNumber(""));
+        assertEquals(-1, IdIndex.parseNumber("012"));
+        assertEquals(-1, IdIndex.parseNumber("-1"));
+        assertEquals(-1, IdIndex.parseNumber("1e3"));
+        assertEquals(-1, IdIndex.parseNumber("1234567890123456789"));
+    }
+
+    @Test
+    void testDuplicateIdsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> IdIndex.of(new String[] {"1", "2", "1"}, 3));
+        assertThrows(IllegalArgumentException.class, () -> IdIndex.of(new String[] {"1", "9000000", "1"}, 3));
+        assertThrows(IllegalArgumentException.class, () -> IdIndex.of(new String[] {"a", "b", "a"}, 3));
+    }
+}
@@ -0,0 +1,76 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.OrgGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelOrderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSmallOrganization() throws IOException {
+        Path csvFile = tempDir.resolve("employees.csv");
+        Files.write(csvFile, List.of(
+            "Id,firstName,lastName,salary,managerId",
+            "4,Dee,Dev,60000,2",
+            "1,Ann,Chief,200000,",
+            "2,Bob,Lead,100000,1",
+            "3,Cid,Lead,100000,1",
+            "5,Eve,Dev,60000,3"
+        ));
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+
+        LevelOrder levels = store.levelOrder();
+
+        assertSame(levels, store.levelOrder(ForkJoinPool.commonPool()));
+        assertEquals(3, levels.levelCount());
+        assertEquals(2, levels.maxDepth());
+        assertEquals(store.indexOf("1"), levels.employeeAt(0));
+        assertEquals(store.indexOf("2"), levels.employeeAt(1));
+        assertEquals(store.indexOf("3"), levels.employeeAt(2));
+        assertEquals(3, levels.levelStart(2));
+        assertEquals(5, levels.levelEnd(2));
+        assertEquals(2, levels.depth(store.indexOf("4")));
+        assertEquals(5, levels.subtreeSize(store.indexOf("1")));
+        assertEquals(2, levels.subtreeSize(store.indexOf("3")));
+        assertEquals(1, levels.subtreeSize(store.indexOf("5")));
+    }
+
+    @Test
+    void testParallelMatchesSequential() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "100000", "--max-depth", "6", "--fanout", "20", "--seed", "5", csvFile.toString()})).generate();
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+        SubtreeIndex index = SubtreeIndex.of(store);
+
+        LevelOrder sequential = LevelOrder.of(store, null);
+        LevelOrder parallel;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            parallel = LevelOrder.of(store, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertArrayEquals(sequential.order, parallel.order);
+        assertArrayEquals(sequential.depths, parallel.depths);
+        assertArrayEquals(sequential.levelOffsets, parallel.levelOffsets);
+        for (int position = 1; position < store.size(); position++) {
+            int employee = sequential.employeeAt(position);
+            int manager = store.manager(employee);
+            assertEquals(sequential.depth(manager) + 1, sequential.depth(employee));
+            assertEquals(index.subtreeSize(employee), parallel.subtreeSize(employee));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.bigcompany.analyzer.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameTableTest {
+
+    private final NameTable table = new NameTable();
+
+    @Test
+    void testReturnsSameInstanceForSameBytes() {
+        byte[] row = "Anna,Bob,Anna".getBytes(StandardCharsets.UTF_8);
+
+        String first = table.intern(row, 0, 4);
+        String other = table.intern(row, 5, 8);
+        String again = table.intern(row, 9, 13);
+
+        assertEquals("Anna", first);
+        assertEquals("Bob", other);
+        assertSame(first, again);
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void testDistinguishesPrefixesAndEmptyValues() {
+        byte[] row = "Ann,Anna,".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("Ann", table.intern(row, 0, 3));
+        assertEquals("Anna", table.intern(row, 4, 8));
+        assertEquals("", table.intern(row, 9, 9));
+        assertEquals(3, table.size());
+    }
+
+    @Test
+    void testNonAsciiNames() {
+        byte[] row = "Zoë,Zoe,Zoë".getBytes(StandardCharsets.UTF_8);
+
+        String first = table.intern(row, 0, 4);
+        assertEquals("Zoë", first);
+        assertEquals("Zoe", table.intern(row, 5, 8));
+        assertSame(first, table.intern(row, 9, 13));
+    }
+
+    @Test
+    void testGrowsBeyondInitialCapacity() {
+        String[] interned = new String[10_000];
+        for (int i = 0; i < interned.length; i++) {
+            byte[] name = ("name" + i).getBytes(StandardCharsets.UTF_8);
+            interned[i] = table.intern(name, 0, name.length);
+        }
+
+        assertEquals(10_000, table.size());
+        for (int i = 0; i < interned.length; i++) {
+            byte[] name = ("name" + i).getBytes(StandardCharsets.UTF_8);
+            assertSame(interned[i], table.intern(name, 0, name.length));
+        }
+    }
+}
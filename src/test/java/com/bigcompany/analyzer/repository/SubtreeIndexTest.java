@@ -0,0 +1,90 @@
+package com.bigcompany.analyzer.repository;
+
+import com.bigcompany.analyzer.OrgGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubtreeIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMatchesSubtreeWalks() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "2000", "--max-depth", "9", "--fanout", "4", "--fanout-distribution", "geometric",
+            "--seed", "12", csvFile.toString()})).generate();
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+
+        SubtreeIndex index = SubtreeIndex.of(store);
+
+        for (int root = 0; root < store.size(); root++) {
+            boolean[] inSubtree = new boolean[store.size()];
+            List<Integer> histogram = new ArrayList<>();
+            double total = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            int count = 0;
+
+            List<Integer> level = List.of(root);
+            while (!level.isEmpty()) {
+                histogram.add(level.size());
+                List<Integer> next = new ArrayList<>();
+                for (int employee : level) {
+                    inSubtree[employee] = true;
+                    count++;
+                    total += store.salary(employee);
+                    min = Math.min(min, store.salary(employee));
+                    max = Math.max(max, store.salary(employee));
+                    for (int k = store.childStart(employee); k < store.childEnd(employee); k++) {
+                        next.add(store.child(k));
+                    }
+                }
+                level = next;
+            }
+
+            assertEquals(count, index.subtreeSize(root));
+            assertEquals(total, index.subtreeSalaryTotal(root), 1e-3);
+            assertEquals(min, index.subtreeMinSalary(root));
+            assertEquals(max, index.subtreeMaxSalary(root));
+            assertArrayEquals(histogram.stream().mapToInt(Integer::intValue).toArray(), index.depthHistogram(root));
+            for (int employee = 0; employee < store.size(); employee++) {
+                assertEquals(inSubtree[employee], index.isInSubtree(employee, root));
+            }
+        }
+    }
+
+    @Test
+    void testDepth() throws IOException {
+        ColumnarEmployeeStore store = chain();
+
+        SubtreeIndex index = SubtreeIndex.of(store);
+
+        assertEquals(0, index.depth(store.indexOf("1")));
+        assertEquals(1, index.depth(store.indexOf("2")));
+        assertEquals(2, index.depth(store.indexOf("3")));
+        assertArrayEquals(new int[] {1, 2, 1}, index.depthHistogram(store.ceoIndex()));
+        assertArrayEquals(new int[] {1}, index.depthHistogram(store.indexOf("4")));
+    }
+
+    private ColumnarEmployeeStore chain() throws IOException {
+        Path csvFile = tempDir.resolve("chain.csv");
+        Files.write(csvFile, List.of(
+            "Id,firstName,lastName,salary,managerId",
+            "3,Deep,Employee,30000,2",
+            "1,Joe,Doe,60000,",
+            "2,Martin,Chekov,45000,1",
+            "4,Bob,Ronstad,47000,1"
+        ));
+        return ColumnarEmployeeStore.load(csvFile.toString());
+    }
+}
@@ -0,0 +1,202 @@
+package com.bigcompany.analyzer.server;
+
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.service.ReportingLineRule;
+import com.bigcompany.analyzer.service.SalaryRangeRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryServerTest {
+
+    private static final String ORGANIZATION = """
+        Id,firstName,lastName,salary,managerId
+        123,Joe,Doe,60000,
+        124,Martin,Chekov,45000,123
+        125,Bob,Ronstad,47000,123
+        300,Alice,Hasacat,50000,124
+        305,Brett,Hardleaf,34000,300
+        """;
+
+    @TempDir
+    Path tempDir;
+
+    private Path csvFile;
+    private QueryServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        csvFile = tempDir.resolve("employees.csv");
+        Files.writeString(csvFile, ORGANIZATION);
+        server = new QueryServer(() -> ColumnarEmployeeStore.load(csvFile.toString()), new SalaryRangeRule(),
+            new ReportingLineRule(1), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void testEmployee() throws Exception {
+        HttpResponse<String> response = get("/employees/300");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/json; charset=utf-8", response.headers().firstValue("Content-Type").orElse(""));
+        assertEquals("{\"id\":\"300\",\"firstName\":\"Alice\",\"lastName\":\"Hasacat\",\"salary\":50000.0,"
+            + "\"managerId\":\"124\",\"depth\":2,\"directReports\":1,\"subtreeSize\":2}", response.body());
+        assertTrue(get("/employees/123").body().contains("\"managerId\":null"));
+    }
+
+    @Test
+    void testSubtreeAndChain() throws Exception {
+        assertEquals("{\"id\":\"123\",\"employees\":5,\"salaryTotal\":236000.0,\"minSalary\":34000.0,"
+            + "\"maxSalary\":60000.0,\"levels\":[1,2,1,1],\"directReports\":[\"124\",\"125\"]}",
+            get("/employees/123/subtree").body());
+        assertEquals("{\"id\":\"305\",\"managersBetween\":2,\"chain\":[{\"id\":\"305\",\"name\":\"Brett Hardleaf\"},"
+            + "{\"id\":\"300\",\"name\":\"Alice Hasacat\"},{\"id\":\"124\",\"name\":\"Martin Chekov\"},"
+            + "{\"id\":\"123\",\"name\":\"Joe Doe\"}]}",
+            get("/employees/305/chain").body());
+    }
+
+    @Test
+    void testShape() throws Exception {
+        assertEquals("{\"levels\":[1,2,1,1],\"fanOut\":[2,2,1],"
+            + "\"heaviestManagers\":[{\"id\":\"123\",\"name\":\"Joe Doe\",\"employees\":5,\"directReports\":2},"
+            + "{\"id\":\"124\",\"name\":\"Martin Chekov\",\"employees\":3,\"directReports\":1},"
+            + "{\"id\":\"300\",\"name\":\"Alice Hasacat\",\"employees\":2,\"directReports\":1}],"
+            + "\"spanIssues\":[{\"id\":\"124\",\"name\":\"Martin Chekov\",\"directReports\":1,\"limit\":2,"
+            + "\"tooMany\":false},{\"id\":\"300\",\"name\":\"Alice Hasacat\",\"directReports\":1,\"limit\":2,"
+            + "\"tooMany\":false}]}",
+            get("/shape").body());
+    }
+
+    @Test
+    void testSalaries() throws Exception {
+        String salaries = get("/salaries").body();
+        assertTrue(salaries.startsWith("{\"rankError\":0.013"), salaries);
+        assertTrue(salaries.endsWith(",\"company\":{\"employees\":5,\"min\":34000.0,\"p50\":47000.0,\"p90\":60000.0,"
+            + "\"p99\":60000.0,\"max\":60000.0},\"levels\":["
+            + "{\"employees\":1,\"min\":60000.0,\"p50\":60000.0,\"p90\":60000.0,\"p99\":60000.0,\"max\":60000.0},"
+            + "{\"employees\":2,\"min\":45000.0,\"p50\":45000.0,\"p90\":47000.0,\"p99\":47000.0,\"max\":47000.0},"
+            + "{\"employees\":1,\"min\":50000.0,\"p50\":50000.0,\"p90\":50000.0,\"p99\":50000.0,\"max\":50000.0},"
+            + "{\"employees\":1,\"min\":34000.0,\"p50\":34000.0,\"p90\":34000.0,\"p99\":34000.0,\"max\":34000.0}],"
+            + "\"teams\":[{\"id\":\"123\",\"name\":\"Joe Doe\",\"salaries\":{\"employees\":5,\"min\":34000.0,"
+            + "\"p50\":47000.0,\"p90\":60000.0,\"p99\":60000.0,\"max\":60000.0}},"
+            + "{\"id\":\"124\",\"name\":\"Martin Chekov\",\"salaries\":{\"employees\":3,\"min\":34000.0,"
+            + "\"p50\":45000.0,\"p90\":50000.0,\"p99\":50000.0,\"max\":50000.0}},"
+            + "{\"id\":\"300\",\"name\":\"Alice Hasacat\",\"salaries\":{\"employees\":2,\"min\":34000.0,"
+            + "\"p50\":34000.0,\"p90\":50000.0,\"p99\":50000.0,\"max\":50000.0}}]}"), salaries);
+    }
+
+    @Test
+    void testIssuesAndStatus() throws Exception {
+        String issues = get("/issues").body();
+        assertTrue(issues.contains("\"employeeId\":\"124\""));
+        assertTrue(issues.contains("\"employeeId\":\"305\""));
+
+        assertTrue(get("/status").body().startsWith(
+            "{\"version\":1,\"loadedAt\":"));
+        assertTrue(get("/status").body().contains(
+            "\"employees\":5,\"salaryIssues\":1,\"reportingLineIssues\":1,\"lastReloadMillis\":0,"
+            + "\"failedReloads\":0,\"lastReloadError\":null,\"watching\":false}"));
+    }
+
+    @Test
+    void testErrors() throws Exception {
+        HttpResponse<String> unknown = get("/employees/999");
+        assertEquals(404, unknown.statusCode());
+        assertEquals("{\"error\":\"Unknown employee: 999\"}", unknown.body());
+        assertEquals(404, get("/employees/123/peers").statusCode());
+        assertEquals(404, get("/").statusCode());
+        assertEquals(405, get("/reload").statusCode());
+        assertEquals(405, send(HttpRequest.newBuilder(uri("/issues"))
+            .POST(HttpRequest.BodyPublishers.noBody())).statusCode());
+    }
+
+    @Test
+    void testReloadPublishesNewSnapshot() throws Exception {
+        Files.writeString(csvFile, ORGANIZATION + "306,Carol,Newhire,30000,300\n");
+
+        HttpResponse<String> accepted = send(HttpRequest.newBuilder(uri("/reload"))
+            .POST(HttpRequest.BodyPublishers.noBody()));
+        assertEquals(202, accepted.statusCode());
+
+        // Shares the reload requested over HTTP if that has not started yet
+        long version = server.reload().join();
+        assertTrue(version == 2 || version == 3);
+        assertEquals(version, server.getVersion());
+        assertEquals(200, get("/employees/306").statusCode());
+        assertTrue(get("/employees/300").body().contains("\"directReports\":2"));
+    }
+
+    @Test
+    void testFailedReloadKeepsServingPreviousSnapshot() throws Exception {
+        Files.writeString(csvFile, ORGANIZATION + "306,Carol,Newhire,30000,999\n");
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> server.reload().join());
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertEquals(1, server.getVersion());
+        assertEquals(200, get("/employees/305").statusCode());
+        assertEquals(404, get("/employees/306").statusCode());
+        assertEquals(1, server.getFailedReloads());
+        assertTrue(get("/status").body().contains(
+            "\"failedReloads\":1,\"lastReloadError\":\"Employee 306 has invalid manager ID: 999\""));
+    }
+
+    @Test
+    void testWatchReloadsChangedFile() throws Exception {
+        server.watch(csvFile);
+
+        Files.writeString(csvFile, ORGANIZATION + "306,Carol,Newhire,30000,999\n");
+        awaitUntil(() -> server.getFailedReloads() == 1);
+        assertEquals(1, server.getVersion());
+
+        // Replaced by a rename, as editors and export jobs often do
+        Path next = tempDir.resolve("employees.csv.tmp");
+        Files.writeString(next, ORGANIZATION + "306,Carol,Newhire,30000,300\n");
+        Files.move(next, csvFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        awaitUntil(() -> server.getVersion() == 2);
+        assertEquals(200, get("/employees/306").statusCode());
+        assertTrue(get("/status").body().contains("\"lastReloadError\":null,\"watching\":true}"));
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for a reload");
+            Thread.sleep(20);
+        }
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path)).GET());
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+    }
+}
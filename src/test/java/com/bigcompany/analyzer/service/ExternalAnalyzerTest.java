@@ -0,0 +1,62 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.OrgGenerator;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.ExternalEmployeeStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMatchesRuleEngine() throws IOException {
+        assertMatchesRuleEngine(new SalaryRangeRule(), new ReportingLineRule());
+    }
+
+    @Test
+    void testConfiguredThresholds() throws IOException {
+        assertMatchesRuleEngine(new SalaryRangeRule(1.1, 1.3), new ReportingLineRule(2));
+    }
+
+    private void assertMatchesRuleEngine(SalaryRangeRule salaryRule, ReportingLineRule reportingLineRule)
+            throws IOException {
+        Path csvFile = generate(20_000);
+        ColumnarEmployeeStore expectedStore = ColumnarEmployeeStore.load(csvFile.toString());
+        List<String> expectedSalary = new ArrayList<>();
+        List<String> expectedReporting = new ArrayList<>();
+        new RuleEngine(expectedStore)
+            .addRule(salaryRule, issue -> expectedSalary.add(issue.toString()))
+            .addRule(reportingLineRule, issue -> expectedReporting.add(issue.toString()))
+            .run();
+
+        List<String> salaryIssues = new ArrayList<>();
+        List<String> reportingIssues = new ArrayList<>();
+        try (ExternalEmployeeStore store = ExternalEmployeeStore.load(csvFile, tempDir, 256 * 1024)) {
+            new ExternalAnalyzer(store, salaryRule, reportingLineRule)
+                .run(issue -> salaryIssues.add(issue.toString()), issue -> reportingIssues.add(issue.toString()));
+        }
+
+        assertFalse(expectedSalary.isEmpty());
+        assertFalse(expectedReporting.isEmpty());
+        assertEquals(expectedSalary, salaryIssues);
+        assertEquals(expectedReporting, reportingIssues);
+    }
+
+    private Path generate(int rows) throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", Integer.toString(rows), "--fanout", "5", "--salary-violations", "0.05",
+            "--depth-violations", "20", "--seed", "3", csvFile.toString()})).generate();
+        return csvFile;
+    }
+}
@@ -0,0 +1,183 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.EmployeeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalAnalyzerTest {
+
+    private EmployeeRepository repository;
+    private IncrementalAnalyzer analyzer;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // CEO avg subordinate = 47333.33 -> range 56800..71000, salary 65000 (OK)
+        // Martin: one subordinate at 50000 -> min 60000, salary 45000 (too low)
+        // Employee Deep has exactly 4 managers between them and the CEO
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,65000,",
+            "124,Martin,Chekov,45000,123",
+            "125,Bob,Ronstad,47000,123",
+            "126,Sub,Ordinate,50000,124",
+            "300,Alice,Hasacat,50000,123",
+            "301,L2,Manager,40000,300",
+            "302,L3,Manager,32000,301",
+            "303,L4,Manager,25000,302",
+            "304,Employee,Deep,20000,303"
+        );
+        repository = new EmployeeRepository();
+        repository.loadFromFile(csvFile.toString());
+        analyzer = new IncrementalAnalyzer(repository);
+    }
+
+    @Test
+    void testInitialIssuesMatchFullAnalysis() {
+        assertMatchesFullAnalysis();
+        assertEquals(1, analyzer.getSalaryIssues().size());
+        assertTrue(analyzer.getReportingLineIssues().isEmpty());
+    }
+
+    @Test
+    void testSalaryChangeResolvesIssue() {
+        IncrementalAnalyzer.Delta delta = analyzer.changeSalary("124", 65000);
+
+        assertEquals(1, delta.getRemovedSalaryIssues().size());
+        assertEquals("Martin", delta.getRemovedSalaryIssues().get(0).getManager().getFirstName());
+        assertTrue(delta.getAddedSalaryIssues().isEmpty());
+        assertMatchesFullAnalysis();
+    }
+
+    @Test
+    void testSalaryChangeAffectsManager() {
+        // CEO avg subordinate becomes (45000 + 70000 + 50000) / 3 = 55000 -> min 66000
+        IncrementalAnalyzer.Delta delta = analyzer.changeSalary("125", 70000);
+
+        assertEquals(1, delta.getAddedSalaryIssues().size());
+        assertEquals("Joe", delta.getAddedSalaryIssues().get(0).getManager().getFirstName());
+        assertTrue(delta.getRemovedSalaryIssues().isEmpty());
+        assertMatchesFullAnalysis();
+    }
+
+    @Test
+    void testHireBelowDeepestEmployeeAddsReportingLineIssue() {
+        IncrementalAnalyzer.Delta delta = analyzer.addEmployee(new Employee("305", "New", "Hire", 10000, "304"));
+
+        assertEquals(1, delta.getAddedReportingLineIssues().size());
+        assertEquals(5, delta.getAddedReportingLineIssues().get(0).getManagersCount());
+        assertEquals(1, delta.getAddedSalaryIssues().size());
+        assertMatchesFullAnalysis();
+    }
+
+    @Test
+    void testExitRemovesIssues() {
+        analyzer.addEmployee(new Employee("305", "New", "Hire", 10000, "304"));
+        IncrementalAnalyzer.Delta delta = analyzer.removeEmployee("305");
+
+        assertEquals(1, delta.getRemovedReportingLineIssues().size());
+        assertEquals(1, delta.getRemovedSalaryIssues().size());
+        assertMatchesFullAnalysis();
+    }
+
+    @Test
+    void testRoundTripsLeaveNoSpuriousDelta() {
+        double deviation = analyzer.getSalaryIssues().iterator().next().getDeviation();
+
+        analyzer.changeManager("126", "123");
+        analyzer.changeManager("126", "124");
+        // A running total would end at 49999.999999999985 instead of 50000
+        analyzer.addEmployee(new Employee("500", "Temp", "One", 0.1, "124"));
+        analyzer.addEmployee(new Employee("501", "Temp", "Two", 33333.33, "124"));
+        analyzer.removeEmployee("500");
+        analyzer.removeEmployee("501");
+
+        assertTrue(analyzer.changeSalary("126", 50000).isEmpty());
+        assertTrue(analyzer.changeSalary("124", 45000).isEmpty());
+        assertEquals(deviation, analyzer.getSalaryIssues().iterator().next().getDeviation());
+        assertMatchesFullAnalysis();
+    }
+
+    @Test
+    void testReorgUpdatesDepthsInMovedSubtree() {
+        analyzer.addEmployee(new Employee("305", "New", "Hire", 10000, "304"));
+
+        // Moving L2's line directly under the CEO shortens every chain below it
+        IncrementalAnalyzer.Delta delta = analyzer.changeManager("301", "123");
+
+        assertEquals(1, delta.getRemovedReportingLineIssues().size());
+        assertTrue(delta.getAddedReportingLineIssues().isEmpty());
+        assertMatchesFullAnalysis();
+    }
+
+    @Test
+    void testReorgIntoOwnSubtreeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> analyzer.changeManager("300", "303"));
+        assertMatchesFullAnalysis();
+    }
+
+    @Test
+    void testRemovingManagerIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> analyzer.removeEmployee("300"));
+        assertMatchesFullAnalysis();
+    }
+
+    @Test
+    void testCustomThresholdsMatchRuleEngine() {
+        SalaryRangeRule salaryRule = new SalaryRangeRule(1.1, 1.3);
+        ReportingLineRule reportingLineRule = new ReportingLineRule(2);
+        analyzer = new IncrementalAnalyzer(repository, salaryRule, reportingLineRule);
+        assertMatchesRuleEngine(salaryRule, reportingLineRule);
+        assertEquals(2, analyzer.getReportingLineIssues().size());
+
+        // Under 300 the depths shrink by one: only Employee Deep stays too deep
+        analyzer.changeManager("301", "123");
+        analyzer.changeSalary("300", 52000);
+        assertMatchesRuleEngine(salaryRule, reportingLineRule);
+        assertEquals(1, analyzer.getReportingLineIssues().size());
+    }
+
+    private void assertMatchesRuleEngine(SalaryRangeRule salaryRule, ReportingLineRule reportingLineRule) {
+        List<Object> salaryIssues = new ArrayList<>();
+        List<Object> reportingLineIssues = new ArrayList<>();
+        new RuleEngine(ColumnarEmployeeStore.from(repository))
+            .addRule(salaryRule, salaryIssues::add)
+            .addRule(reportingLineRule, reportingLineIssues::add)
+            .run();
+        assertEquals(describe(salaryIssues), describe(analyzer.getSalaryIssues()));
+        assertEquals(describe(reportingLineIssues), describe(analyzer.getReportingLineIssues()));
+    }
+
+    private void assertMatchesFullAnalysis() {
+        assertEquals(describe(new SalaryAnalyzer(repository).analyzeManagerSalaries()),
+            describe(analyzer.getSalaryIssues()));
+        assertEquals(describe(new ReportingLineAnalyzer(repository).analyzeLongReportingLines()),
+            describe(analyzer.getReportingLineIssues()));
+    }
+
+    private static Set<String> describe(Collection<?> issues) {
+        return issues.stream().map(Object::toString).collect(Collectors.toSet());
+    }
+
+    private Path createTestFile(String... lines) throws IOException {
+        Path file = tempDir.resolve("test.csv");
+        Files.write(file, List.of(lines));
+        return file;
+    }
+}
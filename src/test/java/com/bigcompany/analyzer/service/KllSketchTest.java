@@ -0,0 +1,107 @@
+package com.bigcompany.analyzer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KllSketchTest {
+
+    private static final double[] QUANTILES = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+
+    @Test
+    void testSmallInputsAreExact() {
+        KllSketch sketch = new KllSketch();
+        for (int value = 100; value >= 1; value--) {
+            sketch.update(value);
+        }
+
+        assertEquals(100, sketch.getCount());
+        assertEquals(100, sketch.getRetained());
+        assertEquals(1, sketch.quantile(0));
+        assertEquals(50, sketch.quantile(0.5));
+        assertEquals(90, sketch.quantile(0.9));
+        assertEquals(99, sketch.quantile(0.99));
+        assertEquals(100, sketch.quantile(1));
+        assertEquals(0.25, sketch.rank(25));
+    }
+
+    @Test
+    void testLargeStreamStaysWithinErrorBound() {
+        int n = 1_000_000;
+        KllSketch sketch = new KllSketch();
+        for (int value : shuffled(n, 7)) {
+            sketch.update(value);
+        }
+
+        assertEquals(n, sketch.getCount());
+        assertEquals(0, sketch.getMin());
+        assertEquals(n - 1, sketch.getMax());
+        assertTrue(sketch.getRetained() < 4 * KllSketch.DEFAULT_K, "retained " + sketch.getRetained());
+        assertWithinBound(sketch, n);
+    }
+
+    @Test
+    void testMergedSketchesStayWithinErrorBound() {
+        int n = 500_000;
+        int[] values = shuffled(n, 11);
+        KllSketch[] parts = new KllSketch[8];
+        for (int part = 0; part < parts.length; part++) {
+            parts[part] = new KllSketch();
+        }
+        for (int i = 0; i < n; i++) {
+            parts[i % parts.length].update(values[i]);
+        }
+
+        KllSketch merged = new KllSketch();
+        for (KllSketch part : parts) {
+            merged.merge(part);
+        }
+
+        assertEquals(n, merged.getCount());
+        assertEquals(0, merged.getMin());
+        assertEquals(n - 1, merged.getMax());
+        assertEquals(n / parts.length, parts[0].getCount());
+        assertWithinBound(merged, n);
+    }
+
+    @Test
+    void testRejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new KllSketch(7));
+        KllSketch sketch = new KllSketch();
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+        assertTrue(Double.isNaN(sketch.rank(1)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.update(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(Double.NaN));
+    }
+
+    /**
+     * The values are 0 ... n-1, so the true rank of an estimate is the
+     * estimate itself.
+     */
+    private static void assertWithinBound(KllSketch sketch, int n) {
+        double bound = sketch.getNormalizedRankError();
+        for (double q : QUANTILES) {
+            double estimate = sketch.quantile(q);
+            assertEquals(q, estimate / n, bound, "quantile " + q);
+            assertEquals(q, sketch.rank(q * n), bound, "rank of " + q * n);
+        }
+    }
+
+    private static int[] shuffled(int n, long seed) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,135 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.OrgGenerator;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.SubtreeIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrgShapeAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSmallOrganization() throws IOException {
+        Path csvFile = tempDir.resolve("employees.csv");
+        Files.write(csvFile, List.of(
+            "Id,firstName,lastName,salary,managerId",
+            "1,Ann,Chief,200000,",
+            "2,Bob,Lead,100000,1",
+            "3,Cid,Lead,100000,1",
+            "4,Dee,Dev,60000,2",
+            "5,Eve,Dev,60000,2",
+            "6,Fay,Dev,60000,2",
+            "7,Gus,Dev,60000,3",
+            "8,Hal,Intern,30000,7"
+        ));
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+
+        OrgShapeAnalyzer.OrgShape shape = new OrgShapeAnalyzer(store, null, 2, 2, 3).analyze();
+
+        assertArrayEquals(new long[] {4, 2, 1, 1}, shape.getFanOutHistogram());
+        assertArrayEquals(new long[] {1, 2, 4, 1}, shape.getDepthHistogram());
+        assertEquals(8, shape.getSubtreeSize(store.indexOf("1")));
+        assertEquals(4, shape.getSubtreeSize(store.indexOf("2")));
+        assertEquals(3, shape.getSubtreeSize(store.indexOf("3")));
+        assertEquals(1, shape.getSubtreeSize(store.indexOf("8")));
+        assertArrayEquals(new int[] {store.indexOf("1"), store.indexOf("2"), store.indexOf("3")},
+            shape.getHeaviestManagers());
+
+        List<String> issues = new ArrayList<>();
+        for (OrgShapeAnalyzer.SpanIssue issue : shape.getSpanIssues()) {
+            issues.add(issue.toString());
+        }
+        assertEquals(List.of(
+            "Bob Lead has too many direct reports: 3 (maximum is 2)",
+            "Cid Lead has too few direct reports: 1 (minimum is 2)",
+            "Gus Dev has too few direct reports: 1 (minimum is 2)"), issues);
+    }
+
+    @Test
+    void testParallelMatchesSequentialAndSubtreeIndex() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "60000", "--max-depth", "9", "--fanout", "6", "--fanout-distribution", "power-law",
+            "--seed", "31", csvFile.toString()})).generate();
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+        SubtreeIndex index = SubtreeIndex.of(store);
+
+        OrgShapeAnalyzer.OrgShape sequential = new OrgShapeAnalyzer(store, null, 2, 8, 20).analyze();
+        OrgShapeAnalyzer.OrgShape parallel;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            parallel = new OrgShapeAnalyzer(store, pool, 2, 8, 20).analyze();
+        } finally {
+            pool.shutdown();
+        }
+
+        long[] fanOut = new long[sequential.getFanOutHistogram().length];
+        List<String> expectedIssues = new ArrayList<>();
+        for (int employee = 0; employee < store.size(); employee++) {
+            assertEquals(index.subtreeSize(employee), sequential.getSubtreeSize(employee));
+            assertEquals(index.subtreeSize(employee), parallel.getSubtreeSize(employee));
+            int span = store.childCount(employee);
+            fanOut[span]++;
+            if (span > 0 && (span < 2 || span > 8)) {
+                expectedIssues.add(store.id(employee));
+            }
+        }
+        assertArrayEquals(fanOut, sequential.getFanOutHistogram());
+        assertArrayEquals(fanOut, parallel.getFanOutHistogram());
+        assertArrayEquals(IntStream.of(index.depthHistogram(store.ceoIndex())).asLongStream().toArray(),
+            sequential.getDepthHistogram());
+        assertArrayEquals(sequential.getDepthHistogram(), parallel.getDepthHistogram());
+
+        int[] heaviest = IntStream.range(0, store.size())
+            .filter(store::isManager)
+            .boxed()
+            .sorted(Comparator.<Integer>comparingInt(index::subtreeSize).reversed()
+                .thenComparing(Comparator.naturalOrder()))
+            .limit(20)
+            .mapToInt(Integer::intValue)
+            .toArray();
+        assertArrayEquals(heaviest, sequential.getHeaviestManagers());
+        assertArrayEquals(heaviest, parallel.getHeaviestManagers());
+
+        assertEquals(expectedIssues, ids(sequential));
+        assertEquals(expectedIssues, ids(parallel));
+    }
+
+    @Test
+    void testRejectsInvalidLimits() throws IOException {
+        Path csvFile = tempDir.resolve("employees.csv");
+        Files.write(csvFile, List.of("Id,firstName,lastName,salary,managerId", "1,Ann,Chief,200000,"));
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+
+        assertThrows(IllegalArgumentException.class, () -> new OrgShapeAnalyzer(store, null, 0, 5, 10));
+        assertThrows(IllegalArgumentException.class, () -> new OrgShapeAnalyzer(store, null, 6, 5, 10));
+        assertThrows(IllegalArgumentException.class, () -> new OrgShapeAnalyzer(store, null, 1, 5, 0));
+
+        OrgShapeAnalyzer.OrgShape shape = new OrgShapeAnalyzer(store).analyze();
+        assertArrayEquals(new long[] {1}, shape.getFanOutHistogram());
+        assertArrayEquals(new long[] {1}, shape.getDepthHistogram());
+        assertArrayEquals(new int[0], shape.getHeaviestManagers());
+    }
+
+    private static List<String> ids(OrgShapeAnalyzer.OrgShape shape) {
+        List<String> ids = new ArrayList<>();
+        for (OrgShapeAnalyzer.SpanIssue issue : shape.getSpanIssues()) {
+            ids.add(issue.getManager().getId());
+        }
+        return ids;
+    }
+}
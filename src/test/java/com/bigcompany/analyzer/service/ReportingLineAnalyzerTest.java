@@ -1,5 +1,7 @@
 package com.bigcompany.analyzer.service;
 
+import com.bigcompany.analyzer.OrgGenerator;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
 import com.bigcompany.analyzer.repository.EmployeeRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,7 +10,9 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -158,6 +162,104 @@ class ReportingLineAnalyzerTest {
         assertEquals("Joe", chain.get(chain.size() - 1).getFirstName());
     }
 
+    @Test
+    void testIssuesFromSeparateBranchesAreReportedInFileOrder() throws IOException {
+        // Two branches under the CEO; only the deeper one exceeds the limit
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "407,Deep,Second,30000,306",
+            "123,Joe,Doe,60000,",
+            "201,Short,Branch,55000,123",
+            "202,Short,Leaf,50000,201",
+            "301,L1,Manager,55000,123",
+            "302,L2,Manager,50000,301",
+            "303,L3,Manager,45000,302",
+            "304,L4,Manager,40000,303",
+            "305,L5,Manager,35000,304",
+            "306,L6,Manager,30000,305",
+            "406,Deep,First,30000,305"
+        );
+
+        repository.loadFromFile(csvFile.toString());
+        List<ReportingLineAnalyzer.ReportingLineIssue> issues = analyzer.analyzeLongReportingLines();
+
+        assertEquals(3, issues.size());
+        assertEquals("407", issues.get(0).getEmployee().getId());
+        assertEquals(6, issues.get(0).getManagersCount());
+        assertEquals("306", issues.get(1).getEmployee().getId());
+        assertEquals("406", issues.get(2).getEmployee().getId());
+        assertEquals(5, issues.get(2).getManagersCount());
+        assertEquals(7, issues.get(2).getReportingChain().size());
+    }
+
+    @Test
+    void testOrgDeeperThanThousandLevels() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("Id,firstName,lastName,salary,managerId");
+        lines.add("0,Chief,Executive,100000,");
+        for (int i = 1; i <= 1500; i++) {
+            lines.add(i + ",Level" + i + ",Manager,50000," + (i - 1));
+        }
+        Path csvFile = createTestFile(lines.toArray(new String[0]));
+
+        repository.loadFromFile(csvFile.toString());
+        List<ReportingLineAnalyzer.ReportingLineIssue> issues = analyzer.analyzeLongReportingLines();
+
+        // Levels 6..1500 have more than 4 managers between them and the CEO
+        assertEquals(1495, issues.size());
+        ReportingLineAnalyzer.ReportingLineIssue deepest = issues.get(issues.size() - 1);
+        assertEquals(1499, deepest.getManagersCount());
+        assertEquals(1501, deepest.getReportingChain().size());
+    }
+
+    @Test
+    void testColumnarStoreMatchesRepository() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "301,Level1,Manager,55000,123",
+            "302,Level2,Manager,50000,301",
+            "303,Level3,Manager,45000,302",
+            "304,Level4,Manager,40000,303",
+            "305,Level5,Manager,35000,304",
+            "306,Employee1,Deep,30000,305",
+            "307,Employee2,Deep,30000,305"
+        );
+
+        repository.loadFromFile(csvFile.toString());
+        List<ReportingLineAnalyzer.ReportingLineIssue> expected = analyzer.analyzeLongReportingLines();
+        List<ReportingLineAnalyzer.ReportingLineIssue> actual =
+            new ReportingLineAnalyzer(ColumnarEmployeeStore.load(csvFile.toString())).analyzeLongReportingLines();
+
+        assertEquals(2, actual.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    @Test
+    void testParallelStoreMatchesSequential() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "200000", "--max-depth", "8", "--fanout", "6", csvFile.toString()})).generate();
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+
+        List<ReportingLineAnalyzer.ReportingLineIssue> expected = new ReportingLineAnalyzer(store).analyzeLongReportingLines();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<ReportingLineAnalyzer.ReportingLineIssue> actual = new ReportingLineAnalyzer(store, pool).analyzeLongReportingLines();
+
+            assertFalse(expected.isEmpty());
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).toString(), actual.get(i).toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     private Path createTestFile(String... lines) throws IOException {
         Path file = tempDir.resolve("test.csv");
         Files.write(file, List.of(lines));
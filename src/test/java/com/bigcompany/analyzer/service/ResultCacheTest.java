@@ -0,0 +1,169 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.OrgGenerator;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testStoredResultsReadBackUnchanged() throws IOException {
+        ResultCache.Results results = analyze(generate(1), new SalaryRangeRule(), new ReportingLineRule(3));
+        assertFalse(results.getSalaryIssues().isEmpty());
+        assertFalse(results.getReportingLineIssues().isEmpty());
+
+        ResultCache cache = new ResultCache(tempDir.resolve("cache"), 1L << 30);
+        assertNull(cache.get(1, new SalaryRangeRule(), new ReportingLineRule(3)));
+        cache.put(1, new SalaryRangeRule(), new ReportingLineRule(3), results);
+        ResultCache.Results cached = cache.get(1, new SalaryRangeRule(), new ReportingLineRule(3));
+
+        assertEquals(results.getEmployees(), cached.getEmployees());
+        assertEquals(describe(results), describe(cached));
+        for (int i = 0; i < results.getReportingLineIssues().size(); i++) {
+            assertEquals(results.getReportingLineIssues().get(i).getMaxManagersBetween(),
+                cached.getReportingLineIssues().get(i).getMaxManagersBetween());
+        }
+    }
+
+    @Test
+    void testEntriesAreKeyedByContentAndThresholds() throws IOException {
+        ResultCache cache = new ResultCache(tempDir.resolve("cache"), 1L << 30);
+        cache.put(1, new SalaryRangeRule(), new ReportingLineRule(), emptyResults(10));
+
+        assertNotNull(cache.get(1, new SalaryRangeRule(), new ReportingLineRule()));
+        assertNull(cache.get(2, new SalaryRangeRule(), new ReportingLineRule()));
+        assertNull(cache.get(1, new SalaryRangeRule(1.1, 1.5), new ReportingLineRule()));
+        assertNull(cache.get(1, new SalaryRangeRule(), new ReportingLineRule(5)));
+    }
+
+    @Test
+    void testDamagedEntryIsAMiss() throws IOException {
+        ResultCache cache = new ResultCache(tempDir.resolve("cache"), 1L << 30);
+        cache.put(1, new SalaryRangeRule(), new ReportingLineRule(), emptyResults(10));
+        Path entry = cache.entryFor(1, new SalaryRangeRule(), new ReportingLineRule());
+
+        byte[] data = Files.readAllBytes(entry);
+        data[20] ^= 1;
+        Files.write(entry, data);
+        assertNull(cache.get(1, new SalaryRangeRule(), new ReportingLineRule()));
+
+        Files.write(entry, new byte[3]);
+        assertNull(cache.get(1, new SalaryRangeRule(), new ReportingLineRule()));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() throws IOException {
+        Path directory = tempDir.resolve("cache");
+        ResultCache unbounded = new ResultCache(directory, 1L << 30);
+        for (long hash = 1; hash <= 3; hash++) {
+            unbounded.put(hash, new SalaryRangeRule(), new ReportingLineRule(), emptyResults(hash));
+            Path entry = unbounded.entryFor(hash, new SalaryRangeRule(), new ReportingLineRule());
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(hash * 1000));
+        }
+        long entryBytes = Files.size(unbounded.entryFor(1, new SalaryRangeRule(), new ReportingLineRule()));
+
+        // Reading the oldest entry makes it the most recently used
+        ResultCache cache = new ResultCache(directory, 2 * entryBytes);
+        assertNotNull(cache.get(1, new SalaryRangeRule(), new ReportingLineRule()));
+        cache.evict();
+
+        assertNotNull(cache.get(1, new SalaryRangeRule(), new ReportingLineRule()));
+        assertNull(cache.get(2, new SalaryRangeRule(), new ReportingLineRule()));
+        assertNotNull(cache.get(3, new SalaryRangeRule(), new ReportingLineRule()));
+    }
+
+    @Test
+    void testEvictionDeletesStaleTempFiles() throws IOException {
+        Path directory = tempDir.resolve("cache");
+        ResultCache cache = new ResultCache(directory, 1L << 30);
+        Path stale = Files.createFile(directory.resolve("0123456789abcdef.results42.tmp"));
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(
+            System.currentTimeMillis() - ResultCache.STALE_TEMP_MILLIS - 1000));
+        Path writing = Files.createFile(directory.resolve("0123456789abcdef.results43.tmp"));
+
+        cache.evict();
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(writing));
+    }
+
+    @Test
+    void testConcurrentWritersLeaveCompleteEntries() throws Exception {
+        Path directory = tempDir.resolve("cache");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                long hash = i % 10;
+                writes.add(pool.submit(() -> {
+                    ResultCache cache = new ResultCache(directory, 1L << 30);
+                    cache.put(hash, new SalaryRangeRule(), new ReportingLineRule(), emptyResults(hash));
+                    assertEquals(hash, cache.get(hash, new SalaryRangeRule(), new ReportingLineRule()).getEmployees());
+                    return null;
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(), files.filter(file -> file.toString().endsWith(".tmp")).toList());
+        }
+    }
+
+    private Path generate(long seed) throws IOException {
+        Path csvFile = tempDir.resolve("generated-" + seed + ".csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "2000", "--max-depth", "7", "--fanout", "4", "--salary-violations", "0.05",
+            "--depth-violations", "5", "--seed", Long.toString(seed), csvFile.toString()})).generate();
+        return csvFile;
+    }
+
+    private static ResultCache.Results analyze(Path csvFile, SalaryRangeRule salaryRule,
+                                               ReportingLineRule reportingLineRule) throws IOException {
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+        List<SalaryAnalyzer.SalaryIssue> salaryIssues = new ArrayList<>();
+        List<ReportingLineAnalyzer.ReportingLineIssue> reportingIssues = new ArrayList<>();
+        new RuleEngine(store)
+            .addRule(salaryRule, salaryIssues::add)
+            .addRule(reportingLineRule, reportingIssues::add)
+            .run();
+        return new ResultCache.Results(store.size(), salaryIssues, reportingIssues);
+    }
+
+    private static ResultCache.Results emptyResults(long employees) {
+        return new ResultCache.Results(employees, List.of(), List.of());
+    }
+
+    private static List<String> describe(ResultCache.Results results) {
+        List<String> lines = new ArrayList<>();
+        for (SalaryAnalyzer.SalaryIssue issue : results.getSalaryIssues()) {
+            lines.add(issue.getManager().getId() + " " + issue + " " + issue.getExpectedMinSalary()
+                + " " + issue.getExpectedMaxSalary() + " " + issue.getManager().getManagerId());
+        }
+        for (ReportingLineAnalyzer.ReportingLineIssue issue : results.getReportingLineIssues()) {
+            lines.add(issue.getEmployee().getId() + " " + issue);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,164 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.OrgGenerator;
+import com.bigcompany.analyzer.model.Employee;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFusedPassMatchesAnalyzers() throws IOException {
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(generate(40_000).toString());
+        List<SalaryAnalyzer.SalaryIssue> salaryIssues = new ArrayList<>();
+        List<ReportingLineAnalyzer.ReportingLineIssue> reportingIssues = new ArrayList<>();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new RuleEngine(store, pool)
+                .addRule(new SalaryRangeRule(), salaryIssues::add)
+                .addRule(new ReportingLineRule(), reportingIssues::add)
+                .run();
+        } finally {
+            pool.shutdown();
+        }
+
+        List<String> expectedSalary = new SalaryAnalyzer(store).analyzeManagerSalaries().stream()
+            .map(SalaryAnalyzer.SalaryIssue::toString).toList();
+        List<String> expectedReporting = new ReportingLineAnalyzer(store).analyzeLongReportingLines().stream()
+            .map(ReportingLineAnalyzer.ReportingLineIssue::toString).toList();
+        assertFalse(expectedSalary.isEmpty());
+        assertFalse(expectedReporting.isEmpty());
+        assertEquals(expectedSalary, salaryIssues.stream().map(SalaryAnalyzer.SalaryIssue::toString).toList());
+        assertEquals(expectedReporting,
+            reportingIssues.stream().map(ReportingLineAnalyzer.ReportingLineIssue::toString).toList());
+    }
+
+    @Test
+    void testCollectedPartitionsMatchStreamedIssues() throws IOException {
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(generate(40_000).toString());
+        List<ReportingLineAnalyzer.ReportingLineIssue> streamed = new ArrayList<>();
+        List<TopK<ReportingLineAnalyzer.ReportingLineIssue>> collected = new ArrayList<>();
+        Comparator<ReportingLineAnalyzer.ReportingLineIssue> longest =
+            Comparator.comparingInt(ReportingLineAnalyzer.ReportingLineIssue::getManagersCount);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new RuleEngine(store, pool)
+                .addRule(new ReportingLineRule(), streamed::add)
+                .collect(new ReportingLineRule(), TopK.collector(10, longest), collected::add)
+                .run();
+        } finally {
+            pool.shutdown();
+        }
+
+        TopK<ReportingLineAnalyzer.ReportingLineIssue> expected = new TopK<>(10, longest);
+        streamed.forEach(expected);
+        assertEquals(1, collected.size());
+        assertEquals(streamed.size(), collected.get(0).count());
+        assertEquals(expected.toList().stream().map(issue -> issue.getEmployee().getId()).toList(),
+            collected.get(0).toList().stream().map(issue -> issue.getEmployee().getId()).toList());
+    }
+
+    @Test
+    void testConfiguredThresholds() throws IOException {
+        // Average subordinate salary is 46000; Joe earns 30.4% more
+        ColumnarEmployeeStore store = load(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "125,Bob,Ronstad,47000,123",
+            "300,Alice,Hasacat,37000,124",
+            "305,Brett,Hardleaf,34000,300"
+        );
+        List<SalaryAnalyzer.SalaryIssue> salaryIssues = new ArrayList<>();
+        List<ReportingLineAnalyzer.ReportingLineIssue> reportingIssues = new ArrayList<>();
+
+        new RuleEngine(store)
+            .addRule(new SalaryRangeRule(1.0, 1.25), salaryIssues::add)
+            .addRule(new ReportingLineRule(1), reportingIssues::add)
+            .run();
+
+        assertEquals("123", salaryIssues.get(0).getManager().getId());
+        assertFalse(salaryIssues.get(0).isEarningTooLittle());
+        assertEquals(57500, salaryIssues.get(0).getExpectedSalary(), 0.001);
+
+        assertEquals(1, reportingIssues.size());
+        ReportingLineAnalyzer.ReportingLineIssue issue = reportingIssues.get(0);
+        assertEquals("305", issue.getEmployee().getId());
+        assertEquals(1, issue.getExcessManagers());
+        assertEquals(List.of("305", "300", "124", "123"),
+            issue.getReportingChain().stream().map(Employee::getId).toList());
+        assertTrue(issue.toString().contains("maximum is 1)"));
+    }
+
+    @Test
+    void testCustomRuleSharesNodeValues() throws IOException {
+        ColumnarEmployeeStore store = load(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "125,Bob,Ronstad,47000,123",
+            "300,Alice,Hasacat,50000,124"
+        );
+        List<String> outEarned = new ArrayList<>();
+
+        // Managers with a direct subordinate earning more than they do
+        OrgRule<String> rule = (node, issues) -> {
+            if (node.isManager() && node.maxSubordinateSalary() > node.salary()) {
+                issues.accept(store.id(node.index()) + " at depth " + node.depth());
+            }
+        };
+        OrgRule<String> withDepth = new OrgRule<>() {
+            @Override
+            public void check(NodeContext node, Consumer<? super String> issues) {
+                rule.check(node, issues);
+            }
+
+            @Override
+            public boolean needsDepth() {
+                return true;
+            }
+        };
+        new RuleEngine(store).addRule(withDepth, outEarned::add).run();
+
+        assertEquals(List.of("124 at depth 1"), outEarned);
+        assertThrows(IllegalStateException.class, () -> new RuleEngine(store).addRule(rule, outEarned::add).run());
+    }
+
+    @Test
+    void testInvalidThresholdsThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new SalaryRangeRule(1.5, 1.2));
+        assertThrows(IllegalArgumentException.class, () -> new SalaryRangeRule(0, 1.2));
+        assertThrows(IllegalArgumentException.class, () -> new ReportingLineRule(-1));
+    }
+
+    private Path generate(int rows) throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", Integer.toString(rows), "--fanout", "5", "--salary-violations", "0.05",
+            "--depth-violations", "20", "--seed", "3", csvFile.toString()})).generate();
+        return csvFile;
+    }
+
+    private ColumnarEmployeeStore load(String... lines) throws IOException {
+        Path csvFile = tempDir.resolve("test.csv");
+        Files.write(csvFile, List.of(lines));
+        return ColumnarEmployeeStore.load(csvFile.toString());
+    }
+}
@@ -1,5 +1,7 @@
 package com.bigcompany.analyzer.service;
 
+import com.bigcompany.analyzer.OrgGenerator;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
 import com.bigcompany.analyzer.repository.EmployeeRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,6 +11,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -150,6 +153,51 @@ class SalaryAnalyzerTest {
         assertTrue(issues2.isEmpty());
     }
 
+    @Test
+    void testColumnarStoreMatchesRepository() throws IOException {
+        Path csvFile = createTestFile(
+            "Id,firstName,lastName,salary,managerId",
+            "123,Joe,Doe,60000,",
+            "124,Martin,Chekov,45000,123",
+            "125,Bob,Ronstad,47000,123",
+            "300,Alice,Hasacat,50000,124",
+            "301,Brett,Hardleaf,20000,125"
+        );
+
+        repository.loadFromFile(csvFile.toString());
+        List<SalaryAnalyzer.SalaryIssue> expected = analyzer.analyzeManagerSalaries();
+        List<SalaryAnalyzer.SalaryIssue> actual =
+            new SalaryAnalyzer(ColumnarEmployeeStore.load(csvFile.toString())).analyzeManagerSalaries();
+
+        assertEquals(2, actual.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    @Test
+    void testParallelStoreMatchesSequential() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "200000", "--salary-violations", "0.2", csvFile.toString()})).generate();
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+
+        List<SalaryAnalyzer.SalaryIssue> expected = new SalaryAnalyzer(store).analyzeManagerSalaries();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<SalaryAnalyzer.SalaryIssue> actual = new SalaryAnalyzer(store, pool).analyzeManagerSalaries();
+
+            assertFalse(expected.isEmpty());
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).toString(), actual.get(i).toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     private Path createTestFile(String... lines) throws IOException {
         Path file = tempDir.resolve("test.csv");
         Files.write(file, List.of(lines));
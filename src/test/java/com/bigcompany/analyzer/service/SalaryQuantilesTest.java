@@ -0,0 +1,194 @@
+package com.bigcompany.analyzer.service;
+
+import com.bigcompany.analyzer.OrgGenerator;
+import com.bigcompany.analyzer.repository.ColumnarEmployeeStore;
+import com.bigcompany.analyzer.repository.SubtreeIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SalaryQuantilesTest {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void shutDownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testSmallOrganizationIsExact() throws IOException {
+        Path csvFile = tempDir.resolve("employees.csv");
+        Files.write(csvFile, List.of(
+            "Id,firstName,lastName,salary,managerId",
+            "1,Ann,Chief,200000,",
+            "2,Bob,Lead,100000,1",
+            "3,Cid,Lead,120000,1",
+            "4,Dee,Dev,60000,2",
+            "5,Eve,Dev,70000,2",
+            "6,Fay,Dev,80000,3",
+            "7,Gus,Intern,30000,6"
+        ));
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+        int bob = store.indexOf("2");
+        int cid = store.indexOf("3");
+        int fay = store.indexOf("6");
+
+        SalaryQuantiles quantiles = SalaryQuantiles.of(store, null, KllSketch.DEFAULT_K, new int[] {fay, bob, cid});
+
+        assertEquals(4, quantiles.getLevels());
+        assertEquals(7, quantiles.getCompany().getCount());
+        assertEquals(80000, quantiles.getCompany().quantile(0.5));
+        assertEquals(100000, quantiles.getLevel(1).quantile(0.5));
+        assertEquals(60000, quantiles.getLevel(2).getMin());
+        assertEquals(80000, quantiles.getLevel(2).getMax());
+        assertEquals(3, quantiles.getSubtree(bob).getCount());
+        assertEquals(70000, quantiles.getSubtree(bob).quantile(0.5));
+        // Cid's subtree includes Fay's, which was sketched on its own first
+        assertEquals(3, quantiles.getSubtree(cid).getCount());
+        assertEquals(30000, quantiles.getSubtree(cid).getMin());
+        assertEquals(2, quantiles.getSubtree(fay).getCount());
+        assertArrayEquals(new int[] {fay, bob, cid}, quantiles.getSubtreeRoots());
+
+        assertThrows(IllegalArgumentException.class, () -> quantiles.getSubtree(store.indexOf("1")));
+        assertThrows(IllegalArgumentException.class,
+            () -> SalaryQuantiles.of(store, null, KllSketch.DEFAULT_K, new int[] {bob, bob}));
+        assertThrows(IllegalArgumentException.class,
+            () -> SalaryQuantiles.of(store, null, KllSketch.DEFAULT_K, new int[] {store.size()}));
+        assertThrows(IllegalArgumentException.class, () -> SalaryQuantiles.of(store, null, 4, new int[0]));
+    }
+
+    @Test
+    void testParallelAndSequentialStayWithinErrorBound() throws IOException {
+        Path csvFile = tempDir.resolve("generated.csv");
+        new OrgGenerator(OrgGenerator.Options.parse(new String[] {
+            "--rows", "80000", "--max-depth", "8", "--fanout", "5", "--salary-violations", "0.1",
+            "--seed", "41", csvFile.toString()})).generate();
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+        SubtreeIndex index = SubtreeIndex.of(store);
+        int[] roots = new OrgShapeAnalyzer(store, null, 1, 100, 12).analyze().getHeaviestManagers();
+
+        SalaryQuantiles sequential = SalaryQuantiles.of(store, null, KllSketch.DEFAULT_K, roots);
+        SalaryQuantiles parallel = SalaryQuantiles.of(store, pool, KllSketch.DEFAULT_K, roots);
+
+        List<List<Double>> byLevel = new ArrayList<>();
+        for (int employee = 0; employee < store.size(); employee++) {
+            int depth = index.depth(employee);
+            while (byLevel.size() <= depth) {
+                byLevel.add(new ArrayList<>());
+            }
+            byLevel.get(depth).add(store.salary(employee));
+        }
+        assertEquals(byLevel.size(), sequential.getLevels());
+        assertEquals(byLevel.size(), parallel.getLevels());
+        for (int depth = 0; depth < byLevel.size(); depth++) {
+            assertWithinBound(byLevel.get(depth), sequential.getLevel(depth));
+            assertWithinBound(byLevel.get(depth), parallel.getLevel(depth));
+        }
+
+        for (int root : roots) {
+            List<Double> salaries = new ArrayList<>();
+            for (int employee = 0; employee < store.size(); employee++) {
+                if (isUnder(store, employee, root)) {
+                    salaries.add(store.salary(employee));
+                }
+            }
+            assertEquals(index.subtreeSize(root), salaries.size());
+            assertWithinBound(salaries, sequential.getSubtree(root));
+            assertWithinBound(salaries, parallel.getSubtree(root));
+        }
+    }
+
+    @Test
+    void testLongChainHasOneSalaryPerLevel() throws IOException {
+        int rows = 40_000;
+        Path csvFile = tempDir.resolve("chain.csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("Id,firstName,lastName,salary,managerId");
+        lines.add("0,First,Chief," + rows + ",");
+        for (int id = 1; id < rows; id++) {
+            lines.add(id + ",First,Last," + (rows - id) + "," + (id - 1));
+        }
+        Files.write(csvFile, lines);
+        ColumnarEmployeeStore store = ColumnarEmployeeStore.load(csvFile.toString());
+        int middle = store.indexOf(String.valueOf(rows / 2));
+
+        SalaryQuantiles quantiles =
+            SalaryQuantiles.of(store, pool, KllSketch.DEFAULT_K, new int[] {middle});
+
+        assertEquals(rows, quantiles.getLevels());
+        for (int depth = 0; depth < rows; depth++) {
+            assertEquals(1, quantiles.getLevel(depth).getCount());
+            assertEquals(rows - depth, quantiles.getLevel(depth).getMin());
+        }
+        assertEquals(rows / 2, quantiles.getSubtree(middle).getCount());
+        assertEquals(rows / 2, quantiles.getSubtree(middle).getMax());
+        assertEquals(rows, quantiles.getCompany().getCount());
+    }
+
+    private static boolean isUnder(ColumnarEmployeeStore store, int employee, int root) {
+        for (int i = employee; i != ColumnarEmployeeStore.NO_MANAGER; i = store.manager(i)) {
+            if (i == root) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that, for each quantile, the share of salaries below the
+     * estimate and the share at or below it bracket the requested rank
+     * within the sketch's error bound.
+     */
+    private static void assertWithinBound(List<Double> salaries, KllSketch sketch) {
+        double[] sorted = salaries.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        assertEquals(sorted.length, sketch.getCount());
+        assertEquals(sorted[0], sketch.getMin());
+        assertEquals(sorted[sorted.length - 1], sketch.getMax());
+        double bound = sketch.getNormalizedRankError();
+        for (double q : QUANTILES) {
+            double estimate = sketch.quantile(q);
+            double below = (double) lowerBound(sorted, estimate) / sorted.length;
+            double atOrBelow = (double) upperBound(sorted, estimate) / sorted.length;
+            assertTrue(below <= q + bound && atOrBelow >= q - bound,
+                "quantile " + q + " of " + sorted.length + ": " + estimate + " has rank " + below + ".." + atOrBelow);
+        }
+    }
+
+    private static int lowerBound(double[] sorted, double value) {
+        int i = Arrays.binarySearch(sorted, value);
+        if (i < 0) {
+            return -i - 1;
+        }
+        while (i > 0 && sorted[i - 1] == value) {
+            i--;
+        }
+        return i;
+    }
+
+    private static int upperBound(double[] sorted, double value) {
+        int i = Arrays.binarySearch(sorted, value);
+        if (i < 0) {
+            return -i - 1;
+        }
+        while (i < sorted.length && sorted[i] == value) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,64 @@
+package com.bigcompany.analyzer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTest {
+
+    @Test
+    void testKeepsGreatestItems() {
+        TopK<Integer> top = new TopK<>(3, Comparator.naturalOrder());
+        for (int value : new int[] {5, 1, 9, 7, 3, 8}) {
+            top.accept(value);
+        }
+
+        assertEquals(List.of(9, 8, 7), top.toList());
+        assertEquals(6, top.count());
+    }
+
+    @Test
+    void testEqualItemsKeepOfferOrder() {
+        // Ranks by the first character only; the earliest offered of equal items wins
+        TopK<String> top = new TopK<>(2, Comparator.comparing(s -> s.charAt(0)));
+        for (String value : new String[] {"b1", "a1", "b2", "b3", "a2"}) {
+            top.accept(value);
+        }
+
+        assertEquals(List.of("b1", "b2"), top.toList());
+    }
+
+    @Test
+    void testMergedPartitionsMatchSinglePass() {
+        Random random = new Random(1);
+        int[] values = IntStream.range(0, 10_000).map(i -> random.nextInt(500)).toArray();
+        // Order by value / 10, so that many items are equal
+        Comparator<int[]> order = Comparator.comparingInt(item -> item[0] / 10);
+
+        TopK<int[]> single = new TopK<>(50, order);
+        TopK<int[]> merged = null;
+        for (int start = 0; start < values.length; start += 1234) {
+            TopK<int[]> partition = new TopK<>(50, order);
+            for (int i = start; i < Math.min(values.length, start + 1234); i++) {
+                int[] item = {values[i], i};
+                single.accept(item);
+                partition.accept(item);
+            }
+            merged = merged == null ? partition : merged.merge(partition);
+        }
+
+        assertEquals(single.count(), merged.count());
+        assertEquals(single.toList().stream().map(item -> item[1]).toList(),
+            merged.toList().stream().map(item -> item[1]).toList());
+    }
+
+    @Test
+    void testInvalidSizeThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new TopK<Integer>(0, Comparator.naturalOrder()));
+    }
+}